@@ -0,0 +1,141 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.XphrTestingAssignmentApplication;
+import org.example.xphrtestingassignment.columnar.ColumnarReportEngine;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * The application started once per benchmark JVM on a generated dataset.
+ * <p>
+ * By default the database is an embedded PostgreSQL started in-process. Set {@code BENCH_JDBC_URL} (with
+ * {@code BENCH_JDBC_USERNAME} and {@code BENCH_JDBC_PASSWORD}) to run against an existing server instead; its
+ * schema is dropped and migrated again on start, so point it at a scratch database. The size of the
+ * {@link DatasetGenerator} dataset is set with {@code BENCH_EMPLOYEES}, {@code BENCH_PROJECTS} and
+ * {@code BENCH_YEARS}. {@code BENCH_COLUMNAR=true} enables the columnar report engine, which is loaded once the
+ * dataset is generated. {@code BENCH_TOKENS=true} enables the stateless session tokens. Each setting can also be passed as a system property such as
+ * {@code -Dbench.employees=5000}; JMH forks inherit both.
+ */
+@Slf4j
+public final class BenchmarkEnvironment {
+
+    /**
+     * The generated records end here; {@link ReportWindow}s lie in the last year before it.
+     */
+    public static final LocalDate DATASET_END = LocalDate.of(2026, 1, 1);
+
+    private static BenchmarkEnvironment instance;
+
+    private final EmbeddedPostgres postgres;
+
+    @Getter
+    private final ConfigurableApplicationContext context;
+
+    @Getter
+    private final int port;
+
+    private BenchmarkEnvironment() throws IOException {
+        String url = setting("bench.jdbc-url", "BENCH_JDBC_URL", null);
+        String username = setting("bench.jdbc-username", "BENCH_JDBC_USERNAME", "postgres");
+        String password = setting("bench.jdbc-password", "BENCH_JDBC_PASSWORD", "postgres");
+        boolean columnar = Boolean.parseBoolean(setting("bench.columnar", "BENCH_COLUMNAR", "false"));
+        boolean tokens = Boolean.parseBoolean(setting("bench.tokens", "BENCH_TOKENS", "false"));
+        if (url == null) {
+            postgres = EmbeddedPostgres.builder().start();
+            url = postgres.getJdbcUrl("postgres", "postgres");
+        } else {
+            postgres = null;
+            // start from the migrations like on an embedded database, without the records of an earlier run
+            Flyway.configure().dataSource(url, username, password).cleanDisabled(false).load().clean();
+        }
+
+        // passed as command line arguments: unlike builder properties they take precedence over application.properties
+        Map<String, String> properties = Map.ofEntries(
+                Map.entry("spring.datasource.url", url),
+                Map.entry("spring.datasource.username", username),
+                Map.entry("spring.datasource.password", password),
+                Map.entry("server.port", "0"),
+                Map.entry("spring.main.banner-mode", "off"),
+                Map.entry("logging.level.root", "WARN"),
+                // nothing scheduled while measuring
+                Map.entry("report.rollup.reconcile-cron", "-"),
+                Map.entry("report.partition.maintenance-cron", "-"),
+                Map.entry("report.columnar.reload-cron", "-"),
+                Map.entry("report.columnar.enabled", String.valueOf(columnar)),
+                Map.entry("security.token.enabled", String.valueOf(tokens)));
+        context = new SpringApplicationBuilder(XphrTestingAssignmentApplication.class)
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+        port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        try {
+            new DatasetGenerator(context.getBean(DataSource.class)).generate(new DatasetGenerator.Spec(
+                    Integer.parseInt(setting("bench.employees", "BENCH_EMPLOYEES", "600")),
+                    Integer.parseInt(setting("bench.projects", "BENCH_PROJECTS", "100")),
+                    Integer.parseInt(setting("bench.years", "BENCH_YEARS", "1")),
+                    DATASET_END, 42));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not generate the dataset", e);
+        }
+        if (columnar) {
+            // the generator bypasses the change events: read the dataset as a whole
+            context.getBean(ColumnarReportEngine.class).reload();
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    /**
+     * Starts the environment on first use and returns the same one afterwards.
+     */
+    public static synchronized BenchmarkEnvironment get() {
+        if (instance == null) {
+            try {
+                instance = new BenchmarkEnvironment();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start the embedded database", e);
+            }
+        }
+        return instance;
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public <T> T bean(String name, Class<T> type) {
+        return context.getBean(name, type);
+    }
+
+    private void close() {
+        context.close();
+        if (postgres != null) {
+            try {
+                postgres.close();
+            } catch (IOException e) {
+                log.warn("could not stop the embedded database", e);
+            }
+        }
+    }
+
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(env);
+        }
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import org.example.xphrtestingassignment.columnar.ColumnarReportEngine;
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.repository.TimeRecordRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first report page read from the database ({@link TimeRecordRepository}) and from the columnar report engine,
+ * on the same dataset. Run with {@code -prof gc} to see that the engine allocates per report row, not per record.
+ * <p>
+ * The setup prints the heap retained by one engine snapshot, measured as the growth of the heap after a full
+ * collection while a second snapshot is loaded, next to the estimate of {@link ColumnarTimeRecords#estimatedBytes()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbench.columnar=true")
+public class ColumnarReportBenchmark {
+
+    private static final long EMPLOYEE_ID = 101L;
+
+    public enum Source { DATABASE, COLUMNAR }
+
+    @Param({"DATABASE", "COLUMNAR"})
+    private Source source;
+
+    @Param({"ADMIN", "EMPLOYEE"})
+    private UserRoles role;
+
+    @Param({"DAY", "MONTH", "YEAR"})
+    private ReportWindow window;
+
+    private TimeRecordRepository repository;
+    private ColumnarReportEngine engine;
+    private Pageable firstPage;
+
+    @Setup
+    public void setUp() {
+        BenchmarkEnvironment environment = BenchmarkEnvironment.get();
+        repository = environment.bean(TimeRecordRepository.class);
+        engine = environment.bean(ColumnarReportEngine.class);
+        firstPage = PageRequest.of(0, 10);
+        printFootprint();
+    }
+
+    @Benchmark
+    public Page<ReportDTO> firstPage() {
+        Long employeeId = role == UserRoles.ADMIN ? null : EMPLOYEE_ID;
+        if (source == Source.COLUMNAR) {
+            return engine.snapshot().page(ReportWindowMode.CONTAINED, employeeId, window.getStartDate(),
+                    window.getEndDate(), firstPage).orElseThrow();
+        }
+        // the page and its count, as ReportServiceImpl reads them
+        return employeeId == null
+                ? PageableExecutionUtils.getPage(repository.findAllBetweenStartDateAndEndDate(
+                                window.getStartDate(), window.getEndDate(), firstPage), firstPage,
+                        () -> repository.countBetweenStartDateAndEndDate(window.getStartDate(), window.getEndDate()))
+                : PageableExecutionUtils.getPage(repository.findAllByEmployeeAndDateRange(
+                                employeeId, window.getStartDate(), window.getEndDate(), firstPage), firstPage,
+                        () -> repository.countByEmployeeAndDateRange(
+                                employeeId, window.getStartDate(), window.getEndDate()));
+    }
+
+    private void printFootprint() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ColumnarTimeRecords loaded = engine.snapshot();
+        System.gc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+        engine.reload();
+        System.gc();
+        long retained = memory.getHeapMemoryUsage().getUsed() - before;
+        ColumnarTimeRecords reloaded = engine.snapshot();
+        System.out.printf("%ncolumnar snapshot of %,d records: %,d bytes retained (%.1f per record), "
+                        + "%,d bytes estimated%n", reloaded.size(), retained,
+                (double) retained / reloaded.size(), reloaded.estimatedBytes());
+        // the first snapshot stays reachable until the second one is measured
+        if (loaded.size() != reloaded.size()) {
+            throw new IllegalStateException("The dataset changed while measuring");
+        }
+    }
+}
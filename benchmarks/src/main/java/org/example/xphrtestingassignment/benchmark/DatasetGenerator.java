@@ -0,0 +1,306 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a reproducible, skewed dataset on top of the sample data and loads it with the COPY protocol.
+ * <p>
+ * Project popularity follows a Zipf distribution, so a few projects collect most of the hours and the rest form
+ * a long tail. Every employee has one to three home projects and works most weekdays: day shifts around 8:00,
+ * part timers with half days and a few night shifts crossing midnight. Shifts are split over one to three records,
+ * occasionally booked on a long-tail project, and about 3% of the days carry an extra record overlapping the
+ * shift. tom (101) and jerry (102) of the sample data get records like every generated employee.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DatasetGenerator {
+
+    /**
+     * @param employees employees generated in addition to tom and jerry
+     * @param projects  projects generated in addition to the two of the sample data
+     * @param years     years of records, ending at {@code end}
+     * @param end       the day after the last generated day
+     * @param seed      the same seed generates the same dataset
+     */
+    public record Spec(int employees, int projects, int years, LocalDate end, long seed) {
+
+        public LocalDate start() {
+            return end.minusYears(years);
+        }
+    }
+
+    private static final int CHUNK_ROWS = 200_000;
+    private static final double ZIPF_EXPONENT = 1.1;
+
+    private static final String EMPLOYEES_SQL = "INSERT INTO employee (id, name) " +
+            "SELECT 1000 + g, 'employee_' || lpad(g::text, 6, '0') FROM generate_series(1, ?) g " +
+            "ON CONFLICT (id) DO NOTHING";
+
+    private static final String PROJECTS_SQL = "INSERT INTO project (id, name) " +
+            "SELECT 1000 + g, 'Project ' || lpad(g::text, 6, '0') FROM generate_series(1, ?) g " +
+            "ON CONFLICT (id) DO NOTHING";
+
+    // Takes ids (v, v + n] and moves the sequence past them, see time_record_id_seq in V1__schema.sql. nextval and
+    // setval are two steps, so a nextval of the application in between would hand out ids of the block: the
+    // unchanged ALTER SEQUENCE takes a lock that blocks every nextval until the reserving transaction commits.
+    private static final String LOCK_IDS_SQL = "ALTER SEQUENCE time_record_id_seq INCREMENT BY 50";
+    private static final String RESERVE_IDS_SQL = "SELECT setval('time_record_id_seq', nextval('time_record_id_seq') + ?)";
+
+    private static final String COPY_SQL = "COPY time_record (id, employee_id, project_id, time_from, time_to) " +
+            "FROM STDIN (FORMAT csv)";
+
+    private static final String SUPERUSER_SQL = "SELECT rolsuper FROM pg_roles WHERE rolname = current_user";
+
+    // same aggregation as TimeRecordRollupServiceImpl.rebuild()
+    private static final String REBUILD_ROLLUP_SQL = "INSERT INTO time_record_rollup " +
+            "(bucket_from, bucket_to, employee_id, project_id, total_seconds, record_count) " +
+            "SELECT CAST(time_from AS DATE), CAST(time_to AS DATE), employee_id, project_id, " +
+            " SUM(EXTRACT(EPOCH FROM (time_to - time_from))), COUNT(*) " +
+            "FROM time_record " +
+            "GROUP BY 1, 2, 3, 4";
+
+    // what the version trigger does for the loaded records, see time_record_version in V1__schema.sql
+    private static final String BUMP_VERSIONS_SQL = "INSERT INTO time_record_version (month, version) " +
+            "SELECT month, CAST(CAST(pg_current_xact_id() AS TEXT) AS BIGINT) " +
+            "FROM (SELECT CAST(date_trunc('month', time_from) AS DATE) AS month FROM time_record " +
+            "      UNION SELECT CAST(date_trunc('month', time_to) AS DATE) FROM time_record) m " +
+            "ON CONFLICT (month) DO UPDATE SET version = EXCLUDED.version";
+
+    private final DataSource dataSource;
+
+    /**
+     * Generates and loads the dataset, returning the number of time records.
+     */
+    public long generate(Spec spec) throws SQLException {
+        long started = System.nanoTime();
+        long[] employeeIds = ids(new long[]{101, 102}, spec.employees());
+        long[] projectIds = ids(new long[]{1, 2}, spec.projects());
+        double[] projectWeights = zipfCumulativeWeights(projectIds.length);
+
+        long rows = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            execute(connection, EMPLOYEES_SQL, spec.employees());
+            execute(connection, PROJECTS_SQL, spec.projects());
+            // create the monthly partitions up front so nothing is loaded into the default partition
+            for (YearMonth month = YearMonth.from(spec.start()); !month.atDay(1).isAfter(spec.end());
+                 month = month.plusMonths(1)) {
+                execute(connection, "SELECT time_record_ensure_partition(?)", month.atDay(1));
+            }
+
+            // The rows reference existing employees and projects by construction. A superuser skips the foreign key
+            // checks, the rollup and the version triggers while loading and rebuilds both once at the end, which is
+            // several times faster; other roles load through the triggers.
+            boolean bypassTriggers = isSuperuser(connection);
+            if (bypassTriggers) {
+                execute(connection, "SET session_replication_role = replica");
+            }
+
+            List<Row> chunk = new ArrayList<>(CHUNK_ROWS + 16);
+            for (long employeeId : employeeIds) {
+                SplittableRandom random = new SplittableRandom(spec.seed() * 31 + employeeId);
+                EmployeeProfile profile = EmployeeProfile.random(random, projectIds, projectWeights);
+                for (LocalDate day = spec.start(); day.isBefore(spec.end()); day = day.plusDays(1)) {
+                    profile.workDay(employeeId, day, random, projectIds, projectWeights, chunk);
+                }
+                if (chunk.size() >= CHUNK_ROWS) {
+                    rows += copy(connection, chunk);
+                    chunk.clear();
+                }
+            }
+            rows += copy(connection, chunk);
+
+            if (bypassTriggers) {
+                execute(connection, "SET session_replication_role = DEFAULT");
+                connection.setAutoCommit(false);
+                execute(connection, "LOCK TABLE time_record IN SHARE MODE");
+                execute(connection, "SET LOCAL work_mem = '256MB'");
+                execute(connection, "TRUNCATE time_record_rollup");
+                execute(connection, REBUILD_ROLLUP_SQL);
+                execute(connection, BUMP_VERSIONS_SQL);
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+            execute(connection, "ANALYZE");
+        }
+
+        long millis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        log.warn("generated {} time records for {} employees and {} projects over {} years in {} ms ({} rows/s)",
+                rows, employeeIds.length, projectIds.length, spec.years(), millis, rows * 1000 / millis);
+        return rows;
+    }
+
+    private static long copy(Connection connection, List<Row> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        long firstId = reserveIds(connection, rows.size());
+
+        // in time order the index entries are appended instead of inserted all over the btrees
+        rows.sort(Comparator.comparing(Row::timeFrom));
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        try {
+            StringBuilder buffer = new StringBuilder(1 << 16);
+            long id = firstId;
+            for (Row row : rows) {
+                buffer.append(id++).append(',').append(row.employeeId()).append(',').append(row.projectId())
+                        .append(',').append(row.timeFrom()).append(',').append(row.timeTo()).append('\n');
+                if (buffer.length() > (1 << 16) - 128) {
+                    byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+                    copyIn.writeToCopy(bytes, 0, bytes.length);
+                    buffer.setLength(0);
+                }
+            }
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static long reserveIds(Connection connection, int n) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            execute(connection, LOCK_IDS_SQL);
+            long lastId;
+            try (PreparedStatement statement = connection.prepareStatement(RESERVE_IDS_SQL)) {
+                statement.setLong(1, n);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    lastId = resultSet.getLong(1);
+                }
+            }
+            connection.commit();
+            return lastId - n + 1;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static boolean isSuperuser(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SUPERUSER_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() && resultSet.getBoolean(1);
+        }
+    }
+
+    private static void execute(Connection connection, String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.execute();
+        }
+    }
+
+    private static long[] ids(long[] seeded, int generated) {
+        long[] ids = Arrays.copyOf(seeded, seeded.length + generated);
+        for (int i = 0; i < generated; i++) {
+            ids[seeded.length + i] = 1001 + i;
+        }
+        return ids;
+    }
+
+    private static double[] zipfCumulativeWeights(int n) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1 / Math.pow(rank, ZIPF_EXPONENT);
+            cumulative[rank - 1] = sum;
+        }
+        return cumulative;
+    }
+
+    private static long zipf(SplittableRandom random, long[] projectIds, double[] cumulativeWeights) {
+        double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        int index = Arrays.binarySearch(cumulativeWeights, target);
+        return projectIds[index >= 0 ? index : -index - 1];
+    }
+
+    private record Row(long employeeId, long projectId, LocalDateTime timeFrom, LocalDateTime timeTo) { }
+
+    private record EmployeeProfile(long[] homeProjects, boolean nightShift, boolean partTime) {
+
+        static EmployeeProfile random(SplittableRandom random, long[] projectIds, double[] weights) {
+            long[] home = new long[1 + random.nextInt(3)];
+            for (int i = 0; i < home.length; i++) {
+                home[i] = zipf(random, projectIds, weights);
+            }
+            return new EmployeeProfile(home, random.nextDouble() < 0.05, random.nextDouble() < 0.15);
+        }
+
+        void workDay(long employeeId, LocalDate day, SplittableRandom random, long[] projectIds, double[] weights,
+                     List<Row> rows) {
+            boolean weekend = day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+            if (random.nextDouble() >= (weekend ? 0.05 : 0.92)) {
+                return;
+            }
+            int startMinute = nightShift ? 22 * 60 : clamp(8 * 60 + (int) (gaussian(random) * 45), 5 * 60, 12 * 60);
+            int shiftMinutes = partTime
+                    ? clamp(240 + (int) (gaussian(random) * 30), 60, 360)
+                    : clamp(510 + (int) (gaussian(random) * 90), 60, 840);
+            LocalDateTime time = day.atStartOfDay().plusMinutes(roundTo5(startMinute));
+            LocalDateTime shiftStart = time;
+            LocalDateTime shiftEnd = time.plusMinutes(roundTo5(shiftMinutes));
+
+            int segments = 1 + (random.nextDouble() < 0.3 ? 1 : 0) + (random.nextDouble() < 0.1 ? 1 : 0);
+            for (int segment = 1; segment <= segments && time.isBefore(shiftEnd); segment++) {
+                LocalDateTime segmentEnd = segment == segments ? shiftEnd
+                        : time.plusMinutes(roundTo5(Math.max(30, shiftMinutes / segments + (int) (gaussian(random) * 30))));
+                if (segmentEnd.isAfter(shiftEnd)) {
+                    segmentEnd = shiftEnd;
+                }
+                long project = random.nextDouble() < 0.1
+                        ? zipf(random, projectIds, weights)
+                        : homeProjects[random.nextInt(homeProjects.length)];
+                rows.add(new Row(employeeId, project, time, segmentEnd));
+                // short break between segments
+                time = segmentEnd.plusMinutes(5L * random.nextInt(7));
+            }
+
+            if (random.nextDouble() < 0.03) {
+                LocalDateTime overlapStart = shiftStart.plusMinutes(roundTo5(random.nextInt(Math.max(1, shiftMinutes - 30))));
+                rows.add(new Row(employeeId, zipf(random, projectIds, weights), overlapStart,
+                        overlapStart.plusMinutes(30 + 5L * random.nextInt(19))));
+            }
+        }
+
+        private static double gaussian(SplittableRandom random) {
+            // Box-Muller, SplittableRandom has no nextGaussian on Java 17
+            return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        }
+
+        private static int clamp(int value, int min, int max) {
+            return Math.max(min, Math.min(max, value));
+        }
+
+        private static long roundTo5(int minutes) {
+            return Math.round(minutes / 5.0) * 5;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.xphrtestingassignment.repository.TimeRecordRepository.*;
+
+/**
+ * The first page of an employee's report filtered the old way, by the employee name through a subquery on
+ * employee, against the filter on employee_id that the login now resolves. Both run the same report SQL otherwise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeFilterBenchmark {
+
+    private static final String NAME_FILTER = " AND employee_id IN (SELECT id FROM employee WHERE name = :username)";
+
+    private static final String BY_NAME_SQL = REPORT_COLUMNS +
+            EMPLOYEE_REPORT_SOURCE.replace(EMPLOYEE_FILTER, NAME_FILTER) + REPORT_GROUPING + REPORT_ORDER +
+            " LIMIT 10";
+
+    private static final String BY_ID_SQL = REPORT_COLUMNS + EMPLOYEE_REPORT_SOURCE + REPORT_GROUPING +
+            REPORT_ORDER + " LIMIT 10";
+
+    private static final RowMapper<ReportDTO> REPORT_ROW_MAPPER = (rs, rowNum) -> new ReportDTO(
+            rs.getString("employeeName"), rs.getString("projectName"), rs.getBigDecimal("totalHours"));
+
+    @Param({"DAY", "MONTH", "YEAR"})
+    private ReportWindow window;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private MapSqlParameterSource parameters;
+
+    @Setup
+    public void setUp() {
+        jdbcTemplate = new NamedParameterJdbcTemplate(BenchmarkEnvironment.get().bean(JdbcTemplate.class));
+        // tom of the sample data
+        parameters = new MapSqlParameterSource()
+                .addValue("username", "tom")
+                .addValue("employeeId", 101L)
+                .addValue("startDate", window.getStartDate())
+                .addValue("endDate", window.getEndDate());
+    }
+
+    @Benchmark
+    public List<ReportDTO> byName() {
+        return jdbcTemplate.query(BY_NAME_SQL, parameters, REPORT_ROW_MAPPER);
+    }
+
+    @Benchmark
+    public List<ReportDTO> byEmployeeId() {
+        return jdbcTemplate.query(BY_ID_SQL, parameters, REPORT_ROW_MAPPER);
+    }
+}
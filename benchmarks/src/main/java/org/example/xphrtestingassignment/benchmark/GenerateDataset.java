@@ -0,0 +1,43 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import org.postgresql.ds.PGSimpleDataSource;
+
+import java.time.LocalDate;
+
+/**
+ * Loads a {@link DatasetGenerator} dataset into an existing database the application has migrated, with the sample
+ * data.
+ * <pre>
+ * mvn -f benchmarks/pom.xml compile exec:exec -Dbench.main=org.example.xphrtestingassignment.benchmark.GenerateDataset \
+ *     -Dbench.args="--employees=2000 --projects=400 --years=3"
+ * </pre>
+ * Options: {@code --jdbc-url}, {@code --username}, {@code --password} (defaulting to the SPRING_DATASOURCE_*
+ * variables of the application), {@code --employees}, {@code --projects}, {@code --years}, {@code --end} (the day
+ * after the last record) and {@code --seed}.
+ */
+public final class GenerateDataset {
+
+    private GenerateDataset() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(arguments.get("jdbc-url", env("SPRING_DATASOURCE_URL", "jdbc:postgresql://localhost:5432/xphr")));
+        dataSource.setUser(arguments.get("username", env("SPRING_DATASOURCE_USERNAME", "admin")));
+        dataSource.setPassword(arguments.get("password", env("SPRING_DATASOURCE_PASSWORD", "admin")));
+
+        long rows = new DatasetGenerator(dataSource).generate(new DatasetGenerator.Spec(
+                arguments.getInt("employees", 1000),
+                arguments.getInt("projects", 300),
+                arguments.getInt("years", 3),
+                LocalDate.parse(arguments.get("end", BenchmarkEnvironment.DATASET_END.toString())),
+                arguments.getInt("seed", 42)));
+        System.out.println("loaded " + rows + " time records");
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
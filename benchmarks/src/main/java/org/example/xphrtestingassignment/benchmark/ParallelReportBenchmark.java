@@ -0,0 +1,73 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.service.impl.ParallelReportExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first rows of the admin report, computed by the {@link ParallelReportExecutor} from {@code splits} sub-ranges
+ * of the window (at most one per day) queried at the same time on as many connections. {@code splits=1} is the same
+ * statement over the whole window on one connection, so the window where a split beats it is the crossover that
+ * {@code report.parallel.rows-per-split} is set from. Splitting pays off with CPU cores for the PostgreSQL backends
+ * to run on: compare runs on the database host with {@code BENCH_JDBC_URL}. {@link ReportServiceBenchmark} measures
+ * the single report queries of {@code ReportServiceImpl}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelReportBenchmark {
+
+    private static final int SIZE = 10;
+
+    @Param({"DAY", "WEEK", "MONTH", "QUARTER", "YEAR"})
+    private ReportWindow window;
+
+    @Param({"1", "2", "4", "8"})
+    private int splits;
+
+    private ParallelReportExecutor executor;
+
+    @Setup
+    public void setUp() {
+        BenchmarkEnvironment environment = BenchmarkEnvironment.get();
+        // the estimate is not used: the window is split into as many sub-ranges as asked for
+        executor = new ParallelReportExecutor(new NamedParameterJdbcTemplate(environment.bean(DataSource.class)),
+                splits, 1, splits, Duration.ofHours(1), Clock.systemDefaultZone(), new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public List<ReportDTO> firstRows() {
+        return executor.report(ReportWindowMode.CONTAINED, null, window.getStartDate(), window.getEndDate(), splits)
+                .orElseThrow()
+                .slice(null, SIZE)
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,195 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drives {@code /web/reports} of a running application with concurrent admin and employee sessions and prints
+ * latency percentiles and throughput per query shape. Every session loops without think time (closed loop), and
+ * report windows start at random minutes inside the data range, so most requests miss the report cache.
+ * <pre>
+ * mvn -f benchmarks/pom.xml compile exec:exec -Dbench.main=org.example.xphrtestingassignment.benchmark.ReportLoadTest \
+ *     -Dbench.args="--threads=32 --admin-share=0.25 --duration=PT2M"
+ * </pre>
+ * Options: {@code --base-url}, {@code --threads}, {@code --admin-share} (sessions logged in as admin, the rest as
+ * tom and jerry), {@code --warmup} and {@code --duration} (ISO-8601), {@code --from} and {@code --to} (the data
+ * range, matching {@link GenerateDataset}), {@code --page-size} and {@code --seed}.
+ */
+public final class ReportLoadTest {
+
+    @Getter
+    @RequiredArgsConstructor
+    enum QueryShape {
+        ADMIN_DAY(true, 2, Duration.ofDays(1), false, false, false),
+        ADMIN_MONTH(true, 4, Duration.ofDays(30), false, false, false),
+        ADMIN_YEAR(true, 1, Duration.ofDays(365), false, false, false),
+        ADMIN_MONTH_DEEP_PAGE(true, 1, Duration.ofDays(30), true, false, false),
+        ADMIN_MONTH_KEYSET_WITH_TOTAL(true, 2, Duration.ofDays(30), false, true, true),
+        EMPLOYEE_MONTH(false, 6, Duration.ofDays(30), false, false, false),
+        EMPLOYEE_YEAR(false, 2, Duration.ofDays(365), false, false, false),
+        EMPLOYEE_MONTH_KEYSET(false, 2, Duration.ofDays(30), false, true, false);
+
+        private final boolean admin;
+        private final int weight;
+        private final Duration window;
+        private final boolean deepPage;
+        private final boolean keyset;
+        private final boolean withTotal;
+
+        String path(SplittableRandom random, LocalDate from, LocalDate to, int pageSize) {
+            long rangeMinutes = Duration.between(from.atStartOfDay(), to.atStartOfDay()).minus(window).toMinutes();
+            LocalDateTime start = from.atStartOfDay().plusMinutes(random.nextLong(Math.max(1, rangeMinutes)));
+            LocalDateTime end = start.plus(window);
+            String path = (keyset ? "/web/reports/keyset" : "/web/reports") +
+                    "?startDate=" + start + "&endDate=" + end + "&size=" + pageSize;
+            if (deepPage) {
+                path += "&page=" + (10 + random.nextInt(40));
+            }
+            return withTotal ? path + "&withTotal=true" : path;
+        }
+
+        static QueryShape pick(SplittableRandom random, boolean admin) {
+            QueryShape[] shapes = Arrays.stream(values()).filter(shape -> shape.admin == admin).toArray(QueryShape[]::new);
+            int target = random.nextInt(Arrays.stream(shapes).mapToInt(QueryShape::getWeight).sum());
+            for (QueryShape shape : shapes) {
+                target -= shape.weight;
+                if (target < 0) {
+                    return shape;
+                }
+            }
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Latencies of one shape in microseconds.
+     */
+    private static final class Samples {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+
+        void add(long micros) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = micros;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+
+        double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, Math.ceil(percentile / 100 * count) - 1)] / 1000.0;
+        }
+    }
+
+    private ReportLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        String baseUrl = arguments.get("base-url", "http://localhost:8080");
+        int threads = arguments.getInt("threads", 16);
+        double adminShare = arguments.getDouble("admin-share", 0.25);
+        Duration warmup = Duration.parse(arguments.get("warmup", "PT10S"));
+        Duration duration = Duration.parse(arguments.get("duration", "PT60S"));
+        LocalDate to = LocalDate.parse(arguments.get("to", BenchmarkEnvironment.DATASET_END.toString()));
+        LocalDate from = LocalDate.parse(arguments.get("from", to.minusYears(3).toString()));
+        int pageSize = arguments.getInt("page-size", 20);
+        long seed = arguments.getInt("seed", 42);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // log in first: the form login checks BCrypt passwords, which would otherwise skew the first measurements
+        List<Future<WebSession>> sessions = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String username = isAdmin(i, threads, adminShare) ? "admin" : (i % 2 == 0 ? "tom" : "jerry");
+            sessions.add(executor.submit(() -> WebSession.login(baseUrl, username, username)));
+        }
+
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureTo = measureFrom + duration.toNanos();
+        List<Future<Map<QueryShape, Samples>>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            boolean admin = isAdmin(i, threads, adminShare);
+            WebSession session = sessions.get(i).get();
+            SplittableRandom random = new SplittableRandom(seed * 31 + i);
+            results.add(executor.submit(() -> {
+                Map<QueryShape, Samples> samples = new EnumMap<>(QueryShape.class);
+                long now;
+                while ((now = System.nanoTime()) < measureTo) {
+                    QueryShape shape = QueryShape.pick(random, admin);
+                    HttpRequest request = session.request(shape.path(random, from, to, pageSize));
+                    int status;
+                    try {
+                        status = session.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (IOException e) {
+                        status = -1;
+                    }
+                    long end = System.nanoTime();
+                    if (now >= measureFrom) {
+                        Samples shapeSamples = samples.computeIfAbsent(shape, s -> new Samples());
+                        shapeSamples.add((end - now) / 1000);
+                        if (status != 200) {
+                            shapeSamples.errors++;
+                        }
+                    }
+                }
+                return samples;
+            }));
+        }
+
+        Map<QueryShape, Samples> merged = new EnumMap<>(QueryShape.class);
+        Samples total = new Samples();
+        for (Future<Map<QueryShape, Samples>> result : results) {
+            result.get().forEach((shape, samples) -> {
+                merged.computeIfAbsent(shape, s -> new Samples()).addAll(samples);
+                total.addAll(samples);
+            });
+        }
+        executor.shutdown();
+
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.printf("%d sessions (%.0f%% admin), %s measured after %s warmup%n",
+                threads, adminShare * 100, duration, warmup);
+        System.out.printf("%-32s %9s %7s %9s %9s %9s %9s %9s%n",
+                "shape", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        merged.forEach((shape, samples) -> print(shape.name(), samples, seconds));
+        print("TOTAL", total, seconds);
+    }
+
+    private static boolean isAdmin(int session, int sessions, double adminShare) {
+        return session < Math.round(sessions * adminShare);
+    }
+
+    private static void print(String name, Samples samples, double seconds) {
+        System.out.printf("%-32s %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n", name, samples.count, samples.errors,
+                samples.count / seconds, samples.percentileMillis(50), samples.percentileMillis(90),
+                samples.percentileMillis(99), samples.percentileMillis(100));
+    }
+}
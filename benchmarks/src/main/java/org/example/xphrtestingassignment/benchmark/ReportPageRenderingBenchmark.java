@@ -0,0 +1,55 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests large pages of {@code work_hours_report} over HTTP as a logged in admin. The report cache serves the
+ * data after the first request, so the time is spent in the controller, the security filters and the JSP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportPageRenderingBenchmark {
+
+    @Param({"10", "1000", "5000"})
+    private int size;
+
+    private WebSession session;
+    private HttpRequest reportRequest;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        session = WebSession.login("http://localhost:" + BenchmarkEnvironment.get().getPort(), "admin", "admin");
+
+        ReportWindow window = ReportWindow.YEAR;
+        reportRequest = session.request("/web/reports?startDate=" + window.getStartDate() +
+                "&endDate=" + window.getEndDate() + "&page=0&size=" + size);
+        HttpResponse<String> response = session.send(reportRequest, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200 || !response.body().contains("<table")) {
+            throw new IllegalStateException("Report page not rendered: HTTP " + response.statusCode());
+        }
+    }
+
+    @Benchmark
+    public byte[] renderReportPage() throws IOException, InterruptedException {
+        return session.send(reportRequest, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.repository.TimeRecordRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.xphrtestingassignment.repository.TimeRecordRepository.*;
+
+/**
+ * Maps the report rows of the native query into {@link ReportDTO}s through the JPA repository, against the same
+ * SQL mapped by a plain {@link RowMapper}. The difference is the cost of the JPA result mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportQueryMappingBenchmark {
+
+    private static final String REPORT_SQL = REPORT_COLUMNS + REPORT_SOURCE + AFTER_CURSOR + REPORT_GROUPING +
+            REPORT_ORDER + " LIMIT :limit";
+
+    private static final RowMapper<ReportDTO> REPORT_ROW_MAPPER = (rs, rowNum) -> new ReportDTO(
+            rs.getString("employeeName"), rs.getString("projectName"), rs.getBigDecimal("totalHours"));
+
+    @Param({"MONTH", "YEAR"})
+    private ReportWindow window;
+
+    @Param({"100", "10000"})
+    private int rows;
+
+    private TimeRecordRepository timeRecordRepository;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private MapSqlParameterSource parameters;
+
+    @Setup
+    public void setUp() {
+        BenchmarkEnvironment environment = BenchmarkEnvironment.get();
+        timeRecordRepository = environment.bean(TimeRecordRepository.class);
+        jdbcTemplate = new NamedParameterJdbcTemplate(environment.bean(JdbcTemplate.class));
+        parameters = new MapSqlParameterSource()
+                .addValue("startDate", window.getStartDate())
+                .addValue("endDate", window.getEndDate())
+                .addValue("afterEmployee", null)
+                .addValue("afterProject", null)
+                .addValue("limit", rows);
+    }
+
+    @Benchmark
+    public List<ReportDTO> jpaNativeQuery() {
+        return timeRecordRepository.findSliceBetweenStartDateAndEndDate(
+                window.getStartDate(), window.getEndDate(), null, null, rows);
+    }
+
+    @Benchmark
+    public List<ReportDTO> jdbcRowMapper() {
+        return jdbcTemplate.query(REPORT_SQL, parameters, REPORT_ROW_MAPPER);
+    }
+}
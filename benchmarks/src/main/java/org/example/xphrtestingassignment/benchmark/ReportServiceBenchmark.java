@@ -0,0 +1,72 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.service.ReportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The uncached {@code ReportServiceImpl} paths of the report page: the admin report over every employee and the
+ * report of a single employee, as an offset page (page query and count query) and as a keyset slice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportServiceBenchmark {
+
+    private static final long EMPLOYEE_ID = 101L;
+
+    @Param({"ADMIN", "EMPLOYEE"})
+    private UserRoles role;
+
+    @Param({"DAY", "MONTH", "YEAR"})
+    private ReportWindow window;
+
+    @Param({"10"})
+    private int size;
+
+    private ReportService reportService;
+    private Pageable firstPage;
+
+    @Setup
+    public void setUp() {
+        // the service behind the report cache
+        reportService = BenchmarkEnvironment.get().bean("reportServiceImpl", ReportService.class);
+        firstPage = PageRequest.of(0, size);
+    }
+
+    @Benchmark
+    public Page<ReportDTO> offsetPage() {
+        return role == UserRoles.ADMIN
+                ? reportService.getReportData(window.getStartDate(), window.getEndDate(), firstPage)
+                : reportService.getReportDataForSpecificEmployee(
+                        EMPLOYEE_ID, window.getStartDate(), window.getEndDate(), firstPage);
+    }
+
+    @Benchmark
+    public Slice<ReportDTO> keysetSlice() {
+        return role == UserRoles.ADMIN
+                ? reportService.getReportDataAfter(window.getStartDate(), window.getEndDate(), null, size)
+                : reportService.getReportDataForSpecificEmployeeAfter(
+                        EMPLOYEE_ID, window.getStartDate(), window.getEndDate(), null, size);
+    }
+}
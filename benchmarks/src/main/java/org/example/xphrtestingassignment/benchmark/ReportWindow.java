@@ -0,0 +1,23 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Report windows inside the generated year. They start and end mid-day, so every report reads the rollup and
+ * the raw records at both edges.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ReportWindow {
+    DAY(LocalDateTime.of(2025, 6, 15, 6, 0), LocalDateTime.of(2025, 6, 16, 6, 0)),
+    WEEK(LocalDateTime.of(2025, 6, 15, 6, 0), LocalDateTime.of(2025, 6, 22, 6, 0)),
+    MONTH(LocalDateTime.of(2025, 6, 15, 6, 0), LocalDateTime.of(2025, 7, 15, 6, 0)),
+    QUARTER(LocalDateTime.of(2025, 5, 15, 6, 0), LocalDateTime.of(2025, 8, 15, 6, 0)),
+    YEAR(LocalDateTime.of(2025, 1, 1, 6, 0), LocalDateTime.of(2025, 12, 31, 18, 0));
+
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+}
@@ -0,0 +1,111 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.ServletException;
+import org.example.xphrtestingassignment.security.SessionTokenCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the Spring Security filter chain per request, without a controller behind it. {@link #baseline}
+ * runs the same mock request through an empty chain. {@link Caller#TOKEN} starts the application with stateless
+ * session tokens, the other callers with HTTP sessions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityFilterChainBenchmark {
+
+    public enum Caller {
+        /** Unauthenticated request to a permitted path. */
+        ANONYMOUS,
+        /** Report request with the security context in the HTTP session, as after the form login. */
+        SESSION,
+        /** Report request with HTTP Basic credentials, checked with BCrypt on every request. */
+        HTTP_BASIC,
+        /** Report request with a signed session token, verified with HMAC-SHA256 on every request. */
+        TOKEN
+    }
+
+    @Param({"ANONYMOUS", "SESSION", "HTTP_BASIC", "TOKEN"})
+    private Caller caller;
+
+    private Filter springSecurityFilterChain;
+    private MockHttpSession session;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        if (caller == Caller.TOKEN) {
+            // each caller runs in a fork of its own
+            System.setProperty("bench.tokens", "true");
+        }
+        BenchmarkEnvironment environment = BenchmarkEnvironment.get();
+        springSecurityFilterChain = environment.bean("springSecurityFilterChain", Filter.class);
+
+        UserDetails admin = environment.bean(UserDetailsService.class).loadUserByUsername("admin");
+        session = new MockHttpSession();
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                        admin, null, admin.getAuthorities())));
+        if (caller == Caller.TOKEN) {
+            SessionTokenCodec codec = environment.bean(SessionTokenCodec.class);
+            token = codec.encode(codec.issue(admin));
+        }
+    }
+
+    @Benchmark
+    public int securityFilterChain() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        springSecurityFilterChain.doFilter(request(), response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int baseline() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new MockFilterChain().doFilter(request(), response);
+        return response.getStatus();
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET",
+                caller == Caller.ANONYMOUS ? "/actuator/health" : "/web/reports");
+        if (caller == Caller.SESSION) {
+            request.setSession(session);
+        } else if (caller == Caller.HTTP_BASIC) {
+            request.addHeader(HttpHeaders.AUTHORIZATION, "Basic " +
+                    Base64.getEncoder().encodeToString("admin:admin".getBytes(StandardCharsets.UTF_8)));
+        } else if (caller == Caller.TOKEN) {
+            request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,251 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures how fast new instances of the application get ready, as when scaling out: each variant is started
+ * {@code --runs} times as its own JVM against the database of a running setup (migrated by the first start), timed
+ * until the application reports it started and until an admin has logged in and got the report page, then stopped.
+ * <pre>
+ * mvn -B -q package -DskipTests                # or -Paot package, for the aot variants
+ * mvn -f benchmarks/pom.xml compile exec:exec -Dbench.main=org.example.xphrtestingassignment.benchmark.StartupBenchmark \
+ *     -Dbench.args="--runs=5"
+ * </pre>
+ * A variant joins any of: {@code jar} (run the packaged jar instead of its extracted layout), {@code lazy}
+ * ({@code spring.main.lazy-initialization}), {@code cds} (with a class data sharing archive, written by a training
+ * run first) and {@code aot} (the bean definitions generated by {@code -Paot}; skipped if the jar has none).
+ * Options: {@code --jar}, {@code --runs}, {@code --variants} (comma separated, e.g. {@code jar,default,aot+cds}),
+ * {@code --jdbc-url}, {@code --username}, {@code --password} (defaulting to the SPRING_DATASOURCE_* variables of the
+ * application) and {@code --timeout} (ISO-8601, per start).
+ */
+public final class StartupBenchmark {
+
+    private static final String DEFAULT_VARIANTS = "jar,default,lazy,cds,aot,aot+cds,aot+cds+lazy";
+    private static final Set<String> FLAGS = Set.of("default", "jar", "lazy", "cds", "aot");
+    private static final String AOT_INITIALIZER =
+            "org/example/xphrtestingassignment/XphrTestingAssignmentApplication__ApplicationContextInitializer.class";
+    // e.g. "Started XphrTestingAssignmentApplication in 4.123 seconds (process running for 4.876)"
+    private static final Pattern STARTED = Pattern.compile(
+            "Started XphrTestingAssignmentApplication in [0-9.]+ seconds \\(process running for ([0-9.]+)\\)");
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        Path jar = Path.of(arguments.get("jar", "../target/xphr-testing-assignment-0.0.1-SNAPSHOT-exec.jar"))
+                .toAbsolutePath().normalize();
+        int runs = arguments.getInt("runs", 5);
+        Duration timeout = Duration.parse(arguments.get("timeout", "PT2M"));
+        List<String> database = List.of(
+                "--spring.datasource.url=" + arguments.get("jdbc-url",
+                        env("SPRING_DATASOURCE_URL", "jdbc:postgresql://localhost:5432/xphr")),
+                "--spring.datasource.username=" + arguments.get("username",
+                        env("SPRING_DATASOURCE_USERNAME", "admin")),
+                "--spring.datasource.password=" + arguments.get("password",
+                        env("SPRING_DATASOURCE_PASSWORD", "admin")));
+
+        // the layout the CDS archive is built for: the application jar next to its libraries
+        Path work = Path.of("target", "startup").toAbsolutePath();
+        Path extracted = work.resolve("app");
+        File projectDirectory = jar.getParent().getParent().toFile();
+        run(timeout, java(), "-Djarmode=tools", "-jar", jar.toString(),
+                "extract", "--destination", extracted.toString(), "--force");
+        Path extractedJar = extracted.resolve(jar.getFileName());
+        boolean aotProcessed;
+        try (JarFile jarFile = new JarFile(extractedJar.toFile())) {
+            aotProcessed = jarFile.getEntry(AOT_INITIALIZER) != null;
+        }
+
+        System.out.printf("%d runs per variant of %s%n", runs, jar.getFileName());
+        System.out.printf("%-16s %14s %14s %16s %16s%n",
+                "variant", "ready ms", "ready min ms", "JVM ready ms", "first page ms");
+        for (String variant : arguments.get("variants", DEFAULT_VARIANTS).split(",")) {
+            Set<String> flags = Set.of(variant.split("\\+"));
+            if (!FLAGS.containsAll(flags) || flags.contains("jar") && flags.contains("cds")) {
+                throw new IllegalArgumentException("Unknown variant " + variant);
+            }
+            if (flags.contains("aot") && !aotProcessed) {
+                System.out.printf("%-16s skipped: build the jar with -Paot%n", variant);
+                continue;
+            }
+
+            List<String> command = new ArrayList<>(List.of(java()));
+            if (flags.contains("aot")) {
+                command.add("-Dspring.aot.enabled=true");
+            }
+            if (flags.contains("cds")) {
+                Path archive = work.resolve(flags.contains("aot") ? "app-aot.jsa" : "app.jsa");
+                if (Files.notExists(archive)) {
+                    // a training run up to the refreshed context records the classes loaded on start
+                    List<String> training = new ArrayList<>(command);
+                    training.addAll(List.of("-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh",
+                            "-jar", extractedJar.toString()));
+                    training.addAll(database);
+                    run(timeout, training.toArray(String[]::new));
+                }
+                command.add("-XX:SharedArchiveFile=" + archive);
+            }
+            command.addAll(List.of("-jar", (flags.contains("jar") ? jar : extractedJar).toString()));
+            command.addAll(database);
+            if (flags.contains("lazy")) {
+                command.add("--spring.main.lazy-initialization=true");
+            }
+
+            // one start not measured: page cache, and the migrations on a new database
+            start(command, projectDirectory, timeout);
+            long[] ready = new long[runs];
+            long[] jvmReady = new long[runs];
+            long[] firstPage = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long[] measured = start(command, projectDirectory, timeout);
+                ready[i] = measured[0];
+                jvmReady[i] = measured[1];
+                firstPage[i] = measured[2];
+            }
+            System.out.printf("%-16s %14.0f %14d %16.0f %16.0f%n", variant, mean(ready),
+                    Arrays.stream(ready).min().orElse(0), mean(jvmReady), mean(firstPage));
+        }
+    }
+
+    /**
+     * Starts the application, waits for it and stops it again.
+     *
+     * @return the milliseconds until it logged that it started (measured here, and by the JVM since it started),
+     * and from then until the report page was served to an admin
+     */
+    private static long[] start(List<String> command, File projectDirectory, Duration timeout) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> arguments = new ArrayList<>(command);
+        arguments.addAll(List.of("--server.port=" + port, "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.org.example.xphrtestingassignment.XphrTestingAssignmentApplication=INFO"));
+
+        long started = System.nanoTime();
+        // the packaged jar finds the JSPs only in src/main/webapp of its working directory, the extracted one in
+        // its own META-INF/resources
+        Process process = new ProcessBuilder(arguments).directory(projectDirectory)
+                .redirectErrorStream(true).start();
+        try {
+            long jvmReady = awaitStarted(process, timeout);
+            long ready = (System.nanoTime() - started) / 1_000_000;
+
+            long pageFrom = System.nanoTime();
+            String baseUrl = "http://localhost:" + port;
+            WebSession session = WebSession.login(baseUrl, "admin", "admin");
+            int status = session.get("/web/reports").statusCode();
+            if (status != 200) {
+                throw new IllegalStateException("The report page answered HTTP " + status);
+            }
+            return new long[]{ready, jvmReady, (System.nanoTime() - pageFrom) / 1_000_000};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Reads the output of the application up to its "Started" line and keeps draining it in the background.
+     *
+     * @return the JVM uptime the line reports, in milliseconds
+     */
+    private static long awaitStarted(Process process, Duration timeout) throws IOException {
+        Thread watchdog = daemon(() -> {
+            try {
+                if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        Deque<String> lastLines = new ArrayDeque<>();
+        String line;
+        while ((line = output.readLine()) != null) {
+            Matcher started = STARTED.matcher(line);
+            if (started.find()) {
+                watchdog.interrupt();
+                daemon(() -> drain(output));
+                return Math.round(Double.parseDouble(started.group(1)) * 1000);
+            }
+            if (lastLines.size() == 20) {
+                lastLines.removeFirst();
+            }
+            lastLines.addLast(line);
+        }
+        throw new IllegalStateException("The application stopped before it started:\n" + String.join("\n", lastLines));
+    }
+
+    /**
+     * Runs a tool to the end and fails if it does.
+     */
+    private static void run(Duration timeout, String... command) throws Exception {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Thread drainer = daemon(() -> drain(
+                new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))));
+        if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Timed out: " + String.join(" ", command));
+        }
+        drainer.join();
+        if (process.exitValue() != 0) {
+            throw new IllegalStateException("Exit code " + process.exitValue() + ": " + String.join(" ", command));
+        }
+    }
+
+    private static void drain(BufferedReader output) {
+        try {
+            while (output.readLine() != null) {
+                // the application keeps logging until it is stopped
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Thread daemon(Runnable task) {
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static double mean(long[] values) {
+        return Arrays.stream(values).average().orElse(0);
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.xphrtestingassignment.benchmark;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An HTTP client holding the session of a form login, like a browser.
+ */
+public final class WebSession {
+
+    private static final Pattern CSRF_TOKEN = Pattern.compile("name=\"_csrf\"[^>]*value=\"([^\"]+)\"");
+
+    private final String baseUrl;
+    private final HttpClient client;
+
+    private WebSession(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * Logs in through the login form and keeps the session cookie.
+     *
+     * @throws IllegalStateException if the login is rejected
+     */
+    public static WebSession login(String baseUrl, String username, String password)
+            throws IOException, InterruptedException {
+        WebSession session = new WebSession(baseUrl);
+        String loginPage = session.get("/login").body();
+        Matcher csrf = CSRF_TOKEN.matcher(loginPage);
+        if (!csrf.find()) {
+            throw new IllegalStateException("No CSRF token on the login page");
+        }
+        String form = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8) +
+                "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8) +
+                "&_csrf=" + URLEncoder.encode(csrf.group(1), StandardCharsets.UTF_8);
+        HttpResponse<Void> response = session.client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.headers().firstValue("Location").filter(location -> location.endsWith("/web/reports")).isEmpty()) {
+            throw new IllegalStateException("Login of " + username + " failed: HTTP " + response.statusCode());
+        }
+        return session;
+    }
+
+    public HttpRequest request(String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery)).GET().build();
+    }
+
+    public HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+        return client.send(request(pathAndQuery), HttpResponse.BodyHandlers.ofString());
+    }
+
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException, InterruptedException {
+        return client.send(request, bodyHandler);
+    }
+}
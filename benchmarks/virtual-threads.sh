@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Compares request execution on the Tomcat worker pool (platform threads) with virtual threads under the same
+# ReportLoadTest. Needs a JDK 21 (JAVA_HOME or JAVA21_HOME) and a database with a generated dataset, see
+# part2-run-instructions.md.
+#
+#   SESSIONS=400 DURATION=PT2M benchmarks/virtual-threads.sh
+set -euo pipefail
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+ROOT_DIR="$(dirname "$SCRIPT_DIR")"
+export JAVA_HOME="${JAVA21_HOME:-${JAVA_HOME:-}}"
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+
+SESSIONS="${SESSIONS:-400}"
+ADMIN_SHARE="${ADMIN_SHARE:-0.25}"
+WARMUP="${WARMUP:-PT15S}"
+DURATION="${DURATION:-PT60S}"
+TOMCAT_THREADS="${TOMCAT_THREADS:-200}"
+PORT="${PORT:-8080}"
+
+if ! "$JAVA" -version 2>&1 | grep -qE 'version "(2[1-9]|[3-9][0-9])'; then
+  echo "Error: Java 21+ required, set JAVA21_HOME" >&2
+  exit 1
+fi
+
+cd "$ROOT_DIR"
+./mvnw -q -B -Pjdk21 package -DskipTests
+./mvnw -q -B -f benchmarks/pom.xml compile
+
+for mode in platform virtual; do
+  echo "=== $mode threads ($SESSIONS sessions, tomcat threads max $TOMCAT_THREADS) ==="
+  SPRING_THREADS_VIRTUAL_ENABLED="$([ "$mode" = virtual ] && echo true || echo false)" \
+  SERVER_TOMCAT_THREADS_MAX="$TOMCAT_THREADS" \
+  SERVER_PORT="$PORT" \
+  SPRING_JPA_SHOW_SQL=false \
+  LOGGING_LEVEL_ROOT=WARN \
+    "$JAVA" -jar target/xphr-testing-assignment-0.0.1-SNAPSHOT-exec.jar > "target/virtual-threads-$mode.log" 2>&1 &
+  app_pid=$!
+  trap 'kill $app_pid 2>/dev/null || true' EXIT
+
+  until curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; do
+    if ! kill -0 "$app_pid" 2>/dev/null; then
+      echo "Error: application did not start, see target/virtual-threads-$mode.log" >&2
+      exit 1
+    fi
+    sleep 1
+  done
+
+  ./mvnw -q -B -f benchmarks/pom.xml exec:exec \
+      -Dbench.main=org.example.xphrtestingassignment.benchmark.ReportLoadTest \
+      -Dbench.args="--base-url=http://localhost:$PORT --threads=$SESSIONS --admin-share=$ADMIN_SHARE --warmup=$WARMUP --duration=$DURATION"
+
+  kill "$app_pid"
+  wait "$app_pid" 2>/dev/null || true
+  trap - EXIT
+done
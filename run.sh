@@ -8,8 +8,6 @@ cd "$SCRIPT_DIR"
 DB_CONTAINER="xphr"
 DB_NAME="xphr"
 DB_USER="admin"
-SCHEMA_FILE="$SCRIPT_DIR/src/main/resources/database/schema.sql"
-DATA_FILE="$SCRIPT_DIR/src/main/resources/database/data.sql"
 
 # --- Preflight checks ---
 if ! command -v docker >/dev/null 2>&1; then
@@ -31,15 +29,6 @@ if ! docker compose version >/dev/null 2>&1; then
   fi
 fi
 
-if [ ! -f "$SCHEMA_FILE" ]; then
-  echo "Error: schema.sql not found at $SCHEMA_FILE" >&2
-  exit 1
-fi
-if [ ! -f "$DATA_FILE" ]; then
-  echo "Error: data.sql not found at $DATA_FILE" >&2
-  exit 1
-fi
-
 # --- Start database service first ---
 echo "Starting PostgreSQL container..."
 if docker compose version >/dev/null 2>&1; then
@@ -65,22 +54,13 @@ until docker exec "$DB_CONTAINER" pg_isready -U "$DB_USER" -d "$DB_NAME" >/dev/n
 done
 printf '\n'
 
-# --- Apply schema and data ---
-echo "Applying schema (this will DROP and CREATE tables)..."
-docker exec -i "$DB_CONTAINER" psql -U "$DB_USER" -d "$DB_NAME" -v ON_ERROR_STOP=1 < "$SCHEMA_FILE"
-
-echo "Applying data (sample records)..."
-docker exec -i "$DB_CONTAINER" psql -U "$DB_USER" -d "$DB_NAME" -v ON_ERROR_STOP=1 < "$DATA_FILE"
-
-echo
-
 # --- Start the application locally ---
 echo "Starting Spring Boot application locally with Maven..."
-echo "Note: Disabling Spring SQL init (schema/data already applied by script)."
+echo "Note: the application migrates the schema and loads the sample data on its first start."
 if [ -x "./mvnw" ]; then
-  SPRING_SQL_INIT_MODE=never ./mvnw spring-boot:run
+  ./mvnw spring-boot:run
 else
-  SPRING_SQL_INIT_MODE=never mvn spring-boot:run
+  mvn spring-boot:run
 fi
 
 # Note: spring-boot:run runs in the foreground. Stop with Ctrl+C.
@@ -0,0 +1,495 @@
+package org.example.xphrtestingassignment.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The time records of one closed month in an immutable columnar file, read through a memory mapping.
+ * <p>
+ * The records are sorted by {@code time_from} and stored in blocks of {@link #BLOCK_RECORDS}. A block starts with its
+ * time unit, the coarsest of a minute, a second, a millisecond and a microsecond that its times are whole multiples
+ * of, as an unsigned varint. Then every record is unsigned varints too: its {@code time_from} as the delta to the
+ * previous one in the time unit (left out for the first, kept in the block index), its duration in the time unit, and
+ * the ordinals of its employee and project in the id dictionaries of the segment. Records of whole seconds take
+ * a few bytes each instead of the 32 of the raw columns. Next to the records the segment keeps their count, the smallest and largest
+ * {@code time_from}, the largest {@code time_to}, the longest record and the pre-summed count and duration of every
+ * (employee, project) pair, so that a window covering the whole month is answered without decoding a record.
+ * <p>
+ * File layout, big-endian: the header ({@link #HEADER_BYTES} bytes), the employee and project ids (8 bytes each),
+ * the pair totals (employee ordinal, project ordinal, records, microseconds: 20 bytes each), the block index (first
+ * time_from and byte offset of the block: 12 bytes each) and the encoded records. The header ends with a CRC32 of
+ * everything after it, checked when the segment is opened. Times are microseconds since the epoch of the local time,
+ * as in {@link org.example.xphrtestingassignment.columnar.ColumnarTimeRecords}.
+ */
+public final class ArchiveSegment {
+
+    static final int MAGIC = 0x58545253;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final int BLOCK_RECORDS = 1024;
+
+    static final int HEADER_BYTES = 9 * 4 + 6 * 8 + 4;
+
+    private static final int PAIR_BYTES = 4 + 4 + 4 + 8;
+
+    private static final int BLOCK_INDEX_BYTES = 8 + 4;
+
+    // a minute, a second, a millisecond, in microseconds
+    private static final long[] TIME_UNITS = {60_000_000, 1_000_000, 1_000};
+
+    private final Path file;
+    private final YearMonth month;
+    private final int records;
+    private final long minFrom;
+    private final long maxFrom;
+    private final long maxTo;
+    private final long longestRecord;
+    private final long totalMicros;
+    private final long fileBytes;
+
+    private final long[] employeeIds;
+    private final long[] projectIds;
+    private final int[] pairEmployee;
+    private final int[] pairProject;
+    private final int[] pairRecords;
+    private final long[] pairMicros;
+    private final long[] blockFrom;
+    private final int[] blockOffset;
+    private final ByteBuffer data;
+
+    private ArchiveSegment(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.fileBytes = buffer.capacity();
+        if (fileBytes < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not an archive segment");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException(file + " has the unknown format version " + buffer.getInt(4));
+        }
+        month = YearMonth.of(buffer.getInt(8), buffer.getInt(12));
+        records = buffer.getInt(16);
+        int employees = buffer.getInt(20);
+        int projects = buffer.getInt(24);
+        int pairs = buffer.getInt(28);
+        int blocks = buffer.getInt(32);
+        minFrom = buffer.getLong(36);
+        maxFrom = buffer.getLong(44);
+        maxTo = buffer.getLong(52);
+        longestRecord = buffer.getLong(60);
+        totalMicros = buffer.getLong(68);
+        long dataBytes = buffer.getLong(76);
+        int checksum = buffer.getInt(84);
+
+        long expectedBytes = HEADER_BYTES + 8L * (employees + projects) + (long) PAIR_BYTES * pairs
+                + (long) BLOCK_INDEX_BYTES * blocks + dataBytes;
+        if (expectedBytes != fileBytes) {
+            throw new IOException(file + " is truncated: " + fileBytes + " bytes instead of " + expectedBytes);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(HEADER_BYTES, (int) fileBytes - HEADER_BYTES));
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException(file + " is corrupt: checksum mismatch");
+        }
+
+        int position = HEADER_BYTES;
+        employeeIds = new long[employees];
+        for (int i = 0; i < employees; i++, position += 8) {
+            employeeIds[i] = buffer.getLong(position);
+        }
+        projectIds = new long[projects];
+        for (int i = 0; i < projects; i++, position += 8) {
+            projectIds[i] = buffer.getLong(position);
+        }
+        pairEmployee = new int[pairs];
+        pairProject = new int[pairs];
+        pairRecords = new int[pairs];
+        pairMicros = new long[pairs];
+        for (int i = 0; i < pairs; i++, position += PAIR_BYTES) {
+            pairEmployee[i] = buffer.getInt(position);
+            pairProject[i] = buffer.getInt(position + 4);
+            pairRecords[i] = buffer.getInt(position + 8);
+            pairMicros[i] = buffer.getLong(position + 12);
+        }
+        blockFrom = new long[blocks];
+        blockOffset = new int[blocks];
+        for (int i = 0; i < blocks; i++, position += BLOCK_INDEX_BYTES) {
+            blockFrom[i] = buffer.getLong(position);
+            blockOffset[i] = buffer.getInt(position + 8);
+        }
+        // the records stay in the mapping and are decoded in place
+        data = buffer.slice(position, (int) dataBytes);
+    }
+
+    /**
+     * Maps the segment file and checks its header and checksum.
+     *
+     * @throws IOException if the file cannot be read or is not an intact segment
+     */
+    public static ArchiveSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is larger than 2 GiB");
+            }
+            // the mapping stays valid after the channel is closed
+            return new ArchiveSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * The file name of the segment of a month, after the name of its time_record partition.
+     */
+    public static String fileName(YearMonth month) {
+        return String.format("time_record_y%04dm%02d.seg", month.getYear(), month.getMonthValue());
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public YearMonth month() {
+        return month;
+    }
+
+    public int records() {
+        return records;
+    }
+
+    public long totalMicros() {
+        return totalMicros;
+    }
+
+    public long fileBytes() {
+        return fileBytes;
+    }
+
+    /**
+     * The start of the month, in epoch microseconds: no record starts before it.
+     */
+    public long monthStart() {
+        return month.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) * 1_000_000;
+    }
+
+    /**
+     * The start of the next month, in epoch microseconds: every record starts before it.
+     */
+    public long monthEnd() {
+        return month.plusMonths(1).atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) * 1_000_000;
+    }
+
+    public long minFrom() {
+        return minFrom;
+    }
+
+    public long maxFrom() {
+        return maxFrom;
+    }
+
+    public long maxTo() {
+        return maxTo;
+    }
+
+    public long longestRecord() {
+        return longestRecord;
+    }
+
+    public long employeeId(int ordinal) {
+        return employeeIds[ordinal];
+    }
+
+    public long projectId(int ordinal) {
+        return projectIds[ordinal];
+    }
+
+    /**
+     * The ordinal of an employee id in this segment, or -1 when none of its records are in it.
+     */
+    public int employeeOrdinal(long employeeId) {
+        int ordinal = Arrays.binarySearch(employeeIds, employeeId);
+        return ordinal < 0 ? -1 : ordinal;
+    }
+
+    /**
+     * Visits the pre-summed totals of every (employee, project) pair, in the order of the ordinals.
+     */
+    public void forEachPair(PairVisitor visitor) {
+        for (int i = 0; i < pairEmployee.length; i++) {
+            visitor.visit(pairEmployee[i], pairProject[i], pairRecords[i], pairMicros[i]);
+        }
+    }
+
+    /**
+     * Decodes the records with {@code fromLow <= time_from < fromHigh} in time_from order. Only the blocks that may
+     * hold them are read.
+     */
+    public void scan(long fromLow, long fromHigh, RecordVisitor visitor) {
+        if (records == 0 || fromLow >= fromHigh || fromLow > maxFrom || fromHigh <= minFrom) {
+            return;
+        }
+        // records equal to the first of a block may end the block before
+        int block = Math.max(0, lowerBound(blockFrom, fromLow) - 1);
+        Cursor cursor = new Cursor(blockOffset[block]);
+        long from = 0;
+        long unit = 1;
+        for (int r = block * BLOCK_RECORDS; r < records; r++) {
+            if (r % BLOCK_RECORDS == 0) {
+                unit = cursor.next();
+                from = blockFrom[r / BLOCK_RECORDS];
+            } else {
+                from += cursor.next() * unit;
+            }
+            long duration = cursor.next() * unit;
+            int employee = (int) cursor.next();
+            int project = (int) cursor.next();
+            if (from >= fromHigh) {
+                return;
+            }
+            if (from >= fromLow) {
+                visitor.visit(from, from + duration, employee, project);
+            }
+        }
+    }
+
+    private static int lowerBound(long[] values, long value) {
+        int from = 0;
+        int to = values.length;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (values[mid] < value) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(long from, long to, int employeeOrdinal, int projectOrdinal);
+    }
+
+    @FunctionalInterface
+    public interface PairVisitor {
+        void visit(int employeeOrdinal, int projectOrdinal, int records, long micros);
+    }
+
+    /**
+     * Collects the records of a month in time_from order and writes them as a segment.
+     */
+    public static final class Writer {
+        private final YearMonth month;
+        private final long monthStart;
+        private final long monthEnd;
+        private int size;
+        private long[] from = new long[1024];
+        private long[] to = new long[1024];
+        private long[] employeeId = new long[1024];
+        private long[] projectId = new long[1024];
+
+        public Writer(YearMonth month) {
+            this.month = month;
+            this.monthStart = month.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) * 1_000_000;
+            this.monthEnd = month.plusMonths(1).atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) * 1_000_000;
+        }
+
+        /**
+         * Appends a record; it must start in the month, not before the previous record, and not end before it
+         * starts.
+         */
+        public void add(long fromMicros, long toMicros, long employee, long project) {
+            if (fromMicros < monthStart || fromMicros >= monthEnd) {
+                throw new IllegalArgumentException("The record does not start in " + month);
+            }
+            if (size > 0 && fromMicros < from[size - 1]) {
+                throw new IllegalArgumentException("Records must be added in time_from order");
+            }
+            if (toMicros < fromMicros) {
+                throw new IllegalArgumentException("The record ends before it starts");
+            }
+            if (size == from.length) {
+                int capacity = size * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                employeeId = Arrays.copyOf(employeeId, capacity);
+                projectId = Arrays.copyOf(projectId, capacity);
+            }
+            from[size] = fromMicros;
+            to[size] = toMicros;
+            employeeId[size] = employee;
+            projectId[size] = project;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * The coarsest time unit the deltas and durations of the records {@code [first, last)} are whole multiples
+         * of.
+         */
+        private long unit(int first, int last) {
+            for (long unit : TIME_UNITS) {
+                boolean whole = true;
+                for (int r = first; r < last && whole; r++) {
+                    whole = (to[r] - from[r]) % unit == 0 && (r == first || (from[r] - from[r - 1]) % unit == 0);
+                }
+                if (whole) {
+                    return unit;
+                }
+            }
+            return 1;
+        }
+
+        /**
+         * Writes the segment into the directory, through a temporary file that is synced and then renamed, so that
+         * the segment file either is complete or does not exist.
+         *
+         * @return the path of the segment file
+         */
+        public Path write(Path directory) throws IOException {
+            long[] employees = Arrays.stream(employeeId, 0, size).sorted().distinct().toArray();
+            long[] projects = Arrays.stream(projectId, 0, size).sorted().distinct().toArray();
+
+            long[] keys = new long[size];
+            long maxTo = Long.MIN_VALUE;
+            long longest = 0;
+            long total = 0;
+            for (int r = 0; r < size; r++) {
+                keys[r] = (long) Arrays.binarySearch(employees, employeeId[r]) << 32
+                        | Arrays.binarySearch(projects, projectId[r]);
+                maxTo = Math.max(maxTo, to[r]);
+                longest = Math.max(longest, to[r] - from[r]);
+                total += to[r] - from[r];
+            }
+            long[] pairKeys = Arrays.stream(keys).sorted().distinct().toArray();
+            int[] pairRecords = new int[pairKeys.length];
+            long[] pairMicros = new long[pairKeys.length];
+            for (int r = 0; r < size; r++) {
+                int pair = Arrays.binarySearch(pairKeys, keys[r]);
+                pairRecords[pair]++;
+                pairMicros[pair] += to[r] - from[r];
+            }
+
+            int blocks = (size + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+            long[] blockFrom = new long[blocks];
+            int[] blockOffset = new int[blocks];
+            VarintBuffer encoded = new VarintBuffer(size * 8 + 16);
+            long unit = 1;
+            for (int r = 0; r < size; r++) {
+                if (r % BLOCK_RECORDS == 0) {
+                    unit = unit(r, Math.min(size, r + BLOCK_RECORDS));
+                    blockFrom[r / BLOCK_RECORDS] = from[r];
+                    blockOffset[r / BLOCK_RECORDS] = encoded.size;
+                    encoded.put(unit);
+                } else {
+                    encoded.put((from[r] - from[r - 1]) / unit);
+                }
+                encoded.put((to[r] - from[r]) / unit);
+                encoded.put((int) (keys[r] >>> 32));
+                encoded.put((int) keys[r]);
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(8 * (employees.length + projects.length)
+                    + PAIR_BYTES * pairKeys.length + BLOCK_INDEX_BYTES * blocks + encoded.size);
+            for (long id : employees) {
+                body.putLong(id);
+            }
+            for (long id : projects) {
+                body.putLong(id);
+            }
+            for (int pair = 0; pair < pairKeys.length; pair++) {
+                body.putInt((int) (pairKeys[pair] >>> 32)).putInt((int) pairKeys[pair])
+                        .putInt(pairRecords[pair]).putLong(pairMicros[pair]);
+            }
+            for (int block = 0; block < blocks; block++) {
+                body.putLong(blockFrom[block]).putInt(blockOffset[block]);
+            }
+            body.put(encoded.bytes, 0, encoded.size).flip();
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC).putInt(FORMAT_VERSION)
+                    .putInt(month.getYear()).putInt(month.getMonthValue())
+                    .putInt(size).putInt(employees.length).putInt(projects.length).putInt(pairKeys.length)
+                    .putInt(blocks)
+                    .putLong(size == 0 ? monthStart : from[0])
+                    .putLong(size == 0 ? monthStart : from[size - 1])
+                    .putLong(size == 0 ? monthStart : maxTo)
+                    .putLong(longest)
+                    .putLong(total)
+                    .putLong(encoded.size)
+                    .putInt((int) crc.getValue())
+                    .flip();
+
+            Files.createDirectories(directory);
+            Path target = directory.resolve(fileName(month));
+            Path temporary = directory.resolve(fileName(month) + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining() || body.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, body});
+                }
+                channel.force(true);
+            }
+            return Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Reads the unsigned varints of the records one after the other.
+     */
+    private final class Cursor {
+        private int position;
+
+        Cursor(int position) {
+            this.position = position;
+        }
+
+        long next() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data.get(position++);
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable bytes of unsigned varints, 7 bits per byte with the high bit set on all but the last.
+     */
+    private static final class VarintBuffer {
+        private byte[] bytes;
+        private int size;
+
+        VarintBuffer(int capacity) {
+            bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        void put(long value) {
+            if (bytes.length - size < 10) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7fL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package org.example.xphrtestingassignment.archive;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * The closed months moved out of time_record into {@link ArchiveSegment} files in {@code report.archive.directory},
+ * enabled with {@code report.archive.enabled}.
+ * <p>
+ * The segments cover consecutive months up to {@link #archivedBefore()}. The records starting before that instant
+ * are read from the segments only, and those starting at or after it from time_record only, whether or not the
+ * archived rows have been deleted from the database yet: a report reaching into the archive adds the archived totals
+ * of {@link #totals} to the live records of the same statement, so its result does not change when a month is
+ * archived.
+ * <p>
+ * Instances sharing the directory pick up the segments written by another one every
+ * {@code report.archive.refresh-interval}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "report.archive.enabled", havingValue = "true")
+public class TimeRecordArchive {
+
+    private static final long MICROS_PER_DAY = 86_400L * 1_000_000;
+
+    private static final long NO_DAY = Long.MIN_VALUE;
+
+    private final Path directory;
+
+    private volatile Segments segments;
+
+    public TimeRecordArchive(@Value("${report.archive.directory:archive}") Path directory,
+                             MeterRegistry meterRegistry) throws IOException {
+        this.directory = directory;
+        this.segments = new Segments(load(directory));
+        log.info("time record archive in {}: {} months, {} records", directory.toAbsolutePath(),
+                segments.list().size(), segments.records());
+
+        Gauge.builder("report.archive.months", this, archive -> archive.segments.list().size())
+                .description("Months held by the time record archive")
+                .register(meterRegistry);
+        Gauge.builder("report.archive.records", this, archive -> archive.segments.records())
+                .description("Time records held by the time record archive")
+                .register(meterRegistry);
+        Gauge.builder("report.archive.bytes", this, archive -> archive.segments.bytes())
+                .description("Bytes of the segment files of the time record archive")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens the segments of the directory, which must cover consecutive months.
+     */
+    static List<ArchiveSegment> load(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<ArchiveSegment> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(".seg")).toList()) {
+                loaded.add(ArchiveSegment.open(file));
+            }
+        }
+        loaded.sort(Comparator.comparing(ArchiveSegment::month));
+        for (int i = 1; i < loaded.size(); i++) {
+            if (!loaded.get(i).month().equals(loaded.get(i - 1).month().plusMonths(1))) {
+                throw new IllegalStateException("The archive in " + directory + " has no segment between "
+                        + loaded.get(i - 1).month() + " and " + loaded.get(i).month());
+            }
+        }
+        return loaded;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public List<ArchiveSegment> segments() {
+        return segments.list();
+    }
+
+    /**
+     * The start of the first month that is not archived, or null while the archive is empty.
+     */
+    public LocalDateTime archivedBefore() {
+        return archivedBefore(segments.list());
+    }
+
+    private static LocalDateTime archivedBefore(List<ArchiveSegment> list) {
+        return list.isEmpty() ? null : list.get(list.size() - 1).month().plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    /**
+     * The month the next segment has to be, or null while the archive is empty and any month may be the first.
+     */
+    public YearMonth nextMonth() {
+        List<ArchiveSegment> list = segments.list();
+        return list.isEmpty() ? null : list.get(list.size() - 1).month().plusMonths(1);
+    }
+
+    /**
+     * Appends the segment of the month after the last archived one. From now on the records of the month are read
+     * from the segment.
+     */
+    public synchronized void add(ArchiveSegment segment) {
+        YearMonth next = nextMonth();
+        if (next != null && !next.equals(segment.month())) {
+            throw new IllegalArgumentException("The next archived month has to be " + next + ", not "
+                    + segment.month());
+        }
+        List<ArchiveSegment> list = new ArrayList<>(segments.list());
+        list.add(segment);
+        segments = new Segments(list);
+        log.info("archived {} time records of {} in {} ({} bytes)", segment.records(), segment.month(),
+                segment.file().getFileName(), segment.fileBytes());
+    }
+
+    /**
+     * Adds the segments written to the directory since it was read, by another instance sharing it, in month order.
+     */
+    public synchronized void refresh() throws IOException {
+        YearMonth next = nextMonth();
+        if (next == null) {
+            for (ArchiveSegment segment : load(directory)) {
+                add(segment);
+            }
+            return;
+        }
+        for (; Files.exists(directory.resolve(ArchiveSegment.fileName(next))); next = next.plusMonths(1)) {
+            add(ArchiveSegment.open(directory.resolve(ArchiveSegment.fileName(next))));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${report.archive.refresh-interval:PT1M}",
+            initialDelayString = "${report.archive.refresh-interval:PT1M}")
+    public void refreshQuietly() {
+        try {
+            refresh();
+        } catch (IOException | RuntimeException e) {
+            log.warn("could not read the new segments of the time record archive in {}", directory, e);
+        }
+    }
+
+    /**
+     * Whether archived records count in the report of the window: the window starts before the end of the archive
+     * or, in overlap mode, before the end of its last record.
+     */
+    public boolean reaches(ReportWindowMode windowMode, LocalDateTime startDate, LocalDateTime endDate) {
+        Segments current = segments;
+        if (current.list().isEmpty() || !startDate.isBefore(endDate)) {
+            return false;
+        }
+        long start = ColumnarTimeRecords.epochMicros(startDate);
+        return start < current.end() || (windowMode == ReportWindowMode.OVERLAP && start < current.maxTo());
+    }
+
+    /**
+     * The archived records of the chunk {@code [chunkStart, chunkEnd)} of the report window
+     * {@code [startDate, endDate)}, added up per employee and project, and per day as well when {@code byDay} is
+     * set: the same split as {@code ReportChunkSql}. A chunk holds the records starting in it; in overlap mode the
+     * records crossing the start of the window belong to the chunk starting with the window, count from the day the
+     * window starts, and are clipped to the window like those crossing its end. A segment lying wholly inside the
+     * window and the chunk is added from its pre-summed totals.
+     * <p>
+     * The totals come with the archive they were read from: the live records of the chunk are those starting from
+     * {@link ChunkTotals#liveFrom()} on, and in overlap mode those crossing the start of the window from
+     * {@link ChunkTotals#archivedBefore()} on.
+     *
+     * @param employeeId the employee the report is restricted to, null for all
+     */
+    public ChunkTotals totals(ReportWindowMode windowMode, Long employeeId, LocalDateTime startDate,
+                              LocalDateTime endDate, LocalDateTime chunkStart, LocalDateTime chunkEnd, boolean byDay) {
+        List<ArchiveSegment> list = segments.list();
+        LocalDateTime archivedBefore = archivedBefore(list);
+        LocalDateTime liveFrom = archivedBefore == null || !chunkStart.isBefore(archivedBefore) ? chunkStart
+                : archivedBefore.isBefore(chunkEnd) ? archivedBefore : chunkEnd;
+        long start = ColumnarTimeRecords.epochMicros(startDate);
+        long end = ColumnarTimeRecords.epochMicros(endDate);
+        long from = Math.max(start, ColumnarTimeRecords.epochMicros(chunkStart));
+        long to = Math.min(end, ColumnarTimeRecords.epochMicros(chunkEnd));
+        boolean overlap = windowMode == ReportWindowMode.OVERLAP;
+        boolean crossing = overlap && chunkStart.equals(startDate);
+        Map<Key, long[]> totals = new HashMap<>();
+        if (start >= end) {
+            return new ChunkTotals(archivedBefore, liveFrom, List.of());
+        }
+        for (ArchiveSegment segment : list) {
+            int employee = employeeId == null ? -1 : segment.employeeOrdinal(employeeId);
+            if (employeeId != null && employee < 0) {
+                continue;
+            }
+            if (!byDay && from <= segment.minFrom() && segment.maxFrom() < to
+                    && (overlap ? segment.maxTo() <= end : segment.maxTo() < end)) {
+                segment.forEachPair((employeeOrdinal, projectOrdinal, records, micros) -> {
+                    if (employee < 0 || employeeOrdinal == employee) {
+                        add(totals, NO_DAY, segment, employeeOrdinal, projectOrdinal, micros);
+                    }
+                });
+                continue;
+            }
+            segment.scan(from, to, (recordFrom, recordTo, employeeOrdinal, projectOrdinal) -> {
+                if ((employee < 0 || employeeOrdinal == employee) && (overlap || recordTo < end)) {
+                    add(totals, byDay ? Math.floorDiv(recordFrom, MICROS_PER_DAY) * MICROS_PER_DAY : NO_DAY,
+                            segment, employeeOrdinal, projectOrdinal, Math.min(recordTo, end) - recordFrom);
+                }
+            });
+            if (crossing) {
+                long day = byDay ? Math.floorDiv(start, MICROS_PER_DAY) * MICROS_PER_DAY : NO_DAY;
+                segment.scan(start - segment.longestRecord(), start,
+                        (recordFrom, recordTo, employeeOrdinal, projectOrdinal) -> {
+                            if ((employee < 0 || employeeOrdinal == employee) && recordTo > start) {
+                                add(totals, day, segment, employeeOrdinal, projectOrdinal,
+                                        Math.min(recordTo, end) - start);
+                            }
+                        });
+            }
+        }
+        List<Total> result = new ArrayList<>(totals.size());
+        totals.forEach((key, micros) -> result.add(new Total(key.day() == NO_DAY ? null : time(key.day()),
+                key.employeeId(), key.projectId(), micros[0])));
+        return new ChunkTotals(archivedBefore, liveFrom, result);
+    }
+
+    private static void add(Map<Key, long[]> totals, long day, ArchiveSegment segment, int employeeOrdinal,
+                            int projectOrdinal, long micros) {
+        totals.computeIfAbsent(new Key(day, segment.employeeId(employeeOrdinal), segment.projectId(projectOrdinal)),
+                key -> new long[1])[0] += micros;
+    }
+
+    private static LocalDateTime time(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * The archived seconds of an employee on a project, as microseconds.
+     *
+     * @param day the midnight of the day the records start on, null unless asked for
+     */
+    public record Total(LocalDateTime day, long employeeId, long projectId, long micros) {
+    }
+
+    /**
+     * The archived totals of a chunk.
+     *
+     * @param archivedBefore the end of the archive they were read from, null while it is empty
+     * @param liveFrom       the start of the chunk moved past that archive, but not past the end of the chunk
+     */
+    public record ChunkTotals(LocalDateTime archivedBefore, LocalDateTime liveFrom, List<Total> totals) {
+    }
+
+    private record Key(long day, long employeeId, long projectId) {
+    }
+
+    /**
+     * The segments in month order, with their end and the end of their last record in epoch microseconds.
+     */
+    private record Segments(List<ArchiveSegment> list, long end, long maxTo, long records, long bytes) {
+
+        Segments(List<ArchiveSegment> list) {
+            this(List.copyOf(list),
+                    list.isEmpty() ? Long.MIN_VALUE : list.get(list.size() - 1).monthEnd(),
+                    list.stream().filter(segment -> segment.records() > 0)
+                            .mapToLong(ArchiveSegment::maxTo).max().orElse(Long.MIN_VALUE),
+                    list.stream().mapToLong(ArchiveSegment::records).sum(),
+                    list.stream().mapToLong(ArchiveSegment::fileBytes).sum());
+        }
+    }
+}
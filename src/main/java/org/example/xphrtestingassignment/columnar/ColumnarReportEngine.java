@@ -0,0 +1,141 @@
+package org.example.xphrtestingassignment.columnar;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords.Columns;
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords.Names;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the {@link ColumnarTimeRecords} the report is answered from when {@code report.columnar.enabled} is set.
+ * <p>
+ * The records are loaded once the application is ready; until then {@link #snapshot()} is null and reports are read
+ * from the database. Every {@link TimeRecordsChangedEvent} re-reads the records starting in the changed interval and
+ * swaps in a new snapshot before the report cache is evicted, so a cache miss never sees the old records. The swap
+ * copies the arrays, which costs a few milliseconds per million records on the committing thread.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "report.columnar.enabled", havingValue = "true")
+public class ColumnarReportEngine {
+
+    private static final String EMPLOYEES_SQL = "SELECT id, name FROM employee ORDER BY name, id";
+
+    private static final String PROJECTS_SQL = "SELECT id, name FROM project ORDER BY name, id";
+
+    // epoch of a timestamp without time zone is the one of the same wall clock time in UTC
+    private static final String RECORDS_SQL = "SELECT CAST(EXTRACT(EPOCH FROM time_from) * 1000000 AS BIGINT), " +
+            " CAST(EXTRACT(EPOCH FROM time_to) * 1000000 AS BIGINT), employee_id, project_id " +
+            "FROM time_record ";
+
+    private static final String RECORDS_ORDER = "ORDER BY time_from";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile ColumnarTimeRecords snapshot;
+
+    public ColumnarReportEngine(DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${report.columnar.fetch-size:10000}") int fetchSize,
+                                MeterRegistry meterRegistry) {
+        // within a transaction the PostgreSQL driver reads through a cursor, fetchSize rows at a time
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        // records and names read from one snapshot of the database
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        Gauge.builder("report.columnar.records", this, engine -> engine.snapshot == null ? 0 : engine.snapshot.size())
+                .description("Time records held by the columnar report engine")
+                .register(meterRegistry);
+        Gauge.builder("report.columnar.bytes", this,
+                        engine -> engine.snapshot == null ? 0 : engine.snapshot.estimatedBytes())
+                .description("Bytes held by the arrays of the columnar report engine")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The records the report is answered from, or null while they are not loaded yet.
+     */
+    public ColumnarTimeRecords snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Reads every time record. Scheduled as a safety net for rows written around the application, such as
+     * manual SQL, which publish no change event.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${report.columnar.reload-cron:0 15 3 * * *}")
+    public synchronized void reload() {
+        long started = System.nanoTime();
+        snapshot = transactionTemplate.execute(status -> {
+            Names employees = names(EMPLOYEES_SQL);
+            Names projects = names(PROJECTS_SQL);
+            return ColumnarTimeRecords.of(records(RECORDS_SQL + RECORDS_ORDER, employees, projects),
+                    employees, projects);
+        });
+        log.info("columnar report engine loaded {} time records ({} MiB) in {} ms", snapshot.size(),
+                snapshot.estimatedBytes() >> 20, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // before the report cache evicts, so that the reloaded entries are computed from the new records
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void onTimeRecordsChanged(TimeRecordsChangedEvent event) {
+        ColumnarTimeRecords current = snapshot;
+        if (current == null) {
+            // the initial load has not started yet and will read the change
+            return;
+        }
+        long from = ColumnarTimeRecords.epochMicros(event.from());
+        long to = ColumnarTimeRecords.epochMicros(event.to());
+        snapshot = transactionTemplate.execute(status -> {
+            Names employees = names(EMPLOYEES_SQL);
+            Names projects = names(PROJECTS_SQL);
+            Columns reloaded = records(RECORDS_SQL + "WHERE time_from >= ? AND time_from <= ? " + RECORDS_ORDER,
+                    employees, projects, event.from(), event.to());
+            return current.replace(from, to, reloaded, employees, projects);
+        });
+        log.debug("columnar report engine reloaded time records between {} and {}", event.from(), event.to());
+    }
+
+    private Names names(String sql) {
+        List<Long> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        jdbcTemplate.query(sql, rs -> {
+            ids.add(rs.getLong(1));
+            names.add(rs.getString(2));
+        });
+        return new Names(ids.stream().mapToLong(Long::longValue).toArray(), names.toArray(String[]::new));
+    }
+
+    private Columns records(String sql, Names employees, Names projects, Object... parameters) {
+        Columns columns = new Columns(1024);
+        jdbcTemplate.query(sql, rs -> {
+            columns.add(rs.getLong(1), rs.getLong(2),
+                    employees.ordinal(rs.getLong(3)), projects.ordinal(rs.getLong(4)));
+        }, parameters);
+        return columns;
+    }
+}
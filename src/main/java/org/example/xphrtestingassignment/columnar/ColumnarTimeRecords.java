@@ -0,0 +1,499 @@
+package org.example.xphrtestingassignment.columnar;
+
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.dto.ReportCursor;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable, columnar copy of time_record that answers the work hours report without the database.
+ * <p>
+ * Records are kept in parallel primitive arrays sorted by {@code time_from}: the interval as epoch microseconds
+ * and the employee and project as int ordinals. Rows are grouped by the report key (employee name, project name),
+ * and every group has the positions of its records in ascending order with a prefix sum of their durations. A
+ * report window {@code [start, end)} selects the records with {@code time_from >= start} and
+ * {@code time_to < end}; those starting before {@code end - longest record} always qualify, so each group
+ * contributes one prefix sum difference found by binary search, and only the records starting in the last
+ * "longest record" before {@code end} are checked one by one. In {@link ReportWindowMode#OVERLAP} the records
+ * starting in the last "longest record" before {@code start} are checked as well, and the ones crossing an edge of
+ * the window are added clipped to it. No object is allocated per record.
+ * <p>
+ * Memory is about 40 bytes per record: 8 + 8 for the interval, 4 + 4 for the ordinals, 4 for the group, 4 for the
+ * position in the group and 8 for the prefix sum; 1,000,000 records take about 38 MiB plus the name tables.
+ */
+public final class ColumnarTimeRecords {
+
+    private static final BigDecimal SECONDS_PER_HOUR = BigDecimal.valueOf(3600);
+
+    /**
+     * Significant digits of a PostgreSQL numeric division (NUMERIC_MIN_SIG_DIGITS).
+     */
+    private static final int MIN_SIG_DIGITS = 16;
+
+    private final int size;
+    private final long[] timeFrom;
+    private final long[] timeTo;
+    private final int[] employee;
+    private final int[] project;
+    private final int[] group;
+    private final long longestRecord;
+
+    private final Names employees;
+    private final long[] employeeIds;
+    private final long[] projectIds;
+    private final String[] employeeNames;
+    private final String[] projectNames;
+    private final Map<String, Integer> employeeRanks;
+    private final Map<String, Integer> projectRanks;
+
+    private final int[] groupEmployee;
+    private final int[] groupProject;
+    private final int[] employeeGroupStart;
+    private final int[] groupStart;
+    private final int[] groupRows;
+    private final long[] groupPrefix;
+
+    private ColumnarTimeRecords(Columns columns, Names employees, Names projects) {
+        // the columns grow by doubling: drop the spare capacity before the snapshot is kept
+        size = columns.size;
+        timeFrom = Arrays.copyOf(columns.timeFrom, size);
+        timeTo = Arrays.copyOf(columns.timeTo, size);
+        employee = Arrays.copyOf(columns.employee, size);
+        project = Arrays.copyOf(columns.project, size);
+        this.employees = employees;
+        employeeIds = employees.ids;
+        projectIds = projects.ids;
+        employeeNames = employees.rankNames;
+        projectNames = projects.rankNames;
+        employeeRanks = employees.rankByName();
+        projectRanks = projects.rankByName();
+
+        long longest = 0;
+        long[] keys = new long[size];
+        for (int r = 0; r < size; r++) {
+            longest = Math.max(longest, timeTo[r] - timeFrom[r]);
+            keys[r] = key(employees.ranks[employee[r]], projects.ranks[project[r]]);
+        }
+        longestRecord = longest;
+
+        // groups are numbered in report order: by employee name, then project name
+        long[] groupKeys = Arrays.stream(keys).sorted().distinct().toArray();
+        int groups = groupKeys.length;
+        groupEmployee = new int[groups];
+        groupProject = new int[groups];
+        employeeGroupStart = new int[employeeNames.length + 1];
+        Arrays.fill(employeeGroupStart, groups);
+        for (int g = groups - 1; g >= 0; g--) {
+            groupEmployee[g] = (int) (groupKeys[g] >>> 32);
+            groupProject[g] = (int) groupKeys[g];
+            employeeGroupStart[groupEmployee[g]] = g;
+        }
+        for (int rank = employeeNames.length - 1; rank >= 0; rank--) {
+            employeeGroupStart[rank] = Math.min(employeeGroupStart[rank], employeeGroupStart[rank + 1]);
+        }
+
+        group = new int[size];
+        groupStart = new int[groups + 1];
+        for (int r = 0; r < size; r++) {
+            group[r] = Arrays.binarySearch(groupKeys, keys[r]);
+            groupStart[group[r] + 1]++;
+        }
+        for (int g = 0; g < groups; g++) {
+            groupStart[g + 1] += groupStart[g];
+        }
+        // one leading zero per group: the prefix sum of position i of group g is at groupStart[g] + g + i
+        groupRows = new int[size];
+        groupPrefix = new long[size + groups];
+        int[] filled = new int[groups];
+        for (int r = 0; r < size; r++) {
+            int g = group[r];
+            int i = filled[g]++;
+            groupRows[groupStart[g] + i] = r;
+            int p = groupStart[g] + g + i;
+            groupPrefix[p + 1] = groupPrefix[p] + (timeTo[r] - timeFrom[r]);
+        }
+    }
+
+    /**
+     * Builds the snapshot.
+     *
+     * @param columns   the records, sorted by time_from, with ordinals into the employee and project tables
+     * @param employees the employee table in the database order of their names
+     * @param projects  the project table in the database order of their names
+     */
+    public static ColumnarTimeRecords of(Columns columns, Names employees, Names projects) {
+        return new ColumnarTimeRecords(columns, employees, projects);
+    }
+
+    /**
+     * A snapshot with the records whose {@code time_from} lies in {@code [from, to]} replaced by the given ones,
+     * which is what the database holds for that range now. Records of employees or projects that no longer exist
+     * are dropped.
+     *
+     * @param from      the first time_from of the replaced range, in epoch microseconds
+     * @param to        the last time_from of the replaced range, in epoch microseconds
+     * @param reloaded  the records of the range read from the database, sorted by time_from, with ordinals into
+     *                  {@code employees} and {@code projects}
+     * @param employees the current employee table
+     * @param projects  the current project table
+     */
+    public ColumnarTimeRecords replace(long from, long to, Columns reloaded, Names employees, Names projects) {
+        int head = lowerBound(timeFrom, 0, size, from);
+        int tail = lowerBound(timeFrom, head, size, to == Long.MAX_VALUE ? to : to + 1);
+        int[] employeeMap = employees.remap(employeeIds);
+        int[] projectMap = projects.remap(projectIds);
+
+        Columns merged = new Columns(head + reloaded.size + (size - tail));
+        copy(0, head, employeeMap, projectMap, merged);
+        for (int r = 0; r < reloaded.size; r++) {
+            merged.add(reloaded.timeFrom[r], reloaded.timeTo[r], reloaded.employee[r], reloaded.project[r]);
+        }
+        copy(tail, size, employeeMap, projectMap, merged);
+        return new ColumnarTimeRecords(merged, employees, projects);
+    }
+
+    /**
+     * Same as {@code TimeRecordRepository.findAllBetweenStartDateAndEndDate} or, with an employee id,
+     * {@code findAllByEmployeeAndDateRange}, and their overlapping counterparts. A sorted pageable is not
+     * supported and yields an empty optional.
+     */
+    public Optional<Page<ReportDTO>> page(ReportWindowMode mode, Long employeeId, LocalDateTime startDate,
+                                         LocalDateTime endDate, Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            return Optional.empty();
+        }
+        Window window = window(mode, employeeId, startDate, endDate);
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        List<ReportDTO> content = new ArrayList<>(Math.min(limit, 64));
+        long total = 0;
+        for (int g = window.firstGroup; g < window.lastGroup; g++) {
+            if (window.counts[g - window.firstGroup] == 0) {
+                continue;
+            }
+            if (total >= offset && content.size() < limit) {
+                content.add(row(g, window.micros[g - window.firstGroup]));
+            }
+            total++;
+        }
+        return Optional.of(new PageImpl<>(content, pageable, total));
+    }
+
+    /**
+     * Same as {@code TimeRecordRepository.findSliceBetweenStartDateAndEndDate} or, with an employee id,
+     * {@code findSliceByEmployeeAndDateRange}, and their overlapping counterparts. A cursor whose names are not in
+     * this snapshot cannot be placed in the database collation and yields an empty optional.
+     */
+    public Optional<List<ReportDTO>> slice(ReportWindowMode mode, Long employeeId, LocalDateTime startDate,
+                                           LocalDateTime endDate, ReportCursor after, int limit) {
+        long afterKey = -1;
+        if (after != null) {
+            Integer employeeRank = employeeRanks.get(after.employeeName());
+            Integer projectRank = projectRanks.get(after.projectName());
+            if (employeeRank == null || projectRank == null) {
+                return Optional.empty();
+            }
+            afterKey = key(employeeRank, projectRank);
+        }
+        Window window = window(mode, employeeId, startDate, endDate);
+        List<ReportDTO> content = new ArrayList<>(Math.min(limit, 64));
+        for (int g = window.firstGroup; g < window.lastGroup && content.size() < limit; g++) {
+            if (window.counts[g - window.firstGroup] > 0 && key(groupEmployee[g], groupProject[g]) > afterKey) {
+                content.add(row(g, window.micros[g - window.firstGroup]));
+            }
+        }
+        return Optional.of(content);
+    }
+
+    /**
+     * Same as {@code TimeRecordRepository.countBetweenStartDateAndEndDate} or, with an employee id,
+     * {@code countByEmployeeAndDateRange}, and their overlapping counterparts.
+     */
+    public long count(ReportWindowMode mode, Long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
+        Window window = window(mode, employeeId, startDate, endDate);
+        long rows = 0;
+        for (int count : window.counts) {
+            if (count > 0) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Whether the report rows of the employee hold only their own records. Rows are grouped by name, so an
+     * employee sharing their name with another one cannot be told apart and has to be read from the database.
+     */
+    public boolean isolates(long employeeId) {
+        int ordinal = employees.ordinal(employeeId);
+        return ordinal < 0 || employees.rankSizes[employees.ranks[ordinal]] == 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Bytes held by the arrays of this snapshot, without object headers and the name tables.
+     */
+    public long estimatedBytes() {
+        return 8L * (timeFrom.length + timeTo.length + groupPrefix.length + employeeIds.length + projectIds.length)
+                + 4L * (employee.length + project.length + group.length + groupRows.length + groupStart.length
+                + groupEmployee.length + groupProject.length + employeeGroupStart.length);
+    }
+
+    /**
+     * Converts a timestamp the way the records are stored: microseconds since the epoch of the local time.
+     */
+    public static long epochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    /**
+     * The hours of a total of microseconds, as the report query computes them from seconds with 6 decimals
+     * (EXTRACT(EPOCH ...)).
+     */
+    static BigDecimal hours(long micros) {
+        return hours(BigDecimal.valueOf(micros, 6));
+    }
+
+    /**
+     * {@code SUM(seconds) / 3600} as PostgreSQL divides numerics (select_div_scale in numeric.c): MIN_SIG_DIGITS
+     * digits after the estimated leading base-10000 digit of the quotient and no fewer decimals than the dividend,
+     * rounded half away from zero. The hours then equal those of the report query down to their scale, whatever
+     * computed the seconds.
+     */
+    public static BigDecimal hours(BigDecimal seconds) {
+        // the first base-10000 digit and its weight, as PostgreSQL stores numerics
+        int weight = 0;
+        int firstDigit = 0;
+        if (seconds.signum() != 0) {
+            BigDecimal magnitude = seconds.abs();
+            weight = Math.floorDiv(magnitude.precision() - magnitude.scale() - 1, 4);
+            firstDigit = magnitude.movePointLeft(4 * weight).intValue();
+        }
+        // the divisor 3600 has weight 0 and first digit 3600
+        int quotientWeight = firstDigit <= 3600 ? weight - 1 : weight;
+        int scale = Math.min(Math.max(MIN_SIG_DIGITS - 4 * quotientWeight, seconds.scale()), 1000);
+        return seconds.divide(SECONDS_PER_HOUR, Math.max(scale, 0), RoundingMode.HALF_UP);
+    }
+
+    private Window window(ReportWindowMode mode, Long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
+        int firstGroup = 0;
+        int lastGroup = groupEmployee.length;
+        if (employeeId != null) {
+            int ordinal = employees.ordinal(employeeId);
+            firstGroup = ordinal < 0 ? 0 : employeeGroupStart[employees.ranks[ordinal]];
+            lastGroup = ordinal < 0 ? 0 : employeeGroupStart[employees.ranks[ordinal] + 1];
+        }
+        Window window = new Window(firstGroup, lastGroup);
+        long start = epochMicros(startDate);
+        long end = epochMicros(endDate);
+        if (firstGroup == lastGroup || start >= end) {
+            return window;
+        }
+
+        int first = lowerBound(timeFrom, 0, size, start);
+        int last = lowerBound(timeFrom, first, size, end);
+        // records starting before end - longestRecord end before end
+        int checked = Math.max(first, lowerBound(timeFrom, first, last, end - longestRecord));
+        for (int g = firstGroup; g < lastGroup; g++) {
+            int from = lowerBound(groupRows, groupStart[g], groupStart[g + 1], first);
+            int to = lowerBound(groupRows, from, groupStart[g + 1], checked);
+            window.counts[g - firstGroup] = to - from;
+            window.micros[g - firstGroup] = groupPrefix[to + g] - groupPrefix[from + g];
+        }
+        boolean overlap = mode == ReportWindowMode.OVERLAP;
+        for (int r = checked; r < last; r++) {
+            int g = group[r];
+            if ((timeTo[r] < end || overlap) && g >= firstGroup && g < lastGroup) {
+                window.counts[g - firstGroup]++;
+                window.micros[g - firstGroup] += Math.min(timeTo[r], end) - timeFrom[r];
+            }
+        }
+        if (overlap) {
+            // records starting before start - longestRecord end before start
+            for (int r = lowerBound(timeFrom, 0, first, start - longestRecord); r < first; r++) {
+                int g = group[r];
+                if (timeTo[r] > start && g >= firstGroup && g < lastGroup) {
+                    window.counts[g - firstGroup]++;
+                    window.micros[g - firstGroup] += Math.min(timeTo[r], end) - start;
+                }
+            }
+        }
+        return window;
+    }
+
+    private void copy(int from, int to, int[] employeeMap, int[] projectMap, Columns target) {
+        for (int r = from; r < to; r++) {
+            int employeeOrdinal = employeeMap[employee[r]];
+            int projectOrdinal = projectMap[project[r]];
+            if (employeeOrdinal >= 0 && projectOrdinal >= 0) {
+                target.add(timeFrom[r], timeTo[r], employeeOrdinal, projectOrdinal);
+            }
+        }
+    }
+
+    private ReportDTO row(int group, long micros) {
+        return new ReportDTO(employeeNames[groupEmployee[group]], projectNames[groupProject[group]], hours(micros));
+    }
+
+    private static long key(int employeeRank, int projectRank) {
+        return ((long) employeeRank << 32) | projectRank;
+    }
+
+    private static int lowerBound(long[] values, int from, int to, long value) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (values[mid] < value) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    private static int lowerBound(int[] values, int from, int to, int value) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (values[mid] < value) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Per group totals of one report window, for the groups {@code [firstGroup, lastGroup)}.
+     */
+    private static final class Window {
+        final int firstGroup;
+        final int lastGroup;
+        final int[] counts;
+        final long[] micros;
+
+        Window(int firstGroup, int lastGroup) {
+            this.firstGroup = firstGroup;
+            this.lastGroup = lastGroup;
+            this.counts = new int[lastGroup - firstGroup];
+            this.micros = new long[lastGroup - firstGroup];
+        }
+    }
+
+    /**
+     * Growable columns of records, appended in time_from order.
+     */
+    public static final class Columns {
+        private int size;
+        private long[] timeFrom;
+        private long[] timeTo;
+        private int[] employee;
+        private int[] project;
+
+        public Columns(int capacity) {
+            timeFrom = new long[Math.max(capacity, 16)];
+            timeTo = new long[timeFrom.length];
+            employee = new int[timeFrom.length];
+            project = new int[timeFrom.length];
+        }
+
+        /**
+         * Appends a record; its time_from must not be before the one of the previous record.
+         */
+        public void add(long from, long to, int employeeOrdinal, int projectOrdinal) {
+            if (size > 0 && from < timeFrom[size - 1]) {
+                throw new IllegalArgumentException("Records must be added in time_from order");
+            }
+            if (size == timeFrom.length) {
+                int capacity = size * 2;
+                timeFrom = Arrays.copyOf(timeFrom, capacity);
+                timeTo = Arrays.copyOf(timeTo, capacity);
+                employee = Arrays.copyOf(employee, capacity);
+                project = Arrays.copyOf(project, capacity);
+            }
+            timeFrom[size] = from;
+            timeTo[size] = to;
+            employee[size] = employeeOrdinal;
+            project[size] = projectOrdinal;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * An employee or project table. Ordinals index the rows in the database order of the names; equal names share a
+     * rank, as they share a row of the report.
+     */
+    public static final class Names {
+        private final long[] ids;
+        private final int[] ranks;
+        private final String[] rankNames;
+        private final int[] rankSizes;
+        private final Map<Long, Integer> ordinals;
+
+        /**
+         * @param ids   the ids, ordered by name in the database collation
+         * @param names the names of {@code ids}
+         */
+        public Names(long[] ids, String[] names) {
+            this.ids = ids;
+            this.ranks = new int[ids.length];
+            this.ordinals = new HashMap<>(ids.length * 2);
+            List<String> distinct = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                if (distinct.isEmpty() || !distinct.get(distinct.size() - 1).equals(names[i])) {
+                    distinct.add(names[i]);
+                }
+                ranks[i] = distinct.size() - 1;
+                ordinals.put(ids[i], i);
+            }
+            this.rankNames = distinct.toArray(String[]::new);
+            this.rankSizes = new int[rankNames.length];
+            for (int rank : ranks) {
+                rankSizes[rank]++;
+            }
+        }
+
+        /**
+         * The ordinal of an id, or -1 when the id is unknown.
+         */
+        public int ordinal(long id) {
+            return ordinals.getOrDefault(id, -1);
+        }
+
+        private int[] remap(long[] previousIds) {
+            int[] map = new int[previousIds.length];
+            for (int i = 0; i < previousIds.length; i++) {
+                map[i] = ordinal(previousIds[i]);
+            }
+            return map;
+        }
+
+        private Map<String, Integer> rankByName() {
+            Map<String, Integer> rankByName = new HashMap<>(rankNames.length * 2);
+            for (int rank = 0; rank < rankNames.length; rank++) {
+                rankByName.put(rankNames[rank], rank);
+            }
+            return rankByName;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.xphrtestingassignment.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ClassUtils;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Keeps the beans that have to exist from the start eager under {@code spring.main.lazy-initialization}: a lazy
+ * bean with {@code @Scheduled} methods never gets its jobs scheduled, and one that registers itself somewhere in a
+ * {@code @PostConstruct} method misses whatever happens before its first use. Event listeners can stay lazy, they
+ * are created by their first event.
+ */
+@Configuration
+public class LazyInitializationConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter scheduledOrSelfRegisteringBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && (hasMethodAnnotatedWith(beanType, Scheduled.class)
+                || hasMethodAnnotatedWith(beanType, PostConstruct.class));
+    }
+
+    static boolean hasMethodAnnotatedWith(Class<?> beanType, Class<? extends Annotation> annotation) {
+        return !MethodIntrospector.selectMethods(ClassUtils.getUserClass(beanType),
+                (MethodIntrospector.MetadataLookup<Boolean>) method ->
+                        AnnotatedElementUtils.hasAnnotation(method, annotation) ? Boolean.TRUE : null).isEmpty();
+    }
+}
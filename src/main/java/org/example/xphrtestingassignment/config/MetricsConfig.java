@@ -0,0 +1,53 @@
+package org.example.xphrtestingassignment.config;
+
+import lombok.RequiredArgsConstructor;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.example.xphrtestingassignment.metrics.QueryMetricsListener;
+import org.example.xphrtestingassignment.metrics.ReportMetrics;
+import org.example.xphrtestingassignment.metrics.ReportRequestMetricsInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+@RequiredArgsConstructor
+public class MetricsConfig implements WebMvcConfigurer {
+
+    private final ReportMetrics reportMetrics;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReportRequestMetricsInterceptor(reportMetrics))
+                .addPathPatterns("/web/reports", "/web/reports/**", "/api/reports");
+    }
+
+    /**
+     * Routes every statement through {@link QueryMetricsListener}. Hikari stays the wrapped pool, so its
+     * hikaricp.* metrics are unaffected.
+     */
+    @Bean
+    public static BeanPostProcessor queryMetricsDataSourcePostProcessor(
+            ObjectProvider<ReportMetrics> reportMetrics,
+            @Value("${report.slow-query.threshold:PT0.5S}") Duration slowQueryThreshold) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new QueryMetricsListener(reportMetrics.getObject(), slowQueryThreshold))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
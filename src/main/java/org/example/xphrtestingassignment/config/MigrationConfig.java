@@ -0,0 +1,28 @@
+package org.example.xphrtestingassignment.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class MigrationConfig {
+
+    /**
+     * Migrates unless {@code spring.flyway.enabled} is false. Without AOT that property leaves out Flyway altogether;
+     * with AOT the beans are fixed at build time and only this check sees its value on start, like in the training
+     * run of the CDS archive, which has no database.
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${spring.flyway.enabled:true}") boolean enabled) {
+        return flyway -> {
+            if (enabled) {
+                flyway.migrate();
+            } else {
+                log.info("schema migrations disabled");
+            }
+        };
+    }
+}
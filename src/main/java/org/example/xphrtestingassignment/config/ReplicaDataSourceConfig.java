@@ -0,0 +1,111 @@
+package org.example.xphrtestingassignment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.xphrtestingassignment.datasource.Replica;
+import org.example.xphrtestingassignment.datasource.ReplicaRouter;
+import org.example.xphrtestingassignment.datasource.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read replicas for the report queries, listed in {@code report.replica.urls}. Without replicas the router sends
+ * every query to the primary and the datasource auto-configuration is left alone; with replicas the application
+ * datasource becomes a {@link ReplicaRoutingDataSource} over the primary pool (configured by
+ * {@code spring.datasource.*} as before) and one pool per replica.
+ */
+@Configuration
+public class ReplicaDataSourceConfig {
+
+    private static final String REPLICAS_CONFIGURED = "!'${report.replica.urls:}'.isBlank()";
+
+    @Bean
+    public ReplicaRouter replicaRouter(
+            @Value("${report.replica.urls:}") List<String> urls,
+            @Value("${report.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${report.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${report.replica.pool-size:5}") int poolSize,
+            @Value("${report.replica.lag-query:SELECT 0}") String lagQuery,
+            @Value("${report.replica.probe-timeout:PT2S}") Duration probeTimeout,
+            @Value("${report.replica.max-lag:PT30S}") Duration maxLag,
+            @Value("${report.replica.recent-data:PT1H}") Duration recentData,
+            @Value("${report.replica.probe-interval:PT5S}") Duration probeInterval,
+            MeterRegistry meterRegistry) {
+        List<Replica> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            String name = "replica-" + (replicas.size() + 1);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(name);
+            pool.setJdbcUrl(url.trim());
+            pool.setUsername(username);
+            pool.setPassword(password);
+            pool.setMaximumPoolSize(poolSize);
+            pool.setReadOnly(true);
+            // a replica that is down must not hold a report for the default 30 seconds
+            pool.setConnectionTimeout(probeTimeout.toMillis());
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new Replica(name, pool, lagQuery, probeTimeout));
+        }
+        return new ReplicaRouter(replicas, maxLag, recentData, probeInterval, Clock.systemDefaultZone(),
+                meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnExpression(REPLICAS_CONFIGURED)
+    public DataSource dataSource(DataSourceProperties properties, Environment environment, ReplicaRouter replicaRouter,
+                                 MeterRegistry meterRegistry) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        // the pool is no bean of its own, so Spring Boot does not bind its hikaricp.* metrics
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new ReplicaRoutingDataSource(primary, replicaRouter);
+    }
+
+    /**
+     * Replica state under {@code /actuator/health}. Replicas being down only sends reports to the primary, so the
+     * indicator stays UP and lists every replica with its state, lag and last probe. A replica whose last probe is
+     * stale counts as down.
+     */
+    @Bean
+    @ConditionalOnExpression(REPLICAS_CONFIGURED)
+    public HealthIndicator replicasHealthIndicator(ReplicaRouter replicaRouter) {
+        return () -> {
+            Map<String, Object> details = new LinkedHashMap<>();
+            for (Replica replica : replicaRouter.getReplicas()) {
+                Map<String, Object> replicaDetails = new LinkedHashMap<>();
+                replicaDetails.put("status", replicaRouter.isAvailable(replica) ? "UP" : "DOWN");
+                if (replica.isUp()) {
+                    replicaDetails.put("lag", replica.getLag().toString());
+                }
+                if (replica.getProbedAt() != null) {
+                    replicaDetails.put("probedAt", replica.getProbedAt().toString());
+                }
+                details.put(replica.getName(), replicaDetails);
+            }
+            return Health.up().withDetails(details).build();
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.xphrtestingassignment.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.xphrtestingassignment.service.impl.CachingReportService.ReportCacheKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "report.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class ReportCacheConfig {
+
+    @Bean
+    public Cache<ReportCacheKey, Object> reportCache(
+            @Value("${report.cache.max-entries:10000}") long maxEntries,
+            @Value("${report.cache.ttl:PT5M}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        Cache<ReportCacheKey, Object> cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size tagged with cache=report
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "report");
+        return cache;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.xphrtestingassignment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.xphrtestingassignment.service.impl.ParallelReportExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * The {@link ParallelReportExecutor} and its connection pool ({@code report-parallel}) to the primary database.
+ * The pool is no datasource bean: the application datasource and its auto-configuration stay as they are, and the
+ * sub-range queries never take connections from the pool the report bulkhead and the writes share.
+ */
+@Configuration
+@ConditionalOnProperty(name = "report.parallel.enabled", havingValue = "true")
+public class ReportParallelConfig {
+
+    @Bean(destroyMethod = "close")
+    public ParallelReportExecutor parallelReportExecutor(
+            DataSourceProperties properties,
+            @Value("${report.parallel.connections:4}") int connections,
+            @Value("${report.parallel.rows-per-split:50000}") long rowsPerSplit,
+            @Value("${report.parallel.max-splits:12}") int maxSplits,
+            @Value("${report.parallel.statistics-ttl:PT10M}") Duration statisticsTtl,
+            MeterRegistry meterRegistry) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("report-parallel");
+        pool.setMaximumPoolSize(connections);
+        pool.setReadOnly(true);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new ParallelReportExecutor(new NamedParameterJdbcTemplate(pool), connections, rowsPerSplit, maxSplits,
+                statisticsTtl, Clock.systemDefaultZone(), meterRegistry) {
+            @Override
+            public void close() {
+                super.close();
+                pool.close();
+            }
+        };
+    }
+}
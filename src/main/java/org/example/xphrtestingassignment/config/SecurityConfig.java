@@ -1,30 +1,56 @@
 package org.example.xphrtestingassignment.config;
 
 import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.repository.EmployeeRepository;
+import org.example.xphrtestingassignment.security.EmployeeUserDetailsService;
+import org.example.xphrtestingassignment.security.SessionTokenCodec;
+import org.example.xphrtestingassignment.security.SessionTokenFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
+
+import java.time.Duration;
 
 @Configuration
 @EnableMethodSecurity
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           ObjectProvider<SessionTokenCodec> sessionTokenCodec) throws Exception {
         http
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/web/reports")
+                        .requestMatchers("/web/reports", "/web/reports/**")
                         .hasAnyRole(UserRoles.EMPLOYEE.name(), UserRoles.ADMIN.name())
+                        .requestMatchers("/api/**")
+                        .authenticated()
+                        .requestMatchers("/actuator/health")
+                        .permitAll()
+                        .requestMatchers("/actuator/**")
+                        .hasRole(UserRoles.ADMIN.name())
                         .anyRequest()
                         .permitAll()
                 )
+                // import clients of /api authenticate per request with HTTP Basic, they hold no session or CSRF token
+                .csrf(csrf -> csrf.ignoringRequestMatchers("/api/**"))
+                .httpBasic(Customizer.withDefaults())
                 .formLogin(form -> form
                         .defaultSuccessUrl("/web/reports", true)
                 )
@@ -36,11 +62,45 @@ public class SecurityConfig {
                         .deleteCookies("JSESSIONID")
                         .permitAll()
                 );
+        SessionTokenCodec codec = sessionTokenCodec.getIfAvailable();
+        if (codec != null) {
+            // no HttpSession at all: the login issues a signed token, verified by whichever instance gets the request
+            http
+                    .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                    .requestCache(cache -> cache.requestCache(new NullRequestCache()))
+                    .csrf(csrf -> csrf
+                            .csrfTokenRepository(new CookieCsrfTokenRepository())
+                            .ignoringRequestMatchers("/api/**"))
+                    .formLogin(form -> form.successHandler((request, response, authentication) -> {
+                        String token = codec.encode(codec.issue((UserDetails) authentication.getPrincipal()));
+                        response.addHeader(HttpHeaders.SET_COOKIE,
+                                SessionTokenFilter.cookie(request, token, codec).toString());
+                        response.sendRedirect(request.getContextPath() + "/web/reports");
+                    }))
+                    .logout(logout -> logout.addLogoutHandler((request, response, authentication) ->
+                            response.addHeader(HttpHeaders.SET_COOKIE,
+                                    SessionTokenFilter.expiredCookie(request).toString())))
+                    .addFilterBefore(new SessionTokenFilter(codec), UsernamePasswordAuthenticationFilter.class);
+        }
         return http.build();
     }
 
+    /**
+     * Signs the session tokens of the stateless mode.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "security.token.enabled", havingValue = "true")
+    public SessionTokenCodec sessionTokenCodec(@Value("${security.token.keys:}") String keys,
+                                               @Value("${security.token.ttl:PT8H}") Duration ttl) {
+        return SessionTokenCodec.of(keys, ttl);
+    }
+
+    /**
+     * The in-memory accounts, each mapped to its employee when it logs in.
+     */
     @Bean
-    public InMemoryUserDetailsManager userDetailsService(PasswordEncoder passwordEncoder) {
+    public UserDetailsService userDetailsService(PasswordEncoder passwordEncoder,
+                                                 EmployeeRepository employeeRepository) {
         UserDetails admin = User.builder()
                 .username("admin").password(passwordEncoder.encode("admin"))
                 .roles(UserRoles.ADMIN.name()).build();
@@ -50,7 +110,7 @@ public class SecurityConfig {
         UserDetails jerry = User.builder()
                 .username("jerry").password(passwordEncoder.encode("jerry"))
                 .roles(UserRoles.EMPLOYEE.name()).build();
-        return new InMemoryUserDetailsManager(tom, jerry, admin);
+        return new EmployeeUserDetailsService(new InMemoryUserDetailsManager(tom, jerry, admin), employeeRepository);
     }
 
     @Bean
@@ -0,0 +1,43 @@
+package org.example.xphrtestingassignment.constant;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Line oriented formats used to export reports and to import time records.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum DataFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    /**
+     * Resolves a format by name, ignoring case.
+     *
+     * @throws IllegalArgumentException if the name matches no format
+     */
+    public static DataFormat from(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Resolves a format by media type, ignoring parameters such as the charset.
+     *
+     * @throws IllegalArgumentException if the media type matches no format
+     */
+    public static DataFormat fromContentType(String contentType) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        return Arrays.stream(values())
+                .filter(format -> MediaType.parseMediaType(format.contentType).equalsTypeAndSubtype(mediaType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported content type: " + contentType));
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.xphrtestingassignment.constant;
+
+/**
+ * What the rows of a report definition add up the hours by.
+ */
+public enum ReportDimension {
+    EMPLOYEE,
+    PROJECT,
+    /**
+     * The time bucket of the day a record starts on, see {@link TimeBucket}.
+     */
+    PERIOD
+}
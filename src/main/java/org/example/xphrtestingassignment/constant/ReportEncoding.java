@@ -0,0 +1,16 @@
+package org.example.xphrtestingassignment.constant;
+
+/**
+ * How the report API writes the rows of a page.
+ */
+public enum ReportEncoding {
+    /**
+     * One object per row with the fields of {@code ReportDTO}.
+     */
+    FULL,
+    /**
+     * Every employee and project name once, and one array per row of their indexes and the hours without trailing
+     * zeros. About a quarter of the size of FULL for large pages.
+     */
+    COMPACT
+}
@@ -0,0 +1,25 @@
+package org.example.xphrtestingassignment.constant;
+
+import java.util.List;
+
+/**
+ * What the rows of a report job add up the hours by.
+ */
+public enum ReportGrouping {
+    EMPLOYEE_PROJECT("employeeName", "projectName"),
+    EMPLOYEE("employeeName"),
+    PROJECT("projectName");
+
+    private final List<String> keyColumns;
+
+    ReportGrouping(String... keyColumns) {
+        this.keyColumns = List.of(keyColumns);
+    }
+
+    /**
+     * The columns of a result row before its totalHours.
+     */
+    public List<String> getKeyColumns() {
+        return keyColumns;
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.xphrtestingassignment.constant;
+
+public enum ReportJobStatus {
+    /**
+     * Waiting for a job thread, or interrupted by a restart and waiting to resume.
+     */
+    QUEUED,
+    RUNNING,
+    /**
+     * The result is stored until the job expires.
+     */
+    DONE,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == DONE || this == FAILED;
+    }
+}
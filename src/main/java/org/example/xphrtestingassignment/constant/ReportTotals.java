@@ -0,0 +1,20 @@
+package org.example.xphrtestingassignment.constant;
+
+/**
+ * The subtotals a report definition adds to the rows of all its dimensions.
+ */
+public enum ReportTotals {
+    /**
+     * None, only the rows of all dimensions.
+     */
+    NONE,
+    /**
+     * One level of subtotals per dimension, dropping the dimensions from the last, and the grand total: for
+     * EMPLOYEE, PROJECT, PERIOD the totals per employee and project, per employee, and of everything.
+     */
+    ROLLUP,
+    /**
+     * The totals of every combination of the dimensions, down to the grand total.
+     */
+    CUBE
+}
@@ -0,0 +1,16 @@
+package org.example.xphrtestingassignment.constant;
+
+/**
+ * Which time records a report window {@code [startDate, endDate)} adds up, set by {@code report.window-mode}.
+ */
+public enum ReportWindowMode {
+    /**
+     * Records lying inside the window, {@code time_from >= startDate} and {@code time_to < endDate}, in full. A
+     * shift crossing an edge of the window, such as a night shift over midnight, is left out.
+     */
+    CONTAINED,
+    /**
+     * Records overlapping the window, each clipped to it: a shift crossing an edge counts with its hours inside.
+     */
+    OVERLAP
+}
@@ -0,0 +1,20 @@
+package org.example.xphrtestingassignment.constant;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The periods of the {@link ReportDimension#PERIOD} dimension, named by their first day. Weeks start on Monday.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum TimeBucket {
+    DAY("day"),
+    WEEK("week"),
+    MONTH("month");
+
+    /**
+     * The field of PostgreSQL's {@code date_trunc} that truncates a day to its period.
+     */
+    private final String unit;
+}
@@ -0,0 +1,77 @@
+package org.example.xphrtestingassignment.datasource;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A read replica and what its last probe found: whether it answered, how far it lags behind the primary and when.
+ * A replica is down until its first probe succeeds.
+ */
+@Slf4j
+public class Replica {
+
+    @Getter
+    private final String name;
+    @Getter
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String lagQuery;
+
+    @Getter
+    private volatile boolean up;
+    @Getter
+    private volatile Duration lag = Duration.ZERO;
+    /**
+     * When the last successful probe ran, null before the first one.
+     */
+    @Getter
+    private volatile Instant probedAt;
+
+    /**
+     * @param name       the routing key and the name in metrics and health details
+     * @param dataSource the connection pool of the replica
+     * @param lagQuery   a query returning the replication lag in seconds
+     * @param timeout    how long a probe may take before the replica counts as down
+     */
+    public Replica(String name, DataSource dataSource, String lagQuery, Duration timeout) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setQueryTimeout((int) Math.max(1, timeout.toSeconds()));
+        this.lagQuery = lagQuery;
+    }
+
+    /**
+     * Runs the lag query and records its result as of {@code now}, or marks the replica down when it fails.
+     */
+    public void probe(Instant now) {
+        try {
+            BigDecimal seconds = jdbcTemplate.queryForObject(lagQuery, BigDecimal.class);
+            lag = seconds == null ? Duration.ZERO : Duration.ofMillis(seconds.movePointRight(3).longValue());
+            if (!up) {
+                log.info("replica {} is up, lag {}", name, lag);
+            }
+            probedAt = now;
+            up = true;
+        } catch (DataAccessException e) {
+            markDown(e);
+        }
+    }
+
+    /**
+     * Takes the replica out of rotation until the next successful probe.
+     */
+    public void markDown(Exception cause) {
+        if (up) {
+            log.warn("replica {} is down: {}", name, cause.getMessage());
+        }
+        up = false;
+    }
+}
@@ -0,0 +1,220 @@
+package org.example.xphrtestingassignment.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether a report query runs on a read replica or on the primary, and tells {@link ReplicaRoutingDataSource}
+ * which one the current thread reads from.
+ * <p>
+ * A report window goes to a replica, taken in turn among those that are up and lag at most {@code max-lag} as of a
+ * probe less than {@value #STALE_PROBES} probe intervals old, unless
+ * <ul>
+ *     <li>it ends less than {@code recent-data} ago: records of the last hours are still being entered, and a
+ *     replica may not have them yet;</li>
+ *     <li>a change to time_record within the window committed less than {@code max-lag} ago: the report cache
+ *     reloads the window right away, and a lagging replica would put the old result back into it.</li>
+ * </ul>
+ * A query failing to reach its replica takes the replica out of rotation and runs again on the primary. Without
+ * replicas every query runs on the primary.
+ * <p>
+ * The probes run every {@code probe-interval} on a thread of their own, so that the scheduled jobs cannot delay
+ * them; a probe that is late all the same leaves its replica out until the next one.
+ */
+@Slf4j
+public class ReplicaRouter {
+
+    // probe intervals after which the last probe no longer vouches for its replica
+    static final int STALE_PROBES = 3;
+
+    private static final ThreadLocal<Replica> CURRENT = new ThreadLocal<>();
+
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final Duration recentData;
+    private final Duration probeInterval;
+    private final Clock clock;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Deque<RecentChange> recentChanges = new ConcurrentLinkedDeque<>();
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+    private ScheduledExecutorService prober;
+
+    /**
+     * @param replicas      the replicas to route to, may be empty
+     * @param maxLag        replicas lagging more are not read from
+     * @param recentData    report windows ending within this time before now are read from the primary
+     * @param probeInterval how often the replicas are probed
+     * @param clock         the clock of the record timestamps (local time), of the changes and of the probes
+     */
+    public ReplicaRouter(List<Replica> replicas, Duration maxLag, Duration recentData, Duration probeInterval,
+                         Clock clock, MeterRegistry meterRegistry) {
+        this.replicas = List.copyOf(replicas);
+        this.maxLag = maxLag;
+        this.recentData = recentData;
+        this.probeInterval = probeInterval;
+        this.clock = clock;
+        this.replicaReads = Counter.builder("report.replica.reads").tag("target", "replica")
+                .description("Report queries by the database they were routed to")
+                .register(meterRegistry);
+        this.primaryReads = Counter.builder("report.replica.reads").tag("target", "primary")
+                .description("Report queries by the database they were routed to")
+                .register(meterRegistry);
+        for (Replica replica : this.replicas) {
+            Gauge.builder("report.replica.lag", replica, r -> isAvailable(r) ? r.getLag().toMillis() : Double.NaN)
+                    .tag("replica", replica.getName())
+                    .description("Replication lag found by the last probe, NaN while the replica is down or its "
+                            + "probe is stale")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * The replica the current thread reads from, or null for the primary.
+     */
+    public static Replica current() {
+        return CURRENT.get();
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Runs a read-only report query for the window {@code [startDate, endDate)} on a replica when one may serve it,
+     * and on the primary otherwise.
+     */
+    public <T> T read(LocalDateTime startDate, LocalDateTime endDate, Supplier<T> query) {
+        Replica replica = select(startDate, endDate);
+        if (replica == null) {
+            primaryReads.increment();
+            return query.get();
+        }
+        Replica previous = CURRENT.get();
+        CURRENT.set(replica);
+        try {
+            T result = query.get();
+            replicaReads.increment();
+            return result;
+        } catch (DataAccessResourceFailureException e) {
+            replica.markDown(e);
+        } finally {
+            CURRENT.set(previous);
+        }
+        primaryReads.increment();
+        return query.get();
+    }
+
+    /**
+     * Whether the replica is up as of a probe that is not stale.
+     */
+    public boolean isAvailable(Replica replica) {
+        Instant probedAt = replica.getProbedAt();
+        return replica.isUp() && probedAt != null
+                && probedAt.isAfter(clock.instant().minus(probeInterval.multipliedBy(STALE_PROBES)));
+    }
+
+    /**
+     * Probes every replica for its lag. The first probe runs right after startup; until then reads go to the
+     * primary.
+     */
+    public void probe() {
+        Instant now = clock.instant();
+        for (Replica replica : replicas) {
+            replica.probe(now);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(() -> {
+            try {
+                probe();
+            } catch (RuntimeException e) {
+                log.warn("could not probe the replicas", e);
+            }
+        }, 0, probeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+    }
+
+    // before the report cache evicts, so that its reload is routed to the primary
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onTimeRecordsChanged(TimeRecordsChangedEvent event) {
+        if (!replicas.isEmpty()) {
+            recentChanges.addLast(new RecentChange(event, clock.instant()));
+        }
+    }
+
+    private Replica select(LocalDateTime startDate, LocalDateTime endDate) {
+        if (replicas.isEmpty() || endDate.isAfter(LocalDateTime.now(clock).minus(recentData))
+                || changedRecently(startDate, endDate)) {
+            return null;
+        }
+        List<Replica> eligible = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (isAvailable(replica) && replica.getLag().compareTo(maxLag) <= 0) {
+                eligible.add(replica);
+            }
+        }
+        if (eligible.isEmpty()) {
+            return null;
+        }
+        return eligible.get(Math.floorMod(next.getAndIncrement(), eligible.size()));
+    }
+
+    private boolean changedRecently(LocalDateTime startDate, LocalDateTime endDate) {
+        Instant oldest = clock.instant().minus(maxLag);
+        RecentChange first;
+        while ((first = recentChanges.peekFirst()) != null && first.committed().isBefore(oldest)) {
+            recentChanges.remove(first);
+        }
+        for (RecentChange change : recentChanges) {
+            if (change.event().affects(startDate, endDate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record RecentChange(TimeRecordsChangedEvent event, Instant committed) {
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.xphrtestingassignment.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections of the replica chosen by {@link ReplicaRouter} for the current thread, and of the primary
+ * otherwise. The choice is made when a connection is obtained. Open-in-view is off, so a connection is held for one
+ * query or transaction only, and the reads of a report and the writes of the same request each get their own.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaRouter router) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (Replica replica : router.getReplicas()) {
+            targets.put(replica.getName(), replica.getDataSource());
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Replica replica = ReplicaRouter.current();
+        return replica == null ? null : replica.getName();
+    }
+}
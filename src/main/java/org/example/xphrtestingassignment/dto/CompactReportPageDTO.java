@@ -0,0 +1,56 @@
+package org.example.xphrtestingassignment.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import org.springframework.data.domain.Page;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of the report as returned by the report API, in the {@code COMPACT} encoding: the names of the page are
+ * listed once, and each row is an array {@code [employee index, project index, total hours]}.
+ *
+ * @param page          the page number, from 0
+ * @param size          the requested page size
+ * @param totalElements the rows of the whole report
+ * @param totalPages    the pages of the whole report
+ * @param employees     the employee names of the page, in order of appearance
+ * @param projects      the project names of the page, in order of appearance
+ */
+public record CompactReportPageDTO(LocalDateTime startDate, LocalDateTime endDate, int page, int size,
+                                   long totalElements, int totalPages,
+                                   List<String> employees, List<String> projects, List<Row> rows) {
+
+    public static CompactReportPageDTO of(LocalDateTime startDate, LocalDateTime endDate, Page<ReportDTO> page) {
+        Map<String, Integer> employees = new LinkedHashMap<>();
+        Map<String, Integer> projects = new LinkedHashMap<>();
+        List<Row> rows = new ArrayList<>(page.getNumberOfElements());
+        for (ReportDTO row : page.getContent()) {
+            rows.add(new Row(employees.computeIfAbsent(row.employeeName(), name -> employees.size()),
+                    projects.computeIfAbsent(row.projectName(), name -> projects.size()),
+                    compact(row.totalHours())));
+        }
+        return new CompactReportPageDTO(startDate, endDate, page.getNumber(), page.getSize(),
+                page.getTotalElements(), page.getTotalPages(),
+                List.copyOf(employees.keySet()), List.copyOf(projects.keySet()), rows);
+    }
+
+    /**
+     * The same number without the zeros the numeric division pads the hours with, and in plain notation.
+     */
+    static BigDecimal compact(BigDecimal hours) {
+        if (hours == null) {
+            return null;
+        }
+        BigDecimal stripped = hours.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+
+    @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+    public record Row(int employee, int project, BigDecimal totalHours) {
+    }
+}
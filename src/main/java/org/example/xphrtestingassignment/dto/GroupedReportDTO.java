@@ -0,0 +1,21 @@
+package org.example.xphrtestingassignment.dto;
+
+import org.example.xphrtestingassignment.constant.ReportDimension;
+import org.example.xphrtestingassignment.constant.TimeBucket;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The report of a {@link ReportDefinition} as returned by the report API.
+ */
+public record GroupedReportDTO(LocalDateTime startDate, LocalDateTime endDate, List<ReportDimension> dimensions,
+                               TimeBucket timeBucket, List<Set<ReportDimension>> groupingSets,
+                               List<ReportRowDTO> rows) {
+
+    public static GroupedReportDTO of(ReportDefinition definition, List<ReportRowDTO> rows) {
+        return new GroupedReportDTO(definition.startDate(), definition.endDate(), definition.dimensions(),
+                definition.timeBucket(), definition.groupingSets(), rows);
+    }
+}
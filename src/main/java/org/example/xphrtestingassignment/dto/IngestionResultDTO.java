@@ -0,0 +1,32 @@
+package org.example.xphrtestingassignment.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import of time records.
+ *
+ * @param received       the number of rows read from the input
+ * @param inserted       the number of new time records
+ * @param duplicates     the number of valid rows that were already stored or repeated within a batch
+ * @param rejected       the number of invalid rows
+ * @param batches        per batch counts and throughput
+ * @param rejectedRows   the first rejected rows with the reason, capped to keep the response small
+ */
+public record IngestionResultDTO(long received, long inserted, long duplicates, long rejected,
+                                 List<Batch> batches, List<RejectedRow> rejectedRows) {
+
+    /**
+     * @param number        the batch number, starting at 1
+     * @param received      the number of valid rows sent to the database
+     * @param inserted      the number of new time records
+     * @param millis        the time spent loading the batch
+     * @param rowsPerSecond the number of received rows loaded per second
+     */
+    public record Batch(int number, int received, int inserted, long millis, long rowsPerSecond) { }
+
+    /**
+     * @param line   the line of the input, starting at 1 (the CSV header is line 1)
+     * @param reason why the row was rejected
+     */
+    public record RejectedRow(long line, String reason) { }
+}
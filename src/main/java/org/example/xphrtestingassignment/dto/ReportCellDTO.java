@@ -0,0 +1,10 @@
+package org.example.xphrtestingassignment.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The hours of one employee on one project in a live report; 0 once the last of them left the window.
+ */
+public record ReportCellDTO(long employeeId, String employeeName, long projectId, String projectName,
+                            BigDecimal totalHours) {
+}
@@ -0,0 +1,14 @@
+package org.example.xphrtestingassignment.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * An event of a live report: all of its cells, or the ones that changed since the previous event.
+ *
+ * @param sequence the number of changes of the report so far; a snapshot has the sequence of the last change it
+ *                 contains
+ */
+public record ReportCellsDTO(LocalDateTime startDate, LocalDateTime endDate, long sequence,
+                             List<ReportCellDTO> cells) {
+}
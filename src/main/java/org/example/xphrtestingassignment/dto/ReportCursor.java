@@ -0,0 +1,54 @@
+package org.example.xphrtestingassignment.dto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+
+/**
+ * Position in the report ordered by (employee name, project name). The row identified by the cursor is
+ * excluded from the next slice, so the cursor of the last row of a slice points to the start of the next one.
+ */
+public record ReportCursor(String employeeName, String projectName) {
+
+    public static ReportCursor of(ReportDTO row) {
+        return new ReportCursor(row.employeeName(), row.projectName());
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL safe token.
+     */
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(employeeName);
+            out.writeUTF(projectName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token the opaque token
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static ReportCursor decode(String token) {
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            ReportCursor cursor = new ReportCursor(in.readUTF(), in.readUTF());
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Invalid report cursor: " + token);
+            }
+            return cursor;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid report cursor: " + token, e);
+        }
+    }
+}
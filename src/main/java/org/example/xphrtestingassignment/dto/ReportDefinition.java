@@ -0,0 +1,93 @@
+package org.example.xphrtestingassignment.dto;
+
+import org.example.xphrtestingassignment.constant.ReportDimension;
+import org.example.xphrtestingassignment.constant.ReportTotals;
+import org.example.xphrtestingassignment.constant.TimeBucket;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A report over a window, added up by some dimensions, with any subtotals of them. All of its rows come from one
+ * pass over the records of the window.
+ *
+ * @param startDate    the start of the report window
+ * @param endDate      the end of the report window, exclusive
+ * @param employeeId   the employee to restrict the report to, null for all employees
+ * @param dimensions   what the rows add up the hours by, in the order of the rows
+ * @param timeBucket   the periods of {@link ReportDimension#PERIOD}, null without it
+ * @param groupingSets the dimensions of each level of rows: the rows of all dimensions and any subtotals, such as
+ *                     the empty set for the grand total; only the rows of all dimensions when empty
+ */
+public record ReportDefinition(LocalDateTime startDate, LocalDateTime endDate, Long employeeId,
+                               List<ReportDimension> dimensions, TimeBucket timeBucket,
+                               List<Set<ReportDimension>> groupingSets) {
+
+    /**
+     * @throws IllegalArgumentException if the dimensions are empty or repeated, the time bucket does not match the
+     *                                  PERIOD dimension, or a grouping set has a dimension the definition has not
+     */
+    public ReportDefinition {
+        Objects.requireNonNull(startDate, "startDate");
+        Objects.requireNonNull(endDate, "endDate");
+        if (dimensions == null || dimensions.isEmpty()) {
+            throw new IllegalArgumentException("A report needs at least one dimension");
+        }
+        if (new HashSet<>(dimensions).size() < dimensions.size()) {
+            throw new IllegalArgumentException("Repeated dimension in " + dimensions);
+        }
+        if (dimensions.contains(ReportDimension.PERIOD) != (timeBucket != null)) {
+            throw new IllegalArgumentException("A time bucket goes with the PERIOD dimension and only with it");
+        }
+        dimensions = List.copyOf(dimensions);
+        List<Set<ReportDimension>> sets = new ArrayList<>();
+        for (Set<ReportDimension> set : groupingSets == null || groupingSets.isEmpty()
+                ? List.of(Set.copyOf(dimensions)) : groupingSets) {
+            if (!dimensions.containsAll(set)) {
+                throw new IllegalArgumentException("Grouping set " + set + " is not a subset of " + dimensions);
+            }
+            // in the order of the enum, whatever order the set came in
+            Set<ReportDimension> copy = set.isEmpty() ? Set.of() : Collections.unmodifiableSet(EnumSet.copyOf(set));
+            if (!sets.contains(copy)) {
+                sets.add(copy);
+            }
+        }
+        groupingSets = List.copyOf(sets);
+    }
+
+    /**
+     * The definition with the subtotals of {@code totals} on top of the rows of all dimensions.
+     */
+    public static ReportDefinition of(LocalDateTime startDate, LocalDateTime endDate, Long employeeId,
+                                      List<ReportDimension> dimensions, TimeBucket timeBucket, ReportTotals totals) {
+        List<Set<ReportDimension>> sets = new ArrayList<>();
+        switch (totals) {
+            case NONE -> sets.add(Set.copyOf(dimensions));
+            case ROLLUP -> {
+                for (int i = dimensions.size(); i >= 0; i--) {
+                    sets.add(Set.copyOf(dimensions.subList(0, i)));
+                }
+            }
+            case CUBE -> {
+                // from all dimensions down to none, every subset once
+                for (int mask = (1 << dimensions.size()) - 1; mask >= 0; mask--) {
+                    Set<ReportDimension> set = new LinkedHashSet<>();
+                    for (int i = 0; i < dimensions.size(); i++) {
+                        if ((mask & (1 << i)) != 0) {
+                            set.add(dimensions.get(i));
+                        }
+                    }
+                    sets.add(set);
+                }
+            }
+        }
+        return new ReportDefinition(startDate, endDate, employeeId, dimensions, timeBucket, sets);
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.xphrtestingassignment.dto;
+
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.constant.ReportGrouping;
+import org.example.xphrtestingassignment.constant.ReportJobStatus;
+import org.example.xphrtestingassignment.entity.ReportJob;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * State and progress of a report job.
+ *
+ * @param chunksDone  the months of the window added up so far
+ * @param chunksTotal the months of the window
+ * @param resultRows  the rows of the result, once done
+ * @param resultBytes the compressed size of the result, once done
+ * @param error       why the job failed
+ * @param expiresAt   when the job and its result are deleted, once finished
+ */
+public record ReportJobDTO(UUID id, ReportJobStatus status, LocalDateTime startDate, LocalDateTime endDate,
+                           Long employeeId, ReportGrouping grouping, DataFormat format,
+                           int chunksDone, int chunksTotal, Long resultRows, Long resultBytes, String error,
+                           LocalDateTime createdAt, LocalDateTime finishedAt, LocalDateTime expiresAt) {
+
+    public static ReportJobDTO of(ReportJob job) {
+        return new ReportJobDTO(job.getId(), job.getStatus(), job.getStartDate(), job.getEndDate(),
+                job.getEmployeeId(), job.getGrouping(), job.getFormat(),
+                job.getChunksDone(), job.getChunksTotal(), job.getResultRows(), job.getResultBytes(), job.getError(),
+                job.getCreatedAt(), job.getFinishedAt(), job.getExpiresAt());
+    }
+}
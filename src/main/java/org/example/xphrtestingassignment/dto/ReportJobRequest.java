@@ -0,0 +1,20 @@
+package org.example.xphrtestingassignment.dto;
+
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.constant.ReportGrouping;
+
+import java.time.LocalDateTime;
+
+/**
+ * A report job to submit.
+ *
+ * @param startDate  the start of the report window
+ * @param endDate    the end of the report window, exclusive
+ * @param employeeId the employee to restrict the report to; admins may leave it out for all employees, employees
+ *                   only get their own report
+ * @param grouping   what the rows add up the hours by, EMPLOYEE_PROJECT when left out
+ * @param format     the format of the result, CSV when left out
+ */
+public record ReportJobRequest(LocalDateTime startDate, LocalDateTime endDate, Long employeeId,
+                               ReportGrouping grouping, DataFormat format) {
+}
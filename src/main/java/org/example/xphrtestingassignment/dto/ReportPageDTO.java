@@ -0,0 +1,23 @@
+package org.example.xphrtestingassignment.dto;
+
+import org.springframework.data.domain.Page;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A page of the report as returned by the report API, in the {@code FULL} encoding.
+ *
+ * @param page          the page number, from 0
+ * @param size          the requested page size
+ * @param totalElements the rows of the whole report
+ * @param totalPages    the pages of the whole report
+ */
+public record ReportPageDTO(LocalDateTime startDate, LocalDateTime endDate, int page, int size,
+                            long totalElements, int totalPages, List<ReportDTO> content) {
+
+    public static ReportPageDTO of(LocalDateTime startDate, LocalDateTime endDate, Page<ReportDTO> page) {
+        return new ReportPageDTO(startDate, endDate, page.getNumber(), page.getSize(),
+                page.getTotalElements(), page.getTotalPages(), page.getContent());
+    }
+}
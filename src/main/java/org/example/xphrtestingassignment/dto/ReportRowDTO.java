@@ -0,0 +1,20 @@
+package org.example.xphrtestingassignment.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.example.xphrtestingassignment.constant.ReportDimension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * A row of a {@link ReportDefinition}: the hours of one value of each dimension in {@code groupedBy}, the others left
+ * out (null). The rows of all dimensions have them all, a subtotal fewer, the grand total none.
+ *
+ * @param period    the first day of the time bucket
+ * @param groupedBy the dimensions of the grouping set of the row
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReportRowDTO(Long employeeId, String employeeName, Long projectId, String projectName,
+                           LocalDate period, BigDecimal totalHours, Set<ReportDimension> groupedBy) {
+}
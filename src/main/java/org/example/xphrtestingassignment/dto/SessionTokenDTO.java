@@ -0,0 +1,12 @@
+package org.example.xphrtestingassignment.dto;
+
+import java.time.Instant;
+
+/**
+ * A session token issued to an API client, sent back as {@code Authorization: Bearer <token>}.
+ *
+ * @param tokenType always {@code Bearer}
+ * @param expiresAt when the token stops being accepted; a new one needs the credentials again
+ */
+public record SessionTokenDTO(String token, String tokenType, Instant expiresAt) {
+}
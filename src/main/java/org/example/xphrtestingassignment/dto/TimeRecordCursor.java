@@ -0,0 +1,56 @@
+package org.example.xphrtestingassignment.dto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in the time records ordered by (time_from, id). As with {@link ReportCursor}, the record identified by
+ * the cursor is excluded from the next page.
+ */
+public record TimeRecordCursor(LocalDateTime timeFrom, long id) {
+
+    public static TimeRecordCursor of(TimeRecordDTO record) {
+        return new TimeRecordCursor(record.timeFrom(), record.id());
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL safe token.
+     */
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(timeFrom.toString());
+            out.writeLong(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token the opaque token
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static TimeRecordCursor decode(String token) {
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            TimeRecordCursor cursor = new TimeRecordCursor(LocalDateTime.parse(in.readUTF()), in.readLong());
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Invalid time record cursor: " + token);
+            }
+            return cursor;
+        } catch (IOException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid time record cursor: " + token, e);
+        }
+    }
+}
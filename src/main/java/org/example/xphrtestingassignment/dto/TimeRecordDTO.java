@@ -0,0 +1,10 @@
+package org.example.xphrtestingassignment.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A time record with the names of its employee and project, read in the same statement as the record.
+ */
+public record TimeRecordDTO(Long id, Long employeeId, String employeeName, Long projectId, String projectName,
+                            LocalDateTime timeFrom, LocalDateTime timeTo) {
+}
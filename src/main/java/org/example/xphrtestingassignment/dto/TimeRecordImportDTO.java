@@ -0,0 +1,5 @@
+package org.example.xphrtestingassignment.dto;
+
+import java.time.LocalDateTime;
+
+public record TimeRecordImportDTO(Long employeeId, Long projectId, LocalDateTime timeFrom, LocalDateTime timeTo) { }
@@ -0,0 +1,25 @@
+package org.example.xphrtestingassignment.dto;
+
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A page of the time records behind one (employee name, project name) row of the report.
+ *
+ * @param size the requested page size
+ * @param next the cursor of the next page, null on the last one
+ */
+public record TimeRecordPageDTO(String employeeName, String projectName, LocalDateTime startDate,
+                                LocalDateTime endDate, int size, List<TimeRecordDTO> content, String next) {
+
+    public static TimeRecordPageDTO of(String employeeName, String projectName, LocalDateTime startDate,
+                                       LocalDateTime endDate, int size, Slice<TimeRecordDTO> records) {
+        String next = records.hasNext()
+                ? TimeRecordCursor.of(records.getContent().get(records.getNumberOfElements() - 1)).encode()
+                : null;
+        return new TimeRecordPageDTO(employeeName, projectName, startDate, endDate, size, records.getContent(),
+                next);
+    }
+}
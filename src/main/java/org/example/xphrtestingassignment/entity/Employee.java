@@ -16,4 +16,10 @@ public class Employee {
 
     @Column(nullable = false, length = 60)
     private String name;
+
+    /**
+     * The login of the employee, null for employees that cannot log in.
+     */
+    @Column(unique = true, length = 60)
+    private String username;
 }
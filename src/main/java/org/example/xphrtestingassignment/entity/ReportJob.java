@@ -0,0 +1,99 @@
+package org.example.xphrtestingassignment.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.constant.ReportGrouping;
+import org.example.xphrtestingassignment.constant.ReportJobStatus;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A report computed in the background, one month of its window at a time. The running totals live in
+ * report_job_total and the finished result in report_job_result, neither is mapped here.
+ */
+@Entity
+@Table(name = "report_job")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportJob {
+
+    @Id
+    private UUID id;
+
+    /**
+     * The user who submitted the job; only they (and admins) see it.
+     */
+    @Column(nullable = false, length = 60)
+    private String username;
+
+    /**
+     * The employee the report is restricted to, null for all employees.
+     */
+    @Column(name = "employee_id")
+    private Long employeeId;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDateTime startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDateTime endDate;
+
+    /**
+     * Taken from {@code report.window-mode} on submission, so that a job resumed after a configuration change
+     * still adds up its months alike.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "window_mode", nullable = false, length = 20)
+    private ReportWindowMode windowMode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "report_grouping", nullable = false, length = 20)
+    private ReportGrouping grouping;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private DataFormat format;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private ReportJobStatus status;
+
+    @Column(name = "chunks_total", nullable = false)
+    private int chunksTotal;
+
+    /**
+     * The checkpoint: months of the window already added to the running totals, in order.
+     */
+    @Column(name = "chunks_done", nullable = false)
+    private int chunksDone;
+
+    @Column(name = "result_rows")
+    private Long resultRows;
+
+    /**
+     * The size of the stored, gzip compressed result.
+     */
+    @Column(name = "result_bytes")
+    private Long resultBytes;
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    /**
+     * When the job and its result are deleted, set once the job is finished.
+     */
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+}
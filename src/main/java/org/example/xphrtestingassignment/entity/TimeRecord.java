@@ -14,6 +14,8 @@ import java.time.LocalDateTime;
 public class TimeRecord {
 
     @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "time_record_id")
+    @SequenceGenerator(name = "time_record_id", sequenceName = "time_record_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,24 @@
+package org.example.xphrtestingassignment.event;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Published after time_record rows were inserted, updated or deleted and the change was committed.
+ *
+ * @param from        the earliest time_from of the changed rows (before and after the change)
+ * @param to          the latest time_to of the changed rows (before and after the change)
+ * @param employeeIds the employees of the changed rows, empty when unknown
+ * @param projectIds  the projects of the changed rows, empty when unknown
+ */
+public record TimeRecordsChangedEvent(LocalDateTime from, LocalDateTime to, Set<Long> employeeIds, Set<Long> projectIds) {
+
+    /**
+     * Whether a report window {@code [startDate, endDate)} may include one of the changed rows: a row is reported
+     * when {@code time_from >= startDate} and {@code time_to < endDate}, or in overlap mode when it overlaps the
+     * window. Both are covered by an overlap of the window with the span of the change.
+     */
+    public boolean affects(LocalDateTime startDate, LocalDateTime endDate) {
+        return startDate.isBefore(to) && endDate.isAfter(from);
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.xphrtestingassignment.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a report query could not start because all report slots stayed busy or too many requests were
+ * already waiting for one, see {@link org.example.xphrtestingassignment.service.impl.ReportBulkhead}.
+ */
+@Getter
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ReportCapacityExceededException extends RuntimeException {
+
+    /**
+     * When the client may try again, sent as Retry-After; null when there is no estimate.
+     */
+    private final Duration retryAfter;
+
+    public ReportCapacityExceededException(String message) {
+        this(message, null);
+    }
+
+    public ReportCapacityExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.xphrtestingassignment.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a report definition yields more rows than {@code report.definition.max-rows}: narrow the window or
+ * the dimensions, or run it as a report job.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class ReportTooLargeException extends RuntimeException {
+
+    public ReportTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.xphrtestingassignment.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a user already has as many report queries running or waiting as one user may, see
+ * {@link org.example.xphrtestingassignment.service.impl.ReportBulkhead}.
+ */
+@Getter
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyReportRequestsException extends RuntimeException {
+
+    /**
+     * When the client may try again, sent as Retry-After.
+     */
+    private final Duration retryAfter;
+
+    public TooManyReportRequestsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.xphrtestingassignment.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Times every SQL statement into {@code report.query}, tagged with the query set by the code that runs it (see
+ * {@link ReportMetrics#tagQueries}), and logs statements slower than the threshold with their bind parameters. The
+ * statement text is not inspected; nothing is logged for fast statements.
+ */
+@Slf4j
+public class QueryMetricsListener implements QueryExecutionListener {
+
+    private final ReportMetrics reportMetrics;
+    private final long slowQueryMillis;
+
+    public QueryMetricsListener(ReportMetrics reportMetrics, Duration slowQueryThreshold) {
+        this.reportMetrics = reportMetrics;
+        this.slowQueryMillis = slowQueryThreshold.toMillis();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty()) {
+            return;
+        }
+        String query = ReportMetrics.currentQuery();
+        reportMetrics.recordQuery(query, execInfo.getElapsedTime());
+
+        if (execInfo.getElapsedTime() >= slowQueryMillis) {
+            log.warn("slow query ({} ms, query {}, role {}, success {}): {} parameters {}", execInfo.getElapsedTime(),
+                    query, ReportMetrics.currentRole(), execInfo.isSuccess(), queryInfoList.get(0).getQuery(),
+                    parameters(queryInfoList));
+        }
+    }
+
+    private static String parameters(List<QueryInfo> queryInfoList) {
+        return queryInfoList.stream()
+                .flatMap(queryInfo -> queryInfo.getParametersList().stream())
+                .map(QueryMetricsListener::parameterValues)
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String parameterValues(List<ParameterSetOperation> operations) {
+        return operations.stream()
+                .map(operation -> {
+                    Object[] args = operation.getArgs();
+                    return args.length > 1 ? args[0] + "=" + args[1] : String.valueOf(args[0]);
+                })
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.xphrtestingassignment.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Timers of the report flow, all with percentile histograms and tagged with the role of the caller:
+ * <ul>
+ *     <li>{@code report.requests}: report endpoints, by endpoint and outcome</li>
+ *     <li>{@code report.service}: {@code ReportServiceImpl} calls behind the cache, by operation; rows returned in
+ *     {@code report.rows}</li>
+ *     <li>{@code report.query}: single SQL statements, by query: the operation that ran them, as set by
+ *     {@link #tagQueries} (page, slice, count, definition, export, records, job), or other</li>
+ * </ul>
+ * Each meter is registered once per set of tags and reused. Connection pool wait time is
+ * {@code hikaricp.connections.acquire}, recorded by Hikari itself.
+ */
+@Component
+public class ReportMetrics {
+
+    /**
+     * Role tag of work done without a logged in user, such as scheduled maintenance.
+     */
+    public static final String SYSTEM_ROLE = "SYSTEM";
+
+    /**
+     * Query tag of statements run outside {@link #tagQueries}.
+     */
+    public static final String OTHER_QUERY = "other";
+
+    private static final ThreadLocal<String> QUERY_TAG = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final Map<List<String>, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<List<String>, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public ReportMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("report.requests.active", activeRequests, AtomicInteger::get)
+                .description("Report endpoint requests in progress")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The report endpoint requests in progress, from the controller to the rendered view or the end of the
+     * export. Background work such as report jobs gives way while there are any.
+     */
+    public int getActiveRequests() {
+        return activeRequests.get();
+    }
+
+    public void requestStarted() {
+        activeRequests.incrementAndGet();
+    }
+
+    public void requestFinished() {
+        activeRequests.decrementAndGet();
+    }
+
+    public void recordRequest(String endpoint, String outcome, long nanos) {
+        timer("report.requests", "Report endpoint latency",
+                "endpoint", endpoint, "outcome", outcome, "role", currentRole())
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Times a service call and records the number of rows it returned.
+     */
+    public <T> T recordService(String operation, UserRoles role, Supplier<T> call, ToIntFunction<T> rows) {
+        T result = recordService(operation, role, call);
+        summary("report.rows", "Rows returned by the report service", "operation", operation, "role", role.name())
+                .record(rows.applyAsInt(result));
+        return result;
+    }
+
+    /**
+     * Times a service call, whose statements are tagged with the operation.
+     */
+    public <T> T recordService(String operation, UserRoles role, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return tagQueries(operation, call);
+        } finally {
+            timer("report.service", "Report service latency behind the cache",
+                    "operation", operation, "role", role.name())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordQuery(String query, long millis) {
+        timer("report.query", "SQL statement latency", "query", query, "role", currentRole())
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the call with its SQL statements tagged {@code query} in {@code report.query}. The statements must run on
+     * the calling thread.
+     */
+    public static <T> T tagQueries(String query, Supplier<T> call) {
+        String previous = QUERY_TAG.get();
+        QUERY_TAG.set(query);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                QUERY_TAG.remove();
+            } else {
+                QUERY_TAG.set(previous);
+            }
+        }
+    }
+
+    /**
+     * The query tag of the statements of the current thread, {@link #OTHER_QUERY} outside {@link #tagQueries}.
+     */
+    public static String currentQuery() {
+        String query = QUERY_TAG.get();
+        return query == null ? OTHER_QUERY : query;
+    }
+
+    /**
+     * The role of the user of the current thread: ADMIN, EMPLOYEE, or {@link #SYSTEM_ROLE} without a user.
+     */
+    public static String currentRole() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return SYSTEM_ROLE;
+        }
+        String admin = "ROLE_" + UserRoles.ADMIN.name();
+        return authentication.getAuthorities().stream().anyMatch(authority -> admin.equals(authority.getAuthority()))
+                ? UserRoles.ADMIN.name()
+                : UserRoles.EMPLOYEE.name();
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return timers.computeIfAbsent(key(name, tags), key -> Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private DistributionSummary summary(String name, String description, String... tags) {
+        return summaries.computeIfAbsent(key(name, tags), key -> DistributionSummary.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static List<String> key(String name, String... tags) {
+        List<String> key = new ArrayList<>(tags.length + 1);
+        key.add(name);
+        Collections.addAll(key, tags);
+        return key;
+    }
+}
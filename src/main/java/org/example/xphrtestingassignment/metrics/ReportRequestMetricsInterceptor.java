@@ -0,0 +1,39 @@
+package org.example.xphrtestingassignment.metrics;
+
+import io.micrometer.core.instrument.binder.http.Outcome;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records {@code report.requests} for the report endpoints, including the time spent rendering the view or
+ * streaming the export, and counts the requests in progress.
+ */
+@RequiredArgsConstructor
+public class ReportRequestMetricsInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = ReportRequestMetricsInterceptor.class.getName() + ".start";
+
+    private final ReportMetrics reportMetrics;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        reportMetrics.requestStarted();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (!(request.getAttribute(START_ATTRIBUTE) instanceof Long start)) {
+            return;
+        }
+        reportMetrics.requestFinished();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String outcome = ex != null ? Outcome.SERVER_ERROR.name() : Outcome.forStatus(response.getStatus()).name();
+        reportMetrics.recordRequest(pattern == null ? "UNKNOWN" : pattern.toString(), outcome, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.xphrtestingassignment.repository;
+
+import org.example.xphrtestingassignment.entity.Employee;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EmployeeRepository extends JpaRepository<Employee, Long> {
+
+    @Query("SELECT e.id FROM Employee e WHERE e.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+}
@@ -0,0 +1,38 @@
+package org.example.xphrtestingassignment.repository;
+
+import org.example.xphrtestingassignment.constant.ReportJobStatus;
+import org.example.xphrtestingassignment.entity.ReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, UUID> {
+
+    List<ReportJob> findByStatusInOrderByCreatedAt(Collection<ReportJobStatus> statuses);
+
+    /**
+     * Moves the checkpoint of a job past the given chunk, provided it stands right before it. Called in the
+     * transaction adding the chunk to the running totals: the row lock keeps a chunk from being added twice.
+     *
+     * @return 1 if the checkpoint moved, 0 if the chunk was already added
+     */
+    @Modifying
+    @Query(value = "UPDATE report_job SET chunks_done = :chunk + 1 WHERE id = :id AND chunks_done = :chunk",
+            nativeQuery = true)
+    int checkpoint(@Param("id") UUID id, @Param("chunk") int chunk);
+
+    /**
+     * Deletes the jobs expired before the given time together with their totals and results.
+     */
+    @Modifying
+    @Query("DELETE FROM ReportJob j WHERE j.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -2,8 +2,9 @@ package org.example.xphrtestingassignment.repository;
 
 
 import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.dto.TimeRecordDTO;
 import org.example.xphrtestingassignment.entity.TimeRecord;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -11,37 +12,266 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Repository
 public interface TimeRecordRepository extends JpaRepository<TimeRecord, Long> {
 
-    @Query(value = "SELECT e.name AS employeeName, p.name AS projectName," +
-            " SUM(EXTRACT(EPOCH FROM (tr.time_to - tr.time_from)) / 3600) AS totalHours " +
-            "FROM time_record tr " +
-            " JOIN employee e ON tr.employee_id = e.id " +
-            " JOIN project p ON tr.project_id = p.id " +
-            "WHERE tr.time_from >= :startDate " +
-            "AND tr.time_to < :endDate " +
-            "GROUP BY e.name, p.name " +
-            "ORDER BY e.name, p.name", nativeQuery = true)
-    Page<ReportDTO> findAllBetweenStartDateAndEndDate(
+    /**
+     * First midnight at or after the start of the window: whole day buckets start here.
+     */
+    String WHOLE_FROM = "date_trunc('day', CAST(:startDate AS TIMESTAMP) + INTERVAL '1 day' - INTERVAL '1 microsecond')";
+
+    /**
+     * Last midnight at or before the end of the window: whole day buckets end here.
+     */
+    String WHOLE_TO = "date_trunc('day', CAST(:endDate AS TIMESTAMP))";
+
+    /**
+     * Restricts a source to one employee: a range scan of idx_time_record_employee_time_from (and of
+     * idx_time_record_rollup_employee for the rollup) instead of a join on employee.name.
+     */
+    String EMPLOYEE_FILTER = " AND employee_id = :employeeId";
+
+    /**
+     * Records starting and ending on whole days inside the window, read from the pre-aggregated rollup.
+     */
+    String ROLLUP_SECONDS = "SELECT employee_id, project_id, total_seconds AS seconds " +
+            "FROM time_record_rollup " +
+            "WHERE bucket_from >= " + WHOLE_FROM + " AND bucket_to < " + WHOLE_TO;
+
+    /**
+     * Raw records starting in the partial day at the beginning of the window.
+     */
+    String HEAD_SECONDS = "SELECT employee_id, project_id, EXTRACT(EPOCH FROM (time_to - time_from)) AS seconds " +
+            "FROM time_record " +
+            "WHERE time_from >= :startDate AND time_from < " + WHOLE_FROM + " AND time_to < :endDate";
+
+    /**
+     * Raw records starting on a whole day but ending in the partial day at the end of the window. The redundant
+     * upper bound on time_from lets the planner prune the monthly partitions of time_record.
+     */
+    String TAIL_SECONDS = "SELECT employee_id, project_id, EXTRACT(EPOCH FROM (time_to - time_from)) AS seconds " +
+            "FROM time_record " +
+            "WHERE time_to >= " + WHOLE_TO + " AND time_to < :endDate " +
+            "AND time_from >= " + WHOLE_FROM + " AND time_from < :endDate";
+
+    /**
+     * Seconds of a record inside the window, for records crossing one of its edges.
+     */
+    String CLIPPED_SECONDS = "EXTRACT(EPOCH FROM (LEAST(time_to, CAST(:endDate AS TIMESTAMP))" +
+            " - GREATEST(time_from, CAST(:startDate AS TIMESTAMP)))) AS seconds ";
+
+    /**
+     * Overlap mode: the records starting before the window and ending after its start. A stabbing query on
+     * idx_time_record_period reads only the records spanning the instant startDate.
+     */
+    String START_CROSSING_FILTER = "WHERE tsrange(time_from, time_to, '[]') @> CAST(:startDate AS TIMESTAMP) " +
+            "AND time_from < :startDate AND time_to > :startDate " +
+            "AND CAST(:startDate AS TIMESTAMP) < CAST(:endDate AS TIMESTAMP)";
+
+    /**
+     * Overlap mode: records starting before the window and ending after its start, clipped to the window.
+     */
+    String START_CROSSING_SECONDS = "SELECT employee_id, project_id, " + CLIPPED_SECONDS +
+            "FROM time_record " + START_CROSSING_FILTER;
+
+    /**
+     * Overlap mode: records starting inside the window and ending at or after its end, clipped to the window. The
+     * closed range also finds the records ending exactly at endDate.
+     */
+    String END_CROSSING_SECONDS = "SELECT employee_id, project_id, " + CLIPPED_SECONDS +
+            "FROM time_record " +
+            "WHERE tsrange(time_from, time_to, '[]') @> CAST(:endDate AS TIMESTAMP) " +
+            "AND time_from >= :startDate AND time_from < :endDate";
+
+    String REPORT_SOURCE = "FROM (" +
+            ROLLUP_SECONDS + " UNION ALL " + HEAD_SECONDS + " UNION ALL " + TAIL_SECONDS + ") h " +
+            " JOIN employee e ON h.employee_id = e.id " +
+            " JOIN project p ON h.project_id = p.id ";
+
+    String EMPLOYEE_REPORT_SOURCE = "FROM (" +
+            ROLLUP_SECONDS + EMPLOYEE_FILTER + " UNION ALL " +
+            HEAD_SECONDS + EMPLOYEE_FILTER + " UNION ALL " +
+            TAIL_SECONDS + EMPLOYEE_FILTER + ") h " +
+            " JOIN employee e ON h.employee_id = e.id " +
+            " JOIN project p ON h.project_id = p.id ";
+
+    /**
+     * Overlap mode: every record overlapping the window, clipped to it. The records inside the window are read as
+     * in {@link #REPORT_SOURCE}, only the ones crossing an edge are added.
+     */
+    String OVERLAP_REPORT_SOURCE = "FROM (" +
+            ROLLUP_SECONDS + " UNION ALL " + HEAD_SECONDS + " UNION ALL " + TAIL_SECONDS + " UNION ALL " +
+            START_CROSSING_SECONDS + " UNION ALL " + END_CROSSING_SECONDS + ") h " +
+            " JOIN employee e ON h.employee_id = e.id " +
+            " JOIN project p ON h.project_id = p.id ";
+
+    String EMPLOYEE_OVERLAP_REPORT_SOURCE = "FROM (" +
+            ROLLUP_SECONDS + EMPLOYEE_FILTER + " UNION ALL " +
+            HEAD_SECONDS + EMPLOYEE_FILTER + " UNION ALL " +
+            TAIL_SECONDS + EMPLOYEE_FILTER + " UNION ALL " +
+            START_CROSSING_SECONDS + EMPLOYEE_FILTER + " UNION ALL " +
+            END_CROSSING_SECONDS + EMPLOYEE_FILTER + ") h " +
+            " JOIN employee e ON h.employee_id = e.id " +
+            " JOIN project p ON h.project_id = p.id ";
+
+    String REPORT_COLUMNS = "SELECT e.name AS employeeName, p.name AS projectName," +
+            " SUM(h.seconds) / 3600 AS totalHours ";
+
+    String REPORT_GROUPING = "GROUP BY e.name, p.name ";
+
+    String REPORT_ORDER = "ORDER BY e.name, p.name";
+
+    /**
+     * Keyset predicate on the (employee name, project name) grouping key. A null cursor selects the first slice.
+     */
+    String AFTER_CURSOR = "WHERE (CAST(:afterEmployee AS VARCHAR) IS NULL " +
+            " OR (e.name, p.name) > (CAST(:afterEmployee AS VARCHAR), CAST(:afterProject AS VARCHAR))) ";
+
+    /**
+     * The records of one (employee name, project name) row of the report with the names joined in: a DTO
+     * projection, so no lazy employee or project is loaded per record. Like the report row, the row holds the
+     * records of every employee of that name, unless restricted to one employee.
+     */
+    String RECORD_COLUMNS = "SELECT new org.example.xphrtestingassignment.dto.TimeRecordDTO(" +
+            "t.id, e.id, e.name, p.id, p.name, t.timeFrom, t.timeTo) " +
+            "FROM TimeRecord t JOIN t.employee e JOIN t.project p " +
+            "WHERE e.name = :employeeName AND p.name = :projectName " +
+            "AND (CAST(:employeeId AS Long) IS NULL OR e.id = :employeeId) ";
+
+    /**
+     * The records reported in the window. The redundant upper bound on timeFrom lets the planner prune the monthly
+     * partitions of time_record.
+     */
+    String RECORD_CONTAINED = "AND t.timeFrom >= :startDate AND t.timeTo < :endDate AND t.timeFrom < :endDate ";
+
+    /**
+     * Overlap mode: the records reported in the window and the ones crossing its start or its end.
+     */
+    String RECORD_OVERLAPPING = "AND t.timeFrom < :endDate AND (t.timeFrom >= :startDate OR t.timeTo > :startDate) ";
+
+    /**
+     * Keyset predicate and order on (timeFrom, id), read along idx_time_record_employee_time_from. A null cursor
+     * selects the first page.
+     */
+    String RECORD_AFTER_CURSOR = "AND (CAST(:afterFrom AS LocalDateTime) IS NULL OR t.timeFrom > :afterFrom " +
+            "OR (t.timeFrom = :afterFrom AND t.id > :afterId)) " +
+            "ORDER BY t.timeFrom, t.id";
+
+    @Query(RECORD_COLUMNS + RECORD_CONTAINED + RECORD_AFTER_CURSOR)
+    List<TimeRecordDTO> findRecordsBetweenStartDateAndEndDate(
+            @Param("employeeName") String employeeName,
+            @Param("projectName") String projectName,
+            @Param("employeeId") Long employeeId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterFrom") LocalDateTime afterFrom,
+            @Param("afterId") Long afterId,
+            Limit limit);
+
+    @Query(RECORD_COLUMNS + RECORD_OVERLAPPING + RECORD_AFTER_CURSOR)
+    List<TimeRecordDTO> findRecordsOverlappingStartDateAndEndDate(
+            @Param("employeeName") String employeeName,
+            @Param("projectName") String projectName,
+            @Param("employeeId") Long employeeId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterFrom") LocalDateTime afterFrom,
+            @Param("afterId") Long afterId,
+            Limit limit);
+
+    /**
+     * The rows of one page of the report. The total is counted apart with {@link #countBetweenStartDateAndEndDate},
+     * and only when the page does not tell it; likewise for the counterparts below.
+     */
+    @Query(value = REPORT_COLUMNS + REPORT_SOURCE + REPORT_GROUPING + REPORT_ORDER, nativeQuery = true)
+    List<ReportDTO> findAllBetweenStartDateAndEndDate(
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate,
             Pageable pageable);
 
-    @Query(value = "SELECT e.name AS employeeName, p.name AS projectName," +
-            " SUM(EXTRACT(EPOCH FROM (tr.time_to - tr.time_from)) / 3600) AS totalHours " +
-            "FROM time_record tr " +
-            " JOIN employee e ON tr.employee_id = e.id " +
-            " JOIN project p ON tr.project_id = p.id " +
-            "WHERE tr.time_from >= :startDate " +
-            "AND tr.time_to < :endDate " +
-            "AND e.name = :username " +
-            "GROUP BY e.name, p.name " +
-            "ORDER BY e.name, p.name", nativeQuery = true)
-    Page<ReportDTO> findAllByEmployeeAndDateRange(
-            @Param("username") String username,
+    @Query(value = REPORT_COLUMNS + EMPLOYEE_REPORT_SOURCE + REPORT_GROUPING + REPORT_ORDER, nativeQuery = true)
+    List<ReportDTO> findAllByEmployeeAndDateRange(
+            @Param("employeeId") long employeeId,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate,
             Pageable pageable);
+
+    @Query(value = REPORT_COLUMNS + REPORT_SOURCE + AFTER_CURSOR + REPORT_GROUPING + REPORT_ORDER +
+            " LIMIT :limit", nativeQuery = true)
+    List<ReportDTO> findSliceBetweenStartDateAndEndDate(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterEmployee") String afterEmployee,
+            @Param("afterProject") String afterProject,
+            @Param("limit") int limit);
+
+    @Query(value = REPORT_COLUMNS + EMPLOYEE_REPORT_SOURCE + AFTER_CURSOR + REPORT_GROUPING + REPORT_ORDER +
+            " LIMIT :limit", nativeQuery = true)
+    List<ReportDTO> findSliceByEmployeeAndDateRange(
+            @Param("employeeId") long employeeId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterEmployee") String afterEmployee,
+            @Param("afterProject") String afterProject,
+            @Param("limit") int limit);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 " + REPORT_SOURCE + REPORT_GROUPING + ") report_rows",
+            nativeQuery = true)
+    long countBetweenStartDateAndEndDate(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 " + EMPLOYEE_REPORT_SOURCE + REPORT_GROUPING + ") report_rows",
+            nativeQuery = true)
+    long countByEmployeeAndDateRange(
+            @Param("employeeId") long employeeId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    @Query(value = REPORT_COLUMNS + OVERLAP_REPORT_SOURCE + REPORT_GROUPING + REPORT_ORDER, nativeQuery = true)
+    List<ReportDTO> findAllOverlappingStartDateAndEndDate(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            Pageable pageable);
+
+    @Query(value = REPORT_COLUMNS + EMPLOYEE_OVERLAP_REPORT_SOURCE + REPORT_GROUPING + REPORT_ORDER, nativeQuery = true)
+    List<ReportDTO> findAllByEmployeeOverlappingDateRange(
+            @Param("employeeId") long employeeId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            Pageable pageable);
+
+    @Query(value = REPORT_COLUMNS + OVERLAP_REPORT_SOURCE + AFTER_CURSOR + REPORT_GROUPING + REPORT_ORDER +
+            " LIMIT :limit", nativeQuery = true)
+    List<ReportDTO> findSliceOverlappingStartDateAndEndDate(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterEmployee") String afterEmployee,
+            @Param("afterProject") String afterProject,
+            @Param("limit") int limit);
+
+    @Query(value = REPORT_COLUMNS + EMPLOYEE_OVERLAP_REPORT_SOURCE + AFTER_CURSOR + REPORT_GROUPING + REPORT_ORDER +
+            " LIMIT :limit", nativeQuery = true)
+    List<ReportDTO> findSliceByEmployeeOverlappingDateRange(
+            @Param("employeeId") long employeeId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterEmployee") String afterEmployee,
+            @Param("afterProject") String afterProject,
+            @Param("limit") int limit);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 " + OVERLAP_REPORT_SOURCE + REPORT_GROUPING + ") report_rows",
+            nativeQuery = true)
+    long countOverlappingStartDateAndEndDate(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 " + EMPLOYEE_OVERLAP_REPORT_SOURCE + REPORT_GROUPING +
+            ") report_rows", nativeQuery = true)
+    long countByEmployeeOverlappingDateRange(
+            @Param("employeeId") long employeeId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
 }
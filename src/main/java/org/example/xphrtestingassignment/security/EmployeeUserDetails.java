@@ -0,0 +1,34 @@
+package org.example.xphrtestingassignment.security;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * An authenticated user with the employee it is mapped to. The mapping is resolved once when the user logs in and
+ * travels with the principal in the security context, so report requests filter by {@code employee_id} without
+ * looking the employee up again.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class EmployeeUserDetails extends User {
+
+    /**
+     * The id of the employee with this username, or null for users that are no employee (such as admins).
+     */
+    private final Long employeeId;
+
+    public EmployeeUserDetails(UserDetails user, Long employeeId) {
+        super(user.getUsername(), user.getPassword(), user.isEnabled(), user.isAccountNonExpired(),
+                user.isCredentialsNonExpired(), user.isAccountNonLocked(), user.getAuthorities());
+        this.employeeId = employeeId;
+    }
+
+    /**
+     * The employee id of an authenticated principal, or null when the principal is mapped to no employee.
+     */
+    public static Long employeeIdOf(UserDetails userDetails) {
+        return userDetails instanceof EmployeeUserDetails employee ? employee.getEmployeeId() : null;
+    }
+}
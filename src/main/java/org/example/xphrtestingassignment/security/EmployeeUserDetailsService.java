@@ -0,0 +1,24 @@
+package org.example.xphrtestingassignment.security;
+
+import lombok.RequiredArgsConstructor;
+import org.example.xphrtestingassignment.repository.EmployeeRepository;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+/**
+ * Loads the accounts of a delegate {@link UserDetailsService} and maps each to the employee with the same
+ * {@code employee.username}. Called once per login for form login (the result is kept in the session) and once per
+ * request for HTTP Basic.
+ */
+@RequiredArgsConstructor
+public class EmployeeUserDetailsService implements UserDetailsService {
+
+    private final UserDetailsService accounts;
+    private final EmployeeRepository employeeRepository;
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        UserDetails user = accounts.loadUserByUsername(username);
+        return new EmployeeUserDetails(user, employeeRepository.findIdByUsername(user.getUsername()).orElse(null));
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.xphrtestingassignment.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * What a signed session token says about its holder: the user, the employee it is mapped to and its roles, as
+ * resolved at the login, valid until {@code expiresAt}.
+ *
+ * @param employeeId  the employee of the user, or null for users that are no employee (such as admins)
+ * @param authorities the granted authorities, such as {@code ROLE_ADMIN}
+ */
+public record SessionToken(String username, Long employeeId, List<String> authorities, Instant expiresAt) {
+
+    public SessionToken {
+        authorities = List.copyOf(authorities);
+    }
+
+    public static SessionToken of(UserDetails user, Instant expiresAt) {
+        return new SessionToken(user.getUsername(), EmployeeUserDetails.employeeIdOf(user),
+                user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList(), expiresAt);
+    }
+
+    /**
+     * The principal of the holder, as {@link EmployeeUserDetailsService} would load it, without the password.
+     */
+    public EmployeeUserDetails principal() {
+        return new EmployeeUserDetails(User.withUsername(username).password("")
+                .authorities(authorities.toArray(String[]::new)).build(), employeeId);
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.xphrtestingassignment.security;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Issues and verifies {@link SessionToken}s signed with HMAC-SHA256, so any instance holding the keys checks a token
+ * on its own, without a session store or a user lookup.
+ * <p>
+ * A token is {@code <kid>.<payload>.<signature>}, URL safe: the id of the key that signed it, the token in binary
+ * form, and the MAC of both. The first key signs, the others only verify. To rotate, add the new key after the
+ * current one on every instance, then move it first, then remove the old key once the tokens it signed have expired.
+ * Tokens cannot be revoked before they expire, short of removing their key.
+ */
+@Slf4j
+public class SessionTokenCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final int MIN_KEY_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, SecretKeySpec> keys;
+    private final String signingKeyId;
+    @Getter
+    private final Duration ttl;
+    private final Clock clock;
+
+    /**
+     * @param keys the keys by id, the first signs
+     * @param ttl  how long an issued token is valid
+     */
+    public SessionTokenCodec(Map<String, byte[]> keys, Duration ttl, Clock clock) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("No session token key");
+        }
+        this.keys = new LinkedHashMap<>();
+        keys.forEach((id, key) -> {
+            if (id.isEmpty() || !id.matches("[A-Za-z0-9_-]+")) {
+                throw new IllegalArgumentException("Invalid session token key id: " + id);
+            }
+            if (key.length < MIN_KEY_BYTES) {
+                throw new IllegalArgumentException("The session token key " + id + " has less than " +
+                        MIN_KEY_BYTES + " bytes");
+            }
+            this.keys.put(id, new SecretKeySpec(key, ALGORITHM));
+        });
+        this.signingKeyId = keys.keySet().iterator().next();
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Parses the keys of {@code security.token.keys}, such as {@code 2025b:<base64>,2025a:<base64>}. Without keys
+     * tokens are signed with a random key and only hold on this instance until it restarts.
+     */
+    public static SessionTokenCodec of(String keys, Duration ttl) {
+        Map<String, byte[]> parsed = new LinkedHashMap<>();
+        for (String key : keys.split(",")) {
+            if (key.isBlank()) {
+                continue;
+            }
+            int colon = key.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected <kid>:<base64 secret> as session token key");
+            }
+            String id = key.substring(0, colon).trim();
+            if (parsed.put(id, Base64.getDecoder().decode(key.substring(colon + 1).trim())) != null) {
+                throw new IllegalArgumentException("Duplicate session token key id: " + id);
+            }
+        }
+        if (parsed.isEmpty()) {
+            log.warn("no security.token.keys set: session tokens are signed with a random key, valid on this " +
+                    "instance until it restarts");
+            byte[] key = new byte[MIN_KEY_BYTES];
+            new SecureRandom().nextBytes(key);
+            parsed.put("local", key);
+        }
+        return new SessionTokenCodec(parsed, ttl, Clock.systemUTC());
+    }
+
+    /**
+     * A token for the user, valid for the ttl from now (to the second, as encoded).
+     */
+    public SessionToken issue(UserDetails user) {
+        return SessionToken.of(user, clock.instant().plus(ttl).truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    public String encode(SessionToken token) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(token.username());
+            out.writeBoolean(token.employeeId() != null);
+            if (token.employeeId() != null) {
+                out.writeLong(token.employeeId());
+            }
+            out.writeByte(token.authorities().size());
+            for (String authority : token.authorities()) {
+                out.writeUTF(authority);
+            }
+            out.writeLong(token.expiresAt().getEpochSecond());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String signed = signingKeyId + "." + ENCODER.encodeToString(bytes.toByteArray());
+        return signed + "." + ENCODER.encodeToString(mac(keys.get(signingKeyId), signed));
+    }
+
+    /**
+     * Verifies and decodes a token produced by {@link #encode(SessionToken)} with one of the keys.
+     *
+     * @throws IllegalArgumentException if the token is malformed, signed with an unknown key, forged or expired
+     */
+    public SessionToken decode(String token) {
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot < 0 || lastDot == firstDot) {
+            throw new IllegalArgumentException("Malformed session token");
+        }
+        SecretKeySpec key = keys.get(token.substring(0, firstDot));
+        if (key == null) {
+            throw new IllegalArgumentException("Session token signed with an unknown key");
+        }
+        String signed = token.substring(0, lastDot);
+        byte[] signature;
+        byte[] payload;
+        try {
+            signature = DECODER.decode(token.substring(lastDot + 1));
+            payload = DECODER.decode(token.substring(firstDot + 1, lastDot));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed session token", e);
+        }
+        if (!MessageDigest.isEqual(signature, mac(key, signed))) {
+            throw new IllegalArgumentException("Invalid session token signature");
+        }
+
+        SessionToken decoded;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String username = in.readUTF();
+            Long employeeId = in.readBoolean() ? in.readLong() : null;
+            int count = in.readUnsignedByte();
+            List<String> authorities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                authorities.add(in.readUTF());
+            }
+            decoded = new SessionToken(username, employeeId, authorities, Instant.ofEpochSecond(in.readLong()));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed session token", e);
+        }
+        if (!clock.instant().isBefore(decoded.expiresAt())) {
+            throw new IllegalArgumentException("Expired session token");
+        }
+        return decoded;
+    }
+
+    private static byte[] mac(SecretKeySpec key, String signed) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(signed.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.xphrtestingassignment.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Authenticates a request by the {@link SessionToken} it carries, as {@code Authorization: Bearer <token>} (API
+ * clients) or in the {@value #COOKIE_NAME} cookie (browsers, set by the form login). A missing, invalid or expired
+ * token leaves the request unauthenticated, to be challenged like any other. The token becomes the details of the
+ * authentication.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SessionTokenFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "XPHR_TOKEN";
+
+    private static final String BEARER = "Bearer ";
+
+    private final SessionTokenCodec codec;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = token(request);
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            try {
+                SessionToken sessionToken = codec.decode(token);
+                EmployeeUserDetails principal = sessionToken.principal();
+                UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(
+                        principal, null, principal.getAuthorities());
+                authentication.setDetails(sessionToken);
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(authentication);
+                SecurityContextHolder.setContext(context);
+            } catch (IllegalArgumentException e) {
+                log.debug("ignored the session token of {}: {}", request.getRequestURI(), e.getMessage());
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private static String token(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return authorization.substring(BEARER.length()).trim();
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The cookie holding the token of a browser, gone when the token expires.
+     */
+    public static ResponseCookie cookie(HttpServletRequest request, String token, SessionTokenCodec codec) {
+        return cookie(request, token, codec.getTtl());
+    }
+
+    /**
+     * Removes the token cookie at the logout. The token itself stays valid until it expires.
+     */
+    public static ResponseCookie expiredCookie(HttpServletRequest request) {
+        return cookie(request, "", Duration.ZERO);
+    }
+
+    private static ResponseCookie cookie(HttpServletRequest request, String token, Duration maxAge) {
+        return ResponseCookie.from(COOKIE_NAME, token)
+                .path(request.getContextPath().isEmpty() ? "/" : request.getContextPath())
+                .maxAge(maxAge)
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Lax")
+                .build();
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.xphrtestingassignment.service;
+
+import org.example.xphrtestingassignment.constant.DataFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface ReportExportService {
+    /**
+     * Streams the total hours worked per employee and project within the specified date range. Rows are read
+     * through a database cursor and written as they arrive, so memory use does not depend on the row count.
+     *
+     * @param employeeId the employee to restrict the report to, or null for all employees
+     * @param startDate  the start date of the period to filter records
+     * @param endDate    the end date of the period to filter records
+     * @param format     the output format
+     * @param out        the stream to write to, it is flushed but not closed
+     * @return the number of rows written
+     */
+    long exportReport(Long employeeId, LocalDateTime startDate, LocalDateTime endDate,
+                      DataFormat format, OutputStream out) throws IOException;
+
+    /**
+     * Streams the raw time records within the specified date range, ordered by start time. In
+     * {@code report.window-mode} OVERLAP these are the records overlapping the range, with their full interval.
+     *
+     * @param employeeId the employee to restrict the records to, or null for all employees
+     * @param startDate  the start date of the period to filter records
+     * @param endDate    the end date of the period to filter records
+     * @param format     the output format
+     * @param out        the stream to write to, it is flushed but not closed
+     * @return the number of rows written
+     */
+    long exportTimeRecords(Long employeeId, LocalDateTime startDate, LocalDateTime endDate,
+                           DataFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,50 @@
+package org.example.xphrtestingassignment.service;
+
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.constant.ReportGrouping;
+import org.example.xphrtestingassignment.entity.ReportJob;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Reports over windows too large for a page load, computed in the background and kept for a while.
+ */
+public interface ReportJobService {
+    /**
+     * Stores a new job and queues it.
+     *
+     * @param username   the user submitting the job
+     * @param employeeId the employee to restrict the report to, or null for all employees
+     * @param startDate  the start date of the period to filter records
+     * @param endDate    the end date of the period to filter records
+     * @param grouping   what the rows add up the hours by
+     * @param format     the format of the result
+     * @return the queued job
+     * @throws org.example.xphrtestingassignment.exception.ReportCapacityExceededException if the job queue is full
+     */
+    ReportJob submit(String username, Long employeeId, LocalDateTime startDate, LocalDateTime endDate,
+                     ReportGrouping grouping, DataFormat format);
+
+    Optional<ReportJob> findJob(UUID id);
+
+    /**
+     * Writes the result of a finished job.
+     *
+     * @param compressed whether to write the stored gzip stream as it is instead of decompressing it
+     * @throws IllegalStateException if the job has no result (yet)
+     */
+    void writeResult(UUID id, OutputStream out, boolean compressed) throws IOException;
+
+    /**
+     * Calls the listener with the job on every change of its progress or status, until it is finished or the
+     * listener is removed. The listener is called on the job's thread and should not block.
+     */
+    void addListener(UUID id, Consumer<ReportJob> listener);
+
+    void removeListener(UUID id, Consumer<ReportJob> listener);
+}
@@ -1,10 +1,15 @@
 package org.example.xphrtestingassignment.service;
 
+import org.example.xphrtestingassignment.dto.ReportCursor;
 import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 public interface ReportService {
     /**
@@ -19,14 +24,69 @@ public interface ReportService {
     Page<ReportDTO> getReportData(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
 
     /**
-     * Retrieves a paginated report of total hours worked by a specific user on each project
+     * Retrieves a paginated report of total hours worked by a specific employee on each project
      * within the specified date range.
      *
-     * @param username  the username of the employee to filter records
+     * @param employeeId the id of the employee to filter records
+     * @param startDate  the start date of the period to filter records
+     * @param endDate    the end date of the period to filter records
+     * @param pageable   pagination information
+     * @return a page of ReportDTO containing employee names, project names, and total hours worked
+     */
+    Page<ReportDTO> getReportDataForSpecificEmployee(long employeeId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
+
+    /**
+     * Retrieves the slice of the report that follows the given cursor, ordered by employee name and project name.
+     * Unlike {@link #getReportData(LocalDateTime, LocalDateTime, Pageable)} no count query is executed and the
+     * cost of a slice does not grow with its position in the report.
+     *
      * @param startDate the start date of the period to filter records
      * @param endDate   the end date of the period to filter records
-     * @param pageable  pagination information
-     * @return a page of ReportDTO containing employee names, project names, and total hours worked
+     * @param after     the cursor of the last row already seen, or null for the first slice
+     * @param size      the maximum number of rows in the slice
+     * @return a slice of ReportDTO containing employee names, project names, and total hours worked
+     */
+    Slice<ReportDTO> getReportDataAfter(LocalDateTime startDate, LocalDateTime endDate, ReportCursor after, int size);
+
+    /**
+     * Retrieves the slice of the report of a specific employee that follows the given cursor.
+     *
+     * @param employeeId the id of the employee to filter records
+     * @param startDate  the start date of the period to filter records
+     * @param endDate    the end date of the period to filter records
+     * @param after      the cursor of the last row already seen, or null for the first slice
+     * @param size       the maximum number of rows in the slice
+     * @return a slice of ReportDTO containing employee names, project names, and total hours worked
+     */
+    Slice<ReportDTO> getReportDataForSpecificEmployeeAfter(long employeeId, LocalDateTime startDate, LocalDateTime endDate, ReportCursor after, int size);
+
+    /**
+     * Counts the rows of the report within the specified date range.
+     *
+     * @param startDate the start date of the period to filter records
+     * @param endDate   the end date of the period to filter records
+     * @return the number of (employee, project) rows
+     */
+    long countReportData(LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Counts the rows of the report of a specific employee within the specified date range.
+     *
+     * @param employeeId the id of the employee to filter records
+     * @param startDate  the start date of the period to filter records
+     * @param endDate    the end date of the period to filter records
+     * @return the number of (employee, project) rows
+     */
+    long countReportDataForSpecificEmployee(long employeeId, LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Computes the report of a definition: the hours by its dimensions and at each of its grouping sets, all from
+     * one pass over the records of the window.
+     *
+     * @param definition the window, dimensions and subtotals of the report
+     * @return the rows ordered by the dimensions of the definition, each subtotal after the rows it adds up
+     * @throws org.example.xphrtestingassignment.exception.ReportTooLargeException if the report has more rows than
+     *                                                                             allowed at once
      */
-    Page<ReportDTO> getReportDataForSpecificEmployee(String username, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
+    List<ReportRowDTO> getReport(ReportDefinition definition);
 }
@@ -0,0 +1,51 @@
+package org.example.xphrtestingassignment.service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+public interface ReportStreamService {
+
+    String SNAPSHOT = "snapshot";
+    String DELTA = "delta";
+
+    /**
+     * Subscribes to the live report of a window: first a {@link #SNAPSHOT} event with all of its
+     * {@link org.example.xphrtestingassignment.dto.ReportCellsDTO cells}, then a {@link #DELTA} event with the cells
+     * that changed whenever time records of the window change. A subscriber falling behind gets a new snapshot
+     * instead of the deltas it missed.
+     *
+     * @param employeeId the employee to restrict the report to, null for all employees
+     * @param startDate  the start of the report window
+     * @param endDate    the end of the report window, exclusive
+     * @param sink       where the events go
+     * @return ends the subscription
+     * @throws org.example.xphrtestingassignment.exception.ReportCapacityExceededException if the maximum number of
+     *                                                                                     subscriptions is reached
+     * @throws IllegalArgumentException if the window is empty
+     */
+    Runnable subscribe(Long employeeId, LocalDateTime startDate, LocalDateTime endDate, ReportStreamSink sink);
+
+    /**
+     * Where the events of a subscription go. Called on the stream threads, one call at a time per sink; a call may
+     * block while the client is slow to read.
+     */
+    interface ReportStreamSink {
+
+        /**
+         * @param event    {@link #SNAPSHOT} or {@link #DELTA}
+         * @param sequence the sequence of the event
+         * @param json     the {@link org.example.xphrtestingassignment.dto.ReportCellsDTO} of the event
+         */
+        void send(String event, long sequence, String json) throws IOException;
+
+        /**
+         * Keeps an idle stream open, and finds clients that went away.
+         */
+        void heartbeat() throws IOException;
+
+        /**
+         * Ends the stream: the subscription was dropped, because the client was too slow or went away.
+         */
+        void close();
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.xphrtestingassignment.service;
+
+import java.time.LocalDateTime;
+
+public interface ReportVersionService {
+    /**
+     * Returns the data version of the reports of a window, read from the versions the database keeps per month
+     * (time_record_version). It changes with every committed change that may alter a report of the window: records
+     * inside it or crossing one of its edges, and renamed employees or projects. Changes made outside the
+     * application are included.
+     *
+     * @param startDate the start date of the period to filter records
+     * @param endDate   the end date of the period to filter records
+     * @return the version, equal for two calls only when none of the reports of the window changed in between
+     */
+    long getVersion(LocalDateTime startDate, LocalDateTime endDate);
+}
@@ -0,0 +1,14 @@
+package org.example.xphrtestingassignment.service;
+
+import java.time.YearMonth;
+import java.util.List;
+
+public interface TimeRecordArchiveService {
+    /**
+     * Moves the closed months of time_record that are not archived yet, oldest first, into archive segments and
+     * drops their partitions. Partitions of months archived earlier whose drop failed are dropped again.
+     *
+     * @return the months archived by this run
+     */
+    List<YearMonth> archiveClosedMonths();
+}
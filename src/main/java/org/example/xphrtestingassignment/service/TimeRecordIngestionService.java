@@ -0,0 +1,21 @@
+package org.example.xphrtestingassignment.service;
+
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.dto.IngestionResultDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface TimeRecordIngestionService {
+    /**
+     * Imports time records in batches. Each row is validated (known employee and project, time_to after
+     * time_from); valid rows are loaded with the COPY protocol, and rows identical to a stored record or to
+     * another row of the same batch are skipped. Every batch is committed on its own.
+     *
+     * @param in     the rows: CSV with an employee_id,project_id,time_from,time_to header, or NDJSON objects with
+     *               employeeId, projectId, timeFrom and timeTo
+     * @param format the format of the rows
+     * @return the counts of inserted, duplicate and rejected rows, and the throughput of every batch
+     */
+    IngestionResultDTO ingest(InputStream in, DataFormat format) throws IOException;
+}
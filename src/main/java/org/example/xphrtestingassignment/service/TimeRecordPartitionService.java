@@ -0,0 +1,22 @@
+package org.example.xphrtestingassignment.service;
+
+import java.time.YearMonth;
+import java.util.List;
+
+public interface TimeRecordPartitionService {
+    /**
+     * Creates the monthly partitions of time_record that are missing: the previous and current month, the
+     * configured number of months ahead, and every month that has records parked in the default partition.
+     *
+     * @return the months for which a partition was created
+     */
+    List<YearMonth> ensurePartitions();
+
+    /**
+     * Detaches the partitions older than the configured retention, removes their records from the rollup and
+     * moves them to the archive schema (or drops them when configured to).
+     *
+     * @return the months whose partition was detached
+     */
+    List<YearMonth> detachExpiredPartitions();
+}
@@ -0,0 +1,20 @@
+package org.example.xphrtestingassignment.service;
+
+import java.time.LocalDate;
+
+public interface TimeRecordRollupService {
+    /**
+     * Recomputes the whole rollup from time_record. Writers to time_record are blocked while it runs.
+     */
+    void rebuild();
+
+    /**
+     * Compares the rollup with time_record for the records starting within the given days and repairs every
+     * bucket that drifted.
+     *
+     * @param fromDate the first day to check (inclusive)
+     * @param toDate   the last day to check (exclusive)
+     * @return the number of buckets that were corrected
+     */
+    int reconcile(LocalDate fromDate, LocalDate toDate);
+}
@@ -0,0 +1,29 @@
+package org.example.xphrtestingassignment.service;
+
+import org.example.xphrtestingassignment.dto.TimeRecordCursor;
+import org.example.xphrtestingassignment.dto.TimeRecordDTO;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDateTime;
+
+public interface TimeRecordService {
+
+    /**
+     * Retrieves the time records behind one row of the report: the records of an employee on a project that the
+     * report adds up for the window, ordered by their start. The report groups by name, so the row of an employee
+     * name holds the records of every employee of that name. Each page is one query, whatever its size and its
+     * position.
+     *
+     * @param employeeId   the only employee whose records are read (as in the report of an employee), or null
+     * @param employeeName the employee name of the row
+     * @param projectName  the project name of the row
+     * @param startDate    the start date of the period of the report
+     * @param endDate      the end date of the period of the report
+     * @param after        the cursor of the last record already seen, or null for the first page
+     * @param size         the maximum number of records in the page
+     * @return a slice of the records with the names of their employee and project
+     */
+    Slice<TimeRecordDTO> getTimeRecordsAfter(Long employeeId, String employeeName, String projectName,
+                                             LocalDateTime startDate, LocalDateTime endDate,
+                                             TimeRecordCursor after, int size);
+}
@@ -0,0 +1,107 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.dto.ReportCursor;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.metrics.ReportMetrics;
+import org.example.xphrtestingassignment.repository.TimeRecordRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The report queries of a window reaching into the {@link TimeRecordArchive}: the queries of
+ * {@link TimeRecordRepository} over the window as one chunk of {@link ReportChunkSql}, the archived totals added to
+ * the live records. Same rows, order and cursors as the repository queries; like them, a page takes no sort.
+ */
+final class ArchiveReportSql {
+
+    private static final RowMapper<ReportDTO> ROW_MAPPER = (rs, rowNum) ->
+            new ReportDTO(rs.getString("employeeName"), rs.getString("projectName"), rs.getBigDecimal("totalHours"));
+
+    private ArchiveReportSql() {
+    }
+
+    static Page<ReportDTO> page(NamedParameterJdbcTemplate jdbcTemplate, TimeRecordArchive archive,
+                                ReportWindowMode windowMode, Long employeeId,
+                                LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+        MapSqlParameterSource parameters = parameters(archive, windowMode, employeeId, startDate, endDate);
+        if (pageable.isUnpaged()) {
+            List<ReportDTO> rows = jdbcTemplate.query(reportSql(windowMode, employeeId), parameters, ROW_MAPPER);
+            return new PageImpl<>(rows, pageable, rows.size());
+        }
+        // the row count comes with the rows, counted separately only for a page past the end
+        long[] total = {-1};
+        List<ReportDTO> rows = jdbcTemplate.query(TimeRecordRepository.REPORT_COLUMNS +
+                ", COUNT(*) OVER () AS total " + source(windowMode, employeeId) +
+                TimeRecordRepository.REPORT_GROUPING + TimeRecordRepository.REPORT_ORDER +
+                " LIMIT :limit OFFSET :offset", parameters
+                .addValue("limit", pageable.getPageSize())
+                .addValue("offset", pageable.getOffset()), (rs, rowNum) -> {
+                    total[0] = rs.getLong("total");
+                    return ROW_MAPPER.mapRow(rs, rowNum);
+                });
+        if (total[0] < 0) {
+            total[0] = pageable.getOffset() == 0 ? 0 : ReportMetrics.tagQueries("count",
+                    () -> count(jdbcTemplate, windowMode, employeeId, parameters));
+        }
+        return new PageImpl<>(new ArrayList<>(rows), pageable, total[0]);
+    }
+
+    static List<ReportDTO> slice(NamedParameterJdbcTemplate jdbcTemplate, TimeRecordArchive archive,
+                                 ReportWindowMode windowMode, Long employeeId, LocalDateTime startDate,
+                                 LocalDateTime endDate, ReportCursor after, int limit) {
+        return jdbcTemplate.query(TimeRecordRepository.REPORT_COLUMNS + source(windowMode, employeeId) +
+                        TimeRecordRepository.AFTER_CURSOR + TimeRecordRepository.REPORT_GROUPING +
+                        TimeRecordRepository.REPORT_ORDER + " LIMIT :limit",
+                parameters(archive, windowMode, employeeId, startDate, endDate)
+                        .addValue("afterEmployee", after == null ? null : after.employeeName())
+                        .addValue("afterProject", after == null ? null : after.projectName())
+                        .addValue("limit", limit),
+                ROW_MAPPER);
+    }
+
+    static long count(NamedParameterJdbcTemplate jdbcTemplate, TimeRecordArchive archive,
+                      ReportWindowMode windowMode, Long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
+        return count(jdbcTemplate, windowMode, employeeId,
+                parameters(archive, windowMode, employeeId, startDate, endDate));
+    }
+
+    private static long count(NamedParameterJdbcTemplate jdbcTemplate, ReportWindowMode windowMode, Long employeeId,
+                              MapSqlParameterSource parameters) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 " + source(windowMode, employeeId) +
+                TimeRecordRepository.REPORT_GROUPING + ") report_rows", parameters, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * The whole report, in report order.
+     */
+    static String reportSql(ReportWindowMode windowMode, Long employeeId) {
+        return TimeRecordRepository.REPORT_COLUMNS + source(windowMode, employeeId) +
+                TimeRecordRepository.REPORT_GROUPING + TimeRecordRepository.REPORT_ORDER;
+    }
+
+    private static String source(ReportWindowMode windowMode, Long employeeId) {
+        return "FROM (" + ReportChunkSql.sources(windowMode, employeeId != null, false, true) + ") h " +
+                " JOIN employee e ON h.employee_id = e.id " +
+                " JOIN project p ON h.project_id = p.id ";
+    }
+
+    static MapSqlParameterSource parameters(TimeRecordArchive archive, ReportWindowMode windowMode,
+                                            Long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
+        return ReportChunkSql.parameters(new MapSqlParameterSource()
+                        .addValue("employeeId", employeeId)
+                        .addValue("startDate", startDate)
+                        .addValue("endDate", endDate),
+                archive, windowMode, startDate, endDate, false);
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.dto.ReportCursor;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.example.xphrtestingassignment.service.ReportService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache in front of {@link ReportServiceImpl}. Entries are bounded in number and age, and are
+ * evicted as soon as a committed change to time_record may alter the report window they were computed for.
+ * Concurrent misses on the same key share one query: the first caller runs it, the others wait for its result
+ * instead of sending the same aggregate to PostgreSQL again.
+ * <p>
+ * Changes are learned from {@link TimeRecordsChangedEvent}s, published by the writers of this instance (bulk
+ * ingestion, partition maintenance) and by {@code ReportVersionServiceImpl} when it reads a new month version.
+ * Invalidation is local to the instance: other instances keep serving their cached reports of the changed window
+ * until the entries expire ({@code report.cache.ttl}), and so does this one for writes it does not see.
+ */
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(name = "report.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingReportService implements ReportService {
+
+    private final ReportService delegate;
+    private final Cache<ReportCacheKey, Object> cache;
+    private final Counter invalidations;
+    private final Counter coalesced;
+    private final ConcurrentMap<ReportCacheKey, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    // bumped on every change event: a result loaded while a change committed is returned but not cached
+    private final AtomicLong changeEpoch = new AtomicLong();
+
+    public CachingReportService(@Qualifier("reportServiceImpl") ReportService delegate,
+                                Cache<ReportCacheKey, Object> reportCache,
+                                MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = reportCache;
+        this.invalidations = Counter.builder("report.cache.invalidations")
+                .description("Report cache entries evicted because time_record changed within their window")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("report.cache.coalesced")
+                .description("Report requests served by a query already running for the same key")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Page<ReportDTO> getReportData(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+        return cached(new ReportCacheKey(UserRoles.ADMIN, null, startDate, endDate, page(pageable)),
+                () -> delegate.getReportData(startDate, endDate, pageable));
+    }
+
+    @Override
+    public Page<ReportDTO> getReportDataForSpecificEmployee(long employeeId, LocalDateTime startDate,
+                                                            LocalDateTime endDate, Pageable pageable) {
+        return cached(new ReportCacheKey(UserRoles.EMPLOYEE, employeeId, startDate, endDate, page(pageable)),
+                () -> delegate.getReportDataForSpecificEmployee(employeeId, startDate, endDate, pageable));
+    }
+
+    @Override
+    public Slice<ReportDTO> getReportDataAfter(LocalDateTime startDate, LocalDateTime endDate,
+                                              ReportCursor after, int size) {
+        return cached(new ReportCacheKey(UserRoles.ADMIN, null, startDate, endDate, slice(after, size)),
+                () -> delegate.getReportDataAfter(startDate, endDate, after, size));
+    }
+
+    @Override
+    public Slice<ReportDTO> getReportDataForSpecificEmployeeAfter(long employeeId, LocalDateTime startDate,
+                                                                 LocalDateTime endDate, ReportCursor after, int size) {
+        return cached(new ReportCacheKey(UserRoles.EMPLOYEE, employeeId, startDate, endDate, slice(after, size)),
+                () -> delegate.getReportDataForSpecificEmployeeAfter(employeeId, startDate, endDate, after, size));
+    }
+
+    @Override
+    public long countReportData(LocalDateTime startDate, LocalDateTime endDate) {
+        return cached(new ReportCacheKey(UserRoles.ADMIN, null, startDate, endDate, "count"),
+                () -> delegate.countReportData(startDate, endDate));
+    }
+
+    @Override
+    public long countReportDataForSpecificEmployee(long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
+        return cached(new ReportCacheKey(UserRoles.EMPLOYEE, employeeId, startDate, endDate, "count"),
+                () -> delegate.countReportDataForSpecificEmployee(employeeId, startDate, endDate));
+    }
+
+    @Override
+    public List<ReportRowDTO> getReport(ReportDefinition definition) {
+        return cached(new ReportCacheKey(definition.employeeId() == null ? UserRoles.ADMIN : UserRoles.EMPLOYEE,
+                        definition.employeeId(), definition.startDate(), definition.endDate(), definition(definition)),
+                () -> delegate.getReport(definition));
+    }
+
+    @EventListener
+    public void onTimeRecordsChanged(TimeRecordsChangedEvent event) {
+        changeEpoch.incrementAndGet();
+        int before = cache.asMap().size();
+        cache.asMap().keySet().removeIf(key -> event.affects(key.startDate(), key.endDate()));
+        int evicted = before - cache.asMap().size();
+        if (evicted > 0) {
+            invalidations.increment(evicted);
+            log.debug("evicted {} report cache entries for changes between {} and {}",
+                    evicted, event.from(), event.to());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(ReportCacheKey key, Supplier<T> loader) {
+        Object hit = cache.getIfPresent(key);
+        if (hit != null) {
+            return (T) hit;
+        }
+        long epoch = changeEpoch.get();
+        InFlight own = new InFlight(epoch, new CompletableFuture<>());
+        while (true) {
+            InFlight running = inFlight.putIfAbsent(key, own);
+            if (running == null) {
+                return load(key, own, loader);
+            }
+            // a query started before a change committed may miss it, so join only one started since
+            if (running.epoch() == epoch) {
+                coalesced.increment();
+                return (T) join(running.result());
+            }
+            if (inFlight.replace(key, running, own)) {
+                return load(key, own, loader);
+            }
+        }
+    }
+
+    private <T> T load(ReportCacheKey key, InFlight own, Supplier<T> loader) {
+        try {
+            T value = loader.get();
+            if (changeEpoch.get() == own.epoch()) {
+                cache.put(key, value);
+                // a change committed between the check and the put may have evicted before the put: take it back
+                if (changeEpoch.get() != own.epoch()) {
+                    cache.asMap().remove(key, value);
+                }
+            }
+            own.result().complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String page(Pageable pageable) {
+        return "page:" + pageable.getPageNumber() + ":" + pageable.getPageSize();
+    }
+
+    private static String slice(ReportCursor after, int size) {
+        return "after:" + (after == null ? "" : after.encode()) + ":" + size;
+    }
+
+    private static String definition(ReportDefinition definition) {
+        return "definition:" + definition.dimensions() + ":" + definition.timeBucket() + ":"
+                + definition.groupingSets();
+    }
+
+    /**
+     * @param scope      the role the report is computed for
+     * @param employeeId the employee the report is restricted to, null for the admin scope
+     * @param startDate  the start of the report window
+     * @param endDate    the end of the report window
+     * @param page       the page, cursor or count the entry holds
+     */
+    public record ReportCacheKey(UserRoles scope, Long employeeId,
+                                 LocalDateTime startDate, LocalDateTime endDate, String page) {
+    }
+
+    /**
+     * A query running for a key, with the change epoch it started in.
+     */
+    private record InFlight(long epoch, CompletableFuture<Object> result) {
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords;
+import org.example.xphrtestingassignment.dto.ReportCursor;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The rows of a report computed by the {@link ParallelReportExecutor}, in the order of the report queries: by
+ * employee name, then project name, ranked in the collation of the database.
+ */
+public final class MergedReport {
+
+    private final long[] keys;
+    private final List<ReportDTO> rows;
+    private final Map<String, Integer> employeeRanks = new HashMap<>();
+    private final Map<String, Integer> projectRanks = new HashMap<>();
+
+    /**
+     * @param seconds       the seconds by {@link #key} of employee and project rank
+     * @param employeeNames the employee names by rank
+     * @param projectNames  the project names by rank
+     */
+    MergedReport(Map<Long, BigDecimal> seconds, List<String> employeeNames, List<String> projectNames) {
+        keys = seconds.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        rows = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            rows.add(new ReportDTO(employeeNames.get((int) (key >>> 32)), projectNames.get((int) key),
+                    ColumnarTimeRecords.hours(seconds.get(key))));
+        }
+        for (int rank = 0; rank < employeeNames.size(); rank++) {
+            employeeRanks.put(employeeNames.get(rank), rank);
+        }
+        for (int rank = 0; rank < projectNames.size(); rank++) {
+            projectRanks.put(projectNames.get(rank), rank);
+        }
+    }
+
+    static long key(int employeeRank, int projectRank) {
+        return (long) employeeRank << 32 | projectRank;
+    }
+
+    /**
+     * Same as {@code TimeRecordRepository.findAllBetweenStartDateAndEndDate} and its counterparts. The pageable must
+     * be unsorted.
+     */
+    public Page<ReportDTO> page(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(rows, pageable, rows.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), rows.size());
+        int to = Math.min(from + pageable.getPageSize(), rows.size());
+        return new PageImpl<>(List.copyOf(rows.subList(from, to)), pageable, rows.size());
+    }
+
+    /**
+     * Same as {@code TimeRecordRepository.findSliceBetweenStartDateAndEndDate} and its counterparts. A cursor whose
+     * names are not in the report tables any more cannot be placed in the database collation and yields an empty
+     * optional.
+     */
+    public Optional<List<ReportDTO>> slice(ReportCursor after, int limit) {
+        int from = 0;
+        if (after != null) {
+            Integer employeeRank = employeeRanks.get(after.employeeName());
+            Integer projectRank = projectRanks.get(after.projectName());
+            if (employeeRank == null || projectRank == null) {
+                return Optional.empty();
+            }
+            int position = Arrays.binarySearch(keys, key(employeeRank, projectRank));
+            from = position >= 0 ? position + 1 : -position - 1;
+        }
+        return Optional.of(List.copyOf(rows.subList(from, Math.min(from + limit, rows.size()))));
+    }
+
+    public long count() {
+        return rows.size();
+    }
+}
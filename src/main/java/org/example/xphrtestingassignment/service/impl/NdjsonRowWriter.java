@@ -0,0 +1,55 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+
+final class NdjsonRowWriter implements RowWriter {
+    private final JsonGenerator generator;
+    private String[] columns;
+    private boolean empty = true;
+
+    NdjsonRowWriter(OutputStream out) throws IOException {
+        this.generator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)
+                .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        // one JSON document per line
+        this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+    }
+
+    @Override
+    public void start(String[] columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public void write(Object[] values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value instanceof BigDecimal decimal) {
+                generator.writeNumberField(columns[i], decimal);
+            } else if (value instanceof Long number) {
+                generator.writeNumberField(columns[i], number);
+            } else if (value == null) {
+                generator.writeNullField(columns[i]);
+            } else {
+                generator.writeStringField(columns[i], value.toString());
+            }
+        }
+        generator.writeEndObject();
+        empty = false;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (!empty) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+}
@@ -0,0 +1,296 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.service.impl.ReportJobWorker.Chunk;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Computes a report over a long window as several queries over sub-ranges of it, run at the same time on a
+ * connection pool of their own, and adds up their totals in memory. A single report query runs on one PostgreSQL
+ * backend; split into {@code n} sub-ranges it can use up to {@code n} of them, at the price of a statement, a
+ * connection hand-off and a partial result per sub-range.
+ * <p>
+ * The split adapts to the estimated number of records in the window, read from the planner statistics of the
+ * monthly partitions of time_record (and divided by the number of employees for the report of one employee): one
+ * sub-range per {@code report.parallel.rows-per-split} records, at most {@code report.parallel.max-splits}, cut at
+ * midnight so that every sub-range but the edges reads the daily rollup only. A window estimated below two
+ * sub-ranges is not split at all, and the caller runs its single query. The sub-ranges of every report share the
+ * {@code report.parallel.connections} threads and connections, so the parallelism of a report is the smaller of its
+ * sub-ranges and the free connections.
+ * <p>
+ * Sub-ranges split the records by their start, like the report jobs (see {@link ReportChunkSql}), so the merged
+ * totals equal those of the single query in both window modes.
+ */
+@Slf4j
+public class ParallelReportExecutor implements AutoCloseable {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("time_record_y(\\d{4})m(\\d{2})");
+
+    private static final String PARTITION_ROWS_SQL = "SELECT c.relname, GREATEST(c.reltuples, 0) FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = CAST('time_record' AS regclass)";
+
+    private static final String EMPLOYEE_ROWS_SQL =
+            "SELECT GREATEST(reltuples, 0) FROM pg_class WHERE oid = CAST('employee' AS regclass)";
+
+    private static final String CHUNK_PREFIX = "SELECT employee_id, project_id, SUM(seconds) AS seconds FROM (";
+
+    private static final String CHUNK_SUFFIX = ") h GROUP BY employee_id, project_id";
+
+    /**
+     * Equal names share a rank: the report groups by name, in the collation of the database. The rows come in rank
+     * order, which {@link #ranks} relies on to list each name once; the window does not guarantee that order.
+     */
+    private static final String RANKS_SQL = "SELECT id, name, DENSE_RANK() OVER (ORDER BY name) FROM %s ORDER BY 3";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ThreadPoolExecutor executor;
+    private final long rowsPerSplit;
+    private final int maxSplits;
+    private final Duration statisticsTtl;
+    private final Clock clock;
+    private final DistributionSummary splits;
+
+    private volatile Statistics statistics;
+
+    /**
+     * @param jdbcTemplate  over the connection pool of the sub-range queries, as large as {@code connections}
+     * @param connections   sub-range queries running at once, over all reports
+     * @param rowsPerSplit  estimated records per sub-range
+     * @param maxSplits     sub-ranges of one report at most
+     * @param statisticsTtl how long the partition statistics are used before they are read again
+     */
+    public ParallelReportExecutor(NamedParameterJdbcTemplate jdbcTemplate, int connections, long rowsPerSplit,
+                                  int maxSplits, Duration statisticsTtl, Clock clock, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowsPerSplit = rowsPerSplit;
+        this.maxSplits = maxSplits;
+        this.statisticsTtl = statisticsTtl;
+        this.clock = clock;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(connections, connections, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "report-split-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.splits = DistributionSummary.builder("report.parallel.splits")
+                .description("Sub-ranges of the reports computed in parallel")
+                .register(meterRegistry);
+        meterRegistry.gauge("report.parallel.queued", executor, pool -> pool.getQueue().size());
+    }
+
+    /**
+     * The report of the window {@code [startDate, endDate)}, of one employee or of all of them, as the merged
+     * totals of its sub-ranges; empty when the window is too small to be worth splitting, or when the employees or
+     * projects changed while it was computed. Blocks until every sub-range is in.
+     */
+    public Optional<MergedReport> report(ReportWindowMode windowMode, Long employeeId,
+                                         LocalDateTime startDate, LocalDateTime endDate) {
+        List<Chunk> chunks = plan(employeeId, startDate, endDate);
+        if (chunks.size() < 2) {
+            return Optional.empty();
+        }
+        return merge(windowMode, employeeId, startDate, endDate, chunks);
+    }
+
+    /**
+     * The report of the window split into {@code count} sub-ranges whatever the estimate, at most one more than the
+     * midnights inside the window; a single sub-range is the whole window in one statement. For measuring where a
+     * split pays off.
+     */
+    public Optional<MergedReport> report(ReportWindowMode windowMode, Long employeeId,
+                                         LocalDateTime startDate, LocalDateTime endDate, int count) {
+        return merge(windowMode, employeeId, startDate, endDate, split(startDate, endDate, count));
+    }
+
+    private Optional<MergedReport> merge(ReportWindowMode windowMode, Long employeeId,
+                                         LocalDateTime startDate, LocalDateTime endDate, List<Chunk> chunks) {
+        splits.record(chunks.size());
+
+        String sql = CHUNK_PREFIX + ReportChunkSql.sources(windowMode, employeeId != null) + CHUNK_SUFFIX;
+        List<Future<?>> futures = new ArrayList<>();
+        Future<Ranks> employees = submit(futures, () -> ranks("employee"));
+        Future<Ranks> projects = submit(futures, () -> ranks("project"));
+        List<Future<List<Partial>>> partials = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("employeeId", employeeId)
+                    .addValue("startDate", startDate)
+                    .addValue("endDate", endDate)
+                    .addValue("chunkStart", chunk.start())
+                    .addValue("chunkEnd", chunk.end());
+            partials.add(submit(futures, () -> jdbcTemplate.query(sql, parameters, (rs, row) ->
+                    new Partial(rs.getLong(1), rs.getLong(2), rs.getBigDecimal(3)))));
+        }
+
+        try {
+            Ranks employeeRanks = employees.get();
+            Ranks projectRanks = projects.get();
+            Map<Long, BigDecimal> seconds = new HashMap<>();
+            for (Future<List<Partial>> partial : partials) {
+                for (Partial row : partial.get()) {
+                    Integer employeeRank = employeeRanks.byId().get(row.employeeId());
+                    Integer projectRank = projectRanks.byId().get(row.projectId());
+                    if (employeeRank == null || projectRank == null) {
+                        log.debug("employee {} or project {} added while the report was computed",
+                                row.employeeId(), row.projectId());
+                        return Optional.empty();
+                    }
+                    seconds.merge(MergedReport.key(employeeRank, projectRank), row.seconds(), BigDecimal::add);
+                }
+            }
+            return Optional.of(new MergedReport(seconds, employeeRanks.names(), projectRanks.names()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the report sub-ranges", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // after a failure the sub-ranges not started yet are not run any more
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    /**
+     * The sub-ranges of the window: as many as the estimated records call for, at most one per day, cut at midnight
+     * into about equal numbers of days. A single sub-range means the window is not split.
+     */
+    List<Chunk> plan(Long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
+        if (!startDate.isBefore(endDate)) {
+            return List.of();
+        }
+        double rows = estimateRows(startDate, endDate);
+        if (employeeId != null) {
+            rows /= Math.max(1, currentStatistics().employees());
+        }
+        return split(startDate, endDate, (int) Math.min(maxSplits, Math.ceil(rows / rowsPerSplit)));
+    }
+
+    /**
+     * The window cut at the midnights nearest to {@code count} equal parts, at most at every midnight inside it.
+     */
+    static List<Chunk> split(LocalDateTime startDate, LocalDateTime endDate, int count) {
+        LocalDate firstCut = startDate.toLocalDate().plusDays(1);
+        LocalDate lastCut = endDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? endDate.toLocalDate().minusDays(1) : endDate.toLocalDate();
+        long seconds = Duration.between(startDate, endDate).getSeconds();
+        List<Chunk> chunks = new ArrayList<>();
+        LocalDateTime chunkStart = startDate;
+        for (int i = 1; i < count && !firstCut.isAfter(lastCut); i++) {
+            LocalDate day = startDate.plusSeconds(seconds * i / count).plusHours(12).toLocalDate();
+            LocalDateTime cut = (day.isBefore(firstCut) ? firstCut : day.isAfter(lastCut) ? lastCut : day)
+                    .atStartOfDay();
+            if (cut.isAfter(chunkStart)) {
+                chunks.add(new Chunk(chunkStart, cut));
+                chunkStart = cut;
+            }
+        }
+        chunks.add(new Chunk(chunkStart, endDate));
+        return chunks;
+    }
+
+    /**
+     * The records estimated to start in the window, the records of each monthly partition spread evenly over its
+     * month.
+     */
+    double estimateRows(LocalDateTime startDate, LocalDateTime endDate) {
+        double rows = 0;
+        for (Map.Entry<YearMonth, Double> partition : currentStatistics().monthRows().entrySet()) {
+            LocalDateTime monthStart = partition.getKey().atDay(1).atStartOfDay();
+            LocalDateTime monthEnd = monthStart.plusMonths(1);
+            LocalDateTime from = startDate.isAfter(monthStart) ? startDate : monthStart;
+            LocalDateTime to = endDate.isBefore(monthEnd) ? endDate : monthEnd;
+            if (from.isBefore(to)) {
+                rows += partition.getValue() * Duration.between(from, to).getSeconds()
+                        / Duration.between(monthStart, monthEnd).getSeconds();
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private Statistics currentStatistics() {
+        Statistics current = statistics;
+        Instant now = clock.instant();
+        if (current == null || current.readAt().plus(statisticsTtl).isBefore(now)) {
+            Map<YearMonth, Double> monthRows = new HashMap<>();
+            jdbcTemplate.getJdbcTemplate().query(PARTITION_ROWS_SQL, rs -> {
+                Matcher matcher = PARTITION_NAME.matcher(rs.getString(1));
+                if (matcher.matches()) {
+                    monthRows.put(YearMonth.of(Integer.parseInt(matcher.group(1)),
+                            Integer.parseInt(matcher.group(2))), rs.getDouble(2));
+                }
+            });
+            Double employees = jdbcTemplate.getJdbcTemplate().queryForObject(EMPLOYEE_ROWS_SQL, Double.class);
+            current = new Statistics(monthRows, employees == null ? 0 : employees, now);
+            statistics = current;
+        }
+        return current;
+    }
+
+    private Ranks ranks(String table) {
+        Map<Long, Integer> byId = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        jdbcTemplate.getJdbcTemplate().query(RANKS_SQL.formatted(table), rs -> {
+            int rank = rs.getInt(3) - 1;
+            byId.put(rs.getLong(1), rank);
+            if (rank == names.size()) {
+                names.add(rs.getString(2));
+            }
+        });
+        return new Ranks(byId, names);
+    }
+
+    private <T> Future<T> submit(List<Future<?>> futures, Callable<T> task) {
+        Future<T> future = executor.submit(task);
+        futures.add(future);
+        return future;
+    }
+
+    private record Statistics(Map<YearMonth, Double> monthRows, double employees, Instant readAt) {
+    }
+
+    /**
+     * The rank of every id by name (equal names share one), and the names by rank.
+     */
+    private record Ranks(Map<Long, Integer> byId, List<String> names) {
+    }
+
+    private record Partial(long employeeId, long projectId, BigDecimal seconds) {
+    }
+}
@@ -0,0 +1,189 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.xphrtestingassignment.exception.ReportCapacityExceededException;
+import org.example.xphrtestingassignment.exception.TooManyReportRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caps the report queries running at the same time below the size of the connection pool. Callers beyond the cap
+ * wait in arrival order for up to {@code report.bulkhead.acquire-timeout} and are then rejected. With virtual
+ * threads there is no request thread pool limiting concurrency any more, so without the cap every request would
+ * queue on the pool (holding its memory and timing out there) or, with a larger pool, overload PostgreSQL.
+ * <p>
+ * Admission is bounded as well: once {@code report.bulkhead.max-waiting} callers wait, further ones are rejected
+ * at once instead of piling up behind them, and a user may hold at most {@code report.bulkhead.max-per-user} slots
+ * and places in the queue, so that a single user reloading a slow report cannot crowd out everybody else. Both
+ * rejections carry {@code report.bulkhead.retry-after} for the Retry-After header. Queries without a user, such as
+ * report jobs, are not capped per user.
+ * <p>
+ * An export holds its slot, and its connection, for as long as the client takes to download it. At most
+ * {@code report.bulkhead.max-exports} exports hold a slot at a time, so that a few slow downloads cannot take every
+ * slot; further ones are rejected at once.
+ */
+@Component
+public class ReportBulkhead {
+
+    private final Semaphore permits;
+    private final Semaphore exportPermits;
+    private final int maxConcurrent;
+    private final int maxExports;
+    private final int maxWaiting;
+    private final int maxPerUser;
+    private final Duration acquireTimeout;
+    private final Duration retryAfter;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ConcurrentMap<String, Integer> admittedPerUser = new ConcurrentHashMap<>();
+    private final Counter rejectedTimeout;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedUserLimit;
+    private final Counter rejectedExportLimit;
+
+    public ReportBulkhead(@Value("${report.bulkhead.max-concurrent:8}") int maxConcurrent,
+                          @Value("${report.bulkhead.max-waiting:64}") int maxWaiting,
+                          @Value("${report.bulkhead.max-per-user:2}") int maxPerUser,
+                          @Value("${report.bulkhead.acquire-timeout:PT5S}") Duration acquireTimeout,
+                          @Value("${report.bulkhead.retry-after:PT2S}") Duration retryAfter,
+                          @Value("${report.bulkhead.max-exports:2}") int maxExports,
+                          MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.exportPermits = new Semaphore(maxExports);
+        this.maxConcurrent = maxConcurrent;
+        this.maxExports = maxExports;
+        this.maxWaiting = maxWaiting;
+        this.maxPerUser = maxPerUser;
+        this.acquireTimeout = acquireTimeout;
+        this.retryAfter = retryAfter;
+        this.rejectedTimeout = rejectedCounter(meterRegistry, "timeout");
+        this.rejectedQueueFull = rejectedCounter(meterRegistry, "queue-full");
+        this.rejectedUserLimit = rejectedCounter(meterRegistry, "user-limit");
+        this.rejectedExportLimit = rejectedCounter(meterRegistry, "export-limit");
+        Gauge.builder("report.bulkhead.active", this, bulkhead -> bulkhead.maxConcurrent - bulkhead.permits.availablePermits())
+                .description("Report queries running")
+                .register(meterRegistry);
+        Gauge.builder("report.bulkhead.waiting", waiting, AtomicInteger::get)
+                .description("Report queries waiting for a slot")
+                .register(meterRegistry);
+        Gauge.builder("report.bulkhead.exports", this, bulkhead -> bulkhead.maxExports - bulkhead.exportPermits.availablePermits())
+                .description("Exports holding or waiting for a slot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs an export like {@link #call}, once fewer than {@code max-exports} exports are running.
+     *
+     * @throws ReportCapacityExceededException if {@code max-exports} exports are running, or as {@link #call}
+     */
+    public <T> T callExport(Supplier<T> export) {
+        if (!exportPermits.tryAcquire()) {
+            rejectedExportLimit.increment();
+            throw new ReportCapacityExceededException("Already " + maxExports + " exports running", retryAfter);
+        }
+        try {
+            return call(export);
+        } finally {
+            exportPermits.release();
+        }
+    }
+
+    /**
+     * Runs the query once a slot is free.
+     *
+     * @throws TooManyReportRequestsException  if the current user already holds {@code max-per-user} slots or
+     *                                         places in the queue
+     * @throws ReportCapacityExceededException if the queue is full, or no slot became free within the acquire
+     *                                         timeout
+     */
+    public <T> T call(Supplier<T> query) {
+        String user = currentUser();
+        if (user != null && !admit(user)) {
+            rejectedUserLimit.increment();
+            throw new TooManyReportRequestsException(
+                    "Already " + maxPerUser + " report queries running or waiting for " + user, retryAfter);
+        }
+        try {
+            acquire();
+            try {
+                return query.get();
+            } finally {
+                permits.release();
+            }
+        } finally {
+            if (user != null) {
+                release(user);
+            }
+        }
+    }
+
+    private void acquire() {
+        try {
+            // a timed tryAcquire, unlike the untimed one, does not overtake the callers already waiting
+            if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            if (waiting.incrementAndGet() > maxWaiting) {
+                waiting.decrementAndGet();
+                rejectedQueueFull.increment();
+                throw new ReportCapacityExceededException(
+                        "All " + maxConcurrent + " report slots are busy and " + maxWaiting + " queries wait",
+                        retryAfter);
+            }
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (!acquired) {
+                rejectedTimeout.increment();
+                throw new ReportCapacityExceededException("All " + maxConcurrent + " report slots are busy",
+                        retryAfter);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReportCapacityExceededException("Interrupted while waiting for a report slot");
+        }
+    }
+
+    private boolean admit(String user) {
+        if (admittedPerUser.merge(user, 1, Integer::sum) <= maxPerUser) {
+            return true;
+        }
+        release(user);
+        return false;
+    }
+
+    private void release(String user) {
+        admittedPerUser.computeIfPresent(user, (key, admitted) -> admitted == 1 ? null : admitted - 1);
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("report.bulkhead.rejected")
+                .description("Report queries rejected because the queue was full, the user had too many queries, "
+                        + "too many exports were running or no slot became free in time")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,183 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.repository.TimeRecordRepository;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * The report of a window {@code [:startDate, :endDate)} cut into chunks {@code [:chunkStart, :chunkEnd)}. A chunk
+ * holds the records starting in it: every record of the window falls into exactly one chunk even when it crosses
+ * into the next one, so the chunk totals add up to the report of the whole window. Used by the report jobs (one
+ * calendar month at a time) and by the {@link ParallelReportExecutor} (the chunks of a window at once).
+ * <p>
+ * With a {@link TimeRecordArchive} the records starting before {@code :archivedBefore} come from its segments: the
+ * live sources read the chunk from where the archive ends on, and the archived totals of the chunk are
+ * passed in as arrays (see {@link #parameters}).
+ */
+final class ReportChunkSql {
+
+    /**
+     * First midnight at or after the start of the chunk, like {@link TimeRecordRepository#WHOLE_FROM} for the window.
+     */
+    private static final String CHUNK_WHOLE_FROM =
+            "date_trunc('day', CAST(:chunkStart AS TIMESTAMP) + INTERVAL '1 day' - INTERVAL '1 microsecond')";
+
+    /**
+     * Records starting on whole days of the chunk and ending on whole days of the window.
+     */
+    private static final Source CHUNK_ROLLUP_SECONDS = new Source("bucket_from",
+            "employee_id, project_id, total_seconds AS seconds " +
+            "FROM time_record_rollup " +
+            "WHERE bucket_from >= " + CHUNK_WHOLE_FROM + " AND bucket_from < :chunkEnd " +
+            "AND bucket_to < " + TimeRecordRepository.WHOLE_TO);
+
+    /**
+     * Records starting in the partial day at the beginning of the chunk (only the first chunk of a window starting
+     * mid-day has one).
+     */
+    private static final Source CHUNK_HEAD_SECONDS = new Source("date_trunc('day', time_from)",
+            "employee_id, project_id, EXTRACT(EPOCH FROM (time_to - time_from)) AS seconds " +
+            "FROM time_record " +
+            "WHERE time_from >= :chunkStart AND time_from < LEAST(" + CHUNK_WHOLE_FROM + ", :chunkEnd) " +
+            "AND time_to < :endDate");
+
+    /**
+     * Records starting on whole days of the chunk but ending in the partial day at the end of the window.
+     */
+    private static final Source CHUNK_TAIL_SECONDS = new Source("date_trunc('day', time_from)",
+            "employee_id, project_id, EXTRACT(EPOCH FROM (time_to - time_from)) AS seconds " +
+            "FROM time_record " +
+            "WHERE time_to >= " + TimeRecordRepository.WHOLE_TO + " AND time_to < :endDate " +
+            "AND time_from >= " + CHUNK_WHOLE_FROM + " AND time_from < :chunkEnd");
+
+    /**
+     * Overlap mode: the records crossing the start of the window belong to the first chunk, and count from the day
+     * the window starts.
+     */
+    private static final Source CHUNK_START_CROSSING_SECONDS = new Source(
+            "date_trunc('day', CAST(:startDate AS TIMESTAMP))",
+            "employee_id, project_id, " + TimeRecordRepository.CLIPPED_SECONDS +
+            "FROM time_record " + TimeRecordRepository.START_CROSSING_FILTER +
+            " AND CAST(:chunkStart AS TIMESTAMP) = CAST(:startDate AS TIMESTAMP)");
+
+    /**
+     * Overlap mode: the records crossing the end of the window belong to the chunk they start in.
+     */
+    private static final Source CHUNK_END_CROSSING_SECONDS = new Source("date_trunc('day', time_from)",
+            "employee_id, project_id, " + TimeRecordRepository.CLIPPED_SECONDS +
+            "FROM time_record " +
+            "WHERE tsrange(time_from, time_to, '[]') @> CAST(:endDate AS TIMESTAMP) " +
+            "AND time_from >= :chunkStart AND time_from < :chunkEnd");
+
+    /**
+     * Overlap mode with an archive: the live records crossing the start of the window, the archived ones come with
+     * the archived totals.
+     */
+    private static final Source LIVE_START_CROSSING_SECONDS = new Source(CHUNK_START_CROSSING_SECONDS.day(),
+            CHUNK_START_CROSSING_SECONDS.rest() +
+            " AND time_from >= COALESCE(CAST(:archivedBefore AS TIMESTAMP), '-infinity')");
+
+    /**
+     * The archived totals of the chunk, already restricted to the employee of the report.
+     */
+    private static final Source ARCHIVE_SECONDS = new Source("day",
+            "employee_id, project_id, seconds " +
+            "FROM unnest(CAST(:archiveDays AS TIMESTAMP[]), CAST(:archiveEmployees AS BIGINT[]), " +
+            "CAST(:archiveProjects AS BIGINT[]), CAST(:archiveSeconds AS NUMERIC[])) " +
+            "AS archive(day, employee_id, project_id, seconds)");
+
+    private ReportChunkSql() {
+    }
+
+    /**
+     * The {@code (employee_id, project_id, seconds)} rows of the records of the chunk, one per record or rollup
+     * bucket, restricted to {@code :employeeId} when {@code byEmployee} is set.
+     */
+    static String sources(ReportWindowMode windowMode, boolean byEmployee) {
+        return sources(windowMode, byEmployee, false);
+    }
+
+    /**
+     * Like {@link #sources(ReportWindowMode, boolean)}, with the midnight of the day each record starts on (clipped
+     * to the window in overlap mode) in front as {@code day} when {@code withDay} is set. A rollup bucket lies within
+     * one such day.
+     */
+    static String sources(ReportWindowMode windowMode, boolean byEmployee, boolean withDay) {
+        return sources(windowMode, byEmployee, withDay, false);
+    }
+
+    /**
+     * Like {@link #sources(ReportWindowMode, boolean, boolean)}, with the archived totals added when
+     * {@code withArchive} is set.
+     */
+    static String sources(ReportWindowMode windowMode, boolean byEmployee, boolean withDay, boolean withArchive) {
+        List<Source> sources = new ArrayList<>(List.of(CHUNK_ROLLUP_SECONDS, CHUNK_HEAD_SECONDS, CHUNK_TAIL_SECONDS));
+        if (windowMode == ReportWindowMode.OVERLAP) {
+            sources.add(withArchive ? LIVE_START_CROSSING_SECONDS : CHUNK_START_CROSSING_SECONDS);
+            sources.add(CHUNK_END_CROSSING_SECONDS);
+        }
+        String filter = byEmployee ? TimeRecordRepository.EMPLOYEE_FILTER : "";
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < sources.size(); i++) {
+            Source source = sources.get(i);
+            sql.append(i == 0 ? "" : " UNION ALL ").append("SELECT ")
+                    .append(withDay ? source.day() + " AS day, " : "").append(source.rest()).append(filter);
+        }
+        if (withArchive) {
+            sql.append(" UNION ALL SELECT ").append(withDay ? ARCHIVE_SECONDS.day() + " AS day, " : "")
+                    .append(ARCHIVE_SECONDS.rest());
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Adds the chunk to the parameters of the window, which hold {@code startDate}, {@code endDate} and
+     * {@code employeeId}. With an archive the chunk starts past it, and the archived totals of the chunk are added
+     * as the arrays read by the sources {@code withArchive}, with their days when {@code withDay} is set.
+     */
+    static MapSqlParameterSource parameters(MapSqlParameterSource parameters, TimeRecordArchive archive,
+                                            ReportWindowMode windowMode, LocalDateTime chunkStart,
+                                            LocalDateTime chunkEnd, boolean withDay) {
+        if (archive == null) {
+            return parameters.addValue("chunkStart", chunkStart).addValue("chunkEnd", chunkEnd);
+        }
+        TimeRecordArchive.ChunkTotals chunk = archive.totals(windowMode,
+                (Long) parameters.getValue("employeeId"), (LocalDateTime) parameters.getValue("startDate"),
+                (LocalDateTime) parameters.getValue("endDate"), chunkStart, chunkEnd, withDay);
+        List<TimeRecordArchive.Total> totals = chunk.totals();
+        return parameters
+                .addValue("chunkStart", chunk.liveFrom())
+                .addValue("chunkEnd", chunkEnd)
+                .addValue("archivedBefore", chunk.archivedBefore())
+                .addValue("archiveDays", withDay ? array(totals, TimeRecordArchive.Total::day) : "{}")
+                .addValue("archiveEmployees", array(totals, TimeRecordArchive.Total::employeeId))
+                .addValue("archiveProjects", array(totals, TimeRecordArchive.Total::projectId))
+                .addValue("archiveSeconds",
+                        array(totals, total -> BigDecimal.valueOf(total.micros(), 6).toPlainString()));
+    }
+
+    /**
+     * A PostgreSQL array literal of the values, which are numbers or ISO local date-times: none needs quoting.
+     */
+    private static String array(List<TimeRecordArchive.Total> totals,
+                                Function<TimeRecordArchive.Total, Object> value) {
+        StringJoiner array = new StringJoiner(",", "{", "}");
+        totals.forEach(total -> array.add(value.apply(total).toString()));
+        return array.toString();
+    }
+
+    /**
+     * A source query: {@code SELECT}, the day expression when asked for, then {@code rest}, which are the other
+     * columns, FROM and WHERE.
+     */
+    private record Source(String day, String rest) {
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.constant.ReportDimension;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Compiles a {@link ReportDefinition} into one query: the records of the window are read once, as by the report
+ * queries ({@link ReportChunkSql} over a single chunk), and {@code GROUP BY GROUPING SETS} adds them up at every level
+ * of the definition in the same pass. The rows come ordered by the dimensions in the order of the definition, each
+ * subtotal after the rows it adds up. A window reaching into the {@link TimeRecordArchive} reads its archived totals
+ * by day, so that they fall into their periods.
+ */
+final class ReportDefinitionSql {
+
+    private ReportDefinitionSql() {
+    }
+
+    static String sql(ReportDefinition definition, ReportWindowMode windowMode) {
+        return sql(definition, windowMode, false);
+    }
+
+    static String sql(ReportDefinition definition, ReportWindowMode windowMode, boolean withArchive) {
+        List<ReportDimension> keys = keys(definition);
+        StringJoiner select = new StringJoiner(", ", "SELECT ", ", ").setEmptyValue("SELECT ");
+        StringJoiner grouping = new StringJoiner(", ", "GROUPING(", ") AS grouping_id, ")
+                .setEmptyValue("0 AS grouping_id, ");
+        StringJoiner order = new StringJoiner(", ", " ORDER BY ", "").setEmptyValue("");
+        for (ReportDimension dimension : keys) {
+            select.add(columns(dimension));
+            grouping.add(key(dimension));
+            // ascending puts the nulls of the subtotals after the rows they add up
+            order.add(switch (dimension) {
+                case EMPLOYEE -> "e.name, e.id";
+                case PROJECT -> "p.name, p.id";
+                case PERIOD -> "h.period";
+            });
+        }
+        StringJoiner groupingSets = new StringJoiner(", ", " GROUP BY GROUPING SETS (", ")");
+        for (Set<ReportDimension> set : definition.groupingSets()) {
+            StringJoiner setKeys = new StringJoiner(", ", "(", ")");
+            keys.stream().filter(set::contains).forEach(dimension -> setKeys.add(groupKeys(dimension)));
+            groupingSets.add(setKeys.toString());
+        }
+        String period = keys.contains(ReportDimension.PERIOD)
+                ? ", CAST(date_trunc('" + definition.timeBucket().getUnit() + "', day) AS DATE) AS period" : "";
+        // the grand total of a window without records is a row too
+        return select + grouping.toString() + "COALESCE(SUM(h.seconds) / 3600, 0) AS total_hours " +
+                "FROM (SELECT employee_id, project_id, seconds" + period + " FROM (" +
+                ReportChunkSql.sources(windowMode, definition.employeeId() != null,
+                        keys.contains(ReportDimension.PERIOD), withArchive) +
+                ") s) h" +
+                (keys.contains(ReportDimension.EMPLOYEE) ? " JOIN employee e ON h.employee_id = e.id" : "") +
+                (keys.contains(ReportDimension.PROJECT) ? " JOIN project p ON h.project_id = p.id" : "") +
+                groupingSets + order + " LIMIT :limit";
+    }
+
+    /**
+     * The parameters of the query, for the window as one chunk and at most {@code limit} rows.
+     */
+    static MapSqlParameterSource parameters(ReportDefinition definition, int limit) {
+        return parameters(definition, limit, null, ReportWindowMode.CONTAINED);
+    }
+
+    /**
+     * Like {@link #parameters(ReportDefinition, int)}, with the archived totals of the window when {@code archive} is
+     * set.
+     */
+    static MapSqlParameterSource parameters(ReportDefinition definition, int limit, TimeRecordArchive archive,
+                                            ReportWindowMode windowMode) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("startDate", definition.startDate())
+                .addValue("endDate", definition.endDate())
+                .addValue("employeeId", definition.employeeId())
+                .addValue("limit", limit);
+        return ReportChunkSql.parameters(parameters, archive, windowMode, definition.startDate(),
+                definition.endDate(), keys(definition).contains(ReportDimension.PERIOD));
+    }
+
+    static RowMapper<ReportRowDTO> rowMapper(ReportDefinition definition) {
+        List<ReportDimension> dimensions = keys(definition);
+        return (rs, rowNum) -> {
+            // GROUPING sets the bit of each key left out, the last key in the lowest bit
+            int groupingId = rs.getInt("grouping_id");
+            Set<ReportDimension> groupedBy = EnumSet.noneOf(ReportDimension.class);
+            for (int i = 0; i < dimensions.size(); i++) {
+                if ((groupingId & (1 << (dimensions.size() - 1 - i))) == 0) {
+                    groupedBy.add(dimensions.get(i));
+                }
+            }
+            boolean byEmployee = groupedBy.contains(ReportDimension.EMPLOYEE);
+            boolean byProject = groupedBy.contains(ReportDimension.PROJECT);
+            return new ReportRowDTO(
+                    byEmployee ? rs.getLong("employee_id") : null,
+                    byEmployee ? rs.getString("employee_name") : null,
+                    byProject ? rs.getLong("project_id") : null,
+                    byProject ? rs.getString("project_name") : null,
+                    groupedBy.contains(ReportDimension.PERIOD) ? rs.getObject("period", LocalDate.class) : null,
+                    rs.getBigDecimal("total_hours"),
+                    Collections.unmodifiableSet(groupedBy));
+        };
+    }
+
+    /**
+     * The dimensions of the definition that some grouping set has, in their order: the others would never be
+     * filled in.
+     */
+    private static List<ReportDimension> keys(ReportDefinition definition) {
+        return definition.dimensions().stream()
+                .filter(dimension -> definition.groupingSets().stream().anyMatch(set -> set.contains(dimension)))
+                .toList();
+    }
+
+    private static String columns(ReportDimension dimension) {
+        return switch (dimension) {
+            case EMPLOYEE -> "e.id AS employee_id, e.name AS employee_name";
+            case PROJECT -> "p.id AS project_id, p.name AS project_name";
+            case PERIOD -> "h.period";
+        };
+    }
+
+    private static String groupKeys(ReportDimension dimension) {
+        return switch (dimension) {
+            case EMPLOYEE -> "e.id, e.name";
+            case PROJECT -> "p.id, p.name";
+            case PERIOD -> "h.period";
+        };
+    }
+
+    private static String key(ReportDimension dimension) {
+        return switch (dimension) {
+            case EMPLOYEE -> "e.id";
+            case PROJECT -> "p.id";
+            case PERIOD -> "h.period";
+        };
+    }
+}
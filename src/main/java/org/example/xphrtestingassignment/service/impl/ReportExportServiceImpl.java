@@ -0,0 +1,186 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.metrics.ReportMetrics;
+import org.example.xphrtestingassignment.repository.TimeRecordRepository;
+import org.example.xphrtestingassignment.service.ReportExportService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Streams the report and the time records of a window from a database cursor, in a {@link ReportBulkhead} export
+ * slot: the transaction, and with it the connection, is taken once the export is admitted and held until the last
+ * row is written. A report reaching into the {@link TimeRecordArchive} adds its archived totals (see
+ * {@link ArchiveReportSql}); the time records are those of time_record only, the archived months keep their totals
+ * but not their records.
+ */
+@Slf4j
+@Service
+public class ReportExportServiceImpl implements ReportExportService {
+
+    private static final String REPORT_SQL = TimeRecordRepository.REPORT_COLUMNS + TimeRecordRepository.REPORT_SOURCE +
+            TimeRecordRepository.REPORT_GROUPING + TimeRecordRepository.REPORT_ORDER;
+
+    private static final String EMPLOYEE_REPORT_SQL = TimeRecordRepository.REPORT_COLUMNS +
+            TimeRecordRepository.EMPLOYEE_REPORT_SOURCE + TimeRecordRepository.REPORT_GROUPING +
+            TimeRecordRepository.REPORT_ORDER;
+
+    private static final String OVERLAP_REPORT_SQL = TimeRecordRepository.REPORT_COLUMNS +
+            TimeRecordRepository.OVERLAP_REPORT_SOURCE + TimeRecordRepository.REPORT_GROUPING +
+            TimeRecordRepository.REPORT_ORDER;
+
+    private static final String EMPLOYEE_OVERLAP_REPORT_SQL = TimeRecordRepository.REPORT_COLUMNS +
+            TimeRecordRepository.EMPLOYEE_OVERLAP_REPORT_SOURCE + TimeRecordRepository.REPORT_GROUPING +
+            TimeRecordRepository.REPORT_ORDER;
+
+    private static final String TIME_RECORDS_SQL = "SELECT tr.id, e.name AS employee_name, p.name AS project_name," +
+            " tr.time_from, tr.time_to " +
+            "FROM time_record tr " +
+            " JOIN employee e ON tr.employee_id = e.id " +
+            " JOIN project p ON tr.project_id = p.id " +
+            "WHERE tr.time_from >= :startDate " +
+            "AND tr.time_from < :endDate " +
+            "AND tr.time_to < :endDate ";
+
+    // the records overlapping the window as they are, not clipped; time_from < endDate prunes the partitions
+    private static final String OVERLAPPING_TIME_RECORDS_SQL = "SELECT tr.id, e.name AS employee_name," +
+            " p.name AS project_name, tr.time_from, tr.time_to " +
+            "FROM time_record tr " +
+            " JOIN employee e ON tr.employee_id = e.id " +
+            " JOIN project p ON tr.project_id = p.id " +
+            "WHERE tsrange(tr.time_from, tr.time_to, '[]')" +
+            " && tsrange(CAST(:startDate AS TIMESTAMP), CAST(:endDate AS TIMESTAMP)) " +
+            "AND tr.time_from < :endDate " +
+            "AND tr.time_to > :startDate ";
+
+    private static final String EMPLOYEE_FILTER = "AND tr.employee_id = :employeeId ";
+
+    private static final String TIME_RECORDS_ORDER = "ORDER BY tr.time_from, tr.id";
+
+    private static final String[] REPORT_COLUMNS = {"employeeName", "projectName", "totalHours"};
+    private static final String[] TIME_RECORD_COLUMNS = {"id", "employeeName", "projectName", "timeFrom", "timeTo"};
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ReportWindowMode windowMode;
+    private final ObjectProvider<TimeRecordArchive> timeRecordArchive;
+    private final ReportBulkhead reportBulkhead;
+    private final TransactionTemplate transactionTemplate;
+
+    public ReportExportServiceImpl(DataSource dataSource,
+                                   @Value("${report.export.fetch-size:1000}") int fetchSize,
+                                   @Value("${report.window-mode:CONTAINED}") ReportWindowMode windowMode,
+                                   ObjectProvider<TimeRecordArchive> timeRecordArchive,
+                                   ReportBulkhead reportBulkhead,
+                                   PlatformTransactionManager transactionManager) {
+        // within a transaction the PostgreSQL driver reads through a cursor, fetchSize rows at a time
+        JdbcTemplate cursorTemplate = new JdbcTemplate(dataSource);
+        cursorTemplate.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(cursorTemplate);
+        this.windowMode = windowMode;
+        this.timeRecordArchive = timeRecordArchive;
+        this.reportBulkhead = reportBulkhead;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public long exportReport(Long employeeId, LocalDateTime startDate, LocalDateTime endDate,
+                             DataFormat format, OutputStream out) throws IOException {
+        TimeRecordArchive archive = timeRecordArchive.getIfAvailable();
+        if (archive != null && archive.reaches(windowMode, startDate, endDate)) {
+            return export(ArchiveReportSql.reportSql(windowMode, employeeId),
+                    ArchiveReportSql.parameters(archive, windowMode, employeeId, startDate, endDate),
+                    format, out, REPORT_COLUMNS, ReportExportServiceImpl::reportRow);
+        }
+        boolean overlap = windowMode == ReportWindowMode.OVERLAP;
+        String sql = employeeId == null
+                ? (overlap ? OVERLAP_REPORT_SQL : REPORT_SQL)
+                : (overlap ? EMPLOYEE_OVERLAP_REPORT_SQL : EMPLOYEE_REPORT_SQL);
+        return export(sql, parameters(employeeId, startDate, endDate), format, out, REPORT_COLUMNS,
+                ReportExportServiceImpl::reportRow);
+    }
+
+    private static Object[] reportRow(ResultSet rs) throws SQLException {
+        return new Object[]{rs.getString(1), rs.getString(2), rs.getBigDecimal(3).setScale(2, RoundingMode.HALF_UP)};
+    }
+
+    @Override
+    public long exportTimeRecords(Long employeeId, LocalDateTime startDate, LocalDateTime endDate,
+                                  DataFormat format, OutputStream out) throws IOException {
+        String source = windowMode == ReportWindowMode.OVERLAP ? OVERLAPPING_TIME_RECORDS_SQL : TIME_RECORDS_SQL;
+        String sql = source + (employeeId == null ? "" : EMPLOYEE_FILTER) + TIME_RECORDS_ORDER;
+        return export(sql, parameters(employeeId, startDate, endDate), format, out, TIME_RECORD_COLUMNS, rs -> new Object[]{
+                rs.getLong(1), rs.getString(2), rs.getString(3),
+                rs.getObject(4, LocalDateTime.class), rs.getObject(5, LocalDateTime.class)});
+    }
+
+    private long export(String sql, MapSqlParameterSource parameters, DataFormat format, OutputStream out,
+                        String[] columns, RowExtractor extractor) throws IOException {
+        try {
+            Long rows = reportBulkhead.callExport(() -> ReportMetrics.tagQueries("export", () ->
+                    transactionTemplate.execute(status -> {
+                        try {
+                            return stream(sql, parameters, format, out, columns, extractor);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })));
+            return rows == null ? 0 : rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long stream(String sql, MapSqlParameterSource parameters, DataFormat format, OutputStream out,
+                        String[] columns, RowExtractor extractor) throws IOException {
+        RowWriter writer = RowWriter.of(format, out);
+        long[] rows = {0};
+        try {
+            writer.start(columns);
+            jdbcTemplate.query(sql, parameters, rs -> {
+                try {
+                    writer.write(extractor.extract(rs));
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            // typically the client went away, stop reading from the cursor
+            throw e.getCause();
+        }
+        log.debug("exported {} rows as {}", rows[0], format);
+        return rows[0];
+    }
+
+    private static MapSqlParameterSource parameters(Long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
+        return new MapSqlParameterSource()
+                .addValue("employeeId", employeeId)
+                .addValue("startDate", startDate)
+                .addValue("endDate", endDate);
+    }
+
+    @FunctionalInterface
+    private interface RowExtractor {
+        Object[] extract(ResultSet rs) throws SQLException;
+    }
+}
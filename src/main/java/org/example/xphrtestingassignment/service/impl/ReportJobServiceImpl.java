@@ -0,0 +1,221 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.constant.ReportGrouping;
+import org.example.xphrtestingassignment.constant.ReportJobStatus;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.entity.ReportJob;
+import org.example.xphrtestingassignment.exception.ReportCapacityExceededException;
+import org.example.xphrtestingassignment.repository.ReportJobRepository;
+import org.example.xphrtestingassignment.service.ReportJobService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Runs report jobs on a fixed number of threads ({@code report.job.threads}) with a bounded queue. A running job
+ * holds at most one report bulkhead slot at a time and gives way to page loads and exports before taking one (see
+ * {@link ReportJobWorker}), so the threads should stay well below {@code report.bulkhead.max-concurrent}. Jobs found
+ * unfinished on start, interrupted by a shutdown or a crash, are queued again and continue from their checkpoint.
+ */
+@Slf4j
+@Service
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private final ReportJobRepository reportJobRepository;
+    private final ReportJobWorker reportJobWorker;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReportWindowMode windowMode;
+    private final ThreadPoolExecutor executor;
+    private final Map<UUID, Set<Consumer<ReportJob>>> listeners = new ConcurrentHashMap<>();
+
+    public ReportJobServiceImpl(ReportJobRepository reportJobRepository,
+                                ReportJobWorker reportJobWorker,
+                                JdbcTemplate jdbcTemplate,
+                                @Value("${report.window-mode:CONTAINED}") ReportWindowMode windowMode,
+                                @Value("${report.job.threads:2}") int threads,
+                                @Value("${report.job.queue-capacity:100}") int queueCapacity,
+                                MeterRegistry meterRegistry) {
+        this.reportJobRepository = reportJobRepository;
+        this.reportJobWorker = reportJobWorker;
+        this.jdbcTemplate = jdbcTemplate;
+        this.windowMode = windowMode;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("report.job.running", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Report jobs running")
+                .register(meterRegistry);
+        Gauge.builder("report.job.queued", executor, e -> e.getQueue().size())
+                .description("Report jobs waiting for a job thread")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ReportJob submit(String username, Long employeeId, LocalDateTime startDate, LocalDateTime endDate,
+                            ReportGrouping grouping, DataFormat format) {
+        if (!startDate.isBefore(endDate)) {
+            throw new IllegalArgumentException("The start date must be before the end date");
+        }
+        ReportJob job = reportJobRepository.save(ReportJob.builder()
+                .id(UUID.randomUUID())
+                .username(username)
+                .employeeId(employeeId)
+                .startDate(startDate)
+                .endDate(endDate)
+                .windowMode(windowMode)
+                .grouping(grouping)
+                .format(format)
+                .status(ReportJobStatus.QUEUED)
+                .chunksTotal(ReportJobWorker.chunks(startDate, endDate).size())
+                .createdAt(LocalDateTime.now())
+                .build());
+        try {
+            executor.execute(() -> run(job.getId()));
+        } catch (RejectedExecutionException e) {
+            reportJobRepository.delete(job);
+            throw new ReportCapacityExceededException("The report job queue is full, try again later");
+        }
+        log.info("user: {} submitted report job {} from {} to {} ({} chunks)",
+                username, job.getId(), startDate, endDate, job.getChunksTotal());
+        return job;
+    }
+
+    @Override
+    public Optional<ReportJob> findJob(UUID id) {
+        return reportJobRepository.findById(id);
+    }
+
+    @Override
+    public void writeResult(UUID id, OutputStream out, boolean compressed) throws IOException {
+        try {
+            jdbcTemplate.query("SELECT content FROM report_job_result WHERE job_id = ?", rs -> {
+                if (!rs.next()) {
+                    throw new IllegalStateException("Report job " + id + " has no result");
+                }
+                try (InputStream content = compressed
+                        ? rs.getBinaryStream(1)
+                        : new GZIPInputStream(rs.getBinaryStream(1), 64 * 1024)) {
+                    content.transferTo(out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            }, id);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void addListener(UUID id, Consumer<ReportJob> listener) {
+        listeners.computeIfAbsent(id, key -> new CopyOnWriteArraySet<>()).add(listener);
+    }
+
+    @Override
+    public void removeListener(UUID id, Consumer<ReportJob> listener) {
+        listeners.computeIfPresent(id, (key, jobListeners) -> {
+            jobListeners.remove(listener);
+            return jobListeners.isEmpty() ? null : jobListeners;
+        });
+    }
+
+    /**
+     * Queues the jobs a previous run left unfinished, oldest first.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<ReportJob> unfinished = reportJobRepository.findByStatusInOrderByCreatedAt(
+                List.of(ReportJobStatus.QUEUED, ReportJobStatus.RUNNING));
+        for (ReportJob job : unfinished) {
+            try {
+                executor.execute(() -> run(job.getId()));
+            } catch (RejectedExecutionException e) {
+                log.warn("report job queue is full, {} unfinished jobs wait for the next start",
+                        unfinished.size() - unfinished.indexOf(job));
+                break;
+            }
+            log.info("resuming report job {} at chunk {} of {}", job.getId(), job.getChunksDone() + 1,
+                    job.getChunksTotal());
+        }
+    }
+
+    /**
+     * Deletes the jobs whose result outlived {@code report.job.result-ttl}.
+     */
+    @Scheduled(cron = "${report.job.purge-cron:0 */15 * * * *}")
+    @Transactional
+    public void purgeExpiredJobs() {
+        int purged = reportJobRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("purged {} expired report jobs", purged);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // interrupts the running jobs, which stop at their last checkpoint
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void run(UUID id) {
+        try {
+            reportJobWorker.run(id, this::notifyListeners);
+        } catch (RuntimeException e) {
+            log.error("report job {} stopped", id, e);
+        } finally {
+            if (!Thread.currentThread().isInterrupted()) {
+                listeners.remove(id);
+            }
+        }
+    }
+
+    private void notifyListeners(ReportJob job) {
+        Set<Consumer<ReportJob>> jobListeners = listeners.get(job.getId());
+        if (jobListeners == null) {
+            return;
+        }
+        for (Consumer<ReportJob> listener : jobListeners) {
+            try {
+                listener.accept(job);
+            } catch (RuntimeException e) {
+                log.debug("report job {} listener failed: {}", job.getId(), e.getMessage());
+                removeListener(job.getId(), listener);
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.constant.ReportGrouping;
+import org.example.xphrtestingassignment.constant.ReportJobStatus;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.entity.ReportJob;
+import org.example.xphrtestingassignment.exception.ReportCapacityExceededException;
+import org.example.xphrtestingassignment.metrics.ReportMetrics;
+import org.example.xphrtestingassignment.repository.ReportJobRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Computes a report job one calendar month of its window at a time. Each month is added to the job's running
+ * totals in report_job_total (one row per employee and project) in the same transaction that moves the job's
+ * checkpoint, so a job interrupted by a restart resumes with the first month it had not added yet. Once all months
+ * are in, the totals are grouped into the result rows, stored gzip compressed in report_job_result, and dropped.
+ * <p>
+ * A month belongs to the records starting in it, the same split as the partitions of time_record: every record of
+ * the window is added exactly once even when it crosses into the next month, and the totals match the interactive
+ * report of the whole window (see {@link ReportChunkSql}). Each month takes a report bulkhead slot for its one
+ * statement, after giving way to the report page loads and exports in progress. The archived totals of a month
+ * reaching into the {@link TimeRecordArchive} are added in the same statement.
+ */
+@Slf4j
+@Component
+public class ReportJobWorker {
+
+    private static final String ADD_CHUNK_PREFIX =
+            "INSERT INTO report_job_total AS t (job_id, employee_id, project_id, seconds) " +
+            "SELECT :jobId, employee_id, project_id, SUM(seconds) FROM (";
+
+    private static final String ADD_CHUNK_SUFFIX = ") h " +
+            "GROUP BY employee_id, project_id " +
+            "ON CONFLICT (job_id, employee_id, project_id) DO UPDATE SET seconds = t.seconds + EXCLUDED.seconds";
+
+    private static final String TOTALS_SOURCE = "FROM report_job_total t " +
+            " JOIN employee e ON t.employee_id = e.id " +
+            " JOIN project p ON t.project_id = p.id " +
+            "WHERE t.job_id = :jobId ";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReportJobRepository reportJobRepository;
+    private final ReportBulkhead reportBulkhead;
+    private final ReportMetrics reportMetrics;
+    private final ObjectProvider<TimeRecordArchive> timeRecordArchive;
+    private final Duration resultTtl;
+    private final Duration yieldInterval;
+    private final Duration maxYield;
+
+    public ReportJobWorker(NamedParameterJdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           ReportJobRepository reportJobRepository,
+                           ReportBulkhead reportBulkhead,
+                           ReportMetrics reportMetrics,
+                           ObjectProvider<TimeRecordArchive> timeRecordArchive,
+                           @Value("${report.job.result-ttl:PT24H}") Duration resultTtl,
+                           @Value("${report.job.yield-interval:PT0.05S}") Duration yieldInterval,
+                           @Value("${report.job.max-yield:PT2S}") Duration maxYield) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.reportJobRepository = reportJobRepository;
+        this.reportBulkhead = reportBulkhead;
+        this.reportMetrics = reportMetrics;
+        this.timeRecordArchive = timeRecordArchive;
+        this.resultTtl = resultTtl;
+        this.yieldInterval = yieldInterval;
+        this.maxYield = maxYield;
+    }
+
+    /**
+     * Runs the job from its checkpoint to the stored result, reporting the job after every chunk and once it is
+     * finished. A job interrupted by a shutdown is left as it is, to resume on the next start. Jobs that are gone
+     * (expired) or already finished are skipped.
+     */
+    public void run(UUID jobId, Consumer<ReportJob> progress) {
+        ReportJob job = reportJobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus().isFinished()) {
+            return;
+        }
+        List<Chunk> chunks = chunks(job.getStartDate(), job.getEndDate());
+        job.setStatus(ReportJobStatus.RUNNING);
+        reportJobRepository.save(job);
+        progress.accept(job);
+        try {
+            for (int chunk = job.getChunksDone(); chunk < chunks.size(); chunk++) {
+                addChunk(job, chunk, chunks.get(chunk));
+                job.setChunksDone(chunk + 1);
+                progress.accept(job);
+            }
+            awaitSlot(() -> finish(job));
+            log.info("report job {} done: {} rows, {} bytes", job.getId(), job.getResultRows(), job.getResultBytes());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("report job {} interrupted after {} of {} chunks, resumes on the next start",
+                    job.getId(), job.getChunksDone(), job.getChunksTotal());
+            return;
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // the database went away with the shutdown
+                log.info("report job {} interrupted after {} of {} chunks, resumes on the next start",
+                        job.getId(), job.getChunksDone(), job.getChunksTotal());
+                return;
+            }
+            log.error("report job {} failed", job.getId(), e);
+            fail(job, e);
+        }
+        progress.accept(job);
+    }
+
+    /**
+     * The calendar months of the window {@code [startDate, endDate)}, the first and the last one cut to the window.
+     */
+    static List<Chunk> chunks(LocalDateTime startDate, LocalDateTime endDate) {
+        List<Chunk> chunks = new ArrayList<>();
+        LocalDateTime chunkStart = startDate;
+        while (chunkStart.isBefore(endDate)) {
+            LocalDateTime nextMonth = chunkStart.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay();
+            LocalDateTime chunkEnd = nextMonth.isBefore(endDate) ? nextMonth : endDate;
+            chunks.add(new Chunk(chunkStart, chunkEnd));
+            chunkStart = chunkEnd;
+        }
+        return chunks;
+    }
+
+    private void addChunk(ReportJob job, int chunk, Chunk range) throws InterruptedException {
+        TimeRecordArchive archive = timeRecordArchive.getIfAvailable();
+        String sql = addChunkSql(job.getWindowMode(), job.getEmployeeId() != null, archive != null);
+        awaitSlot(() -> transactionTemplate.executeWithoutResult(status -> {
+            // the checkpoint first: its row lock makes a second run of the same chunk wait and then skip it
+            if (reportJobRepository.checkpoint(job.getId(), chunk) == 1) {
+                jdbcTemplate.update(sql, ReportChunkSql.parameters(parameters(job), archive, job.getWindowMode(),
+                        range.start(), range.end(), false));
+            } else {
+                log.warn("report job {} chunk {} was already added", job.getId(), chunk);
+            }
+        }));
+        log.debug("report job {} added chunk {} of {} ({} - {})",
+                job.getId(), chunk + 1, job.getChunksTotal(), range.start(), range.end());
+    }
+
+    /**
+     * Runs the statement in a report bulkhead slot once no interactive report request is in progress, but after
+     * {@code max-yield} at the latest, so that jobs still move on under steady interactive load.
+     */
+    private void awaitSlot(Runnable statement) throws InterruptedException {
+        while (true) {
+            long giveWayUntil = System.nanoTime() + maxYield.toNanos();
+            while (reportMetrics.getActiveRequests() > 0 && System.nanoTime() - giveWayUntil < 0) {
+                Thread.sleep(yieldInterval.toMillis());
+            }
+            try {
+                reportBulkhead.call(() -> ReportMetrics.tagQueries("job", () -> {
+                    statement.run();
+                    return null;
+                }));
+                return;
+            } catch (ReportCapacityExceededException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException(e.getMessage());
+                }
+                log.debug("report job waits for a report slot: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void finish(ReportJob job) {
+        transactionTemplate.executeWithoutResult(status -> {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            long rows = writeResult(job, content);
+            byte[] bytes = content.toByteArray();
+            jdbcTemplate.update("INSERT INTO report_job_result (job_id, content) VALUES (:jobId, :content)",
+                    parameters(job).addValue("content", bytes));
+            jdbcTemplate.update("DELETE FROM report_job_total WHERE job_id = :jobId", parameters(job));
+
+            LocalDateTime now = LocalDateTime.now();
+            job.setStatus(ReportJobStatus.DONE);
+            job.setResultRows(rows);
+            job.setResultBytes((long) bytes.length);
+            job.setFinishedAt(now);
+            job.setExpiresAt(now.plus(resultTtl));
+            reportJobRepository.save(job);
+        });
+    }
+
+    private long writeResult(ReportJob job, ByteArrayOutputStream content) {
+        ReportGrouping grouping = job.getGrouping();
+        List<String> columns = new ArrayList<>(grouping.getKeyColumns());
+        columns.add("totalHours");
+        int keys = grouping.getKeyColumns().size();
+        long[] rows = {0};
+        try (GZIPOutputStream out = new GZIPOutputStream(content, 64 * 1024)) {
+            RowWriter writer = RowWriter.of(job.getFormat(), out);
+            writer.start(columns.toArray(String[]::new));
+            jdbcTemplate.query(resultSql(grouping), parameters(job), rs -> {
+                Object[] values = new Object[keys + 1];
+                for (int i = 0; i < keys; i++) {
+                    values[i] = rs.getString(i + 1);
+                }
+                values[keys] = rs.getBigDecimal(keys + 1).setScale(2, RoundingMode.HALF_UP);
+                try {
+                    writer.write(values);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+            writer.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows[0];
+    }
+
+    private void fail(ReportJob job, Exception cause) {
+        String message = cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+        LocalDateTime now = LocalDateTime.now();
+        job.setStatus(ReportJobStatus.FAILED);
+        job.setError(message.length() > 500 ? message.substring(0, 500) : message);
+        job.setFinishedAt(now);
+        job.setExpiresAt(now.plus(resultTtl));
+        try {
+            reportJobRepository.save(job);
+        } catch (RuntimeException e) {
+            log.error("could not record the failure of report job {}", job.getId(), e);
+        }
+    }
+
+    static String addChunkSql(ReportWindowMode windowMode, boolean byEmployee) {
+        return addChunkSql(windowMode, byEmployee, false);
+    }
+
+    static String addChunkSql(ReportWindowMode windowMode, boolean byEmployee, boolean withArchive) {
+        return ADD_CHUNK_PREFIX + ReportChunkSql.sources(windowMode, byEmployee, false, withArchive) +
+                ADD_CHUNK_SUFFIX;
+    }
+
+    private static String resultSql(ReportGrouping grouping) {
+        String keys = switch (grouping) {
+            case EMPLOYEE_PROJECT -> "e.name, p.name";
+            case EMPLOYEE -> "e.name";
+            case PROJECT -> "p.name";
+        };
+        return "SELECT " + keys + ", SUM(t.seconds) / 3600 " + TOTALS_SOURCE +
+                "GROUP BY " + keys + " ORDER BY " + keys;
+    }
+
+    private static MapSqlParameterSource parameters(ReportJob job) {
+        return new MapSqlParameterSource()
+                .addValue("jobId", job.getId())
+                .addValue("employeeId", job.getEmployeeId())
+                .addValue("startDate", job.getStartDate())
+                .addValue("endDate", job.getEndDate());
+    }
+
+    /**
+     * A month of the window, {@code [start, end)}.
+     */
+    record Chunk(LocalDateTime start, LocalDateTime end) {
+    }
+}
@@ -1,22 +1,87 @@
 package org.example.xphrtestingassignment.service.impl;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.columnar.ColumnarReportEngine;
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.datasource.ReplicaRouter;
+import org.example.xphrtestingassignment.dto.ReportCursor;
 import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
+import org.example.xphrtestingassignment.exception.ReportTooLargeException;
+import org.example.xphrtestingassignment.metrics.ReportMetrics;
 import org.example.xphrtestingassignment.repository.TimeRecordRepository;
 import org.example.xphrtestingassignment.service.ReportService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Reads the report from {@link TimeRecordRepository}, or from the in-memory {@link ColumnarReportEngine} once it is
+ * enabled and loaded. Database reads are limited by the {@link ReportBulkhead} and run on a read replica when the
+ * {@link ReplicaRouter} finds one that may serve the window; the engine needs no connection. Long windows read from
+ * the primary are split into sub-ranges queried in parallel when {@code report.parallel.enabled} is set (see
+ * {@link ParallelReportExecutor}).
+ * Report definitions ({@link #getReport(ReportDefinition)}) are always a single query, see
+ * {@link ReportDefinitionSql}.
+ * A window reaching into the {@link TimeRecordArchive} is always read from the database, the archived totals added
+ * to the live records in the same query (see {@link ArchiveReportSql}): the engine and the sub-range queries only
+ * know the live records.
+ * {@code report.window-mode} selects whether records crossing an edge of the window are left out or clipped
+ * (see {@link ReportWindowMode}).
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ReportServiceImpl implements ReportService {
 
     private final TimeRecordRepository timeRecordRepository;
+    private final ReportBulkhead reportBulkhead;
+    private final ReportMetrics reportMetrics;
+    private final ObjectProvider<ColumnarReportEngine> columnarReportEngine;
+    private final ObjectProvider<ParallelReportExecutor> parallelReportExecutor;
+    private final ObjectProvider<TimeRecordArchive> timeRecordArchive;
+    private final ReplicaRouter replicaRouter;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ReportWindowMode windowMode;
+    private final int definitionMaxRows;
+
+    public ReportServiceImpl(TimeRecordRepository timeRecordRepository,
+                             ReportBulkhead reportBulkhead,
+                             ReportMetrics reportMetrics,
+                             ObjectProvider<ColumnarReportEngine> columnarReportEngine,
+                             ObjectProvider<ParallelReportExecutor> parallelReportExecutor,
+                             ObjectProvider<TimeRecordArchive> timeRecordArchive,
+                             ReplicaRouter replicaRouter,
+                             NamedParameterJdbcTemplate jdbcTemplate,
+                             @Value("${report.window-mode:CONTAINED}") ReportWindowMode windowMode,
+                             @Value("${report.definition.max-rows:100000}") int definitionMaxRows) {
+        this.timeRecordRepository = timeRecordRepository;
+        this.reportBulkhead = reportBulkhead;
+        this.reportMetrics = reportMetrics;
+        this.columnarReportEngine = columnarReportEngine;
+        this.parallelReportExecutor = parallelReportExecutor;
+        this.timeRecordArchive = timeRecordArchive;
+        this.replicaRouter = replicaRouter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.windowMode = windowMode;
+        this.definitionMaxRows = definitionMaxRows;
+    }
 
     @Override
     public Page<ReportDTO> getReportData(LocalDateTime startDate,
@@ -24,15 +89,197 @@ public class ReportServiceImpl implements ReportService {
                                          Pageable pageable) {
         // testing purpose
         //        return timeRecordRepository.findAll();
-        return timeRecordRepository.findAllBetweenStartDateAndEndDate(startDate, endDate, pageable);
+        return reportMetrics.recordService("page", UserRoles.ADMIN, () -> archived(startDate, endDate, archive ->
+                        ArchiveReportSql.page(jdbcTemplate, archive, windowMode, null, startDate, endDate, pageable))
+                .or(() -> columnar().flatMap(records -> records.page(windowMode, null, startDate, endDate, pageable)))
+                .orElseGet(() -> query(null, startDate, endDate, merged -> page(merged, pageable), () -> overlap()
+                        ? toPage(timeRecordRepository.findAllOverlappingStartDateAndEndDate(startDate, endDate,
+                                pageable), pageable,
+                                () -> timeRecordRepository.countOverlappingStartDateAndEndDate(startDate, endDate))
+                        : toPage(timeRecordRepository.findAllBetweenStartDateAndEndDate(startDate, endDate,
+                                pageable), pageable,
+                                () -> timeRecordRepository.countBetweenStartDateAndEndDate(startDate, endDate)))),
+                Page::getNumberOfElements);
     }
 
     @Override
     public Page<ReportDTO> getReportDataForSpecificEmployee(
-            String username,
+            long employeeId,
             LocalDateTime startDate,
             LocalDateTime endDate,
             Pageable pageable) {
-        return timeRecordRepository.findAllByEmployeeAndDateRange(username, startDate, endDate, pageable);
+        return reportMetrics.recordService("page", UserRoles.EMPLOYEE, () -> archived(startDate, endDate, archive ->
+                        ArchiveReportSql.page(jdbcTemplate, archive, windowMode, employeeId, startDate, endDate,
+                                pageable))
+                .or(() -> columnar(employeeId)
+                        .flatMap(records -> records.page(windowMode, employeeId, startDate, endDate, pageable)))
+                .orElseGet(() -> query(employeeId, startDate, endDate, merged -> page(merged, pageable), () -> overlap()
+                        ? toPage(timeRecordRepository.findAllByEmployeeOverlappingDateRange(
+                                employeeId, startDate, endDate, pageable), pageable,
+                                () -> timeRecordRepository.countByEmployeeOverlappingDateRange(
+                                        employeeId, startDate, endDate))
+                        : toPage(timeRecordRepository.findAllByEmployeeAndDateRange(
+                                employeeId, startDate, endDate, pageable), pageable,
+                                () -> timeRecordRepository.countByEmployeeAndDateRange(
+                                        employeeId, startDate, endDate)))),
+                Page::getNumberOfElements);
+    }
+
+    @Override
+    public Slice<ReportDTO> getReportDataAfter(LocalDateTime startDate,
+                                              LocalDateTime endDate,
+                                              ReportCursor after,
+                                              int size) {
+        // fetch one extra row to know whether there is a next slice without counting
+        return reportMetrics.recordService("slice", UserRoles.ADMIN, () -> toSlice(archived(startDate, endDate,
+                        archive -> ArchiveReportSql.slice(jdbcTemplate, archive, windowMode, null, startDate, endDate,
+                                after, size + 1))
+                .or(() -> columnar()
+                        .flatMap(records -> records.slice(windowMode, null, startDate, endDate, after, size + 1)))
+                .orElseGet(() -> query(null, startDate, endDate, merged -> merged.slice(after, size + 1),
+                        () -> overlap()
+                                ? timeRecordRepository.findSliceOverlappingStartDateAndEndDate(
+                                        startDate, endDate, employeeOf(after), projectOf(after), size + 1)
+                                : timeRecordRepository.findSliceBetweenStartDateAndEndDate(
+                                        startDate, endDate, employeeOf(after), projectOf(after), size + 1))),
+                        size),
+                Slice::getNumberOfElements);
+    }
+
+    @Override
+    public Slice<ReportDTO> getReportDataForSpecificEmployeeAfter(
+            long employeeId,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            ReportCursor after,
+            int size) {
+        return reportMetrics.recordService("slice", UserRoles.EMPLOYEE, () -> toSlice(archived(startDate, endDate,
+                        archive -> ArchiveReportSql.slice(jdbcTemplate, archive, windowMode, employeeId, startDate,
+                                endDate, after, size + 1))
+                .or(() -> columnar(employeeId)
+                        .flatMap(records -> records.slice(windowMode, employeeId, startDate, endDate, after, size + 1)))
+                .orElseGet(() -> query(employeeId, startDate, endDate, merged -> merged.slice(after, size + 1),
+                        () -> overlap()
+                                ? timeRecordRepository.findSliceByEmployeeOverlappingDateRange(employeeId,
+                                        startDate, endDate, employeeOf(after), projectOf(after), size + 1)
+                                : timeRecordRepository.findSliceByEmployeeAndDateRange(employeeId,
+                                        startDate, endDate, employeeOf(after), projectOf(after), size + 1))),
+                        size),
+                Slice::getNumberOfElements);
+    }
+
+    @Override
+    public long countReportData(LocalDateTime startDate, LocalDateTime endDate) {
+        return reportMetrics.recordService("count", UserRoles.ADMIN, () -> archived(startDate, endDate, archive ->
+                        ArchiveReportSql.count(jdbcTemplate, archive, windowMode, null, startDate, endDate))
+                .or(() -> columnar().map(records -> records.count(windowMode, null, startDate, endDate)))
+                .orElseGet(() -> query(null, startDate, endDate, merged -> Optional.of(merged.count()), () -> overlap()
+                        ? timeRecordRepository.countOverlappingStartDateAndEndDate(startDate, endDate)
+                        : timeRecordRepository.countBetweenStartDateAndEndDate(startDate, endDate))));
+    }
+
+    @Override
+    public long countReportDataForSpecificEmployee(long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
+        return reportMetrics.recordService("count", UserRoles.EMPLOYEE, () -> archived(startDate, endDate, archive ->
+                        ArchiveReportSql.count(jdbcTemplate, archive, windowMode, employeeId, startDate, endDate))
+                .or(() -> columnar(employeeId)
+                        .map(records -> records.count(windowMode, employeeId, startDate, endDate)))
+                .orElseGet(() -> query(employeeId, startDate, endDate, merged -> Optional.of(merged.count()),
+                        () -> overlap()
+                                ? timeRecordRepository.countByEmployeeOverlappingDateRange(
+                                        employeeId, startDate, endDate)
+                                : timeRecordRepository.countByEmployeeAndDateRange(employeeId, startDate, endDate))));
+    }
+
+    @Override
+    public List<ReportRowDTO> getReport(ReportDefinition definition) {
+        UserRoles role = definition.employeeId() == null ? UserRoles.ADMIN : UserRoles.EMPLOYEE;
+        TimeRecordArchive archive = archive(definition.startDate(), definition.endDate()).orElse(null);
+        // fetch one extra row to tell a report of exactly max-rows from a larger one
+        List<ReportRowDTO> rows = reportMetrics.recordService("definition", role, () -> reportBulkhead.call(() ->
+                        replicaRouter.read(definition.startDate(), definition.endDate(), () -> jdbcTemplate.query(
+                                ReportDefinitionSql.sql(definition, windowMode, archive != null),
+                                ReportDefinitionSql.parameters(definition, definitionMaxRows + 1, archive, windowMode),
+                                ReportDefinitionSql.rowMapper(definition)))),
+                List::size);
+        if (rows.size() > definitionMaxRows) {
+            throw new ReportTooLargeException("The report has more than " + definitionMaxRows + " rows");
+        }
+        return rows;
+    }
+
+    /**
+     * Runs the report query in a bulkhead slot, on a replica when one may serve the window. On the primary a window
+     * large enough is split by the {@link ParallelReportExecutor} instead, and the result is taken from the merged
+     * report unless {@code merged} cannot answer from it.
+     */
+    private <T> T query(Long employeeId, LocalDateTime startDate, LocalDateTime endDate,
+                        Function<MergedReport, Optional<T>> merged, Supplier<T> query) {
+        return reportBulkhead.call(() -> replicaRouter.read(startDate, endDate, () ->
+                split(employeeId, startDate, endDate).flatMap(merged).orElseGet(query)));
+    }
+
+    /**
+     * Runs the report query of a window reaching into the archive in a bulkhead slot, on a replica when one may serve
+     * the window; empty when the window lies after the archive.
+     */
+    private <T> Optional<T> archived(LocalDateTime startDate, LocalDateTime endDate,
+                                     Function<TimeRecordArchive, T> query) {
+        return archive(startDate, endDate).map(archive -> reportBulkhead.call(() ->
+                replicaRouter.read(startDate, endDate, () -> query.apply(archive))));
+    }
+
+    private Optional<TimeRecordArchive> archive(LocalDateTime startDate, LocalDateTime endDate) {
+        return Optional.ofNullable(timeRecordArchive.getIfAvailable())
+                .filter(archive -> archive.reaches(windowMode, startDate, endDate));
+    }
+
+    private Optional<MergedReport> split(Long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
+        ParallelReportExecutor executor = parallelReportExecutor.getIfAvailable();
+        // a replica reading the window takes its load off the primary already
+        if (executor == null || ReplicaRouter.current() != null) {
+            return Optional.empty();
+        }
+        return executor.report(windowMode, employeeId, startDate, endDate);
+    }
+
+    private boolean overlap() {
+        return windowMode == ReportWindowMode.OVERLAP;
+    }
+
+    private Optional<ColumnarTimeRecords> columnar() {
+        ColumnarReportEngine engine = columnarReportEngine.getIfAvailable();
+        return Optional.ofNullable(engine == null ? null : engine.snapshot());
+    }
+
+    private Optional<ColumnarTimeRecords> columnar(long employeeId) {
+        return columnar().filter(records -> records.isolates(employeeId));
+    }
+
+    private static Optional<Page<ReportDTO>> page(MergedReport merged, Pageable pageable) {
+        // the report queries take no sort either
+        return pageable.getSort().isSorted() ? Optional.empty() : Optional.of(merged.page(pageable));
+    }
+
+    /**
+     * The page of the rows read, counting the report only when the page does not tell the total. The count is a
+     * statement of its own and tagged {@code count} in {@code report.query}, apart from the page query.
+     */
+    private static Page<ReportDTO> toPage(List<ReportDTO> rows, Pageable pageable, Supplier<Long> count) {
+        return PageableExecutionUtils.getPage(rows, pageable, () -> ReportMetrics.tagQueries("count", count));
+    }
+
+    private static Slice<ReportDTO> toSlice(List<ReportDTO> rows, int size) {
+        boolean hasNext = rows.size() > size;
+        List<ReportDTO> content = hasNext ? rows.subList(0, size) : rows;
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    private static String employeeOf(ReportCursor cursor) {
+        return cursor == null ? null : cursor.employeeName();
+    }
+
+    private static String projectOf(ReportCursor cursor) {
+        return cursor == null ? null : cursor.projectName();
     }
 }
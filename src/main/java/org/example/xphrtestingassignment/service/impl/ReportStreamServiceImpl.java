@@ -0,0 +1,586 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.constant.ReportDimension;
+import org.example.xphrtestingassignment.dto.ReportCellDTO;
+import org.example.xphrtestingassignment.dto.ReportCellsDTO;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.example.xphrtestingassignment.exception.ReportCapacityExceededException;
+import org.example.xphrtestingassignment.service.ReportService;
+import org.example.xphrtestingassignment.service.ReportStreamService;
+import org.example.xphrtestingassignment.service.ReportVersionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Live reports shared by their subscribers. The subscribers of a window (and scope) share a feed, which holds the
+ * cells of the report: it is computed once, by the first subscriber, and from then on only the employees that
+ * changed are added up again, whatever the number of subscribers.
+ * <p>
+ * The change feed is the {@link TimeRecordsChangedEvent}, which marks the feeds whose window it overlaps. Every
+ * {@code report.stream.interval} the marked feeds are refreshed, on a thread of their own: the report of each changed employee, or of the
+ * whole window when the change names no employees or more than {@code report.stream.max-partial-employees}, is
+ * compared with the cells held, and the cells that differ go out as one delta, serialized once for all subscribers.
+ * Every {@code report.stream.version-check-interval} the data versions of the windows are read as well, so that
+ * changes made outside the application reach the streams too (see {@link ReportVersionService}).
+ * <p>
+ * Events reach each subscriber in order on the {@code report.stream.threads}, at most one send at a time per
+ * subscriber. A subscriber holds at most {@code report.stream.max-pending} deltas; one falling further behind gets a
+ * snapshot of the current cells instead, so that a slow client costs neither memory nor the others' deltas. A send
+ * blocked for longer than {@code report.stream.slow-consumer-timeout} drops the subscriber; its client reconnects
+ * and starts over from a snapshot.
+ */
+@Slf4j
+@Service
+public class ReportStreamServiceImpl implements ReportStreamService {
+
+    private static final Comparator<ReportCellDTO> CELL_ORDER = Comparator
+            .comparing(ReportCellDTO::employeeName).thenComparingLong(ReportCellDTO::employeeId)
+            .thenComparing(ReportCellDTO::projectName).thenComparingLong(ReportCellDTO::projectId);
+
+    private final ReportService reportService;
+    private final ReportVersionService reportVersionService;
+    private final ObjectMapper objectMapper;
+    private final int maxSubscribers;
+    private final int maxPartialEmployees;
+    private final int maxPending;
+    private final Duration interval;
+    private final Duration versionCheckInterval;
+    private final Duration heartbeatInterval;
+    private final Duration slowConsumerTimeout;
+    private final ThreadPoolExecutor executor;
+    // the refreshes run report queries, which must not hold up the scheduled jobs
+    private final ScheduledExecutorService refresher;
+    private final Map<FeedKey, Feed> feeds = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter fullRefreshes;
+    private final Counter partialRefreshes;
+    private final Counter resyncs;
+    private final Counter dropped;
+
+    // read and written by the refresh thread only
+    private long lastVersionCheck;
+    private long lastHeartbeat;
+
+    public ReportStreamServiceImpl(ReportService reportService,
+                                   ReportVersionService reportVersionService,
+                                   ObjectMapper objectMapper,
+                                   @Value("${report.stream.max-subscribers:2000}") int maxSubscribers,
+                                   @Value("${report.stream.max-partial-employees:16}") int maxPartialEmployees,
+                                   @Value("${report.stream.max-pending:64}") int maxPending,
+                                   @Value("${report.stream.threads:4}") int threads,
+                                   @Value("${report.stream.interval:PT1S}") Duration interval,
+                                   @Value("${report.stream.version-check-interval:PT10S}") Duration versionCheckInterval,
+                                   @Value("${report.stream.heartbeat-interval:PT30S}") Duration heartbeatInterval,
+                                   @Value("${report.stream.slow-consumer-timeout:PT30S}") Duration slowConsumerTimeout,
+                                   MeterRegistry meterRegistry) {
+        this.reportService = reportService;
+        this.reportVersionService = reportVersionService;
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.maxPartialEmployees = maxPartialEmployees;
+        this.maxPending = maxPending;
+        this.interval = interval;
+        this.versionCheckInterval = versionCheckInterval;
+        this.heartbeatInterval = heartbeatInterval;
+        this.slowConsumerTimeout = slowConsumerTimeout;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // a subscriber queues one task at most, so the queue is bounded by the subscribers
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "report-stream-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "report-stream-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long now = System.nanoTime();
+        this.lastVersionCheck = now;
+        this.lastHeartbeat = now;
+        Gauge.builder("report.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Live report subscriptions")
+                .register(meterRegistry);
+        Gauge.builder("report.stream.feeds", feeds, Map::size)
+                .description("Live report windows with subscribers")
+                .register(meterRegistry);
+        this.fullRefreshes = Counter.builder("report.stream.refreshes").tag("scope", "window")
+                .description("Live reports added up again after a change")
+                .register(meterRegistry);
+        this.partialRefreshes = Counter.builder("report.stream.refreshes").tag("scope", "employees")
+                .description("Live reports added up again after a change")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("report.stream.resyncs")
+                .description("Live report subscribers sent a snapshot instead of the deltas they fell behind on")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("report.stream.dropped")
+                .description("Live report subscribers dropped because a send blocked for too long")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Runnable subscribe(Long employeeId, LocalDateTime startDate, LocalDateTime endDate,
+                             ReportStreamSink sink) {
+        if (!startDate.isBefore(endDate)) {
+            throw new IllegalArgumentException("The start date must be before the end date");
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new ReportCapacityExceededException("Too many live report subscriptions, try again later");
+        }
+        FeedKey key = new FeedKey(employeeId, startDate, endDate);
+        Subscriber subscriber = new Subscriber(sink);
+        while (subscriber.feed == null) {
+            Feed feed = feeds.computeIfAbsent(key, Feed::new);
+            synchronized (feed) {
+                if (feed.closed) {
+                    // its last subscriber just left, take a new one
+                    continue;
+                }
+                try {
+                    // the feed is registered before it is computed: no change committed from now on is missed
+                    feed.load();
+                } catch (RuntimeException e) {
+                    subscriberCount.decrementAndGet();
+                    if (feed.subscribers.isEmpty()) {
+                        feed.closed = true;
+                        feeds.remove(key, feed);
+                    }
+                    throw e;
+                }
+                feed.subscribers.add(subscriber);
+                subscriber.feed = feed;
+            }
+        }
+        subscriber.resync();
+        return () -> unsubscribe(subscriber);
+    }
+
+    @EventListener
+    public void onTimeRecordsChanged(TimeRecordsChangedEvent event) {
+        for (Feed feed : feeds.values()) {
+            FeedKey key = feed.key;
+            if (!event.affects(key.startDate(), key.endDate())) {
+                continue;
+            }
+            if (key.employeeId() != null) {
+                if (event.employeeIds().isEmpty() || event.employeeIds().contains(key.employeeId())) {
+                    feed.dirtyWindow.set(true);
+                }
+            } else if (event.employeeIds().isEmpty() || event.employeeIds().size() > maxPartialEmployees) {
+                feed.dirtyWindow.set(true);
+            } else {
+                feed.dirtyEmployees.addAll(event.employeeIds());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.warn("could not refresh the live reports", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks the data versions when due, refreshes the feeds marked as changed, sends the heartbeats when due and
+     * drops the subscribers stuck in a send. Runs every {@code report.stream.interval} on the refresh thread.
+     */
+    public void refresh() {
+        if (feeds.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastVersionCheck >= versionCheckInterval.toNanos()) {
+            lastVersionCheck = now;
+            checkVersions();
+        }
+        for (Feed feed : feeds.values()) {
+            refresh(feed);
+        }
+        boolean heartbeat = now - lastHeartbeat >= heartbeatInterval.toNanos();
+        if (heartbeat) {
+            lastHeartbeat = now;
+        }
+        for (Feed feed : feeds.values()) {
+            List<Subscriber> subscribers;
+            synchronized (feed) {
+                subscribers = List.copyOf(feed.subscribers);
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.sendingFor(now) > slowConsumerTimeout.toNanos()) {
+                    log.info("live report subscriber of {} dropped: a send blocked for more than {}",
+                            feed.key, slowConsumerTimeout);
+                    dropped.increment();
+                    subscriber.drop();
+                } else if (heartbeat) {
+                    subscriber.heartbeat();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Reads the data version of every window, which reports the months changed outside the application as
+     * {@link TimeRecordsChangedEvent}s.
+     */
+    private void checkVersions() {
+        for (FeedKey key : Set.copyOf(feeds.keySet())) {
+            try {
+                reportVersionService.getVersion(key.startDate(), key.endDate());
+            } catch (RuntimeException e) {
+                log.warn("could not read the data version of live report {}", key, e);
+            }
+        }
+    }
+
+    private void refresh(Feed feed) {
+        if (!feed.loaded) {
+            return;
+        }
+        boolean window = feed.dirtyWindow.getAndSet(false);
+        Set<Long> employees = new LinkedHashSet<>();
+        for (Long employeeId : feed.dirtyEmployees) {
+            feed.dirtyEmployees.remove(employeeId);
+            employees.add(employeeId);
+        }
+        if (!window && employees.isEmpty()) {
+            return;
+        }
+        window |= employees.size() > maxPartialEmployees;
+        List<ReportRowDTO> rows = new ArrayList<>();
+        try {
+            if (window) {
+                rows.addAll(report(feed.key, feed.key.employeeId()));
+            } else {
+                for (Long employeeId : employees) {
+                    rows.addAll(report(feed.key, employeeId));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("could not refresh live report {}, trying again", feed.key, e);
+            feed.dirtyWindow.compareAndSet(false, window);
+            feed.dirtyEmployees.addAll(employees);
+            return;
+        }
+        (window ? fullRefreshes : partialRefreshes).increment();
+        Predicate<ReportCellDTO> scope = window ? cell -> true : cell -> employees.contains(cell.employeeId());
+        synchronized (feed) {
+            feed.apply(rows, scope);
+        }
+    }
+
+    private List<ReportRowDTO> report(FeedKey key, Long employeeId) {
+        return reportService.getReport(new ReportDefinition(key.startDate(), key.endDate(), employeeId,
+                List.of(ReportDimension.EMPLOYEE, ReportDimension.PROJECT), null, List.of()));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        Feed feed = subscriber.feed;
+        synchronized (feed) {
+            feed.subscribers.remove(subscriber);
+            if (feed.subscribers.isEmpty()) {
+                feed.closed = true;
+                feeds.remove(feed.key, feed);
+            }
+        }
+    }
+
+    private String json(FeedKey key, long sequence, List<ReportCellDTO> cells) {
+        try {
+            return objectMapper.writeValueAsString(
+                    new ReportCellsDTO(key.startDate(), key.endDate(), sequence, cells));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<CellKey, ReportCellDTO> cells(List<ReportRowDTO> rows) {
+        Map<CellKey, ReportCellDTO> cells = new HashMap<>();
+        for (ReportRowDTO row : rows) {
+            ReportCellDTO cell = new ReportCellDTO(row.employeeId(), row.employeeName(), row.projectId(),
+                    row.projectName(), row.totalHours());
+            cells.put(CellKey.of(cell), cell);
+        }
+        return cells;
+    }
+
+    /**
+     * @param employeeId the employee of the report, null for all employees
+     */
+    private record FeedKey(Long employeeId, LocalDateTime startDate, LocalDateTime endDate) {
+    }
+
+    private record CellKey(long employeeId, long projectId) {
+
+        static CellKey of(ReportCellDTO cell) {
+            return new CellKey(cell.employeeId(), cell.projectId());
+        }
+    }
+
+    private record Payload(String event, long sequence, String json) {
+    }
+
+    /**
+     * The report of a window and its subscribers. Guarded by its own monitor, except for the change marks, which
+     * change listeners set without waiting for a report being computed.
+     */
+    private final class Feed {
+
+        final FeedKey key;
+        final AtomicBoolean dirtyWindow = new AtomicBoolean();
+        final Set<Long> dirtyEmployees = ConcurrentHashMap.newKeySet();
+
+        final Map<CellKey, ReportCellDTO> cells = new HashMap<>();
+        final Set<Subscriber> subscribers = new LinkedHashSet<>();
+        volatile boolean loaded;
+        boolean closed;
+        long sequence;
+        Payload snapshot;
+
+        Feed(FeedKey key) {
+            this.key = key;
+        }
+
+        void load() {
+            if (!loaded) {
+                cells.putAll(cells(report(key, key.employeeId())));
+                loaded = true;
+            }
+        }
+
+        /**
+         * Replaces the cells within {@code scope} by the ones of {@code rows}, and sends the cells that changed to
+         * the subscribers.
+         */
+        void apply(List<ReportRowDTO> rows, Predicate<ReportCellDTO> scope) {
+            Map<CellKey, ReportCellDTO> fresh = cells(rows);
+            List<ReportCellDTO> changed = new ArrayList<>();
+            cells.values().removeIf(cell -> {
+                if (scope.test(cell) && !fresh.containsKey(CellKey.of(cell))) {
+                    changed.add(new ReportCellDTO(cell.employeeId(), cell.employeeName(), cell.projectId(),
+                            cell.projectName(), BigDecimal.ZERO));
+                    return true;
+                }
+                return false;
+            });
+            for (ReportCellDTO cell : fresh.values()) {
+                ReportCellDTO previous = cells.put(CellKey.of(cell), cell);
+                if (previous == null || previous.totalHours().compareTo(cell.totalHours()) != 0
+                        || !previous.employeeName().equals(cell.employeeName())
+                        || !previous.projectName().equals(cell.projectName())) {
+                    changed.add(cell);
+                }
+            }
+            if (changed.isEmpty()) {
+                return;
+            }
+            sequence++;
+            snapshot = null;
+            changed.sort(CELL_ORDER);
+            Payload delta = new Payload(DELTA, sequence, json(key, sequence, changed));
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(delta);
+            }
+        }
+
+        /**
+         * All cells in report order, serialized once per change.
+         */
+        Payload snapshot() {
+            if (snapshot == null) {
+                List<ReportCellDTO> sorted = new ArrayList<>(cells.values());
+                sorted.sort(CELL_ORDER);
+                snapshot = new Payload(SNAPSHOT, sequence, json(key, sequence, sorted));
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * A subscription: the events queued for its sink, sent one at a time by a stream thread. Lock order: the feed,
+     * then the subscriber.
+     */
+    private final class Subscriber {
+
+        final ReportStreamSink sink;
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile Feed feed;
+
+        // guarded by this
+        final ArrayDeque<Payload> pending = new ArrayDeque<>();
+        boolean resync;
+        boolean heartbeat;
+        boolean scheduled;
+
+        // System.nanoTime() when the send in progress started, 0 when idle
+        volatile long sendingSince;
+
+        Subscriber(ReportStreamSink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Queues a delta; called with the feed locked.
+         */
+        void offer(Payload delta) {
+            synchronized (this) {
+                if (resync) {
+                    // the snapshot to come has the delta already
+                    return;
+                }
+                if (pending.size() >= maxPending) {
+                    pending.clear();
+                    resync = true;
+                    resyncs.increment();
+                } else {
+                    pending.add(delta);
+                }
+            }
+            schedule();
+        }
+
+        /**
+         * Sends a snapshot next, in place of anything queued.
+         */
+        void resync() {
+            synchronized (this) {
+                pending.clear();
+                resync = true;
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            synchronized (this) {
+                heartbeat = true;
+            }
+            schedule();
+        }
+
+        long sendingFor(long now) {
+            long since = sendingSince;
+            return since == 0 ? 0 : now - since;
+        }
+
+        void drop() {
+            unsubscribe(this);
+            sink.close();
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (scheduled || closed.get()) {
+                    return;
+                }
+                scheduled = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Payload next = next();
+                synchronized (this) {
+                    if (closed.get()) {
+                        scheduled = false;
+                        return;
+                    }
+                    if (next == null) {
+                        if (resync || !pending.isEmpty()) {
+                            // offered after next() looked, while this drain still counted as scheduled
+                            continue;
+                        }
+                        if (!heartbeat) {
+                            scheduled = false;
+                            return;
+                        }
+                    }
+                    heartbeat = false;
+                }
+                sendingSince = Math.max(System.nanoTime(), 1);
+                try {
+                    if (next != null) {
+                        sink.send(next.event(), next.sequence(), next.json());
+                    } else {
+                        sink.heartbeat();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.debug("live report subscriber of {} gone: {}", feed.key, e.toString());
+                    synchronized (this) {
+                        scheduled = false;
+                    }
+                    drop();
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+
+        private Payload next() {
+            synchronized (this) {
+                if (!resync) {
+                    return pending.poll();
+                }
+            }
+            // a snapshot is taken with the feed locked, so that no delta falls between it and the next ones
+            Feed current = feed;
+            synchronized (current) {
+                synchronized (this) {
+                    resync = false;
+                    pending.clear();
+                    return current.snapshot();
+                }
+            }
+        }
+    }
+}
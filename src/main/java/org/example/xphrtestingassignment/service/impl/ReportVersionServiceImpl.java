@@ -0,0 +1,67 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.example.xphrtestingassignment.service.ReportVersionService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the month versions kept by the triggers of time_record, employee and project. Every month the window
+ * touches counts, from the month of its start to the month of its end: a record reported in the window, also
+ * clipped in overlap mode, spans one of them.
+ * <p>
+ * The report cache and the columnar engine only learn about changes made through the application. A month found
+ * at another version than the last time it was read gets a {@link TimeRecordsChangedEvent}, so that they catch up
+ * before the report of a new version is computed. A month read for the first time gets one as well, since it may
+ * have changed before.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportVersionServiceImpl implements ReportVersionService {
+
+    private static final String VERSIONS_SQL = "SELECT month, version FROM time_record_version " +
+            "WHERE month >= CAST(date_trunc('month', CAST(? AS TIMESTAMP)) AS DATE) AND month <= CAST(? AS DATE) " +
+            "ORDER BY month";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<LocalDate, Long> seenVersions = new ConcurrentHashMap<>();
+
+    @Override
+    public long getVersion(LocalDateTime startDate, LocalDateTime endDate) {
+        List<MonthVersion> months = jdbcTemplate.query(VERSIONS_SQL,
+                (rs, rowNum) -> new MonthVersion(rs.getObject(1, LocalDate.class), rs.getLong(2)),
+                startDate, endDate);
+        long version = 1;
+        for (MonthVersion month : months) {
+            version = mix(mix(version, month.month().toEpochDay()), month.version());
+            if (!Objects.equals(seenVersions.put(month.month(), month.version()), month.version())) {
+                log.debug("time records of {} changed, now at version {}", month.month(), month.version());
+                eventPublisher.publishEvent(new TimeRecordsChangedEvent(month.month().atStartOfDay(),
+                        month.month().plusMonths(1).atStartOfDay(), Set.of(), Set.of()));
+            }
+        }
+        return version;
+    }
+
+    private static long mix(long hash, long value) {
+        long mixed = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return mixed ^ (mixed >>> 29);
+    }
+
+    private record MonthVersion(LocalDate month, long version) {
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.example.xphrtestingassignment.constant.DataFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes rows of a report or of time records in one of the {@link DataFormat}s, used by the export and by the
+ * report jobs.
+ */
+interface RowWriter {
+
+    static RowWriter of(DataFormat format, OutputStream out) throws IOException {
+        return format == DataFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+    }
+
+    void start(String[] columns) throws IOException;
+
+    void write(Object[] values) throws IOException;
+
+    /**
+     * Flushes what is buffered; the stream is left open.
+     */
+    void finish() throws IOException;
+}
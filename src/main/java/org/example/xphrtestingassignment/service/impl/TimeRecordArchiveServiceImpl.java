@@ -0,0 +1,224 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.archive.ArchiveSegment;
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords;
+import org.example.xphrtestingassignment.service.TimeRecordArchiveService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves the closed months of time_record into the {@link TimeRecordArchive}, one month per transaction: with writes to
+ * time_record blocked, the records of the month are written to a segment, read back and checked against the table,
+ * the segment is added to the archive, and only then are the partition of the month dropped and its rollup rows
+ * deleted. From the moment the segment is added the reports read the month from it, so they stay the same before and
+ * after the rows are gone, on the primary as on a replica lagging behind. Should the drop fail, the month stays
+ * archived and its rows, no longer reported, are dropped by the next run.
+ * <p>
+ * Instances sharing the archive directory take turns, and a month archived by another instance is skipped. With a
+ * {@code report.archive.drop-delay} the rows of a month are dropped by the first run after the delay, once every
+ * instance has read its segment (see {@code report.archive.refresh-interval}).
+ * <p>
+ * The report data does not change, so no data version is bumped and no change event published.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "report.archive.enabled", havingValue = "true")
+public class TimeRecordArchiveServiceImpl implements TimeRecordArchiveService {
+
+    // instances sharing the archive directory take turns
+    private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('time_record_archive'))";
+
+    private static final String PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = CAST('time_record' AS regclass)";
+
+    private static final String RECORDS_SQL = "SELECT time_from, time_to, employee_id, project_id FROM time_record " +
+            "WHERE time_from >= ? AND time_from < ? ORDER BY time_from, id";
+
+    private static final String TOTALS_SQL = "SELECT COUNT(*), " +
+            "COALESCE(SUM(EXTRACT(EPOCH FROM (time_to - time_from)) * 1000000), 0) FROM time_record " +
+            "WHERE time_from >= ? AND time_from < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TimeRecordArchive timeRecordArchive;
+    private final int closedAfterMonths;
+    private final Duration dropDelay;
+
+    public TimeRecordArchiveServiceImpl(JdbcTemplate jdbcTemplate,
+                                        TransactionTemplate transactionTemplate,
+                                        TimeRecordArchive timeRecordArchive,
+                                        @Value("${report.archive.closed-after-months:2}") int closedAfterMonths,
+                                        @Value("${report.archive.drop-delay:PT0S}") Duration dropDelay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.timeRecordArchive = timeRecordArchive;
+        this.closedAfterMonths = closedAfterMonths;
+        this.dropDelay = dropDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${report.archive.cron:0 30 1 * * *}")
+    public void archive() {
+        archiveClosedMonths();
+    }
+
+    @Override
+    public List<YearMonth> archiveClosedMonths() {
+        dropArchivedPartitions();
+
+        // the months before this one are closed
+        YearMonth open = YearMonth.now().minusMonths(closedAfterMonths);
+        YearMonth month = timeRecordArchive.nextMonth();
+        if (month == null) {
+            LocalDateTime first = jdbcTemplate.queryForObject("SELECT MIN(time_from) FROM time_record",
+                    LocalDateTime.class);
+            if (first == null) {
+                return List.of();
+            }
+            month = YearMonth.from(first);
+        }
+        List<YearMonth> archived = new ArrayList<>();
+        for (; month.isBefore(open); month = month.plusMonths(1)) {
+            YearMonth current = month;
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> archiveMonth(current)))) {
+                archived.add(month);
+            }
+        }
+        if (!archived.isEmpty()) {
+            log.info("archived the time records of {} in {}", archived, timeRecordArchive.directory());
+        }
+        return archived;
+    }
+
+    /**
+     * Archives the month unless another instance did already.
+     */
+    private boolean archiveMonth(YearMonth month) {
+        LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+        LocalDateTime monthEnd = monthStart.plusMonths(1);
+        jdbcTemplate.queryForList(LOCK_SQL);
+        refresh();
+        if (timeRecordArchive.nextMonth() != null && !month.equals(timeRecordArchive.nextMonth())) {
+            return false;
+        }
+        // writes wait until the month is archived and gone; reports go on
+        jdbcTemplate.execute("LOCK TABLE time_record IN SHARE MODE");
+
+        ArchiveSegment.Writer writer = new ArchiveSegment.Writer(month);
+        jdbcTemplate.query(RECORDS_SQL, rs -> {
+            writer.add(ColumnarTimeRecords.epochMicros(rs.getObject(1, LocalDateTime.class)),
+                    ColumnarTimeRecords.epochMicros(rs.getObject(2, LocalDateTime.class)),
+                    rs.getLong(3), rs.getLong(4));
+        }, monthStart, monthEnd);
+        ArchiveSegment segment = write(writer);
+        Totals expected = jdbcTemplate.queryForObject(TOTALS_SQL, (rs, rowNum) ->
+                new Totals(rs.getLong(1), rs.getBigDecimal(2).longValueExact()), monthStart, monthEnd);
+        if (expected == null || segment.records() != expected.records()
+                || segment.totalMicros() != expected.micros()) {
+            delete(segment.file());
+            throw new IllegalStateException("The archive segment of " + month + " does not match time_record: "
+                    + segment.records() + " records and " + segment.totalMicros() + " microseconds instead of "
+                    + expected);
+        }
+        timeRecordArchive.add(segment);
+
+        if (dropDelay.isZero()) {
+            drop(month);
+        }
+        return true;
+    }
+
+    private void refresh() {
+        try {
+            timeRecordArchive.refresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ArchiveSegment write(ArchiveSegment.Writer writer) {
+        try {
+            return ArchiveSegment.open(writer.write(timeRecordArchive.directory()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drops the partitions of the months archived by an earlier run, at least {@code drop-delay} ago, that are still
+     * there, each in a transaction of its own.
+     */
+    private void dropArchivedPartitions() {
+        refresh();
+        Instant archivedUntil = Instant.now().minus(dropDelay);
+        List<String> partitions = jdbcTemplate.queryForList(PARTITIONS_SQL, String.class);
+        for (ArchiveSegment segment : timeRecordArchive.segments()) {
+            YearMonth month = segment.month();
+            if (partitions.contains(partitionName(month)) && archivedAt(segment).isBefore(archivedUntil)) {
+                transactionTemplate.executeWithoutResult(status -> drop(month));
+                log.info("dropped the time_record partition of the archived month {}", month);
+            }
+        }
+    }
+
+    private static Instant archivedAt(ArchiveSegment segment) {
+        try {
+            return Files.getLastModifiedTime(segment.file()).toInstant();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("time_record_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+
+    /**
+     * Removes the records of an archived month from time_record and the rollup.
+     */
+    private void drop(YearMonth month) {
+        String partition = partitionName(month);
+        LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+        LocalDateTime monthEnd = monthStart.plusMonths(1);
+        if (jdbcTemplate.queryForList(PARTITIONS_SQL, String.class).contains(partition)) {
+            // the rows leave time_record without firing the rollup and version triggers
+            jdbcTemplate.execute("ALTER TABLE time_record DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        }
+        jdbcTemplate.update("DELETE FROM time_record_default WHERE time_from >= ? AND time_from < ?",
+                monthStart, monthEnd);
+        jdbcTemplate.update("DELETE FROM time_record_rollup WHERE bucket_from >= ? AND bucket_from < ?",
+                monthStart, monthEnd);
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("could not delete {}", file, e);
+        }
+    }
+
+    private record Totals(long records, long micros) {
+    }
+}
@@ -0,0 +1,289 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.dto.IngestionResultDTO;
+import org.example.xphrtestingassignment.dto.TimeRecordImportDTO;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.example.xphrtestingassignment.service.TimeRecordIngestionService;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+@Service
+public class TimeRecordIngestionServiceImpl implements TimeRecordIngestionService {
+
+    private static final String CREATE_STAGING_SQL = "CREATE TEMPORARY TABLE IF NOT EXISTS time_record_staging (" +
+            "employee_id BIGINT NOT NULL, project_id BIGINT NOT NULL, " +
+            "time_from TIMESTAMP NOT NULL, time_to TIMESTAMP NOT NULL) ON COMMIT DELETE ROWS";
+
+    private static final String COPY_SQL = "COPY time_record_staging (employee_id, project_id, time_from, time_to) " +
+            "FROM STDIN (FORMAT csv)";
+
+    // concurrent imports of the same rows would both pass the NOT EXISTS check, so batches take turns
+    private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('time_record_ingestion'))";
+
+    private static final String DELETE_EXISTING_SQL = "DELETE FROM time_record_staging s " +
+            "WHERE EXISTS (SELECT 1 FROM time_record t " +
+            " WHERE t.time_from = s.time_from AND t.employee_id = s.employee_id " +
+            " AND t.project_id = s.project_id AND t.time_to = s.time_to)";
+
+    private static final String NEW_ROWS = "(SELECT DISTINCT employee_id, project_id, time_from, time_to " +
+            "FROM time_record_staging) s";
+
+    // The sequence steps by 50, the allocationSize of TimeRecord, so one nextval per row would burn 50 ids. A batch
+    // takes ids (v, v + n] instead and moves the sequence past them. nextval and setval are two steps: the unchanged
+    // ALTER SEQUENCE takes a lock that holds back every other nextval until the batch commits.
+    private static final String LOCK_IDS_SQL = "ALTER SEQUENCE time_record_id_seq INCREMENT BY 50";
+    private static final String RESERVE_IDS_SQL =
+            "SELECT setval('time_record_id_seq', nextval('time_record_id_seq') + ?)";
+
+    // in time order, like the index entries they are appended to
+    private static final String INSERT_SQL = "INSERT INTO time_record (id, employee_id, project_id, time_from, time_to) " +
+            "SELECT ? + ROW_NUMBER() OVER (ORDER BY time_from, employee_id, project_id, time_to), " +
+            " employee_id, project_id, time_from, time_to " +
+            "FROM " + NEW_ROWS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<TimeRecordArchive> timeRecordArchive;
+    private final int batchSize;
+    private final int maxRejectedRows;
+
+    public TimeRecordIngestionServiceImpl(JdbcTemplate jdbcTemplate,
+                                          TransactionTemplate transactionTemplate,
+                                          ApplicationEventPublisher eventPublisher,
+                                          ObjectMapper objectMapper,
+                                          ObjectProvider<TimeRecordArchive> timeRecordArchive,
+                                          @Value("${ingestion.batch-size:10000}") int batchSize,
+                                          @Value("${ingestion.max-rejected-rows:1000}") int maxRejectedRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.timeRecordArchive = timeRecordArchive;
+        this.batchSize = batchSize;
+        this.maxRejectedRows = maxRejectedRows;
+    }
+
+    @Override
+    public IngestionResultDTO ingest(InputStream in, DataFormat format) throws IOException {
+        Set<Long> employeeIds = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM employee", Long.class));
+        Set<Long> projectIds = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM project", Long.class));
+        // the archived months are closed: a record starting in one would never be reported
+        TimeRecordArchive archive = timeRecordArchive.getIfAvailable();
+        LocalDateTime archivedBefore = archive == null ? null : archive.archivedBefore();
+
+        Ingestion ingestion = new Ingestion();
+        RowHandler handler = (line, row, parseError) -> {
+            ingestion.received++;
+            String reason = parseError != null ? parseError : validate(row, employeeIds, projectIds, archivedBefore);
+            if (reason != null) {
+                ingestion.reject(line, reason);
+                return;
+            }
+            ingestion.batch.add(row);
+            if (ingestion.batch.size() >= batchSize) {
+                ingestion.flush();
+            }
+        };
+        if (format == DataFormat.CSV) {
+            readCsv(in, handler);
+        } else {
+            readNdjson(in, handler);
+        }
+        ingestion.flush();
+
+        log.info("ingested {} time records: {} inserted, {} duplicates, {} rejected in {} batches",
+                ingestion.received, ingestion.inserted, ingestion.duplicates, ingestion.rejected,
+                ingestion.batches.size());
+        return new IngestionResultDTO(ingestion.received, ingestion.inserted, ingestion.duplicates,
+                ingestion.rejected, ingestion.batches, ingestion.rejectedRows);
+    }
+
+    private static String validate(TimeRecordImportDTO row, Set<Long> employeeIds, Set<Long> projectIds,
+                                   LocalDateTime archivedBefore) {
+        if (row.employeeId() == null || row.projectId() == null || row.timeFrom() == null || row.timeTo() == null) {
+            return "employeeId, projectId, timeFrom and timeTo are required";
+        }
+        if (!row.timeTo().isAfter(row.timeFrom())) {
+            return "timeTo must be after timeFrom";
+        }
+        if (archivedBefore != null && row.timeFrom().isBefore(archivedBefore)) {
+            return "timeFrom is in an archived month, before " + archivedBefore;
+        }
+        if (!employeeIds.contains(row.employeeId())) {
+            return "unknown employee " + row.employeeId();
+        }
+        if (!projectIds.contains(row.projectId())) {
+            return "unknown project " + row.projectId();
+        }
+        return null;
+    }
+
+    /**
+     * Loads one batch in its own transaction and returns the number of inserted rows.
+     */
+    private int load(List<TimeRecordImportDTO> rows) {
+        StringBuilder csv = new StringBuilder(rows.size() * 64);
+        for (TimeRecordImportDTO row : rows) {
+            csv.append(row.employeeId()).append(',').append(row.projectId()).append(',')
+                    .append(row.timeFrom()).append(',').append(row.timeTo()).append('\n');
+        }
+        Integer inserted = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(CREATE_STAGING_SQL);
+            jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try {
+                    return connection.unwrap(PGConnection.class).getCopyAPI()
+                            .copyIn(COPY_SQL, new StringReader(csv.toString()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            jdbcTemplate.queryForObject(LOCK_SQL, Object.class);
+            jdbcTemplate.update(DELETE_EXISTING_SQL);
+            Long rowCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + NEW_ROWS, Long.class);
+            if (rowCount == null || rowCount == 0) {
+                return 0;
+            }
+            jdbcTemplate.execute(LOCK_IDS_SQL);
+            Long lastId = jdbcTemplate.queryForObject(RESERVE_IDS_SQL, Long.class, rowCount);
+            return jdbcTemplate.update(INSERT_SQL, lastId - rowCount);
+        });
+        return inserted == null ? 0 : inserted;
+    }
+
+    private void readCsv(InputStream in, RowHandler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        long lineNumber = 1;
+        if (line == null) {
+            return;
+        }
+        if (!line.trim().equalsIgnoreCase("employee_id,project_id,time_from,time_to")) {
+            throw new IllegalArgumentException("Expected header employee_id,project_id,time_from,time_to");
+        }
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            if (fields.length != 4) {
+                handler.handle(lineNumber, null, "expected 4 fields but got " + fields.length);
+                continue;
+            }
+            try {
+                handler.handle(lineNumber, new TimeRecordImportDTO(
+                        Long.valueOf(fields[0].trim()), Long.valueOf(fields[1].trim()),
+                        LocalDateTime.parse(fields[2].trim()), LocalDateTime.parse(fields[3].trim())), null);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                handler.handle(lineNumber, null, "malformed row: " + e.getMessage());
+            }
+        }
+    }
+
+    private void readNdjson(InputStream in, RowHandler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        ObjectReader rowReader = objectMapper.readerFor(TimeRecordImportDTO.class);
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            TimeRecordImportDTO row;
+            try {
+                row = rowReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                handler.handle(lineNumber, null, "malformed row: " + e.getOriginalMessage());
+                continue;
+            }
+            handler.handle(lineNumber, row, null);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(long line, TimeRecordImportDTO row, String parseError);
+    }
+
+    /**
+     * Running state of one call to {@link #ingest}.
+     */
+    private final class Ingestion {
+        private final List<TimeRecordImportDTO> batch = new ArrayList<>();
+        private final List<IngestionResultDTO.Batch> batches = new ArrayList<>();
+        private final List<IngestionResultDTO.RejectedRow> rejectedRows = new ArrayList<>();
+        private long received;
+        private long inserted;
+        private long duplicates;
+        private long rejected;
+
+        private void reject(long line, String reason) {
+            rejected++;
+            if (rejectedRows.size() < maxRejectedRows) {
+                rejectedRows.add(new IngestionResultDTO.RejectedRow(line, reason));
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            int batchInserted = load(batch);
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+            inserted += batchInserted;
+            duplicates += batch.size() - batchInserted;
+            batches.add(new IngestionResultDTO.Batch(batches.size() + 1, batch.size(), batchInserted, millis,
+                    batch.size() * 1000L / millis));
+            if (batchInserted > 0) {
+                publishChange(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private void publishChange(List<TimeRecordImportDTO> rows) {
+        LocalDateTime from = rows.get(0).timeFrom();
+        LocalDateTime to = rows.get(0).timeTo();
+        Set<Long> employees = new HashSet<>();
+        Set<Long> projects = new HashSet<>();
+        for (TimeRecordImportDTO row : rows) {
+            from = row.timeFrom().isBefore(from) ? row.timeFrom() : from;
+            to = row.timeTo().isAfter(to) ? row.timeTo() : to;
+            employees.add(row.employeeId());
+            projects.add(row.projectId());
+        }
+        eventPublisher.publishEvent(new TimeRecordsChangedEvent(from, to, employees, projects));
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.example.xphrtestingassignment.service.TimeRecordPartitionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TimeRecordPartitionServiceImpl implements TimeRecordPartitionService {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("time_record_y(\\d{4})m(\\d{2})");
+
+    private static final String PARKED_MONTHS_SQL = "SELECT DISTINCT CAST(date_trunc('month', time_from) AS DATE) " +
+            "FROM time_record_default";
+
+    private static final String PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = CAST('time_record' AS regclass)";
+
+    // the records of the month, and those crossing into the next one, leave the reports of both
+    private static final String BUMP_VERSION_SQL = "INSERT INTO time_record_version (month, version) " +
+            "SELECT CAST(m AS DATE), CAST(CAST(pg_current_xact_id() AS TEXT) AS BIGINT) " +
+            "FROM generate_series(CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP), INTERVAL '1 month') m " +
+            "ON CONFLICT (month) DO UPDATE SET version = EXCLUDED.version";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${report.partition.premake-months:3}")
+    private int premakeMonths;
+
+    @Value("${report.partition.retention-months:0}")
+    private int retentionMonths;
+
+    @Value("${report.partition.archive-schema:archive}")
+    private String archiveSchema;
+
+    @Value("${report.partition.drop-detached:false}")
+    private boolean dropDetached;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${report.partition.maintenance-cron:0 0 1 * * *}")
+    public void maintainPartitions() {
+        ensurePartitions();
+        detachExpiredPartitions();
+    }
+
+    @Override
+    public List<YearMonth> ensurePartitions() {
+        YearMonth current = YearMonth.now();
+        TreeSet<YearMonth> months = new TreeSet<>();
+        for (YearMonth month = current.minusMonths(1); !month.isAfter(current.plusMonths(premakeMonths));
+             month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        jdbcTemplate.queryForList(PARKED_MONTHS_SQL, LocalDate.class)
+                .forEach(month -> months.add(YearMonth.from(month)));
+
+        List<YearMonth> created = new ArrayList<>();
+        for (YearMonth month : months) {
+            // one transaction per month, the records moved out of the default partition are locked meanwhile
+            Boolean isNew = transactionTemplate.execute(status -> jdbcTemplate.queryForObject(
+                    "SELECT time_record_ensure_partition(?)", Boolean.class, month.atDay(1)));
+            if (Boolean.TRUE.equals(isNew)) {
+                created.add(month);
+            }
+        }
+        if (!created.isEmpty()) {
+            log.info("created time_record partitions for {}", created);
+        }
+        return created;
+    }
+
+    @Override
+    public List<YearMonth> detachExpiredPartitions() {
+        if (retentionMonths <= 0) {
+            return List.of();
+        }
+        YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+        List<YearMonth> detached = new ArrayList<>();
+        for (String partition : jdbcTemplate.queryForList(PARTITIONS_SQL, String.class)) {
+            YearMonth month = monthOf(partition);
+            if (month == null || !month.isBefore(oldestKept)) {
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("ALTER TABLE time_record DETACH PARTITION " + partition);
+                // the rows leave time_record without firing the rollup and version triggers
+                jdbcTemplate.update("DELETE FROM time_record_rollup WHERE bucket_from >= ? AND bucket_from < ?",
+                        month.atDay(1), month.plusMonths(1).atDay(1));
+                jdbcTemplate.update(BUMP_VERSION_SQL, month.atDay(1).atStartOfDay(),
+                        month.plusMonths(1).atDay(1).atStartOfDay());
+                if (dropDetached) {
+                    jdbcTemplate.execute("DROP TABLE " + partition);
+                } else {
+                    jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+                    jdbcTemplate.execute("ALTER TABLE " + partition + " SET SCHEMA " + archiveSchema);
+                }
+            });
+            detached.add(month);
+            eventPublisher.publishEvent(new TimeRecordsChangedEvent(
+                    month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay(), Set.of(), Set.of()));
+        }
+        if (!detached.isEmpty()) {
+            log.info("detached time_record partitions for {} ({})", detached, dropDetached ? "dropped" : "archived");
+        }
+        return detached;
+    }
+
+    static YearMonth monthOf(String partitionName) {
+        Matcher matcher = PARTITION_NAME.matcher(partitionName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+}
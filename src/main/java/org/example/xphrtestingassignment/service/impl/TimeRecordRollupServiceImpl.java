@@ -0,0 +1,94 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.service.TimeRecordRollupService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TimeRecordRollupServiceImpl implements TimeRecordRollupService {
+
+    // SHARE mode lets report queries through but waits for in-flight writers and holds new ones back,
+    // so the rollup triggers cannot interleave with the recomputation
+    private static final String LOCK_TIME_RECORD = "LOCK TABLE time_record IN SHARE MODE";
+
+    private static final String REBUILD_SQL = "INSERT INTO time_record_rollup " +
+            "(bucket_from, bucket_to, employee_id, project_id, total_seconds, record_count) " +
+            "SELECT CAST(time_from AS DATE), CAST(time_to AS DATE), employee_id, project_id, " +
+            " SUM(EXTRACT(EPOCH FROM (time_to - time_from))), COUNT(*) " +
+            "FROM time_record " +
+            "GROUP BY 1, 2, 3, 4";
+
+    private static final String DRIFT_SQL = "CREATE TEMPORARY TABLE rollup_drift ON COMMIT DROP AS " +
+            "SELECT COALESCE(x.bucket_from, a.bucket_from) AS bucket_from, " +
+            " COALESCE(x.bucket_to, a.bucket_to) AS bucket_to, " +
+            " COALESCE(x.employee_id, a.employee_id) AS employee_id, " +
+            " COALESCE(x.project_id, a.project_id) AS project_id, " +
+            " x.total_seconds, x.record_count " +
+            "FROM (SELECT CAST(time_from AS DATE) AS bucket_from, CAST(time_to AS DATE) AS bucket_to, " +
+            "       employee_id, project_id, " +
+            "       SUM(EXTRACT(EPOCH FROM (time_to - time_from))) AS total_seconds, COUNT(*) AS record_count " +
+            "      FROM time_record WHERE time_from >= ? AND time_from < ? " +
+            "      GROUP BY 1, 2, 3, 4) x " +
+            "FULL JOIN (SELECT * FROM time_record_rollup WHERE bucket_from >= ? AND bucket_from < ?) a " +
+            " ON a.bucket_from = x.bucket_from AND a.bucket_to = x.bucket_to " +
+            " AND a.employee_id = x.employee_id AND a.project_id = x.project_id " +
+            "WHERE x.total_seconds IS DISTINCT FROM a.total_seconds " +
+            " OR x.record_count IS DISTINCT FROM a.record_count";
+
+    private static final String DELETE_DRIFT_SQL = "DELETE FROM time_record_rollup r USING rollup_drift d " +
+            "WHERE r.bucket_from = d.bucket_from AND r.bucket_to = d.bucket_to " +
+            " AND r.employee_id = d.employee_id AND r.project_id = d.project_id " +
+            " AND d.record_count IS NULL";
+
+    private static final String UPSERT_DRIFT_SQL = "INSERT INTO time_record_rollup AS r " +
+            "(bucket_from, bucket_to, employee_id, project_id, total_seconds, record_count) " +
+            "SELECT bucket_from, bucket_to, employee_id, project_id, total_seconds, record_count " +
+            "FROM rollup_drift WHERE record_count IS NOT NULL " +
+            "ON CONFLICT (bucket_from, bucket_to, employee_id, project_id) DO UPDATE " +
+            " SET total_seconds = EXCLUDED.total_seconds, record_count = EXCLUDED.record_count";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${report.rollup.reconcile-days:7}")
+    private int reconcileDays;
+
+    @Override
+    public void rebuild() {
+        Integer buckets = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(LOCK_TIME_RECORD);
+            jdbcTemplate.execute("TRUNCATE time_record_rollup");
+            return jdbcTemplate.update(REBUILD_SQL);
+        });
+        log.info("rollup rebuilt with {} buckets", buckets);
+    }
+
+    @Override
+    public int reconcile(LocalDate fromDate, LocalDate toDate) {
+        Integer corrected = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(LOCK_TIME_RECORD);
+            jdbcTemplate.update(DRIFT_SQL, fromDate.atStartOfDay(), toDate.atStartOfDay(), fromDate, toDate);
+            return jdbcTemplate.update(DELETE_DRIFT_SQL) + jdbcTemplate.update(UPSERT_DRIFT_SQL);
+        });
+        if (corrected != null && corrected > 0) {
+            log.warn("rollup drifted from time_record between {} and {}, corrected {} buckets",
+                    fromDate, toDate, corrected);
+        }
+        return corrected == null ? 0 : corrected;
+    }
+
+    @Scheduled(cron = "${report.rollup.reconcile-cron:0 30 2 * * *}")
+    public void reconcileRecentDays() {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        reconcile(tomorrow.minusDays(reconcileDays + 1L), tomorrow);
+    }
+}
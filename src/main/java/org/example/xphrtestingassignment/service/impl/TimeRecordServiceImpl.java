@@ -0,0 +1,63 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.datasource.ReplicaRouter;
+import org.example.xphrtestingassignment.dto.TimeRecordCursor;
+import org.example.xphrtestingassignment.dto.TimeRecordDTO;
+import org.example.xphrtestingassignment.metrics.ReportMetrics;
+import org.example.xphrtestingassignment.repository.TimeRecordRepository;
+import org.example.xphrtestingassignment.service.TimeRecordService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Reads the records behind the report with the DTO projections of {@link TimeRecordRepository}: the names come
+ * from a join in the same statement, never from the lazy associations of the entity. Like the report, the records
+ * are read in a {@link ReportBulkhead} slot, on a replica when the {@link ReplicaRouter} finds one that may serve the
+ * window, and selected by {@code report.window-mode}.
+ */
+@Service
+public class TimeRecordServiceImpl implements TimeRecordService {
+
+    private final TimeRecordRepository timeRecordRepository;
+    private final ReportBulkhead reportBulkhead;
+    private final ReplicaRouter replicaRouter;
+    private final ReportWindowMode windowMode;
+
+    public TimeRecordServiceImpl(TimeRecordRepository timeRecordRepository,
+                                 ReportBulkhead reportBulkhead,
+                                 ReplicaRouter replicaRouter,
+                                 @Value("${report.window-mode:CONTAINED}") ReportWindowMode windowMode) {
+        this.timeRecordRepository = timeRecordRepository;
+        this.reportBulkhead = reportBulkhead;
+        this.replicaRouter = replicaRouter;
+        this.windowMode = windowMode;
+    }
+
+    @Override
+    public Slice<TimeRecordDTO> getTimeRecordsAfter(Long employeeId, String employeeName, String projectName,
+                                                    LocalDateTime startDate, LocalDateTime endDate,
+                                                    TimeRecordCursor after, int size) {
+        LocalDateTime afterFrom = after == null ? null : after.timeFrom();
+        Long afterId = after == null ? null : after.id();
+        // fetch one extra record to know whether there is a next page without counting
+        Limit limit = Limit.of(size + 1);
+        Supplier<List<TimeRecordDTO>> query = () -> windowMode == ReportWindowMode.OVERLAP
+                ? timeRecordRepository.findRecordsOverlappingStartDateAndEndDate(
+                        employeeName, projectName, employeeId, startDate, endDate, afterFrom, afterId, limit)
+                : timeRecordRepository.findRecordsBetweenStartDateAndEndDate(
+                        employeeName, projectName, employeeId, startDate, endDate, afterFrom, afterId, limit);
+        List<TimeRecordDTO> records = reportBulkhead.call(() -> ReportMetrics.tagQueries("records", () ->
+                replicaRouter.read(startDate, endDate, query)));
+        boolean hasNext = records.size() > size;
+        return new SliceImpl<>(hasNext ? records.subList(0, size) : records, PageRequest.of(0, size), hasNext);
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.xphrtestingassignment.web;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.xphrtestingassignment.exception.ReportCapacityExceededException;
+import org.example.xphrtestingassignment.exception.TooManyReportRequestsException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Rejects report requests turned away by the report bulkhead with a Retry-After header, so that clients back off
+ * for as long as the server asks instead of retrying at once. The response body is the usual error page or JSON.
+ */
+@ControllerAdvice
+public class ReportAdmissionExceptionHandler {
+
+    @ExceptionHandler(ReportCapacityExceededException.class)
+    public void capacityExceeded(ReportCapacityExceededException e, HttpServletResponse response) throws IOException {
+        reject(response, HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e.getRetryAfter());
+    }
+
+    @ExceptionHandler(TooManyReportRequestsException.class)
+    public void tooManyRequests(TooManyReportRequestsException e, HttpServletResponse response) throws IOException {
+        reject(response, HttpStatus.TOO_MANY_REQUESTS, e.getMessage(), e.getRetryAfter());
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String message, Duration retryAfter)
+            throws IOException {
+        if (!response.isCommitted()) {
+            // such as the attachment headers of an export turned away before its first row
+            response.reset();
+        }
+        if (retryAfter != null) {
+            // whole seconds, rounded up so that a client never comes back too early
+            long seconds = Math.max(1, retryAfter.plusNanos(999_999_999).getSeconds());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        }
+        response.sendError(status.value(), message);
+    }
+}
@@ -0,0 +1,221 @@
+package org.example.xphrtestingassignment.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.annotation.UserAuthentication;
+import org.example.xphrtestingassignment.constant.ReportDimension;
+import org.example.xphrtestingassignment.constant.ReportEncoding;
+import org.example.xphrtestingassignment.constant.ReportTotals;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.constant.TimeBucket;
+import org.example.xphrtestingassignment.dto.CompactReportPageDTO;
+import org.example.xphrtestingassignment.dto.GroupedReportDTO;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportPageDTO;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
+import org.example.xphrtestingassignment.service.ReportService;
+import org.example.xphrtestingassignment.service.ReportVersionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The report of {@link ReportController} as JSON, for the frontend and integrations.
+ * <p>
+ * Responses carry a strong ETag derived from the data version of the window ({@link ReportVersionService}) and
+ * the request: a request whose {@code If-None-Match} matches gets a 304 without the report being computed. The
+ * body is gzip compressed here when the client accepts it, because the connector does not compress responses with
+ * a strong ETag; the compressed representation has its own ETag.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/reports")
+public class ReportApiController {
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    private final ReportService reportService;
+    private final ReportVersionService reportVersionService;
+    private final ObjectMapper objectMapper;
+    private final ReportWindowMode windowMode;
+
+    public ReportApiController(ReportService reportService,
+                               ReportVersionService reportVersionService,
+                               ObjectMapper objectMapper,
+                               @Value("${report.window-mode:CONTAINED}") ReportWindowMode windowMode) {
+        this.reportService = reportService;
+        this.reportVersionService = reportVersionService;
+        this.objectMapper = objectMapper;
+        this.windowMode = windowMode;
+    }
+
+    /**
+     * A page of the report, in the {@code FULL} encoding unless {@code COMPACT} is asked for. Without dates the
+     * window is the last month, as on the report page.
+     */
+    @UserAuthentication
+    @GetMapping
+    public void getReportData(
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "FULL") ReportEncoding encoding,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @AuthenticationPrincipal UserDetails userDetails,
+            ServletWebRequest request,
+            HttpServletResponse response) throws IOException {
+        if (startDate == null || endDate == null) {
+            endDate = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            startDate = endDate.minusMonths(1);
+        }
+        Pageable pageable;
+        try {
+            pageable = PageRequest.of(page, size);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        boolean isAdmin = ReportController.isAdmin(userDetails);
+        Long employeeId = isAdmin ? null : ReportController.employeeIdOf(userDetails);
+        boolean compressed = acceptsGzip(acceptEncoding);
+
+        // the version is read before the report, so that a change committed in between yields a newer report
+        // under the older ETag, never the other way round
+        long version = reportVersionService.getVersion(startDate, endDate);
+        String etag = etag(version, employeeId, startDate, endDate, Integer.toString(pageable.getPageNumber()),
+                Integer.toString(pageable.getPageSize()), encoding.name()) + (compressed ? "-gzip" : "");
+        if (notModified(etag, request, response)) {
+            log.debug("user: {} report from {} to {} not modified", userDetails.getUsername(), startDate, endDate);
+            return;
+        }
+
+        Page<ReportDTO> reportData = isAdmin
+                ? reportService.getReportData(startDate, endDate, pageable)
+                : reportService.getReportDataForSpecificEmployee(employeeId, startDate, endDate, pageable);
+        writeJson(encoding == ReportEncoding.COMPACT
+                ? CompactReportPageDTO.of(startDate, endDate, reportData)
+                : ReportPageDTO.of(startDate, endDate, reportData), compressed, response);
+
+        log.debug("user: {} get report json from {} to {}, page: {}, size: {}, rows: {}",
+                userDetails.getUsername(), startDate, endDate, page, size, reportData.getNumberOfElements());
+    }
+
+    /**
+     * The report of a definition: the hours by {@code dimensions} (in this order), per {@code bucket} for the
+     * PERIOD dimension, with the subtotals of {@code totals}; all rows at once, no more than
+     * {@code report.definition.max-rows}. Without dates the window is the last month; employees get the rows of
+     * their own records only. Cached and revalidated like the pages of the report.
+     */
+    @UserAuthentication
+    @GetMapping("/grouped")
+    public void getGroupedReport(
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(defaultValue = "EMPLOYEE,PROJECT") List<ReportDimension> dimensions,
+            @RequestParam(required = false) TimeBucket bucket,
+            @RequestParam(defaultValue = "NONE") ReportTotals totals,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @AuthenticationPrincipal UserDetails userDetails,
+            ServletWebRequest request,
+            HttpServletResponse response) throws IOException {
+        if (startDate == null || endDate == null) {
+            endDate = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            startDate = endDate.minusMonths(1);
+        }
+        Long employeeId = ReportController.isAdmin(userDetails) ? null : ReportController.employeeIdOf(userDetails);
+        ReportDefinition definition;
+        try {
+            definition = ReportDefinition.of(startDate, endDate, employeeId, dimensions, bucket, totals);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        boolean compressed = acceptsGzip(acceptEncoding);
+
+        long version = reportVersionService.getVersion(startDate, endDate);
+        String etag = etag(version, employeeId, startDate, endDate, "grouped", definition.dimensions().toString(),
+                String.valueOf(definition.timeBucket()), definition.groupingSets().toString())
+                + (compressed ? "-gzip" : "");
+        if (notModified(etag, request, response)) {
+            log.debug("user: {} grouped report from {} to {} not modified",
+                    userDetails.getUsername(), startDate, endDate);
+            return;
+        }
+
+        List<ReportRowDTO> rows = reportService.getReport(definition);
+        writeJson(GroupedReportDTO.of(definition, rows), compressed, response);
+
+        log.debug("user: {} get grouped report json from {} to {}, dimensions: {}, bucket: {}, totals: {}, rows: {}",
+                userDetails.getUsername(), startDate, endDate, dimensions, bucket, totals, rows.size());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    /**
+     * Sets the caching headers of a report response and answers 304 if the client holds {@code etag} already.
+     */
+    private static boolean notModified(String etag, ServletWebRequest request, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return request.checkNotModified(etag);
+    }
+
+    private void writeJson(Object body, boolean compressed, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (compressed) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        try (OutputStream out = compressed
+                ? new GZIPOutputStream(response.getOutputStream(), 8192)
+                : response.getOutputStream()) {
+            objectMapper.writeValue(out, body);
+        }
+    }
+
+    /**
+     * Everything the body depends on besides the data: the scope, the window and how it is added up, and the
+     * {@code request} parts, such as the page and the encoding.
+     */
+    private String etag(long version, Long employeeId, LocalDateTime startDate, LocalDateTime endDate,
+                        String... request) {
+        String key = String.join("|", Long.toString(version), String.valueOf(employeeId), startDate.toString(),
+                endDate.toString(), windowMode.name(), String.join("|", request));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
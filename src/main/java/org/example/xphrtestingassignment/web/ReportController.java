@@ -4,11 +4,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.xphrtestingassignment.annotation.UserAuthentication;
 import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.dto.ReportCursor;
 import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.security.EmployeeUserDetails;
 import org.example.xphrtestingassignment.service.ReportService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
@@ -16,8 +20,10 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Slf4j
 @Controller
@@ -25,6 +31,8 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class ReportController {
 
+    static final int MAX_SLICE_SIZE = 1000;
+
     private final ReportService reportService;
 
     @UserAuthentication
@@ -37,28 +45,26 @@ public class ReportController {
             @AuthenticationPrincipal UserDetails userDetails,
             Model model) {
         // Provide default dates if none are provided
+        // (minute precision like the date inputs, so reloads within a minute hit the report cache)
         if (startDate == null || endDate == null) {
-            startDate = LocalDateTime.now().minusMonths(1);
-            endDate = LocalDateTime.now();
+            endDate = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            startDate = endDate.minusMonths(1);
         }
 
         Pageable pageable = PageRequest.of(page, size);
 
         var username = userDetails.getUsername();
-        log.info("user: {} logged in at {}", username, LocalDateTime.now());
-        boolean isAdmin = userDetails.getAuthorities().stream().anyMatch(auth ->
-                auth.getAuthority().equalsIgnoreCase("ROLE_" + UserRoles.ADMIN.name()));
+        boolean isAdmin = isAdmin(userDetails);
 
         // we have 2 ways to get report data here:
         // 1. Admin can see all data
-        // 2. Employee can only see their own data -> so we can filter it in code
-        // but it's better to use query with username = employee_name -> avoid get all data.
-        // assuming that username is employee_name
+        // 2. Employee can only see their own data -> filtered in the query by the employee id resolved at login
         Page<ReportDTO> reportData;
         if (isAdmin) {
             reportData = reportService.getReportData(startDate, endDate, pageable);
         } else {
-            reportData = reportService.getReportDataForSpecificEmployee(username, startDate, endDate, pageable);
+            reportData = reportService.getReportDataForSpecificEmployee(
+                    employeeIdOf(userDetails), startDate, endDate, pageable);
         }
 
         model.addAttribute("reportData", reportData);
@@ -70,9 +76,103 @@ public class ReportController {
         model.addAttribute("username", username);
         model.addAttribute("role", (isAdmin ? UserRoles.ADMIN.name() : UserRoles.EMPLOYEE.name()));
 
-        log.info("user: {} get report data from {} to {}, page: {}, size: {}, data {}",
-                username, startDate, endDate, page, size, reportData.getContent());
+        log.debug("user: {} get report data from {} to {}, page: {}, size: {}, rows: {}",
+                username, startDate, endDate, page, size, reportData.getNumberOfElements());
+
+        return "work_hours_report";
+    }
+
+    /**
+     * Cursor based variant of {@link #getReportData}: pages are addressed by the opaque {@code after} token of
+     * the last row already shown instead of a page number, and the total is only counted when requested.
+     */
+    @UserAuthentication
+    @GetMapping("/reports/keyset")
+    public String getReportDataByCursor(
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @AuthenticationPrincipal UserDetails userDetails,
+            Model model) {
+        if (startDate == null || endDate == null) {
+            endDate = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            startDate = endDate.minusMonths(1);
+        }
+
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "The page size must be between 1 and " + MAX_SLICE_SIZE);
+        }
+
+        ReportCursor cursor = decodeCursor(after);
+        var username = userDetails.getUsername();
+        boolean isAdmin = isAdmin(userDetails);
+
+        Slice<ReportDTO> reportData;
+        Long totalElements = null;
+        if (isAdmin) {
+            reportData = reportService.getReportDataAfter(startDate, endDate, cursor, size);
+            if (withTotal) {
+                totalElements = reportService.countReportData(startDate, endDate);
+            }
+        } else {
+            long employeeId = employeeIdOf(userDetails);
+            reportData = reportService.getReportDataForSpecificEmployeeAfter(employeeId, startDate, endDate, cursor, size);
+            if (withTotal) {
+                totalElements = reportService.countReportDataForSpecificEmployee(employeeId, startDate, endDate);
+            }
+        }
+
+        String nextCursor = reportData.hasNext()
+                ? ReportCursor.of(reportData.getContent().get(reportData.getNumberOfElements() - 1)).encode()
+                : null;
+
+        model.addAttribute("reportData", reportData);
+        model.addAttribute("keyset", true);
+        model.addAttribute("after", after);
+        model.addAttribute("nextCursor", nextCursor);
+        model.addAttribute("totalElements", totalElements);
+        model.addAttribute("withTotal", withTotal);
+        model.addAttribute("startDate", startDate);
+        model.addAttribute("endDate", endDate);
+        model.addAttribute("pageSize", size);
+
+        model.addAttribute("username", username);
+        model.addAttribute("role", (isAdmin ? UserRoles.ADMIN.name() : UserRoles.EMPLOYEE.name()));
+
+        log.debug("user: {} get report slice from {} to {}, after: {}, size: {}, rows: {}",
+                username, startDate, endDate, after, size, reportData.getNumberOfElements());
 
         return "work_hours_report";
     }
-}
\ No newline at end of file
+
+    static boolean isAdmin(UserDetails userDetails) {
+        return userDetails.getAuthorities().stream().anyMatch(auth ->
+                auth.getAuthority().equalsIgnoreCase("ROLE_" + UserRoles.ADMIN.name()));
+    }
+
+    /**
+     * The employee a non-admin user is mapped to. Users without an employee have no report of their own.
+     */
+    static long employeeIdOf(UserDetails userDetails) {
+        Long employeeId = EmployeeUserDetails.employeeIdOf(userDetails);
+        if (employeeId == null) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
+                    "No employee is linked to user " + userDetails.getUsername());
+        }
+        return employeeId;
+    }
+
+    private static ReportCursor decodeCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        try {
+            return ReportCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.xphrtestingassignment.web;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.annotation.UserAuthentication;
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.service.ReportExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Slf4j
+@Controller
+@RequestMapping("/web")
+@RequiredArgsConstructor
+public class ReportExportController {
+
+    private final ReportExportService reportExportService;
+
+    /**
+     * Streams the whole report (or the raw time records with {@code raw=true}) as CSV or NDJSON. Admins export
+     * every employee, employees only their own rows, like {@link ReportController}.
+     */
+    @UserAuthentication
+    @GetMapping("/reports/export")
+    public void exportReport(
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean raw,
+            @AuthenticationPrincipal UserDetails userDetails,
+            HttpServletResponse response) throws IOException {
+        if (startDate == null || endDate == null) {
+            endDate = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            startDate = endDate.minusMonths(1);
+        }
+
+        DataFormat exportFormat;
+        try {
+            exportFormat = DataFormat.from(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format, e);
+        }
+
+        var username = userDetails.getUsername();
+        Long scope = ReportController.isAdmin(userDetails) ? null : ReportController.employeeIdOf(userDetails);
+
+        String filename = (raw ? "time-records" : "work-hours-report") + "." + exportFormat.getExtension();
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString());
+
+        OutputStream out = response.getOutputStream();
+        long rows = raw
+                ? reportExportService.exportTimeRecords(scope, startDate, endDate, exportFormat, out)
+                : reportExportService.exportReport(scope, startDate, endDate, exportFormat, out);
+
+        log.info("user: {} exported {} {} rows from {} to {} as {}",
+                username, rows, raw ? "time record" : "report", startDate, endDate, exportFormat);
+    }
+}
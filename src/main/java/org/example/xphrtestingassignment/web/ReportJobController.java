@@ -0,0 +1,167 @@
+package org.example.xphrtestingassignment.web;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.annotation.UserAuthentication;
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.constant.ReportGrouping;
+import org.example.xphrtestingassignment.constant.ReportJobStatus;
+import org.example.xphrtestingassignment.dto.ReportJobDTO;
+import org.example.xphrtestingassignment.dto.ReportJobRequest;
+import org.example.xphrtestingassignment.entity.ReportJob;
+import org.example.xphrtestingassignment.service.ReportJobService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Reports too large for a page load: submit a job, follow its progress by polling it or through server-sent
+ * events, and download the result once it is done. A job is visible to the user who submitted it and to admins.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/report-jobs")
+public class ReportJobController {
+
+    private final ReportJobService reportJobService;
+    private final Duration subscribeTimeout;
+
+    public ReportJobController(ReportJobService reportJobService,
+                               @Value("${report.job.subscribe-timeout:PT30M}") Duration subscribeTimeout) {
+        this.reportJobService = reportJobService;
+        this.subscribeTimeout = subscribeTimeout;
+    }
+
+    /**
+     * Queues a report job and answers 202 with the job and its location. Admins report on every employee unless
+     * they name one, employees only on themselves.
+     */
+    @UserAuthentication
+    @PostMapping
+    public ResponseEntity<ReportJobDTO> submit(@RequestBody ReportJobRequest request,
+                                               @AuthenticationPrincipal UserDetails userDetails) {
+        if (request.startDate() == null || request.endDate() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "startDate and endDate are required");
+        }
+        Long scope = request.employeeId();
+        if (!ReportController.isAdmin(userDetails)) {
+            long own = ReportController.employeeIdOf(userDetails);
+            if (scope != null && scope != own) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Employees only report on themselves");
+            }
+            scope = own;
+        }
+
+        ReportJob job;
+        try {
+            job = reportJobService.submit(userDetails.getUsername(), scope, request.startDate(), request.endDate(),
+                    Objects.requireNonNullElse(request.grouping(), ReportGrouping.EMPLOYEE_PROJECT),
+                    Objects.requireNonNullElse(request.format(), DataFormat.CSV));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/report-jobs/" + job.getId()))
+                .body(ReportJobDTO.of(job));
+    }
+
+    @UserAuthentication
+    @GetMapping("/{id}")
+    public ReportJobDTO getJob(@PathVariable UUID id, @AuthenticationPrincipal UserDetails userDetails) {
+        return ReportJobDTO.of(visibleJob(id, userDetails));
+    }
+
+    /**
+     * Streams a {@code progress} event with the job on every change, starting with its current state; the stream
+     * ends once the job is finished.
+     */
+    @UserAuthentication
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@PathVariable UUID id, @AuthenticationPrincipal UserDetails userDetails) {
+        visibleJob(id, userDetails);
+        SseEmitter emitter = new SseEmitter(subscribeTimeout.toMillis());
+        Consumer<ReportJob> listener = job -> send(emitter, job);
+        emitter.onCompletion(() -> reportJobService.removeListener(id, listener));
+        emitter.onTimeout(emitter::complete);
+        reportJobService.addListener(id, listener);
+        // read after subscribing, so that a job finishing in between is not missed
+        send(emitter, visibleJob(id, userDetails));
+        return emitter;
+    }
+
+    /**
+     * Downloads the result of a finished job, as stored (gzip compressed) when the client accepts gzip.
+     */
+    @UserAuthentication
+    @GetMapping("/{id}/result")
+    public void getResult(@PathVariable UUID id,
+                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                          @AuthenticationPrincipal UserDetails userDetails,
+                          HttpServletResponse response) throws IOException {
+        ReportJob job = visibleJob(id, userDetails);
+        if (job.getStatus() != ReportJobStatus.DONE) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Report job " + id + " is " + job.getStatus());
+        }
+
+        boolean compressed = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        DataFormat format = job.getFormat();
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("work-hours-report-" + id + "." + format.getExtension()).build().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (compressed) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setContentLengthLong(job.getResultBytes());
+        }
+        reportJobService.writeResult(id, response.getOutputStream(), compressed);
+
+        log.info("user: {} downloaded report job {} ({} rows)", userDetails.getUsername(), id, job.getResultRows());
+    }
+
+    private ReportJob visibleJob(UUID id, UserDetails userDetails) {
+        return reportJobService.findJob(id)
+                .filter(job -> ReportController.isAdmin(userDetails)
+                        || job.getUsername().equals(userDetails.getUsername()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No report job " + id));
+    }
+
+    private static void send(SseEmitter emitter, ReportJob job) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(ReportJobDTO.of(job), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // the client went away; the listener is dropped once the emitter completes
+            emitter.completeWithError(e);
+            return;
+        } catch (IllegalStateException e) {
+            // already completed, by the final event or a timeout
+            return;
+        }
+        if (job.getStatus().isFinished()) {
+            emitter.complete();
+        }
+    }
+}
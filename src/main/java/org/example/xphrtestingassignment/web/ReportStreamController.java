@@ -0,0 +1,89 @@
+package org.example.xphrtestingassignment.web;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.annotation.UserAuthentication;
+import org.example.xphrtestingassignment.service.ReportStreamService;
+import org.example.xphrtestingassignment.service.ReportStreamService.ReportStreamSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The report as a live stream of server-sent events, for dashboards that would otherwise poll the report page:
+ * a {@code snapshot} event with every (employee, project) cell of the window, then a {@code delta} event with the
+ * cells that changed whenever time records of the window change. Each event carries its sequence as its id.
+ * Without dates the window is the month up to the end of today, fixed when the stream opens: the streams opened on
+ * the same day share it, and with it their feed. Employees get their own cells.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/reports")
+public class ReportStreamController {
+
+    private final ReportStreamService reportStreamService;
+    private final Duration streamTimeout;
+
+    public ReportStreamController(ReportStreamService reportStreamService,
+                                  @Value("${report.stream.timeout:PT1H}") Duration streamTimeout) {
+        this.reportStreamService = reportStreamService;
+        this.streamTimeout = streamTimeout;
+    }
+
+    @UserAuthentication
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) LocalDateTime startDate,
+                             @RequestParam(required = false) LocalDateTime endDate,
+                             @AuthenticationPrincipal UserDetails userDetails) {
+        if (startDate == null || endDate == null) {
+            endDate = LocalDate.now().plusDays(1).atStartOfDay();
+            startDate = endDate.minusMonths(1);
+        }
+        Long employeeId = ReportController.isAdmin(userDetails) ? null : ReportController.employeeIdOf(userDetails);
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Runnable unsubscribe;
+        try {
+            unsubscribe = reportStreamService.subscribe(employeeId, startDate, endDate, new EmitterSink(emitter));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        emitter.onCompletion(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        // the client reconnects and gets a new snapshot
+        emitter.onTimeout(emitter::complete);
+
+        log.debug("user: {} streams the report from {} to {}", userDetails.getUsername(), startDate, endDate);
+        return emitter;
+    }
+
+    private record EmitterSink(SseEmitter emitter) implements ReportStreamSink {
+
+        @Override
+        public void send(String event, long sequence, String json) throws IOException {
+            emitter.send(SseEmitter.event().id(Long.toString(sequence)).name(event)
+                    .data(json, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.xphrtestingassignment.web;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.dto.SessionTokenDTO;
+import org.example.xphrtestingassignment.security.SessionToken;
+import org.example.xphrtestingassignment.security.SessionTokenCodec;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/auth")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "security.token.enabled", havingValue = "true")
+public class SessionTokenController {
+
+    private final SessionTokenCodec sessionTokenCodec;
+
+    /**
+     * Issues a session token to a client that authenticated with its credentials (HTTP Basic), so its next requests
+     * skip the BCrypt check. A token does not renew itself: that would keep a leaked token valid forever.
+     */
+    @PostMapping("/token")
+    public SessionTokenDTO issue(Authentication authentication) {
+        if (authentication.getDetails() instanceof SessionToken) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "A session token needs the credentials");
+        }
+        SessionToken token = sessionTokenCodec.issue((UserDetails) authentication.getPrincipal());
+        log.info("user: {} was issued a session token valid until {}", token.username(), token.expiresAt());
+        return new SessionTokenDTO(sessionTokenCodec.encode(token), "Bearer", token.expiresAt());
+    }
+}
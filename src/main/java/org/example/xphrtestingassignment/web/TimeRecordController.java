@@ -0,0 +1,85 @@
+package org.example.xphrtestingassignment.web;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.annotation.UserAuthentication;
+import org.example.xphrtestingassignment.dto.TimeRecordCursor;
+import org.example.xphrtestingassignment.dto.TimeRecordDTO;
+import org.example.xphrtestingassignment.dto.TimeRecordPageDTO;
+import org.example.xphrtestingassignment.service.TimeRecordService;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The time records behind a row of the report, for drilling down from an (employee, project) total to the shifts
+ * it adds up. A row is addressed by the names it shows, as the report groups by name.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/time-records")
+@RequiredArgsConstructor
+public class TimeRecordController {
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final TimeRecordService timeRecordService;
+
+    /**
+     * A page of the records of {@code employeeName} on {@code projectName} in the window, addressed by the opaque
+     * {@code after} token of the previous page. Without dates the window is the last month, as on the report page.
+     * For admins the row holds the records of every employee of that name, as the report row does; employees get
+     * their own records only.
+     */
+    @UserAuthentication
+    @GetMapping
+    public TimeRecordPageDTO getTimeRecords(
+            @RequestParam String employeeName,
+            @RequestParam String projectName,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        if (startDate == null || endDate == null) {
+            endDate = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+            startDate = endDate.minusMonths(1);
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "The page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (employeeName.isBlank() || projectName.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The employeeName and projectName are required");
+        }
+        Long employeeId = ReportController.isAdmin(userDetails) ? null : ReportController.employeeIdOf(userDetails);
+
+        Slice<TimeRecordDTO> records = timeRecordService.getTimeRecordsAfter(employeeId, employeeName, projectName,
+                startDate, endDate, decodeCursor(after), size);
+
+        log.debug("user: {} get time records of {} on {} from {} to {}, after: {}, size: {}, rows: {}",
+                userDetails.getUsername(), employeeName, projectName, startDate, endDate, after, size,
+                records.getNumberOfElements());
+        return TimeRecordPageDTO.of(employeeName, projectName, startDate, endDate, size, records);
+    }
+
+    private static TimeRecordCursor decodeCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        try {
+            return TimeRecordCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+        }
+    }
+}
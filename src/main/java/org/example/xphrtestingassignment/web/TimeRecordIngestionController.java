@@ -0,0 +1,50 @@
+package org.example.xphrtestingassignment.web;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.xphrtestingassignment.annotation.AdminAuthentication;
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.dto.IngestionResultDTO;
+import org.example.xphrtestingassignment.service.TimeRecordIngestionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/time-records")
+@RequiredArgsConstructor
+public class TimeRecordIngestionController {
+
+    private final TimeRecordIngestionService timeRecordIngestionService;
+
+    /**
+     * Imports time records from a CSV ({@code text/csv}) or NDJSON ({@code application/x-ndjson}) request body.
+     * The body is read as a stream, so imports of any size are loaded batch by batch.
+     */
+    @AdminAuthentication
+    @PostMapping(value = "/bulk", consumes = {"text/csv", "application/x-ndjson"})
+    public IngestionResultDTO ingest(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @AuthenticationPrincipal UserDetails userDetails,
+            InputStream body) throws IOException {
+        DataFormat format = DataFormat.fromContentType(contentType);
+        try {
+            IngestionResultDTO result = timeRecordIngestionService.ingest(body, format);
+            log.info("user: {} imported {} of {} time records ({} duplicates, {} rejected)", userDetails.getUsername(),
+                    result.inserted(), result.received(), result.duplicates(), result.rejected());
+            return result;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+-- Adds the login mapping of employees and the per employee indexes (see schema/V1__schema.sql) to an existing database.
+-- Employees whose name is unique get it as username, which keeps the logins that used to match by name working.
+-- Run once, e.g.:
+--   psql -v ON_ERROR_STOP=1 -f employee_username.sql
+BEGIN;
+
+ALTER TABLE employee ADD COLUMN IF NOT EXISTS username VARCHAR(60) UNIQUE;
+UPDATE employee SET username = name
+WHERE username IS NULL AND name IN (SELECT name FROM employee GROUP BY name HAVING COUNT(*) = 1);
+
+CREATE INDEX IF NOT EXISTS idx_time_record_employee_time_from ON time_record (employee_id, time_from);
+CREATE INDEX IF NOT EXISTS idx_time_record_rollup_employee ON time_record_rollup (employee_id, bucket_from);
+
+COMMIT;
@@ -0,0 +1,70 @@
+-- Migrates an existing single-table time_record to the monthly partitioned layout of schema/V1__schema.sql.
+-- Run once with the application stopped, e.g.:
+--   psql -v ON_ERROR_STOP=1 -f partition_time_record.sql
+-- The rollup is already consistent with the copied rows, so the rollup triggers are only recreated after the copy.
+BEGIN;
+
+LOCK TABLE time_record IN ACCESS EXCLUSIVE MODE;
+
+ALTER TABLE time_record RENAME TO time_record_unpartitioned;
+ALTER TABLE time_record_unpartitioned RENAME CONSTRAINT time_record_pkey TO time_record_unpartitioned_pkey;
+DROP INDEX IF EXISTS idx_time_record_time_from;
+DROP INDEX IF EXISTS idx_time_record_time_to;
+DROP TRIGGER IF EXISTS time_record_rollup_insert ON time_record_unpartitioned;
+DROP TRIGGER IF EXISTS time_record_rollup_update ON time_record_unpartitioned;
+DROP TRIGGER IF EXISTS time_record_rollup_delete ON time_record_unpartitioned;
+
+CREATE TABLE time_record (
+    id BIGINT NOT NULL,
+    employee_id BIGINT NOT NULL REFERENCES employee(id),
+    project_id BIGINT NOT NULL REFERENCES project(id),
+    time_from TIMESTAMP NOT NULL,
+    time_to TIMESTAMP NOT NULL,
+    PRIMARY KEY (id, time_from)
+) PARTITION BY RANGE (time_from);
+
+CREATE TABLE time_record_default PARTITION OF time_record DEFAULT;
+
+CREATE OR REPLACE FUNCTION time_record_ensure_partition(p_month DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    lower_bound TIMESTAMP := date_trunc('month', p_month);
+    upper_bound TIMESTAMP := date_trunc('month', p_month) + INTERVAL '1 month';
+    partition_name TEXT := 'time_record_' || to_char(p_month, '"y"YYYY"m"MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE time_record INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM time_record_default WHERE time_from >= %L AND time_from < %L RETURNING *) INSERT INTO %I SELECT * FROM moved',
+                   lower_bound, upper_bound, partition_name);
+    EXECUTE format('ALTER TABLE time_record ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, lower_bound, upper_bound);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- one partition per month that has data, so the copy below never goes through the default partition
+SELECT time_record_ensure_partition(CAST(month AS DATE))
+FROM generate_series((SELECT date_trunc('month', MIN(time_from)) FROM time_record_unpartitioned),
+                     (SELECT date_trunc('month', MAX(time_from)) FROM time_record_unpartitioned),
+                     INTERVAL '1 month') AS month;
+
+INSERT INTO time_record (id, employee_id, project_id, time_from, time_to)
+SELECT id, employee_id, project_id, time_from, time_to FROM time_record_unpartitioned;
+
+CREATE INDEX idx_time_record_time_from ON time_record (time_from);
+CREATE INDEX idx_time_record_time_to ON time_record (time_to);
+
+CREATE TRIGGER time_record_rollup_insert AFTER INSERT ON time_record
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_rollup_apply();
+CREATE TRIGGER time_record_rollup_update AFTER UPDATE ON time_record
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_rollup_apply();
+CREATE TRIGGER time_record_rollup_delete AFTER DELETE ON time_record
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_rollup_apply();
+
+DROP TABLE time_record_unpartitioned;
+
+COMMIT;
@@ -0,0 +1,40 @@
+-- Adds the tables of the report jobs (see schema/V1__schema.sql) to an existing database.
+-- Run once, e.g.:
+--   psql -v ON_ERROR_STOP=1 -f report_job.sql
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS report_job (
+    id UUID PRIMARY KEY,
+    username VARCHAR(60) NOT NULL,
+    employee_id BIGINT,
+    start_date TIMESTAMP NOT NULL,
+    end_date TIMESTAMP NOT NULL,
+    window_mode VARCHAR(20) NOT NULL,
+    report_grouping VARCHAR(20) NOT NULL,
+    format VARCHAR(10) NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    chunks_total INT NOT NULL,
+    chunks_done INT NOT NULL DEFAULT 0,
+    result_rows BIGINT,
+    result_bytes BIGINT,
+    error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL,
+    finished_at TIMESTAMP,
+    expires_at TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_report_job_expires_at ON report_job (expires_at);
+
+CREATE TABLE IF NOT EXISTS report_job_total (
+    job_id UUID NOT NULL REFERENCES report_job(id) ON DELETE CASCADE,
+    employee_id BIGINT NOT NULL,
+    project_id BIGINT NOT NULL,
+    seconds NUMERIC NOT NULL,
+    PRIMARY KEY (job_id, employee_id, project_id)
+);
+
+CREATE TABLE IF NOT EXISTS report_job_result (
+    job_id UUID PRIMARY KEY REFERENCES report_job(id) ON DELETE CASCADE,
+    content BYTEA NOT NULL
+);
+
+COMMIT;
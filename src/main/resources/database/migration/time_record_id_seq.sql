@@ -0,0 +1,12 @@
+-- Adds the id sequence of time_record (see schema/V1__schema.sql) to an existing database, starting after the
+-- highest id.
+-- Run once, e.g.:
+--   psql -v ON_ERROR_STOP=1 -f time_record_id_seq.sql
+BEGIN;
+
+LOCK TABLE time_record IN SHARE MODE;
+
+CREATE SEQUENCE IF NOT EXISTS time_record_id_seq INCREMENT BY 50;
+SELECT setval('time_record_id_seq', COALESCE((SELECT MAX(id) FROM time_record), 1), (SELECT COUNT(*) > 0 FROM time_record));
+
+COMMIT;
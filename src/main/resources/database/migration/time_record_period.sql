@@ -0,0 +1,10 @@
+-- Adds the interval index of the overlap report mode (see schema/V1__schema.sql) to an existing database.
+-- Fails on records ending before they start; fix or delete those first.
+-- Run once, e.g.:
+--   psql -v ON_ERROR_STOP=1 -f time_record_period.sql
+BEGIN;
+
+ALTER TABLE time_record ADD CONSTRAINT time_record_period_check CHECK (time_to >= time_from);
+CREATE INDEX IF NOT EXISTS idx_time_record_period ON time_record USING gist (tsrange(time_from, time_to, '[]'));
+
+COMMIT;
@@ -0,0 +1,62 @@
+-- Adds the data versions of the report API ETags (see schema/V1__schema.sql) to an existing database. Until a month
+-- changes it has no row and its reports keep their first ETag.
+-- Run once, e.g.:
+--   psql -v ON_ERROR_STOP=1 -f time_record_version.sql
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS time_record_version (
+    month DATE PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION time_record_version_bump() RETURNS TRIGGER AS $$
+DECLARE
+    current_version BIGINT := CAST(CAST(pg_current_xact_id() AS TEXT) AS BIGINT);
+BEGIN
+    IF TG_TABLE_NAME <> 'time_record' THEN
+        -- a renamed employee or project shows up in the reports of every month
+        UPDATE time_record_version SET version = current_version;
+    ELSIF TG_OP = 'INSERT' THEN
+        INSERT INTO time_record_version AS v (month, version)
+        SELECT DISTINCT CAST(m AS DATE), current_version
+        FROM new_rows, generate_series(date_trunc('month', time_from), date_trunc('month', time_to), INTERVAL '1 month') m
+        ORDER BY 1
+        ON CONFLICT (month) DO UPDATE SET version = EXCLUDED.version;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO time_record_version AS v (month, version)
+        SELECT DISTINCT CAST(m AS DATE), current_version
+        FROM old_rows, generate_series(date_trunc('month', time_from), date_trunc('month', time_to), INTERVAL '1 month') m
+        ORDER BY 1
+        ON CONFLICT (month) DO UPDATE SET version = EXCLUDED.version;
+    ELSE
+        INSERT INTO time_record_version AS v (month, version)
+        SELECT DISTINCT CAST(m AS DATE), current_version
+        FROM (SELECT time_from, time_to FROM new_rows UNION ALL SELECT time_from, time_to FROM old_rows) r,
+             generate_series(date_trunc('month', time_from), date_trunc('month', time_to), INTERVAL '1 month') m
+        ORDER BY 1
+        ON CONFLICT (month) DO UPDATE SET version = EXCLUDED.version;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS time_record_version_insert ON time_record;
+CREATE TRIGGER time_record_version_insert AFTER INSERT ON time_record
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_version_bump();
+DROP TRIGGER IF EXISTS time_record_version_update ON time_record;
+CREATE TRIGGER time_record_version_update AFTER UPDATE ON time_record
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_version_bump();
+DROP TRIGGER IF EXISTS time_record_version_delete ON time_record;
+CREATE TRIGGER time_record_version_delete AFTER DELETE ON time_record
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_version_bump();
+DROP TRIGGER IF EXISTS employee_version_rename ON employee;
+CREATE TRIGGER employee_version_rename AFTER UPDATE OF name ON employee
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_version_bump();
+DROP TRIGGER IF EXISTS project_version_rename ON project;
+CREATE TRIGGER project_version_rename AFTER UPDATE OF name ON project
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_version_bump();
+
+COMMIT;
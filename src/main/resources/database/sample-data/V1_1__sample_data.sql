@@ -0,0 +1,20 @@
+-- Sample employees, projects and records, applied once after the schema. Leave classpath:database/sample-data out of
+-- SPRING_FLYWAY_LOCATIONS to start without them. Rows that already exist (a database baselined at version 1) are kept.
+INSERT INTO employee (id, name, username) VALUES
+    (101, 'tom', 'tom'),
+    (102, 'jerry', 'jerry')
+ON CONFLICT DO NOTHING;
+
+INSERT INTO project (id, name) VALUES
+    (1, 'Sample Project A'),
+    (2, 'Sample Project B')
+ON CONFLICT DO NOTHING;
+
+INSERT INTO time_record (id, employee_id, project_id, time_from, time_to) VALUES
+    (1, 101, 1, '2025-08-08 08:00:00', '2025-08-08 17:00:00'),
+    (2, 102, 2, '2025-08-08 09:00:00', '2025-08-08 18:30:00'),
+    (3, 101, 1, '2025-08-21 08:15:00', '2025-08-21 17:10:00')
+ON CONFLICT DO NOTHING;
+
+SELECT setval('time_record_id_seq', GREATEST((SELECT MAX(id) FROM time_record),
+                                             (SELECT last_value FROM time_record_id_seq)));
@@ -0,0 +1,238 @@
+-- The schema as of the first versioned migration. Change it with a new V<n>__<description>.sql next to this file;
+-- migrations that already ran must not be edited.
+
+CREATE TABLE project (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(200) NOT NULL
+);
+
+-- username maps a login to the employee (see EmployeeUserDetailsService); name is only displayed
+CREATE TABLE employee (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(60) NOT NULL,
+    username VARCHAR(60) UNIQUE
+);
+
+-- Ids of time_record. Hibernate and the bulk ingestion draw from it; the increment matches the
+-- allocationSize of TimeRecord so Hibernate hands out 50 ids per round trip.
+CREATE SEQUENCE time_record_id_seq INCREMENT BY 50;
+
+-- Range partitioned by month of time_from (time_record_yYYYYmMM), see TimeRecordPartitionService.
+-- The partition key has to be part of the primary key.
+CREATE TABLE time_record (
+    id BIGINT NOT NULL,
+    employee_id BIGINT NOT NULL REFERENCES employee(id),
+    project_id BIGINT NOT NULL REFERENCES project(id),
+    time_from TIMESTAMP NOT NULL,
+    time_to TIMESTAMP NOT NULL,
+    PRIMARY KEY (id, time_from),
+    -- a range with its bounds reversed cannot be built (idx_time_record_period)
+    CONSTRAINT time_record_period_check CHECK (time_to >= time_from)
+) PARTITION BY RANGE (time_from);
+
+-- Catches records of months without a partition yet; they are moved out once the partition is created.
+CREATE TABLE time_record_default PARTITION OF time_record DEFAULT;
+-- For optimization of report query - check file: part1-explanation.md
+-- The report reads whole days from time_record_rollup and only touches raw rows at the edges of the window:
+-- records starting in the partial first day (time_from) and records ending in the partial last day (time_to).
+CREATE INDEX idx_time_record_time_from ON time_record (time_from);
+CREATE INDEX idx_time_record_time_to ON time_record (time_to);
+-- The employee report is a range scan per employee: records of one employee_id ordered by time_from.
+CREATE INDEX idx_time_record_employee_time_from ON time_record (employee_id, time_from);
+-- Overlap mode (report.window-mode=OVERLAP) also reports the records crossing an edge of the window, clipped to it.
+-- They are the records whose closed interval contains the start or the end instant: a GiST stabbing query each,
+-- whose cost follows the records in progress at that instant and not the length of the window.
+CREATE INDEX idx_time_record_period ON time_record USING gist (tsrange(time_from, time_to, '[]'));
+
+-- Daily rollup of time_record keyed by the day a record starts and the day it ends, so that a window made of
+-- whole days selects exactly the records with time_from >= start and time_to < end.
+CREATE TABLE time_record_rollup (
+    bucket_from DATE NOT NULL,
+    bucket_to DATE NOT NULL,
+    employee_id BIGINT NOT NULL,
+    project_id BIGINT NOT NULL,
+    total_seconds NUMERIC NOT NULL,
+    record_count BIGINT NOT NULL,
+    PRIMARY KEY (bucket_from, bucket_to, employee_id, project_id)
+);
+-- Whole days of one employee for the employee report
+CREATE INDEX idx_time_record_rollup_employee ON time_record_rollup (employee_id, bucket_from);
+
+-- Kept current in the same transaction as the change to time_record. The triggers are statement level with
+-- transition tables, so a batch insert costs one upsert per touched bucket instead of one per row.
+CREATE FUNCTION time_record_rollup_apply() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO time_record_rollup AS r
+            (bucket_from, bucket_to, employee_id, project_id, total_seconds, record_count)
+        SELECT CAST(time_from AS DATE), CAST(time_to AS DATE), employee_id, project_id,
+               SUM(EXTRACT(EPOCH FROM (time_to - time_from))), COUNT(*)
+        FROM new_rows
+        GROUP BY 1, 2, 3, 4
+        ORDER BY 1, 2, 3, 4
+        ON CONFLICT (bucket_from, bucket_to, employee_id, project_id) DO UPDATE
+            SET total_seconds = r.total_seconds + EXCLUDED.total_seconds,
+                record_count = r.record_count + EXCLUDED.record_count;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO time_record_rollup AS r
+            (bucket_from, bucket_to, employee_id, project_id, total_seconds, record_count)
+        SELECT CAST(time_from AS DATE), CAST(time_to AS DATE), employee_id, project_id,
+               -SUM(EXTRACT(EPOCH FROM (time_to - time_from))), -COUNT(*)
+        FROM old_rows
+        GROUP BY 1, 2, 3, 4
+        ORDER BY 1, 2, 3, 4
+        ON CONFLICT (bucket_from, bucket_to, employee_id, project_id) DO UPDATE
+            SET total_seconds = r.total_seconds + EXCLUDED.total_seconds,
+                record_count = r.record_count + EXCLUDED.record_count;
+        DELETE FROM time_record_rollup r
+        USING old_rows o
+        WHERE r.bucket_from = CAST(o.time_from AS DATE) AND r.bucket_to = CAST(o.time_to AS DATE)
+          AND r.employee_id = o.employee_id AND r.project_id = o.project_id
+          AND r.record_count = 0;
+    ELSE
+        INSERT INTO time_record_rollup AS r
+            (bucket_from, bucket_to, employee_id, project_id, total_seconds, record_count)
+        SELECT bucket_from, bucket_to, employee_id, project_id, SUM(seconds), SUM(records)
+        FROM (SELECT CAST(time_from AS DATE) AS bucket_from, CAST(time_to AS DATE) AS bucket_to,
+                     employee_id, project_id, EXTRACT(EPOCH FROM (time_to - time_from)) AS seconds, 1 AS records
+              FROM new_rows
+              UNION ALL
+              SELECT CAST(time_from AS DATE), CAST(time_to AS DATE),
+                     employee_id, project_id, -EXTRACT(EPOCH FROM (time_to - time_from)), -1
+              FROM old_rows) delta
+        GROUP BY 1, 2, 3, 4
+        ORDER BY 1, 2, 3, 4
+        ON CONFLICT (bucket_from, bucket_to, employee_id, project_id) DO UPDATE
+            SET total_seconds = r.total_seconds + EXCLUDED.total_seconds,
+                record_count = r.record_count + EXCLUDED.record_count;
+        DELETE FROM time_record_rollup r
+        USING old_rows o
+        WHERE r.bucket_from = CAST(o.time_from AS DATE) AND r.bucket_to = CAST(o.time_to AS DATE)
+          AND r.employee_id = o.employee_id AND r.project_id = o.project_id
+          AND r.record_count = 0;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER time_record_rollup_insert AFTER INSERT ON time_record
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_rollup_apply();
+CREATE TRIGGER time_record_rollup_update AFTER UPDATE ON time_record
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_rollup_apply();
+CREATE TRIGGER time_record_rollup_delete AFTER DELETE ON time_record
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_rollup_apply();
+
+-- Data version of each month for the ETags of the report API (ReportVersionService): the id of the last transaction
+-- that changed a record spanning the month, or renamed an employee or project. Transaction ids are not reused, so a
+-- version does not come back, not even after the tables are recreated. Months without a row have never changed.
+CREATE TABLE time_record_version (
+    month DATE PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+-- Statement level like the rollup triggers. Writers of the same month queue on its row until they commit.
+CREATE FUNCTION time_record_version_bump() RETURNS TRIGGER AS $$
+DECLARE
+    current_version BIGINT := CAST(CAST(pg_current_xact_id() AS TEXT) AS BIGINT);
+BEGIN
+    IF TG_TABLE_NAME <> 'time_record' THEN
+        -- a renamed employee or project shows up in the reports of every month
+        UPDATE time_record_version SET version = current_version;
+    ELSIF TG_OP = 'INSERT' THEN
+        INSERT INTO time_record_version AS v (month, version)
+        SELECT DISTINCT CAST(m AS DATE), current_version
+        FROM new_rows, generate_series(date_trunc('month', time_from), date_trunc('month', time_to), INTERVAL '1 month') m
+        ORDER BY 1
+        ON CONFLICT (month) DO UPDATE SET version = EXCLUDED.version;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO time_record_version AS v (month, version)
+        SELECT DISTINCT CAST(m AS DATE), current_version
+        FROM old_rows, generate_series(date_trunc('month', time_from), date_trunc('month', time_to), INTERVAL '1 month') m
+        ORDER BY 1
+        ON CONFLICT (month) DO UPDATE SET version = EXCLUDED.version;
+    ELSE
+        INSERT INTO time_record_version AS v (month, version)
+        SELECT DISTINCT CAST(m AS DATE), current_version
+        FROM (SELECT time_from, time_to FROM new_rows UNION ALL SELECT time_from, time_to FROM old_rows) r,
+             generate_series(date_trunc('month', time_from), date_trunc('month', time_to), INTERVAL '1 month') m
+        ORDER BY 1
+        ON CONFLICT (month) DO UPDATE SET version = EXCLUDED.version;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER time_record_version_insert AFTER INSERT ON time_record
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_version_bump();
+CREATE TRIGGER time_record_version_update AFTER UPDATE ON time_record
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_version_bump();
+CREATE TRIGGER time_record_version_delete AFTER DELETE ON time_record
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_version_bump();
+CREATE TRIGGER employee_version_rename AFTER UPDATE OF name ON employee
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_version_bump();
+CREATE TRIGGER project_version_rename AFTER UPDATE OF name ON project
+    FOR EACH STATEMENT EXECUTE FUNCTION time_record_version_bump();
+
+-- Creates the partition of the month containing p_month, moving the records of that month out of the default
+-- partition first. The move happens on the partitions directly, so the rollup triggers do not fire.
+CREATE FUNCTION time_record_ensure_partition(p_month DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    lower_bound TIMESTAMP := date_trunc('month', p_month);
+    upper_bound TIMESTAMP := date_trunc('month', p_month) + INTERVAL '1 month';
+    partition_name TEXT := 'time_record_' || to_char(p_month, '"y"YYYY"m"MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE time_record INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM time_record_default WHERE time_from >= %L AND time_from < %L RETURNING *) INSERT INTO %I SELECT * FROM moved',
+                   lower_bound, upper_bound, partition_name);
+    EXECUTE format('ALTER TABLE time_record ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, lower_bound, upper_bound);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Report jobs (ReportJobService): reports over long windows computed one month at a time in the background.
+-- chunks_done is the checkpoint, moved in the same transaction that adds a month to report_job_total.
+CREATE TABLE report_job (
+    id UUID PRIMARY KEY,
+    username VARCHAR(60) NOT NULL,
+    employee_id BIGINT,
+    start_date TIMESTAMP NOT NULL,
+    end_date TIMESTAMP NOT NULL,
+    window_mode VARCHAR(20) NOT NULL,
+    report_grouping VARCHAR(20) NOT NULL,
+    format VARCHAR(10) NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    chunks_total INT NOT NULL,
+    chunks_done INT NOT NULL DEFAULT 0,
+    result_rows BIGINT,
+    result_bytes BIGINT,
+    error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL,
+    finished_at TIMESTAMP,
+    expires_at TIMESTAMP
+);
+CREATE INDEX idx_report_job_expires_at ON report_job (expires_at);
+
+-- Running totals of an unfinished job, one row per employee and project; dropped once the result is stored
+CREATE TABLE report_job_total (
+    job_id UUID NOT NULL REFERENCES report_job(id) ON DELETE CASCADE,
+    employee_id BIGINT NOT NULL,
+    project_id BIGINT NOT NULL,
+    seconds NUMERIC NOT NULL,
+    PRIMARY KEY (job_id, employee_id, project_id)
+);
+
+-- The result of a finished job in its format, gzip compressed; deleted with the job when it expires
+CREATE TABLE report_job_result (
+    job_id UUID PRIMARY KEY REFERENCES report_job(id) ON DELETE CASCADE,
+    content BYTEA NOT NULL
+);
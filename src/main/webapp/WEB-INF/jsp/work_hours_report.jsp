@@ -1,6 +1,6 @@
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
-<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" session="false" %>
 <html>
     <head>
         <title>Work Hours Report</title>
@@ -9,6 +9,7 @@
     <body class="bg-light">
         <c:set var="currentPage" value="${empty param.page ? 0 : param.page}" />
         <c:set var="pageSize" value="${empty param.size ? 10 : param.size}" />
+        <c:set var="reportPath" value="${pageContext.request.contextPath}${keyset ? '/web/reports/keyset' : '/web/reports'}" />
         <div class="container mt-5">
             <div class="d-flex justify-content-between align-items-center mb-3">
                 <div>
@@ -23,7 +24,7 @@
             <h2 class="mb-4">Work Hours Report</h2>
 
             <!-- Filter Form -->
-            <form class="row g-3 mb-4" method="get" action="${pageContext.request.contextPath}/web/reports">
+            <form class="row g-3 mb-4" method="get" action="${reportPath}">
                 <div class="col-md-5">
                     <label for="startDate" class="form-label">Start Date</label>
                     <input type="datetime-local" class="form-control" id="startDate" name="startDate"
@@ -35,15 +36,29 @@
                            value="${param.endDate}">
                 </div>
                 <div class="col-md-2 d-flex align-items-end">
+                    <c:if test="${keyset}">
+                        <input type="hidden" name="withTotal" value="${withTotal}" />
+                    </c:if>
                     <button type="submit" class="btn btn-primary w-100">Filter</button>
                 </div>
             </form>
 
             <!-- Page Size Selector -->
-            <form method="get" class="mb-3 d-flex justify-content-end align-items-center">
+            <form method="get" action="${reportPath}" class="mb-3 d-flex justify-content-end align-items-center">
+                <a class="btn btn-outline-secondary btn-sm me-2"
+                   href="${pageContext.request.contextPath}/web/reports/export?format=csv&startDate=${param.startDate}&endDate=${param.endDate}">Export CSV</a>
+                <a class="btn btn-outline-secondary btn-sm me-auto"
+                   href="${pageContext.request.contextPath}/web/reports/export?format=ndjson&startDate=${param.startDate}&endDate=${param.endDate}">Export NDJSON</a>
                 <input type="hidden" name="startDate" value="${param.startDate}" />
                 <input type="hidden" name="endDate" value="${param.endDate}" />
-                <input type="hidden" name="page" value="${currentPage}" />
+                <c:choose>
+                    <c:when test="${keyset}">
+                        <input type="hidden" name="withTotal" value="${withTotal}" />
+                    </c:when>
+                    <c:otherwise>
+                        <input type="hidden" name="page" value="${currentPage}" />
+                    </c:otherwise>
+                </c:choose>
                 <label for="size" class="me-2">Items per page:</label>
                 <select name="size" id="size" onchange="this.form.submit()" class="form-select w-auto">
                     <option value="10" ${pageSize == 10 ? 'selected' : ''}>10</option>
@@ -79,8 +94,38 @@
                 <div class="alert alert-info mt-4">No data available for the selected range.</div>
             </c:if>
 
+            <!-- Cursor Pagination Controls -->
+            <c:if test="${keyset}">
+                <nav class="d-flex justify-content-between align-items-center mt-4">
+                    <span class="text-muted">
+                        <c:if test="${totalElements != null}">${totalElements} rows in total</c:if>
+                    </span>
+                    <div class="d-flex gap-2">
+                        <c:if test="${not empty after}">
+                            <form method="get" action="${reportPath}" class="d-inline">
+                                <input type="hidden" name="startDate" value="${param.startDate}" />
+                                <input type="hidden" name="endDate" value="${param.endDate}" />
+                                <input type="hidden" name="size" value="${pageSize}" />
+                                <input type="hidden" name="withTotal" value="${withTotal}" />
+                                <button type="submit" class="btn btn-outline-secondary btn-sm">First</button>
+                            </form>
+                        </c:if>
+                        <c:if test="${not empty nextCursor}">
+                            <form method="get" action="${reportPath}" class="d-inline">
+                                <input type="hidden" name="startDate" value="${param.startDate}" />
+                                <input type="hidden" name="endDate" value="${param.endDate}" />
+                                <input type="hidden" name="size" value="${pageSize}" />
+                                <input type="hidden" name="withTotal" value="${withTotal}" />
+                                <input type="hidden" name="after" value="${nextCursor}" />
+                                <button type="submit" class="btn btn-outline-primary btn-sm">Next</button>
+                            </form>
+                        </c:if>
+                    </div>
+                </nav>
+            </c:if>
+
             <!-- Pagination Controls -->
-            <c:if test="${reportData.totalPages > 1}">
+            <c:if test="${not keyset and reportData.totalPages > 1}">
                 <nav>
                     <ul class="pagination justify-content-center mt-4">
                         <c:forEach begin="0" end="${reportData.totalPages - 1}" var="i">
@@ -0,0 +1,169 @@
+package org.example.xphrtestingassignment.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArchiveSegmentTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2025, 3);
+
+    private static final long MONTH_START = MONTH.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) * 1_000_000;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void write_thenOpenReadsTheSameRecordsAndTotals() throws IOException {
+        List<long[]> records = records(5_000);
+
+        ArchiveSegment segment = write(records);
+
+        assertThat(segment.file().getFileName().toString()).isEqualTo("time_record_y2025m03.seg");
+        assertThat(segment.month()).isEqualTo(MONTH);
+        assertThat(segment.records()).isEqualTo(records.size());
+        assertThat(segment.minFrom()).isEqualTo(records.get(0)[0]);
+        assertThat(segment.maxFrom()).isEqualTo(records.get(records.size() - 1)[0]);
+        assertThat(segment.maxTo()).isEqualTo(records.stream().mapToLong(record -> record[1]).max().orElseThrow());
+        assertThat(segment.totalMicros()).isEqualTo(records.stream().mapToLong(record -> record[1] - record[0]).sum());
+        // below half the 32 bytes of the raw columns, even with a quarter of the times in microseconds
+        assertThat(segment.fileBytes()).isLessThan(16L * records.size());
+
+        List<long[]> read = new ArrayList<>();
+        segment.scan(Long.MIN_VALUE, Long.MAX_VALUE, (from, to, employee, project) ->
+                read.add(new long[]{from, to, segment.employeeId(employee), segment.projectId(project)}));
+        assertThat(read).containsExactlyElementsOf(records);
+
+        long[] pairTotals = {0, 0};
+        segment.forEachPair((employee, project, count, micros) -> {
+            pairTotals[0] += count;
+            pairTotals[1] += micros;
+        });
+        assertThat(pairTotals).containsExactly(records.size(), segment.totalMicros());
+        assertThat(segment.employeeOrdinal(7)).isEqualTo(-1);
+    }
+
+    @Test
+    void scan_thenVisitsTheRecordsStartingInTheRangeOnly() throws IOException {
+        List<long[]> records = records(5_000);
+        ArchiveSegment segment = write(records);
+        Random random = new Random(3);
+
+        for (int i = 0; i < 50; i++) {
+            long low = MONTH_START + (long) random.nextInt(31 * 24 * 60) * 60_000_000;
+            long high = low + (long) random.nextInt(3 * 24 * 60) * 60_000_000;
+            List<long[]> expected = records.stream().filter(record -> record[0] >= low && record[0] < high).toList();
+
+            List<long[]> read = new ArrayList<>();
+            segment.scan(low, high, (from, to, employee, project) ->
+                    read.add(new long[]{from, to, segment.employeeId(employee), segment.projectId(project)}));
+
+            assertThat(read).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void write_whenTimesAreWholeSeconds_thenAFewBytesPerRecord() throws IOException {
+        List<long[]> records = records(5_000).stream()
+                .map(record -> new long[]{record[0] / 1_000_000 * 1_000_000, record[1] / 1_000_000 * 1_000_000,
+                        record[2], record[3]})
+                .toList();
+
+        ArchiveSegment segment = write(records);
+
+        assertThat(segment.fileBytes()).isLessThan(8L * records.size());
+        List<long[]> read = new ArrayList<>();
+        segment.scan(Long.MIN_VALUE, Long.MAX_VALUE, (from, to, employee, project) ->
+                read.add(new long[]{from, to, segment.employeeId(employee), segment.projectId(project)}));
+        assertThat(read).containsExactlyElementsOf(records);
+    }
+
+    @Test
+    void open_whenFileIsCorrupt_thenRefusesIt() throws IOException {
+        Path file = write(records(100)).file();
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(raw.length() - 1);
+            int last = raw.read();
+            raw.seek(raw.length() - 1);
+            raw.write(last ^ 1);
+        }
+
+        assertThatThrownBy(() -> ArchiveSegment.open(file)).isInstanceOf(IOException.class)
+                .hasMessageContaining("checksum");
+    }
+
+    @Test
+    void open_whenFileIsTruncated_thenRefusesIt() throws IOException {
+        Path file = write(records(100)).file();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThatThrownBy(() -> ArchiveSegment.open(file)).isInstanceOf(IOException.class)
+                .hasMessageContaining("truncated");
+    }
+
+    @Test
+    void add_whenRecordIsOutOfOrderOrOutsideTheMonth_thenRejectsIt() {
+        ArchiveSegment.Writer writer = new ArchiveSegment.Writer(MONTH);
+        writer.add(MONTH_START + 10, MONTH_START + 20, 1, 1);
+
+        assertThatThrownBy(() -> writer.add(MONTH_START + 5, MONTH_START + 20, 1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> writer.add(MONTH_START - 1, MONTH_START + 20, 1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> writer.add(MONTH_START + 30, MONTH_START + 20, 1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void write_whenMonthHasNoRecords_thenEmptySegment() throws IOException {
+        ArchiveSegment segment = write(List.of());
+
+        assertThat(segment.records()).isZero();
+        assertThat(segment.totalMicros()).isZero();
+        segment.scan(Long.MIN_VALUE, Long.MAX_VALUE, (from, to, employee, project) -> {
+            throw new AssertionError("no records");
+        });
+    }
+
+    private ArchiveSegment write(List<long[]> records) throws IOException {
+        ArchiveSegment.Writer writer = new ArchiveSegment.Writer(MONTH);
+        records.forEach(record -> writer.add(record[0], record[1], record[2], record[3]));
+        return ArchiveSegment.open(writer.write(directory));
+    }
+
+    /**
+     * Shifts of up to 10 hours, some with microseconds, of 3 employees on 4 projects, in time_from order.
+     */
+    private static List<long[]> records(int count) {
+        Random random = new Random(5);
+        long[] employees = {101, 102, 1_000_000_000_000L};
+        long[] projects = {1, 2, 3, 40};
+        long monthMicros = (long) MONTH.lengthOfMonth() * 86_400 * 1_000_000;
+        List<Long> starts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            starts.add(MONTH_START + Math.floorMod(random.nextLong(), monthMicros) / 1_000_000 * 1_000_000
+                    + (random.nextInt(4) == 0 ? random.nextInt(1_000_000) : 0));
+        }
+        starts.sort(null);
+        List<long[]> records = new ArrayList<>();
+        for (long from : starts) {
+            records.add(new long[]{from, from + (long) random.nextInt(10 * 60) * 60_000_000,
+                    employees[random.nextInt(employees.length)], projects[random.nextInt(projects.length)]});
+        }
+        return records;
+    }
+}
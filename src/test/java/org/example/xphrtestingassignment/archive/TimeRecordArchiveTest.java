@@ -0,0 +1,216 @@
+package org.example.xphrtestingassignment.archive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.example.xphrtestingassignment.constant.ReportWindowMode.CONTAINED;
+import static org.example.xphrtestingassignment.constant.ReportWindowMode.OVERLAP;
+
+class TimeRecordArchiveTest {
+
+    private static final YearMonth FIRST_MONTH = YearMonth.of(2025, 1);
+
+    private static final LocalDateTime START = FIRST_MONTH.atDay(1).atStartOfDay();
+
+    private static final long[] EMPLOYEES = {101, 102, 103};
+
+    private static final long[] PROJECTS = {1, 2};
+
+    @TempDir
+    private Path directory;
+
+    private final List<Record> records = new ArrayList<>();
+    private TimeRecordArchive archive;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Random random = new Random(13);
+        LocalDateTime from = START;
+        while (true) {
+            from = from.plusMinutes(random.nextInt(300));
+            if (!from.isBefore(START.plusMonths(3))) {
+                break;
+            }
+            // mostly shifts, now and then one crossing a few midnights, and some of no length at all
+            long minutes = random.nextInt(30) == 0 ? random.nextInt(4 * 24 * 60)
+                    : random.nextInt(20) == 0 ? 0 : 1 + random.nextInt(10 * 60);
+            records.add(new Record(from, from.plusMinutes(minutes), EMPLOYEES[random.nextInt(EMPLOYEES.length)],
+                    PROJECTS[random.nextInt(PROJECTS.length)]));
+        }
+        for (int month = 0; month < 3; month++) {
+            write(FIRST_MONTH.plusMonths(month));
+        }
+        archive = new TimeRecordArchive(directory, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void load_thenSegmentsInMonthOrderUpToTheArchiveEnd() {
+        assertThat(archive.segments()).extracting(ArchiveSegment::month)
+                .containsExactly(FIRST_MONTH, FIRST_MONTH.plusMonths(1), FIRST_MONTH.plusMonths(2));
+        assertThat(archive.archivedBefore()).isEqualTo(START.plusMonths(3));
+        assertThat(archive.nextMonth()).isEqualTo(FIRST_MONTH.plusMonths(3));
+    }
+
+    @Test
+    void load_whenAMonthIsMissing_thenFails() throws IOException {
+        Files.delete(directory.resolve(ArchiveSegment.fileName(FIRST_MONTH.plusMonths(1))));
+
+        assertThatThrownBy(() -> new TimeRecordArchive(directory, new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void add_whenNotTheNextMonth_thenRefusesIt() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.open(new ArchiveSegment.Writer(FIRST_MONTH.plusMonths(4))
+                .write(directory.resolve("other")));
+
+        assertThatThrownBy(() -> archive.add(segment)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reaches_thenWindowsStartingInTheArchiveOrOverlappingItsLastRecord() {
+        LocalDateTime archiveEnd = START.plusMonths(3);
+        LocalDateTime lastTo = records.stream().map(Record::to).max(LocalDateTime::compareTo).orElseThrow();
+
+        assertThat(archive.reaches(CONTAINED, archiveEnd.minusHours(1), archiveEnd.plusDays(1))).isTrue();
+        assertThat(archive.reaches(CONTAINED, archiveEnd, archiveEnd.plusDays(1))).isFalse();
+        assertThat(archive.reaches(OVERLAP, lastTo.minusSeconds(1), lastTo.plusDays(1)))
+                .isEqualTo(lastTo.isAfter(archiveEnd));
+        assertThat(archive.reaches(CONTAINED, START, START)).isFalse();
+    }
+
+    @Test
+    void totals_whenAnyWindow_thenSameAsTheReportOfTheRecords() {
+        assertSameAsReport(CONTAINED);
+    }
+
+    @Test
+    void totals_whenOverlapMode_thenSameAsTheClippedReportOfTheRecords() {
+        assertSameAsReport(OVERLAP);
+    }
+
+    @Test
+    void totals_whenChunksOrDays_thenAddUpToTheWindow() {
+        Random random = new Random(19);
+        for (ReportWindowMode mode : ReportWindowMode.values()) {
+            for (int i = 0; i < 50; i++) {
+                LocalDateTime start = START.plusMinutes(random.nextInt(80 * 24 * 60));
+                LocalDateTime end = start.plusMinutes(1 + random.nextInt(40 * 24 * 60));
+                Long employeeId = i % 2 == 0 ? null : 102L;
+                Map<String, Long> window = byPair(archive.totals(mode, employeeId, start, end, start, end, false));
+
+                Map<String, Long> chunks = new TreeMap<>();
+                LocalDateTime chunkStart = start;
+                while (chunkStart.isBefore(end)) {
+                    LocalDateTime next = chunkStart.toLocalDate().plusDays(1 + random.nextInt(20)).atStartOfDay();
+                    LocalDateTime chunkEnd = next.isBefore(end) ? next : end;
+                    byPair(archive.totals(mode, employeeId, start, end, chunkStart, chunkEnd, true).totals())
+                            .forEach((pair, micros) -> chunks.merge(pair, micros, Long::sum));
+                    chunkStart = chunkEnd;
+                }
+
+                assertThat(chunks).isEqualTo(window);
+            }
+        }
+    }
+
+    @Test
+    void totals_thenLiveRecordsStartWhereTheArchiveEnds() {
+        LocalDateTime archiveEnd = START.plusMonths(3);
+
+        TimeRecordArchive.ChunkTotals inside = archive.totals(CONTAINED, null, START, archiveEnd.plusMonths(1),
+                START.plusMonths(1), START.plusMonths(2), false);
+        TimeRecordArchive.ChunkTotals across = archive.totals(CONTAINED, null, START, archiveEnd.plusMonths(1),
+                START.plusMonths(2), archiveEnd.plusDays(5), false);
+        TimeRecordArchive.ChunkTotals after = archive.totals(CONTAINED, null, START, archiveEnd.plusMonths(1),
+                archiveEnd.plusDays(5), archiveEnd.plusMonths(1), false);
+
+        assertThat(inside.liveFrom()).isEqualTo(START.plusMonths(2));
+        assertThat(across.liveFrom()).isEqualTo(archiveEnd);
+        assertThat(after.liveFrom()).isEqualTo(archiveEnd.plusDays(5));
+        assertThat(after.totals()).isEmpty();
+        assertThat(after.archivedBefore()).isEqualTo(archiveEnd);
+    }
+
+    private void assertSameAsReport(ReportWindowMode mode) {
+        Random random = new Random(17);
+        List<LocalDateTime> monthEdges = List.of(START, START.plusMonths(1), START.plusMonths(2), START.plusMonths(3),
+                START.plusMonths(4));
+        for (int i = 0; i < 200; i++) {
+            // month edges let whole segments be answered from their pair totals
+            LocalDateTime start = i % 4 == 0 ? monthEdges.get(random.nextInt(2))
+                    : START.plusMinutes(random.nextInt(95 * 24 * 60) - 24 * 60);
+            LocalDateTime end = i % 4 == 0 ? monthEdges.get(2 + random.nextInt(3))
+                    : start.plusMinutes(random.nextInt(40 * 24 * 60));
+            Long employeeId = i % 3 == 0 ? EMPLOYEES[random.nextInt(EMPLOYEES.length)] : null;
+
+            Map<String, Long> totals = byPair(archive.totals(mode, employeeId, start, end, start, end, false));
+
+            assertThat(totals).isEqualTo(report(mode, employeeId, start, end));
+        }
+    }
+
+    /**
+     * The report by its definition: in CONTAINED mode the records inside the window, in OVERLAP mode every record
+     * overlapping it (or starting at its start), clipped to it.
+     */
+    private Map<String, Long> report(ReportWindowMode mode, Long employeeId, LocalDateTime start, LocalDateTime end) {
+        Map<String, Long> totals = new TreeMap<>();
+        if (!start.isBefore(end)) {
+            return totals;
+        }
+        long s = ColumnarTimeRecords.epochMicros(start);
+        long e = ColumnarTimeRecords.epochMicros(end);
+        for (Record record : records) {
+            long from = ColumnarTimeRecords.epochMicros(record.from());
+            long to = ColumnarTimeRecords.epochMicros(record.to());
+            if (employeeId != null && record.employeeId() != employeeId) {
+                continue;
+            }
+            boolean reported = mode == CONTAINED ? from >= s && to < e : from < e && (from >= s || to > s);
+            if (reported) {
+                totals.merge(record.employeeId() + "/" + record.projectId(),
+                        Math.min(to, e) - Math.max(from, s), Long::sum);
+            }
+        }
+        return totals;
+    }
+
+    private static Map<String, Long> byPair(TimeRecordArchive.ChunkTotals chunk) {
+        return byPair(chunk.totals());
+    }
+
+    private static Map<String, Long> byPair(List<TimeRecordArchive.Total> totals) {
+        Map<String, Long> byPair = new TreeMap<>();
+        totals.forEach(total -> byPair.merge(total.employeeId() + "/" + total.projectId(), total.micros(), Long::sum));
+        return byPair;
+    }
+
+    private void write(YearMonth month) throws IOException {
+        ArchiveSegment.Writer writer = new ArchiveSegment.Writer(month);
+        records.stream().filter(record -> YearMonth.from(record.from()).equals(month)).forEach(record ->
+                writer.add(ColumnarTimeRecords.epochMicros(record.from()), ColumnarTimeRecords.epochMicros(record.to()),
+                        record.employeeId(), record.projectId()));
+        writer.write(directory);
+    }
+
+    private record Record(LocalDateTime from, LocalDateTime to, long employeeId, long projectId) {
+    }
+}
@@ -0,0 +1,228 @@
+package org.example.xphrtestingassignment.columnar;
+
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords.Columns;
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords.Names;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.dto.ReportCursor;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.example.xphrtestingassignment.constant.ReportWindowMode.CONTAINED;
+import static org.example.xphrtestingassignment.constant.ReportWindowMode.OVERLAP;
+
+class ColumnarTimeRecordsTest {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    // two employees share a name and are reported as one, like GROUP BY e.name does
+    private static final long[] EMPLOYEE_IDS = {4, 1, 2, 5, 3};
+    private static final String[] EMPLOYEE_NAMES = {"alice", "bob", "bob", "carol", "tom"};
+    private static final long[] PROJECT_IDS = {20, 10, 30};
+    private static final String[] PROJECT_NAMES = {"Project A", "Project B", "Project C"};
+
+    private final List<Record> records = new ArrayList<>();
+    private ColumnarTimeRecords columnar;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        LocalDateTime from = EPOCH;
+        for (int i = 0; i < 2_000; i++) {
+            from = from.plusMinutes(random.nextInt(180));
+            // mostly shifts of a few hours, now and then one spanning days
+            long minutes = random.nextInt(20) == 0 ? 1 + random.nextInt(5 * 24 * 60) : 1 + random.nextInt(9 * 60);
+            records.add(new Record(EMPLOYEE_IDS[random.nextInt(EMPLOYEE_IDS.length)],
+                    PROJECT_IDS[random.nextInt(PROJECT_IDS.length)], from, from.plusMinutes(minutes).plusNanos(
+                            random.nextInt(1_000_000) * 1_000L)));
+        }
+        columnar = build(records);
+    }
+
+    @Test
+    void page_whenAnyWindow_thenSameRowsAsReportQuery() {
+        assertSameAsReportQuery(CONTAINED);
+    }
+
+    @Test
+    void page_whenOverlapMode_thenSameRowsAsClippedReportQuery() {
+        assertSameAsReportQuery(OVERLAP);
+    }
+
+    private void assertSameAsReportQuery(ReportWindowMode mode) {
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = EPOCH.plusMinutes(random.nextInt(200 * 24 * 60) - 24 * 60);
+            LocalDateTime end = start.plusMinutes(random.nextInt(30 * 24 * 60));
+            // 1 and 2 share their name
+            Long employeeId = i % 2 == 0 ? null : List.of(4L, 5L, 3L).get(random.nextInt(3));
+            List<ReportDTO> expected = report(mode, records, employeeId, start, end);
+
+            Page<ReportDTO> page = columnar.page(mode, employeeId, start, end, PageRequest.of(0, 1_000)).orElseThrow();
+
+            assertThat(page.getContent()).isEqualTo(expected);
+            assertThat(page.getTotalElements()).isEqualTo(expected.size());
+            assertThat(columnar.count(mode, employeeId, start, end)).isEqualTo(expected.size());
+        }
+    }
+
+    @Test
+    void page_whenLaterPage_thenOffsetIntoReportAndTotalOfAllRows() {
+        LocalDateTime start = EPOCH.plusDays(10);
+        LocalDateTime end = EPOCH.plusDays(40);
+        List<ReportDTO> expected = report(CONTAINED, records, null, start, end);
+
+        Page<ReportDTO> page = columnar.page(CONTAINED, null, start, end, PageRequest.of(1, 4)).orElseThrow();
+
+        assertThat(page.getContent()).isEqualTo(expected.subList(4, 8));
+        assertThat(page.getTotalElements()).isEqualTo(expected.size());
+    }
+
+    @Test
+    void slice_whenCursorGiven_thenRowsAfterCursor() {
+        LocalDateTime start = EPOCH.plusDays(10);
+        LocalDateTime end = EPOCH.plusDays(40);
+        List<ReportDTO> expected = report(CONTAINED, records, null, start, end);
+
+        List<ReportDTO> slice = columnar.slice(CONTAINED, null, start, end, ReportCursor.of(expected.get(2)), 3)
+                .orElseThrow();
+
+        assertThat(slice).isEqualTo(expected.subList(3, 6));
+        assertThat(columnar.slice(CONTAINED, null, start, end, new ReportCursor("zoe", "Project A"), 3)).isEmpty();
+    }
+
+    @Test
+    void isolates_whenNameShared_thenFalse() {
+        assertThat(columnar.isolates(4L)).isTrue();
+        assertThat(columnar.isolates(1L)).isFalse();
+        assertThat(columnar.isolates(2L)).isFalse();
+        // not in the snapshot: it has no records, and no rows to mix up
+        assertThat(columnar.isolates(99L)).isTrue();
+    }
+
+    @Test
+    void replace_whenRangeChanged_thenSameAsFullLoad() {
+        LocalDateTime from = EPOCH.plusDays(20);
+        LocalDateTime to = EPOCH.plusDays(25);
+        List<Record> changed = new ArrayList<>(records.stream()
+                .filter(r -> r.timeFrom.isBefore(from) || r.timeFrom.isAfter(to)).toList());
+        List<Record> range = new ArrayList<>(records.stream()
+                .filter(r -> !r.timeFrom.isBefore(from) && !r.timeFrom.isAfter(to) && r.employeeId != 3).toList());
+        range.add(new Record(3, 30, from, from.plusHours(2)));
+        range.sort(Comparator.comparing(Record::timeFrom));
+        changed.addAll(range);
+
+        ColumnarTimeRecords replaced = columnar.replace(ColumnarTimeRecords.epochMicros(from),
+                ColumnarTimeRecords.epochMicros(to), columns(range), employees(), projects());
+
+        LocalDateTime start = EPOCH.plusDays(15);
+        LocalDateTime end = EPOCH.plusDays(30);
+        assertThat(replaced.size()).isEqualTo(changed.size());
+        assertThat(replaced.page(CONTAINED, null, start, end, PageRequest.of(0, 1_000)).orElseThrow().getContent())
+                .isEqualTo(report(CONTAINED, changed, null, start, end));
+    }
+
+    @Test
+    void hours_whenDividedLikePostgres_thenSameScale() {
+        assertThat(ColumnarTimeRecords.hours(32_400_000_000L)).isEqualTo(new BigDecimal("9.0000000000000000"));
+        assertThat(ColumnarTimeRecords.hours(3_600_000_000L)).isEqualTo(new BigDecimal("1.00000000000000000000"));
+        assertThat(ColumnarTimeRecords.hours(3_601_000_000L)).isEqualTo(new BigDecimal("1.0002777777777778"));
+        assertThat(ColumnarTimeRecords.hours(60_000_000L)).isEqualTo(new BigDecimal("0.01666666666666666667"));
+        assertThat(ColumnarTimeRecords.hours(100_000_000_000_000L)).isEqualTo(new BigDecimal("27777.777777777778"));
+        assertThat(ColumnarTimeRecords.hours(60L)).isEqualTo(new BigDecimal("0.000000016666666666666667"));
+    }
+
+    @Test
+    void hours_whenSecondsOfAnyScale_thenScaleOfPostgresNumericDivision() {
+        // the results of SELECT CAST(x AS NUMERIC) / 3600 in PostgreSQL 16
+        assertThat(ColumnarTimeRecords.hours(new BigDecimal("7200")))
+                .isEqualTo(new BigDecimal("2.0000000000000000"));
+        assertThat(ColumnarTimeRecords.hours(new BigDecimal("28800.000000")))
+                .isEqualTo(new BigDecimal("8.0000000000000000"));
+        assertThat(ColumnarTimeRecords.hours(new BigDecimal("3600")))
+                .isEqualTo(new BigDecimal("1.00000000000000000000"));
+        assertThat(ColumnarTimeRecords.hours(new BigDecimal("3601")))
+                .isEqualTo(new BigDecimal("1.0002777777777778"));
+        assertThat(ColumnarTimeRecords.hours(new BigDecimal("1")))
+                .isEqualTo(new BigDecimal("0.00027777777777777778"));
+        assertThat(ColumnarTimeRecords.hours(new BigDecimal("123456789.5")))
+                .isEqualTo(new BigDecimal("34293.552638888889"));
+        assertThat(ColumnarTimeRecords.hours(BigDecimal.ZERO))
+                .isEqualTo(new BigDecimal("0.00000000000000000000"));
+    }
+
+    /**
+     * The report query restated over plain records: time_from >= start and time_to < end or, in overlap mode,
+     * every record overlapping the window clipped to it, grouped by employee name and project name in that order.
+     */
+    private static List<ReportDTO> report(ReportWindowMode mode, List<Record> records, Long employeeId,
+                                          LocalDateTime start, LocalDateTime end) {
+        Map<String, Map<String, Long>> micros = new TreeMap<>();
+        for (Record record : records) {
+            String employee = name(EMPLOYEE_IDS, EMPLOYEE_NAMES, record.employeeId);
+            boolean contained = !record.timeFrom.isBefore(start) && record.timeTo.isBefore(end);
+            boolean overlaps = record.timeFrom.isBefore(end) && record.timeTo.isAfter(start);
+            if (!(contained || (mode == OVERLAP && overlaps))
+                    || (employeeId != null && employeeId != record.employeeId)) {
+                continue;
+            }
+            LocalDateTime from = record.timeFrom.isBefore(start) ? start : record.timeFrom;
+            LocalDateTime to = record.timeTo.isAfter(end) ? end : record.timeTo;
+            micros.computeIfAbsent(employee, e -> new TreeMap<>()).merge(
+                    name(PROJECT_IDS, PROJECT_NAMES, record.projectId),
+                    ColumnarTimeRecords.epochMicros(to) - ColumnarTimeRecords.epochMicros(from),
+                    Long::sum);
+        }
+        List<ReportDTO> rows = new ArrayList<>();
+        micros.forEach((employee, projects) -> projects.forEach((project, total) ->
+                rows.add(new ReportDTO(employee, project, ColumnarTimeRecords.hours(total)))));
+        return rows;
+    }
+
+    private static ColumnarTimeRecords build(List<Record> records) {
+        return ColumnarTimeRecords.of(columns(records), employees(), projects());
+    }
+
+    private static Columns columns(List<Record> records) {
+        Names employees = employees();
+        Names projects = projects();
+        Columns columns = new Columns(records.size());
+        for (Record record : records) {
+            columns.add(ColumnarTimeRecords.epochMicros(record.timeFrom), ColumnarTimeRecords.epochMicros(record.timeTo),
+                    employees.ordinal(record.employeeId), projects.ordinal(record.projectId));
+        }
+        return columns;
+    }
+
+    private static Names employees() {
+        return new Names(EMPLOYEE_IDS, EMPLOYEE_NAMES);
+    }
+
+    private static Names projects() {
+        return new Names(PROJECT_IDS, PROJECT_NAMES);
+    }
+
+    private static String name(long[] ids, String[] names, long id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return names[i];
+            }
+        }
+        throw new IllegalArgumentException("Unknown id " + id);
+    }
+
+    private record Record(long employeeId, long projectId, LocalDateTime timeFrom, LocalDateTime timeTo) {
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.xphrtestingassignment.config;
+
+import jakarta.annotation.PostConstruct;
+import org.example.xphrtestingassignment.columnar.ColumnarReportEngine;
+import org.example.xphrtestingassignment.service.impl.CachingReportService;
+import org.example.xphrtestingassignment.service.impl.ReportServiceImpl;
+import org.example.xphrtestingassignment.service.impl.TimeRecordRollupServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyInitializationConfigTest {
+
+    private final LazyInitializationExcludeFilter filter = LazyInitializationConfig.scheduledOrSelfRegisteringBeans();
+
+    @Test
+    void isExcluded_whenScheduledOrPostConstructMethods_thenEager() {
+        assertThat(isExcluded(TimeRecordRollupServiceImpl.class)).isTrue();
+        assertThat(isExcluded(ColumnarReportEngine.class)).isTrue();
+        assertThat(isExcluded(SelfRegistering.class)).isTrue();
+    }
+
+    @Test
+    void isExcluded_whenOnlyEventListenersOrNothing_thenLazy() {
+        assertThat(isExcluded(CachingReportService.class)).isFalse();
+        assertThat(isExcluded(ReportServiceImpl.class)).isFalse();
+        assertThat(isExcluded(null)).isFalse();
+    }
+
+    private boolean isExcluded(Class<?> beanType) {
+        return filter.isExcluded("bean", new RootBeanDefinition(), beanType);
+    }
+
+    static class SelfRegistering {
+
+        @PostConstruct
+        void register() {
+        }
+    }
+}
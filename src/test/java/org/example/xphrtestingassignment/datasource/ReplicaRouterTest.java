@@ -0,0 +1,186 @@
+package org.example.xphrtestingassignment.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica; each knows which one it is.
+ */
+class ReplicaRouterTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 15, 12, 0);
+
+    private final MutableClock clock = new MutableClock(NOW.toInstant(ZoneOffset.UTC));
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replicaDatabase;
+    private UnreachableDataSource replicaDataSource;
+    private Replica replica;
+    private ReplicaRouter router;
+    private JdbcTemplate routed;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1"));
+        replicaDataSource = new UnreachableDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1"));
+        replicaDatabase = new JdbcTemplate(replicaDataSource);
+        primary.execute("CREATE TABLE whoami (name VARCHAR(20))");
+        primary.update("INSERT INTO whoami VALUES ('primary')");
+        replicaDatabase.execute("CREATE TABLE whoami (name VARCHAR(20))");
+        replicaDatabase.update("INSERT INTO whoami VALUES ('replica')");
+        replicaDatabase.execute("CREATE TABLE replica_lag (seconds DECIMAL(10, 3))");
+        replicaDatabase.update("INSERT INTO replica_lag VALUES (1.5)");
+
+        replica = new Replica("replica-1", replicaDataSource, "SELECT seconds FROM replica_lag", Duration.ofSeconds(1));
+        router = new ReplicaRouter(List.of(replica), Duration.ofSeconds(30), Duration.ofHours(1),
+                Duration.ofSeconds(5), clock, new SimpleMeterRegistry());
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary.getDataSource(), router);
+        routing.afterPropertiesSet();
+        routed = new JdbcTemplate(routing);
+        router.probe();
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.execute("DROP ALL OBJECTS");
+        replicaDataSource.reachable = true;
+        replicaDatabase.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void read_whenWindowInThePastAndReplicaUp_thenReplica() {
+        assertThat(replica.isUp()).isTrue();
+        assertThat(replica.getLag()).isEqualTo(Duration.ofMillis(1500));
+        assertThat(whoAnswers(NOW.minusDays(30), NOW.minusDays(1))).isEqualTo("replica");
+        // nothing is left behind for the next statement of the thread
+        assertThat(routed.queryForObject("SELECT name FROM whoami", String.class)).isEqualTo("primary");
+    }
+
+    @Test
+    void read_whenWindowIncludesRecentData_thenPrimary() {
+        assertThat(whoAnswers(NOW.minusDays(1), NOW.minusMinutes(30))).isEqualTo("primary");
+    }
+
+    @Test
+    void read_whenReplicaLagsMoreThanMaxLag_thenPrimary() {
+        replicaDatabase.update("UPDATE replica_lag SET seconds = 45");
+        router.probe();
+
+        assertThat(whoAnswers(NOW.minusDays(30), NOW.minusDays(1))).isEqualTo("primary");
+    }
+
+    @Test
+    void read_whenProbeFails_thenPrimaryUntilProbeSucceeds() {
+        replicaDataSource.reachable = false;
+        router.probe();
+
+        assertThat(replica.isUp()).isFalse();
+        assertThat(whoAnswers(NOW.minusDays(30), NOW.minusDays(1))).isEqualTo("primary");
+
+        replicaDataSource.reachable = true;
+        router.probe();
+        assertThat(whoAnswers(NOW.minusDays(30), NOW.minusDays(1))).isEqualTo("replica");
+    }
+
+    @Test
+    void read_whenLastProbeStale_thenPrimaryUntilNextProbe() {
+        clock.advance(Duration.ofSeconds(10));
+        assertThat(whoAnswers(NOW.minusDays(30), NOW.minusDays(1))).isEqualTo("replica");
+
+        clock.advance(Duration.ofSeconds(6));
+        assertThat(router.isAvailable(replica)).isFalse();
+        assertThat(whoAnswers(NOW.minusDays(30), NOW.minusDays(1))).isEqualTo("primary");
+
+        router.probe();
+        assertThat(whoAnswers(NOW.minusDays(30), NOW.minusDays(1))).isEqualTo("replica");
+    }
+
+    @Test
+    void read_whenWindowChangedWithinMaxLag_thenPrimaryUntilReplicaCaughtUp() {
+        router.onTimeRecordsChanged(new TimeRecordsChangedEvent(
+                NOW.minusDays(10), NOW.minusDays(10).plusHours(8), Set.of(101L), Set.of(1L)));
+
+        assertThat(whoAnswers(NOW.minusDays(30), NOW.minusDays(1))).isEqualTo("primary");
+        // a window the change is not in
+        assertThat(whoAnswers(NOW.minusDays(60), NOW.minusDays(31))).isEqualTo("replica");
+
+        clock.advance(Duration.ofSeconds(31));
+        router.probe();
+        assertThat(whoAnswers(NOW.minusDays(30), NOW.minusDays(1))).isEqualTo("replica");
+    }
+
+    @Test
+    void read_whenReplicaUnreachable_thenPrimaryAndReplicaMarkedDown() {
+        replicaDataSource.reachable = false;
+
+        assertThat(whoAnswers(NOW.minusDays(30), NOW.minusDays(1))).isEqualTo("primary");
+        assertThat(replica.isUp()).isFalse();
+    }
+
+    private String whoAnswers(LocalDateTime startDate, LocalDateTime endDate) {
+        return router.read(startDate, endDate, () -> routed.queryForObject("SELECT name FROM whoami", String.class));
+    }
+
+    private static final class UnreachableDataSource extends DelegatingDataSource {
+        volatile boolean reachable = true;
+
+        UnreachableDataSource(DriverManagerDataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!reachable) {
+                throw new SQLException("Connection refused", "08001");
+            }
+            return super.getConnection();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
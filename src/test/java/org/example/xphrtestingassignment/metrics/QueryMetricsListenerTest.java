@@ -0,0 +1,90 @@
+package org.example.xphrtestingassignment.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryMetricsListenerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReportMetrics reportMetrics;
+    private QueryMetricsListener listener;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reportMetrics = new ReportMetrics(meterRegistry);
+        listener = new QueryMetricsListener(reportMetrics, Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void afterQuery_whenRunByATaggedOperation_thenTaggedWithItWhateverTheSql() {
+        ExecutionInfo execution = new ExecutionInfo();
+        execution.setElapsedTime(5);
+
+        reportMetrics.recordService("slice", UserRoles.ADMIN, () -> {
+            listener.afterQuery(execution, List.of(new QueryInfo("SELECT id FROM employee")));
+            ReportMetrics.tagQueries("export", () -> {
+                listener.afterQuery(execution, List.of(new QueryInfo("SELECT id FROM employee")));
+                return null;
+            });
+            listener.afterQuery(execution, List.of(new QueryInfo("SELECT id FROM employee")));
+            return null;
+        });
+        listener.afterQuery(execution, List.of(new QueryInfo("SELECT COUNT(*) FROM time_record_rollup")));
+
+        assertThat(meterRegistry.get("report.query").tag("query", "slice").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("report.query").tag("query", "export").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("report.query").tag("query", ReportMetrics.OTHER_QUERY).timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void afterQuery_whenUserLoggedIn_thenTimesQueryWithRole() {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                "tom", null, List.of(new SimpleGrantedAuthority("ROLE_" + UserRoles.EMPLOYEE.name()))));
+        ExecutionInfo execution = new ExecutionInfo();
+        execution.setElapsedTime(12);
+        execution.setSuccess(true);
+
+        ReportMetrics.tagQueries("count", () -> {
+            listener.afterQuery(execution, List.of(new QueryInfo("SELECT COUNT(*) FROM time_record_rollup")));
+            listener.afterQuery(execution, List.of(new QueryInfo("SELECT COUNT(*) FROM time_record_rollup")));
+            return null;
+        });
+
+        assertThat(meterRegistry.get("report.query").tag("query", "count").tag("role", "EMPLOYEE").timer().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("report.query").timers()).hasSize(1);
+    }
+
+    @Test
+    void afterQuery_whenNoUser_thenTagsSystemRole() {
+        ExecutionInfo execution = new ExecutionInfo();
+        execution.setElapsedTime(700);
+
+        listener.afterQuery(execution, List.of(new QueryInfo("SELECT time_record_ensure_partition(?)")));
+
+        assertThat(meterRegistry.get("report.query").tag("query", ReportMetrics.OTHER_QUERY)
+                .tag("role", ReportMetrics.SYSTEM_ROLE)
+                .timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(700);
+    }
+}
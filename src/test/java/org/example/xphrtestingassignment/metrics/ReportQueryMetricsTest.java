@@ -0,0 +1,78 @@
+package org.example.xphrtestingassignment.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.service.impl.ReportServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The statements of a paged report against PostgreSQL, timed through the proxied data source. The records are
+ * written in the test transaction, in a month of their own, and rolled back.
+ */
+@SpringBootTest
+@Transactional
+class ReportQueryMetricsTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2031, 3, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2031, 4, 1, 0, 0);
+
+    @Autowired
+    private ReportServiceImpl reportService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO employee (id, name) VALUES (990001, 'metrics_a'), (990002, 'metrics_b')");
+        jdbcTemplate.update("INSERT INTO project (id, name) VALUES (990001, 'Metrics Project')");
+        jdbcTemplate.update("INSERT INTO time_record (id, employee_id, project_id, time_from, time_to) VALUES " +
+                "(990001, 990001, 990001, '2031-03-10 08:00', '2031-03-10 16:00'), " +
+                "(990002, 990002, 990001, '2031-03-11 09:00', '2031-03-11 17:00')");
+    }
+
+    @Test
+    void getReportData_whenPageFull_thenPageAndCountTimedApart() {
+        long pages = queries("page");
+        long counts = queries("count");
+
+        Page<ReportDTO> page = reportService.getReportData(START, END, PageRequest.of(0, 1));
+
+        assertThat(page.getContent()).extracting(ReportDTO::employeeName).containsExactly("metrics_a");
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(queries("page")).isEqualTo(pages + 1);
+        assertThat(queries("count")).isEqualTo(counts + 1);
+    }
+
+    @Test
+    void getReportData_whenFirstPageShort_thenNoCount() {
+        long pages = queries("page");
+        long counts = queries("count");
+
+        Page<ReportDTO> page = reportService.getReportData(START, END, PageRequest.of(0, 10));
+
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(queries("page")).isEqualTo(pages + 1);
+        assertThat(queries("count")).isEqualTo(counts);
+    }
+
+    private long queries(String query) {
+        Timer timer = meterRegistry.find("report.query").tag("query", query).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
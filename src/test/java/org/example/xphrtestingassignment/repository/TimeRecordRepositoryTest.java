@@ -0,0 +1,169 @@
+package org.example.xphrtestingassignment.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.datasource.ReplicaRouter;
+import org.example.xphrtestingassignment.dto.TimeRecordCursor;
+import org.example.xphrtestingassignment.dto.TimeRecordDTO;
+import org.example.xphrtestingassignment.entity.Employee;
+import org.example.xphrtestingassignment.entity.Project;
+import org.example.xphrtestingassignment.entity.TimeRecord;
+import org.example.xphrtestingassignment.service.impl.ReportBulkhead;
+import org.example.xphrtestingassignment.service.impl.TimeRecordServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Slice;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The drill-down queries against an in-memory H2 schema generated from the entities, counting the statements each
+ * page costs.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class TimeRecordRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 8, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 9, 1, 0, 0);
+
+    @Autowired
+    private TimeRecordRepository timeRecordRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private TimeRecordServiceImpl containedService;
+    private TimeRecordServiceImpl overlapService;
+
+    @BeforeEach
+    void setUp() {
+        Employee tom = persist(Employee.builder().id(101L).name("tom").build());
+        Employee jerry = persist(Employee.builder().id(102L).name("jerry").build());
+        Project projectA = persist(Project.builder().id(1L).name("Project A").build());
+        Project projectB = persist(Project.builder().id(2L).name("Project B").build());
+        for (int day = 1; day <= 25; day++) {
+            LocalDateTime from = START.plusDays(day).withHour(8);
+            record(tom, projectA, from, from.plusHours(8));
+            record(tom, projectB, from, from.plusHours(1));
+            record(jerry, projectA, from, from.plusHours(4));
+        }
+        // same start as the record of day 10, told apart by the id
+        record(tom, projectA, START.plusDays(10).withHour(8), START.plusDays(10).withHour(9));
+        // crossing the start and the end of the window
+        record(tom, projectA, START.minusHours(2), START.plusHours(2));
+        record(tom, projectA, END.minusHours(1), END.plusHours(1));
+        entityManager.flush();
+        entityManager.clear();
+
+        ReportBulkhead bulkhead = new ReportBulkhead(2, 10, 10, Duration.ofSeconds(1), Duration.ofSeconds(1), 2,
+                new SimpleMeterRegistry());
+        ReplicaRouter replicaRouter = new ReplicaRouter(List.of(), Duration.ofSeconds(30), Duration.ofHours(1),
+                Duration.ofSeconds(5), Clock.systemDefaultZone(), new SimpleMeterRegistry());
+        containedService = new TimeRecordServiceImpl(timeRecordRepository, bulkhead, replicaRouter,
+                ReportWindowMode.CONTAINED);
+        overlapService = new TimeRecordServiceImpl(timeRecordRepository, bulkhead, replicaRouter,
+                ReportWindowMode.OVERLAP);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getTimeRecordsAfter_whenPagingThroughARow_thenOneStatementPerPage() {
+        List<TimeRecordDTO> seen = new ArrayList<>();
+        TimeRecordCursor after = null;
+        int pages = 0;
+        Slice<TimeRecordDTO> page;
+        do {
+            statistics.clear();
+            page = containedService.getTimeRecordsAfter(null, "tom", "Project A", START, END, after, 10);
+            assertThat(statistics.getPrepareStatementCount()).as("statements of page %d", pages).isEqualTo(1);
+            seen.addAll(page.getContent());
+            after = page.hasNext() ? TimeRecordCursor.of(page.getContent().get(page.getNumberOfElements() - 1)) : null;
+            pages++;
+        } while (page.hasNext());
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).hasSize(26)
+                .allSatisfy(record -> {
+                    assertThat(record.employeeName()).isEqualTo("tom");
+                    assertThat(record.projectName()).isEqualTo("Project A");
+                    assertThat(record.timeFrom()).isAfterOrEqualTo(START);
+                    assertThat(record.timeTo()).isBefore(END);
+                });
+        assertThat(seen).extracting(TimeRecordDTO::id).doesNotHaveDuplicates();
+        assertThat(seen).isSortedAccordingTo((a, b) -> a.timeFrom().equals(b.timeFrom())
+                ? a.id().compareTo(b.id()) : a.timeFrom().compareTo(b.timeFrom()));
+    }
+
+    @Test
+    void getTimeRecordsAfter_whenOverlapMode_thenRecordsCrossingTheEdgesToo() {
+        Slice<TimeRecordDTO> page = overlapService.getTimeRecordsAfter(null, "tom", "Project A", START, END, null,
+                100);
+
+        assertThat(page.getContent()).hasSize(28);
+        assertThat(page.getContent().get(0).timeFrom()).isEqualTo(START.minusHours(2));
+        assertThat(page.getContent().get(27).timeTo()).isEqualTo(END.plusHours(1));
+        assertThat(page.hasNext()).isFalse();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getTimeRecordsAfter_whenEmployeesShareAName_thenTheirRecordsTogetherUnlessRestrictedToOne() {
+        Employee otherTom = persist(Employee.builder().id(103L).name("tom").build());
+        Project projectA = entityManager.find(Project.class, 1L);
+        record(otherTom, projectA, START.plusDays(3).withHour(14), START.plusDays(3).withHour(16));
+        entityManager.flush();
+        entityManager.clear();
+
+        Slice<TimeRecordDTO> row = containedService.getTimeRecordsAfter(null, "tom", "Project A", START, END, null,
+                100);
+        Slice<TimeRecordDTO> own = containedService.getTimeRecordsAfter(101L, "tom", "Project A", START, END, null,
+                100);
+
+        assertThat(row.getContent()).hasSize(27)
+                .extracting(TimeRecordDTO::employeeId).containsOnly(101L, 103L);
+        assertThat(own.getContent()).hasSize(26)
+                .extracting(TimeRecordDTO::employeeId).containsOnly(101L);
+    }
+
+    @Test
+    void findAll_whenNamesReadThroughTheEntities_thenOneStatementPerEmployeeAndProject() {
+        // what the projection saves: the lazy associations load one employee or project at a time
+        List<TimeRecord> records = timeRecordRepository.findAll();
+        records.forEach(record -> assertThat(record.getEmployee().getName() + record.getProject().getName())
+                .isNotEmpty());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + 2 + 2);
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+
+    private void record(Employee employee, Project project, LocalDateTime from, LocalDateTime to) {
+        entityManager.persist(TimeRecord.builder().employee(employee).project(project).timeFrom(from).timeTo(to)
+                .build());
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.xphrtestingassignment.security;
+
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.repository.EmployeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeUserDetailsServiceTest {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    private EmployeeUserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryUserDetailsManager accounts = new InMemoryUserDetailsManager(
+                User.withUsername("tom").password("{noop}tom").roles(UserRoles.EMPLOYEE.name()).build(),
+                User.withUsername("admin").password("{noop}admin").roles(UserRoles.ADMIN.name()).build());
+        userDetailsService = new EmployeeUserDetailsService(accounts, employeeRepository);
+    }
+
+    @Test
+    void loadUserByUsername_whenEmployeeHasUsername_thenPrincipalCarriesEmployeeId() {
+        when(employeeRepository.findIdByUsername("tom")).thenReturn(Optional.of(101L));
+
+        UserDetails user = userDetailsService.loadUserByUsername("tom");
+
+        assertThat(EmployeeUserDetails.employeeIdOf(user)).isEqualTo(101L);
+        assertThat(user.getPassword()).isEqualTo("{noop}tom");
+        assertThat(user.getAuthorities()).extracting("authority").containsExactly("ROLE_EMPLOYEE");
+    }
+
+    @Test
+    void loadUserByUsername_whenNoEmployee_thenPrincipalWithoutEmployeeId() {
+        when(employeeRepository.findIdByUsername("admin")).thenReturn(Optional.empty());
+
+        assertThat(EmployeeUserDetails.employeeIdOf(userDetailsService.loadUserByUsername("admin"))).isNull();
+    }
+
+    @Test
+    void loadUserByUsername_whenUnknownAccount_thenNotFoundWithoutLookup() {
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("nobody"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        verifyNoInteractions(employeeRepository);
+    }
+}
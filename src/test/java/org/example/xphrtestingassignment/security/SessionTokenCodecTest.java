@@ -0,0 +1,124 @@
+package org.example.xphrtestingassignment.security;
+
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionTokenCodecTest {
+
+    private static final Instant NOW = Instant.parse("2025-03-01T09:00:00Z");
+
+    private static final byte[] KEY_A = "a-secret-of-at-least-thirty-two-bytes".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] KEY_B = "another-secret-of-thirty-two-bytes!!".getBytes(StandardCharsets.UTF_8);
+
+    private final EmployeeUserDetails tom = new EmployeeUserDetails(
+            User.withUsername("tom").password("x").roles(UserRoles.EMPLOYEE.name()).build(), 101L);
+
+    @Test
+    void decode_whenIssuedToken_thenSameUserEmployeeAndRoles() {
+        SessionTokenCodec codec = codec(keys("a", KEY_A), NOW);
+
+        SessionToken token = codec.decode(codec.encode(codec.issue(tom)));
+
+        assertThat(token).isEqualTo(new SessionToken("tom", 101L, List.of("ROLE_EMPLOYEE"), NOW.plus(Duration.ofHours(1))));
+        assertThat(token.principal()).isEqualTo(tom);
+        assertThat(EmployeeUserDetails.employeeIdOf(token.principal())).isEqualTo(101L);
+        assertThat(token.principal().getAuthorities()).extracting("authority").containsExactly("ROLE_EMPLOYEE");
+    }
+
+    @Test
+    void decode_whenUserIsNoEmployee_thenNoEmployeeId() {
+        SessionTokenCodec codec = codec(keys("a", KEY_A), NOW);
+
+        SessionToken token = codec.decode(codec.encode(codec.issue(
+                User.withUsername("admin").password("x").roles(UserRoles.ADMIN.name()).build())));
+
+        assertThat(token.employeeId()).isNull();
+        assertThat(token.authorities()).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void decode_whenPayloadOrSignatureChanged_thenRefusesIt() {
+        SessionTokenCodec codec = codec(keys("a", KEY_A), NOW);
+        String token = codec.encode(codec.issue(tom));
+        String[] parts = token.split("\\.");
+        // the same token claiming employee 102
+        String forged = codec(keys("a", "some-other-key-of-thirty-two-bytes!!".getBytes(StandardCharsets.UTF_8)), NOW)
+                .encode(new SessionToken("tom", 102L, List.of("ROLE_EMPLOYEE"), NOW.plusSeconds(60)));
+
+        assertThatThrownBy(() -> codec.decode(parts[0] + "." + forged.split("\\.")[1] + "." + parts[2]))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("signature");
+        assertThatThrownBy(() -> codec.decode(forged))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("signature");
+        assertThatThrownBy(() -> codec.decode(parts[0] + "." + parts[1]))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codec.decode("not a token"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void decode_whenExpired_thenRefusesIt() {
+        String token = codec(keys("a", KEY_A), NOW).encode(codec(keys("a", KEY_A), NOW).issue(tom));
+
+        assertThat(codec(keys("a", KEY_A), NOW.plus(Duration.ofMinutes(59))).decode(token).username()).isEqualTo("tom");
+        assertThatThrownBy(() -> codec(keys("a", KEY_A), NOW.plus(Duration.ofHours(1))).decode(token))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Expired");
+    }
+
+    @Test
+    void decode_whenKeysRotate_thenTokensOfTheOldKeyHoldUntilItIsRemoved() {
+        String signedWithA = codec(keys("a", KEY_A), NOW).encode(codec(keys("a", KEY_A), NOW).issue(tom));
+        Map<String, byte[]> rotated = keys("b", KEY_B);
+        rotated.put("a", KEY_A);
+        SessionTokenCodec codec = codec(rotated, NOW);
+
+        String signedWithB = codec.encode(codec.issue(tom));
+
+        assertThat(signedWithB).startsWith("b.");
+        assertThat(codec.decode(signedWithA).username()).isEqualTo("tom");
+        assertThat(codec(keys("b", KEY_B), NOW).decode(signedWithB).username()).isEqualTo("tom");
+        assertThatThrownBy(() -> codec(keys("b", KEY_B), NOW).decode(signedWithA))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("unknown key");
+    }
+
+    @Test
+    void of_thenParsesTheKeysAndRefusesShortOrDuplicateOnes() {
+        String a = Base64.getEncoder().encodeToString(KEY_A);
+        String b = Base64.getEncoder().encodeToString(KEY_B);
+
+        SessionTokenCodec codec = SessionTokenCodec.of("b:" + b + ", a:" + a, Duration.ofHours(1));
+
+        assertThat(codec.encode(codec.issue(tom))).startsWith("b.");
+        assertThatThrownBy(() -> SessionTokenCodec.of("a:" + Base64.getEncoder().encodeToString(new byte[16]),
+                Duration.ofHours(1))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SessionTokenCodec.of("a:" + a + ",a:" + b, Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SessionTokenCodec.of(a, Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        SessionTokenCodec random = SessionTokenCodec.of("", Duration.ofHours(1));
+        assertThat(random.decode(random.encode(random.issue(tom))).username()).isEqualTo("tom");
+    }
+
+    private static Map<String, byte[]> keys(String id, byte[] key) {
+        Map<String, byte[]> keys = new LinkedHashMap<>();
+        keys.put(id, key);
+        return keys;
+    }
+
+    private static SessionTokenCodec codec(Map<String, byte[]> keys, Instant now) {
+        return new SessionTokenCodec(keys, Duration.ofHours(1), Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.xphrtestingassignment.security;
+
+import jakarta.servlet.http.Cookie;
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionTokenFilterTest {
+
+    private final SessionTokenCodec codec = SessionTokenCodec.of("a:" + Base64.getEncoder().encodeToString(
+            "a-secret-of-at-least-thirty-two-bytes".getBytes(StandardCharsets.UTF_8)), Duration.ofHours(1));
+
+    private final SessionTokenFilter filter = new SessionTokenFilter(codec);
+
+    private final EmployeeUserDetails tom = new EmployeeUserDetails(
+            User.withUsername("tom").password("x").roles(UserRoles.EMPLOYEE.name()).build(), 101L);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_whenBearerToken_thenAuthenticatesWithItsEmployee() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reports");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + codec.encode(codec.issue(tom)));
+
+        Authentication authentication = filter(request);
+
+        assertThat(authentication.isAuthenticated()).isTrue();
+        assertThat(authentication.getDetails()).isInstanceOf(SessionToken.class);
+        assertThat(EmployeeUserDetails.employeeIdOf((EmployeeUserDetails) authentication.getPrincipal()))
+                .isEqualTo(101L);
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_EMPLOYEE");
+    }
+
+    @Test
+    void doFilter_whenTokenCookie_thenAuthenticates() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/web/reports");
+        request.setCookies(new Cookie(SessionTokenFilter.COOKIE_NAME, codec.encode(codec.issue(tom))));
+
+        assertThat(filter(request).getName()).isEqualTo("tom");
+    }
+
+    @Test
+    void doFilter_whenTokenIsInvalidOrMissing_thenLeavesTheRequestUnauthenticated() throws Exception {
+        MockHttpServletRequest forged = new MockHttpServletRequest("GET", "/api/reports");
+        forged.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + codec.encode(codec.issue(tom)) + "x");
+        MockHttpServletRequest basic = new MockHttpServletRequest("GET", "/api/reports");
+        basic.addHeader(HttpHeaders.AUTHORIZATION, "Basic dG9tOnRvbQ==");
+
+        assertThat(filter(forged)).isNull();
+        assertThat(filter(basic)).isNull();
+        assertThat(filter(new MockHttpServletRequest("GET", "/web/reports"))).isNull();
+    }
+
+    @Test
+    void cookie_thenHttpOnlyLaxAndGoneWithTheToken() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setSecure(true);
+
+        String cookie = SessionTokenFilter.cookie(request, "t", codec).toString();
+
+        assertThat(cookie).contains("XPHR_TOKEN=t", "Path=/", "Max-Age=3600", "Secure", "HttpOnly", "SameSite=Lax");
+    }
+
+    /**
+     * The authentication the rest of the chain sees.
+     */
+    private Authentication filter(MockHttpServletRequest request) throws Exception {
+        Authentication[] seen = new Authentication[1];
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(jakarta.servlet.ServletRequest request, jakarta.servlet.ServletResponse response) {
+                seen[0] = SecurityContextHolder.getContext().getAuthentication();
+            }
+        });
+        SecurityContextHolder.clearContext();
+        return seen[0];
+    }
+}
@@ -0,0 +1,225 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xphrtestingassignment.constant.ReportDimension;
+import org.example.xphrtestingassignment.constant.ReportTotals;
+import org.example.xphrtestingassignment.constant.TimeBucket;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.example.xphrtestingassignment.service.ReportService;
+import org.example.xphrtestingassignment.service.impl.CachingReportService.ReportCacheKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingReportServiceTest {
+
+    @Mock
+    private ReportService delegate;
+
+    private CachingReportService cachingReportService;
+    private SimpleMeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final LocalDateTime start = LocalDateTime.of(2025, 8, 1, 0, 0);
+    private final LocalDateTime end = LocalDateTime.of(2025, 9, 1, 0, 0);
+    private final Pageable pageable = PageRequest.of(0, 10);
+    private final Page<ReportDTO> page = new PageImpl<>(
+            List.of(new ReportDTO("tom", "Project A", BigDecimal.valueOf(17.9))));
+
+    @BeforeEach
+    void setUp() {
+        Cache<ReportCacheKey, Object> cache = Caffeine.newBuilder().maximumSize(100).build();
+        meterRegistry = new SimpleMeterRegistry();
+        cachingReportService = new CachingReportService(delegate, cache, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void getReportData_whenSameWindowRequestedTwice_thenDelegatesOnce() {
+        when(delegate.getReportData(start, end, pageable)).thenReturn(page);
+
+        assertThat(cachingReportService.getReportData(start, end, pageable)).isSameAs(page);
+        assertThat(cachingReportService.getReportData(start, end, pageable)).isSameAs(page);
+
+        verify(delegate, times(1)).getReportData(start, end, pageable);
+    }
+
+    @Test
+    void getReportDataForSpecificEmployee_whenOtherEmployee_thenNotSharedWithThem() {
+        when(delegate.getReportDataForSpecificEmployee(101L, start, end, pageable)).thenReturn(page);
+        when(delegate.getReportDataForSpecificEmployee(102L, start, end, pageable)).thenReturn(Page.empty());
+
+        cachingReportService.getReportDataForSpecificEmployee(101L, start, end, pageable);
+
+        assertThat(cachingReportService.getReportDataForSpecificEmployee(102L, start, end, pageable)).isEmpty();
+    }
+
+    @Test
+    void onTimeRecordsChanged_whenChangeInsideWindow_thenEvictsWindow() {
+        when(delegate.getReportData(start, end, pageable)).thenReturn(page);
+        cachingReportService.getReportData(start, end, pageable);
+
+        cachingReportService.onTimeRecordsChanged(new TimeRecordsChangedEvent(
+                LocalDateTime.of(2025, 8, 8, 8, 0), LocalDateTime.of(2025, 8, 8, 17, 0), Set.of(101L), Set.of(1L)));
+        cachingReportService.getReportData(start, end, pageable);
+
+        verify(delegate, times(2)).getReportData(start, end, pageable);
+        assertThat(meterRegistry.counter("report.cache.invalidations").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void onTimeRecordsChanged_whenChangeOutsideWindow_thenKeepsWindow() {
+        when(delegate.countReportData(start, end)).thenReturn(2L);
+        cachingReportService.countReportData(start, end);
+
+        cachingReportService.onTimeRecordsChanged(new TimeRecordsChangedEvent(
+                LocalDateTime.of(2025, 9, 2, 8, 0), LocalDateTime.of(2025, 9, 2, 17, 0), Set.of(101L), Set.of(1L)));
+
+        assertThat(cachingReportService.countReportData(start, end)).isEqualTo(2L);
+        verify(delegate, times(1)).countReportData(start, end);
+    }
+
+    @Test
+    void getReportData_whenChangeCommitsWhileLoading_thenResultNotCached() {
+        when(delegate.getReportData(start, end, pageable)).thenAnswer(inv -> {
+            cachingReportService.onTimeRecordsChanged(new TimeRecordsChangedEvent(
+                    LocalDateTime.of(2025, 8, 8, 8, 0), LocalDateTime.of(2025, 8, 8, 17, 0), Set.of(), Set.of()));
+            return page;
+        });
+
+        cachingReportService.getReportData(start, end, pageable);
+        cachingReportService.getReportData(start, end, pageable);
+
+        verify(delegate, times(2)).getReportData(start, end, pageable);
+    }
+
+    @Test
+    void getReport_whenSameDefinitionTwice_thenDelegatesOncePerDefinition() {
+        ReportDefinition byMonth = ReportDefinition.of(start, end, null,
+                List.of(ReportDimension.PERIOD, ReportDimension.EMPLOYEE), TimeBucket.MONTH, ReportTotals.ROLLUP);
+        ReportDefinition byWeek = ReportDefinition.of(start, end, null,
+                List.of(ReportDimension.PERIOD, ReportDimension.EMPLOYEE), TimeBucket.WEEK, ReportTotals.ROLLUP);
+        List<ReportRowDTO> rows = List.of(new ReportRowDTO(null, null, null, null, null, BigDecimal.ONE, Set.of()));
+        when(delegate.getReport(any())).thenReturn(rows);
+
+        assertThat(cachingReportService.getReport(byMonth)).isSameAs(rows);
+        assertThat(cachingReportService.getReport(byMonth)).isSameAs(rows);
+        cachingReportService.getReport(byWeek);
+
+        verify(delegate, times(1)).getReport(byMonth);
+        verify(delegate, times(1)).getReport(byWeek);
+    }
+
+    @Test
+    void getReportData_whenSameWindowRequestedConcurrently_thenOneQuerySharedByAll() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        when(delegate.getReportData(start, end, pageable)).thenAnswer(inv -> {
+            finish.await(5, TimeUnit.SECONDS);
+            return page;
+        });
+
+        List<Future<Page<ReportDTO>>> results = List.of(
+                executor.submit(() -> cachingReportService.getReportData(start, end, pageable)),
+                executor.submit(() -> cachingReportService.getReportData(start, end, pageable)),
+                executor.submit(() -> cachingReportService.getReportData(start, end, pageable)),
+                executor.submit(() -> cachingReportService.getReportData(start, end, pageable)));
+        awaitCoalesced(3);
+        finish.countDown();
+
+        for (Future<Page<ReportDTO>> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(page);
+        }
+        verify(delegate, times(1)).getReportData(start, end, pageable);
+    }
+
+    @Test
+    void getReportData_whenSharedQueryFails_thenEveryWaiterFailsAndNothingCached() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        when(delegate.getReportData(start, end, pageable)).thenAnswer(inv -> {
+            if (calls.incrementAndGet() > 1) {
+                return page;
+            }
+            finish.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("query failed");
+        });
+
+        Future<Page<ReportDTO>> leader = executor.submit(() -> cachingReportService.getReportData(start, end, pageable));
+        Future<Page<ReportDTO>> waiter = executor.submit(() -> cachingReportService.getReportData(start, end, pageable));
+        awaitCoalesced(1);
+        finish.countDown();
+
+        for (Future<Page<ReportDTO>> result : List.of(leader, waiter)) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(cachingReportService.getReportData(start, end, pageable)).isSameAs(page);
+    }
+
+    @Test
+    void getReportData_whenChangeCommitsWhileQueryRuns_thenLaterRequestRunsItsOwn() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Page<ReportDTO> stale = new PageImpl<>(List.of());
+        AtomicInteger calls = new AtomicInteger();
+        when(delegate.getReportData(start, end, pageable)).thenAnswer(inv -> {
+            if (calls.incrementAndGet() > 1) {
+                return page;
+            }
+            running.countDown();
+            finish.await(5, TimeUnit.SECONDS);
+            return stale;
+        });
+
+        Future<Page<ReportDTO>> before = executor.submit(() -> cachingReportService.getReportData(start, end, pageable));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        cachingReportService.onTimeRecordsChanged(new TimeRecordsChangedEvent(
+                LocalDateTime.of(2025, 8, 8, 8, 0), LocalDateTime.of(2025, 8, 8, 17, 0), Set.of(101L), Set.of(1L)));
+
+        assertThat(cachingReportService.getReportData(start, end, pageable)).isSameAs(page);
+        finish.countDown();
+        assertThat(before.get(5, TimeUnit.SECONDS)).isSameAs(stale);
+        assertThat(cachingReportService.getReportData(start, end, pageable)).isSameAs(page);
+        assertThat(meterRegistry.counter("report.cache.coalesced").count()).isZero();
+    }
+
+    private void awaitCoalesced(int waiters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("report.cache.coalesced").count() < waiters && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(meterRegistry.counter("report.cache.coalesced").count()).isEqualTo(waiters);
+    }
+}
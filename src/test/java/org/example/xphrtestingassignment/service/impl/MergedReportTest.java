@@ -0,0 +1,47 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.example.xphrtestingassignment.dto.ReportCursor;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MergedReportTest {
+
+    // ranks in the database collation: "jerry" < "Tom" < "tom"
+    private final MergedReport report = new MergedReport(Map.of(
+            MergedReport.key(2, 0), new BigDecimal("7200"),
+            MergedReport.key(0, 1), new BigDecimal("3600"),
+            MergedReport.key(0, 0), new BigDecimal("1800.000000")),
+            List.of("jerry", "Tom", "tom"), List.of("Project A", "Project B"));
+
+    @Test
+    void page_thenRowsInRankOrderWithTheTotalCount() {
+        Page<ReportDTO> page = report.page(PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).extracting(ReportDTO::employeeName, ReportDTO::projectName).containsExactly(
+                tuple("jerry", "Project A"),
+                tuple("jerry", "Project B"));
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(report.page(PageRequest.of(1, 2)).getContent()).extracting(ReportDTO::employeeName)
+                .containsExactly("tom");
+        assertThat(report.count()).isEqualTo(3);
+    }
+
+    @Test
+    void slice_thenRowsAfterTheCursorEvenWhenItsRowIsNotInTheReport() {
+        assertThat(report.slice(new ReportCursor("jerry", "Project A"), 5).orElseThrow())
+                .extracting(ReportDTO::projectName).containsExactly("Project B", "Project A");
+        // "Tom" has no rows: the slice goes on with the next name in rank order
+        assertThat(report.slice(new ReportCursor("Tom", "Project B"), 5).orElseThrow())
+                .extracting(ReportDTO::employeeName).containsExactly("tom");
+        assertThat(report.slice(new ReportCursor("spike", "Project A"), 5)).isEmpty();
+    }
+}
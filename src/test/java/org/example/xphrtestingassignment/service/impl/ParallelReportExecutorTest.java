@@ -0,0 +1,191 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.service.impl.ReportJobWorker.Chunk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParallelReportExecutorTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ParallelReportExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        // the statistics are read by the tests that plan a split only
+        lenient().when(namedJdbcTemplate.getJdbcTemplate()).thenReturn(jdbcTemplate);
+        // 31,000 records in every month of 2025, 100 employees
+        List<Object[]> partitions = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            partitions.add(new Object[]{"time_record_y2025m%02d".formatted(month), 31_000.0});
+        }
+        partitions.add(new Object[]{"time_record_default", 1_000_000.0});
+        rows(sql -> sql.startsWith("SELECT c.relname"), partitions);
+        lenient().when(jdbcTemplate.queryForObject(startsWith("SELECT GREATEST(reltuples, 0) FROM pg_class"), eq(Double.class)))
+                .thenReturn(100.0);
+        executor = new ParallelReportExecutor(namedJdbcTemplate, 2, 50_000, 12, Duration.ofMinutes(10),
+                Clock.systemDefaultZone(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void plan_thenOneSubRangePerRowsPerSplitCutAtMidnight() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 6, 0);
+        LocalDateTime end = LocalDateTime.of(2025, 12, 31, 18, 0);
+
+        List<Chunk> chunks = executor.plan(null, start, end);
+
+        // about 372,000 records: 8 sub-ranges of 50,000
+        assertThat(chunks).hasSize(8);
+        assertThat(chunks.get(0).start()).isEqualTo(start);
+        assertThat(chunks.get(7).end()).isEqualTo(end);
+        for (int i = 1; i < chunks.size(); i++) {
+            assertThat(chunks.get(i).start()).isEqualTo(chunks.get(i - 1).end());
+            assertThat(chunks.get(i).start().toLocalTime()).isEqualTo(LocalTime.MIDNIGHT);
+        }
+        assertThat(executor.estimateRows(start, end)).isBetween(371_000.0, 372_000.0);
+    }
+
+    @Test
+    void plan_whenFewRecordsOrOneEmployee_thenNotSplit() {
+        LocalDateTime start = LocalDateTime.of(2025, 6, 15, 6, 0);
+
+        assertThat(executor.plan(null, start, start.plusWeeks(1))).hasSize(1);
+        // 3,720 records of one employee in the year
+        assertThat(executor.plan(101L, LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2026, 1, 1, 0, 0)))
+                .hasSize(1);
+        assertThat(executor.plan(null, LocalDateTime.of(2027, 1, 1, 0, 0), LocalDateTime.of(2028, 1, 1, 0, 0)))
+                .hasSize(1);
+    }
+
+    @Test
+    void plan_whenMoreSplitsThanMidnights_thenOnePerDay() {
+        executor = new ParallelReportExecutor(namedJdbcTemplate, 2, 1, 12, Duration.ofMinutes(10),
+                Clock.systemDefaultZone(), new SimpleMeterRegistry());
+
+        assertThat(executor.plan(null, LocalDateTime.of(2025, 6, 15, 6, 0), LocalDateTime.of(2025, 6, 18, 0, 0)))
+                .extracting(Chunk::start)
+                .containsExactly(LocalDateTime.of(2025, 6, 15, 6, 0), LocalDateTime.of(2025, 6, 16, 0, 0),
+                        LocalDateTime.of(2025, 6, 17, 0, 0));
+    }
+
+    @Test
+    void report_thenSubRangeTotalsMergedByNameInDatabaseOrder() {
+        // employees 1 and 3 share their name: the report has one row for both
+        rows(sql -> sql.endsWith("FROM employee ORDER BY 3"), List.<Object[]>of(
+                new Object[]{2L, "jerry", 1}, new Object[]{1L, "tom", 2}, new Object[]{3L, "tom", 2}));
+        rows(sql -> sql.endsWith("FROM project ORDER BY 3"), List.<Object[]>of(new Object[]{10L, "Project A", 1}));
+        when(namedJdbcTemplate.query(startsWith("SELECT employee_id, project_id, SUM(seconds)"),
+                any(MapSqlParameterSource.class), any(RowMapper.class))).thenAnswer(invocation -> {
+            RowMapper<?> mapper = invocation.getArgument(2);
+            return List.of(partial(mapper, 1L, 10L, "3600"), partial(mapper, 3L, 10L, "1800"),
+                    partial(mapper, 2L, 10L, "7200.000000"));
+        });
+
+        List<ReportDTO> rows = executor.report(ReportWindowMode.CONTAINED, null,
+                        LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2026, 1, 1, 0, 0))
+                .orElseThrow().page(Pageable.unpaged()).getContent();
+
+        // 8 sub-ranges with the same totals each
+        verify(namedJdbcTemplate, times(8)).query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class));
+        assertThat(rows).containsExactly(
+                new ReportDTO("jerry", "Project A", ColumnarTimeRecords.hours(new BigDecimal("57600.000000"))),
+                new ReportDTO("tom", "Project A", ColumnarTimeRecords.hours(new BigDecimal("43200"))));
+    }
+
+    @Test
+    void report_whenEmployeeAddedMeanwhile_thenEmpty() {
+        rows(sql -> sql.endsWith("FROM employee ORDER BY 3"), List.<Object[]>of(new Object[]{1L, "tom", 1}));
+        rows(sql -> sql.endsWith("FROM project ORDER BY 3"), List.<Object[]>of(new Object[]{10L, "Project A", 1}));
+        when(namedJdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenAnswer(invocation -> List.of(partial(invocation.getArgument(2), 4L, 10L, "3600")));
+
+        assertThat(executor.report(ReportWindowMode.OVERLAP, null,
+                LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2026, 1, 1, 0, 0))).isEmpty();
+    }
+
+    @Test
+    void report_whenWindowTooSmall_thenEmptyWithoutQueries() {
+        assertThat(executor.report(ReportWindowMode.CONTAINED, null,
+                LocalDateTime.of(2025, 6, 15, 6, 0), LocalDateTime.of(2025, 6, 22, 6, 0))).isEmpty();
+        verify(namedJdbcTemplate, never()).query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class));
+    }
+
+    /**
+     * Answers the queries matching {@code sql} with the given rows, one column per array element.
+     */
+    private void rows(ArgumentMatcher<String> sql, List<Object[]> rows) {
+        lenient().doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                handler.processRow(resultSet(row));
+            }
+            return null;
+        }).when(jdbcTemplate).query(argThat(sql), any(RowCallbackHandler.class));
+    }
+
+    private static Object partial(RowMapper<?> mapper, long employeeId, long projectId, String seconds)
+            throws SQLException {
+        return mapper.mapRow(resultSet(new Object[]{employeeId, projectId, new BigDecimal(seconds)}), 0);
+    }
+
+    private static ResultSet resultSet(Object[] row) throws SQLException {
+        // a row answers whichever of its columns are read
+        ResultSet rs = mock(ResultSet.class, withSettings().strictness(Strictness.LENIENT));
+        for (int i = 0; i < row.length; i++) {
+            Object value = row[i];
+            int column = i + 1;
+            if (value instanceof String text) {
+                when(rs.getString(column)).thenReturn(text);
+            } else if (value instanceof Long number) {
+                when(rs.getLong(column)).thenReturn(number);
+            } else if (value instanceof Integer number) {
+                when(rs.getInt(column)).thenReturn(number);
+            } else if (value instanceof Double number) {
+                when(rs.getDouble(column)).thenReturn(number);
+            } else if (value instanceof BigDecimal number) {
+                when(rs.getBigDecimal(column)).thenReturn(number);
+            }
+        }
+        return rs;
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xphrtestingassignment.exception.ReportCapacityExceededException;
+import org.example.xphrtestingassignment.exception.TooManyReportRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportBulkheadTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReportBulkhead bulkhead;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new ReportBulkhead(1, 1, 2, Duration.ofMillis(100), Duration.ofMillis(1500), 2, meterRegistry);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void call_whenSlotFree_thenRunsQueryAndReleasesSlot() {
+        assertThat(bulkhead.call(() -> "first")).isEqualTo("first");
+        assertThat(bulkhead.call(() -> "second")).isEqualTo("second");
+        assertThat(meterRegistry.get("report.bulkhead.active").gauge().value()).isZero();
+    }
+
+    @Test
+    void call_whenAllSlotsBusyPastTimeout_thenRejects() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Future<String> busy = executor.submit(() -> bulkhead.call(() -> {
+            running.countDown();
+            await(finish);
+            return "slow";
+        }));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> bulkhead.call(() -> "fast"))
+                .isInstanceOf(ReportCapacityExceededException.class);
+        assertThat(meterRegistry.get("report.bulkhead.rejected").tag("reason", "timeout").counter().count())
+                .isEqualTo(1);
+
+        finish.countDown();
+        assertThat(busy.get(5, TimeUnit.SECONDS)).isEqualTo("slow");
+        assertThat(bulkhead.call(() -> "fast")).isEqualTo("fast");
+    }
+
+    @Test
+    void call_whenQueueFull_thenRejectsAtOnceWithRetryAfter() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new ReportBulkhead(1, 1, 2, Duration.ofSeconds(5), Duration.ofMillis(1500), 2, meterRegistry);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Future<String> busy = executor.submit(() -> bulkhead.call(() -> {
+            running.countDown();
+            await(finish);
+            return "slow";
+        }));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> queued = executor.submit(() -> bulkhead.call(() -> "queued"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("report.bulkhead.waiting").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> bulkhead.call(() -> "fast"))
+                .isInstanceOfSatisfying(ReportCapacityExceededException.class,
+                        e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofMillis(1500)));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(meterRegistry.get("report.bulkhead.rejected").tag("reason", "queue-full").counter().count())
+                .isEqualTo(1);
+
+        finish.countDown();
+        assertThat(busy.get(5, TimeUnit.SECONDS)).isEqualTo("slow");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+    }
+
+    @Test
+    void call_whenUserAtCap_thenRejectsThemButNotOthers() {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new ReportBulkhead(4, 4, 2, Duration.ofSeconds(1), Duration.ofMillis(1500), 2, meterRegistry);
+        authenticate("admin");
+
+        String nested = bulkhead.call(() -> bulkhead.call(() -> {
+            assertThatThrownBy(() -> bulkhead.call(() -> "third"))
+                    .isInstanceOf(TooManyReportRequestsException.class);
+            authenticate("tom");
+            String other = bulkhead.call(() -> "other user");
+            authenticate("admin");
+            return other;
+        }));
+
+        assertThat(nested).isEqualTo("other user");
+        assertThat(meterRegistry.get("report.bulkhead.rejected").tag("reason", "user-limit").counter().count())
+                .isEqualTo(1);
+        assertThat(bulkhead.call(() -> "released")).isEqualTo("released");
+    }
+
+    @Test
+    void call_whenQueryThrows_thenReleasesSlot() {
+        assertThatThrownBy(() -> bulkhead.call(() -> {
+            throw new IllegalStateException("query failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(bulkhead.call(() -> "next")).isEqualTo("next");
+    }
+
+    @Test
+    void callExport_whenExportsAtCap_thenRejectsAtOnceButNotQueries() {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new ReportBulkhead(4, 4, 4, Duration.ofSeconds(1), Duration.ofMillis(1500), 1, meterRegistry);
+
+        String result = bulkhead.callExport(() -> {
+            assertThatThrownBy(() -> bulkhead.callExport(() -> "second export"))
+                    .isInstanceOfSatisfying(ReportCapacityExceededException.class,
+                            e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofMillis(1500)));
+            return bulkhead.call(() -> "query");
+        });
+
+        assertThat(result).isEqualTo("query");
+        assertThat(meterRegistry.get("report.bulkhead.rejected").tag("reason", "export-limit").counter().count())
+                .isEqualTo(1);
+        assertThat(bulkhead.callExport(() -> "released")).isEqualTo("released");
+    }
+
+    private static void authenticate(String user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(user, null, List.of()));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.example.xphrtestingassignment.constant.ReportDimension;
+import org.example.xphrtestingassignment.constant.ReportTotals;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.constant.TimeBucket;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class ReportDefinitionSqlTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 8, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 9, 1, 0, 0);
+
+    private static final ReportDimension EMPLOYEE = ReportDimension.EMPLOYEE;
+    private static final ReportDimension PROJECT = ReportDimension.PROJECT;
+    private static final ReportDimension PERIOD = ReportDimension.PERIOD;
+
+    @Test
+    void of_whenRollupOrCube_thenPrefixesOrAllSubsets() {
+        assertThat(definition(List.of(EMPLOYEE, PROJECT), null, ReportTotals.NONE).groupingSets())
+                .containsExactly(Set.of(EMPLOYEE, PROJECT));
+        assertThat(definition(List.of(EMPLOYEE, PROJECT), null, ReportTotals.ROLLUP).groupingSets())
+                .containsExactly(Set.of(EMPLOYEE, PROJECT), Set.of(EMPLOYEE), Set.of());
+        assertThat(definition(List.of(EMPLOYEE, PROJECT), null, ReportTotals.CUBE).groupingSets())
+                .containsExactly(Set.of(EMPLOYEE, PROJECT), Set.of(PROJECT), Set.of(EMPLOYEE), Set.of());
+        // a single dimension: its rollup and cube are the same
+        assertThat(definition(List.of(PROJECT), null, ReportTotals.CUBE).groupingSets())
+                .containsExactly(Set.of(PROJECT), Set.of());
+    }
+
+    @Test
+    void new_whenDimensionsOrBucketInconsistent_thenIllegalArgument() {
+        assertThatThrownBy(() -> definition(List.of(), null, ReportTotals.NONE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> definition(List.of(EMPLOYEE, EMPLOYEE), null, ReportTotals.NONE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> definition(List.of(PERIOD), null, ReportTotals.NONE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> definition(List.of(EMPLOYEE), TimeBucket.DAY, ReportTotals.NONE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ReportDefinition(START, END, null, List.of(EMPLOYEE), null,
+                List.of(Set.of(PROJECT)))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void sql_whenRollupByEmployeeAndMonth_thenOnePassWithGroupingSets() {
+        String sql = ReportDefinitionSql.sql(
+                definition(List.of(EMPLOYEE, PERIOD), TimeBucket.MONTH, ReportTotals.ROLLUP), ReportWindowMode.CONTAINED);
+
+        assertThat(sql)
+                .contains("GROUPING(e.id, h.period) AS grouping_id")
+                .contains("CAST(date_trunc('month', day) AS DATE) AS period")
+                .contains("bucket_from AS day")
+                .contains(" JOIN employee e ON h.employee_id = e.id")
+                .doesNotContain("JOIN project")
+                .doesNotContain(":employeeId")
+                .endsWith(" GROUP BY GROUPING SETS ((e.id, e.name, h.period), (e.id, e.name), ())"
+                        + " ORDER BY e.name, e.id, h.period LIMIT :limit");
+        // every source is read once, in the one statement
+        assertThat(sql.split("FROM time_record_rollup", -1)).hasSize(2);
+    }
+
+    @Test
+    void sql_whenEmployeeOverlapWithoutPeriod_thenFilteredSourcesWithoutDays() {
+        ReportDefinition definition = new ReportDefinition(START, END, 101L, List.of(PROJECT), null, List.of());
+
+        String sql = ReportDefinitionSql.sql(definition, ReportWindowMode.OVERLAP);
+
+        assertThat(sql).doesNotContain(" AS day").doesNotContain("date_trunc('month'")
+                .contains("GROUP BY GROUPING SETS ((p.id, p.name))");
+        assertThat(sql.split("employee_id = :employeeId", -1)).hasSize(6);
+        assertThat(ReportDefinitionSql.parameters(definition, 11).getValues())
+                .containsEntry("chunkStart", START).containsEntry("chunkEnd", END)
+                .containsEntry("employeeId", 101L).containsEntry("limit", 11);
+    }
+
+    @Test
+    void sql_whenOnlyGrandTotal_thenNoKeysAndNoJoins() {
+        ReportDefinition definition = new ReportDefinition(START, END, null, List.of(EMPLOYEE, PERIOD),
+                TimeBucket.DAY, List.of(Set.of()));
+
+        String sql = ReportDefinitionSql.sql(definition, ReportWindowMode.CONTAINED);
+
+        assertThat(sql).startsWith("SELECT 0 AS grouping_id, COALESCE(SUM(h.seconds) / 3600, 0) AS total_hours ")
+                .doesNotContain("JOIN").doesNotContain(" AS day").doesNotContain("ORDER BY")
+                .endsWith(" GROUP BY GROUPING SETS (()) LIMIT :limit");
+    }
+
+    @Test
+    void rowMapper_whenSubtotalRow_thenOnlyItsDimensions() throws SQLException {
+        ReportDefinition definition = definition(List.of(EMPLOYEE, PROJECT, PERIOD), TimeBucket.DAY,
+                ReportTotals.ROLLUP);
+        ResultSet resultSet = mock(ResultSet.class);
+        // (EMPLOYEE): PROJECT and PERIOD left out
+        when(resultSet.getInt("grouping_id")).thenReturn(0b011);
+        when(resultSet.getLong("employee_id")).thenReturn(101L);
+        when(resultSet.getString("employee_name")).thenReturn("tom");
+        when(resultSet.getBigDecimal("total_hours")).thenReturn(new BigDecimal("17.5"));
+
+        ReportRowDTO row = ReportDefinitionSql.rowMapper(definition).mapRow(resultSet, 0);
+
+        assertThat(row).isEqualTo(new ReportRowDTO(101L, "tom", null, null, null, new BigDecimal("17.5"),
+                Set.of(EMPLOYEE)));
+        verify(resultSet, never()).getObject("period", LocalDate.class);
+    }
+
+    private static ReportDefinition definition(List<ReportDimension> dimensions, TimeBucket bucket,
+                                               ReportTotals totals) {
+        return ReportDefinition.of(START, END, null, dimensions, bucket, totals);
+    }
+}
@@ -0,0 +1,182 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.constant.ReportGrouping;
+import org.example.xphrtestingassignment.constant.ReportJobStatus;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.entity.ReportJob;
+import org.example.xphrtestingassignment.metrics.ReportMetrics;
+import org.example.xphrtestingassignment.repository.ReportJobRepository;
+import org.example.xphrtestingassignment.service.impl.ReportJobWorker.Chunk;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportJobWorkerTest {
+
+    private static final UUID JOB_ID = UUID.randomUUID();
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ReportJobRepository reportJobRepository;
+
+    @Mock
+    private ReportMetrics reportMetrics;
+
+    // no archive
+    @Mock
+    private ObjectProvider<TimeRecordArchive> timeRecordArchive;
+
+    private ReportJobWorker worker;
+    private final List<Integer> progress = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        worker = new ReportJobWorker(jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                reportJobRepository,
+                new ReportBulkhead(2, 10, 10, Duration.ofSeconds(1), Duration.ofSeconds(1), 2, new SimpleMeterRegistry()),
+                reportMetrics, timeRecordArchive, Duration.ofHours(24), Duration.ofMillis(1), Duration.ofMillis(50));
+    }
+
+    @Test
+    void chunks_thenCalendarMonthsCutToTheWindow() {
+        assertThat(ReportJobWorker.chunks(LocalDateTime.of(2025, 1, 15, 6, 30), LocalDateTime.of(2025, 3, 10, 12, 0)))
+                .containsExactly(
+                        new Chunk(LocalDateTime.of(2025, 1, 15, 6, 30), LocalDateTime.of(2025, 2, 1, 0, 0)),
+                        new Chunk(LocalDateTime.of(2025, 2, 1, 0, 0), LocalDateTime.of(2025, 3, 1, 0, 0)),
+                        new Chunk(LocalDateTime.of(2025, 3, 1, 0, 0), LocalDateTime.of(2025, 3, 10, 12, 0)));
+        assertThat(ReportJobWorker.chunks(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2026, 1, 1, 0, 0)))
+                .hasSize(12);
+        assertThat(ReportJobWorker.chunks(LocalDateTime.of(2025, 1, 1, 8, 0), LocalDateTime.of(2025, 1, 1, 9, 0)))
+                .containsExactly(new Chunk(LocalDateTime.of(2025, 1, 1, 8, 0), LocalDateTime.of(2025, 1, 1, 9, 0)));
+    }
+
+    @Test
+    void addChunkSql_thenOverlapModeAddsTheCrossingRecordsAndEmployeeScopeFiltersEverySource() {
+        String contained = ReportJobWorker.addChunkSql(ReportWindowMode.CONTAINED, false);
+        String overlap = ReportJobWorker.addChunkSql(ReportWindowMode.OVERLAP, true);
+
+        assertThat(contained).doesNotContain("tsrange").doesNotContain(":employeeId");
+        assertThat(contained.split("UNION ALL")).hasSize(3);
+        assertThat(overlap.split("UNION ALL")).hasSize(5);
+        assertThat(overlap.split("employee_id = :employeeId")).hasSize(6);
+    }
+
+    @Test
+    void run_whenResumed_thenAddsOnlyTheChunksAfterTheCheckpointAndStoresTheResult() {
+        ReportJob job = job(2);
+        when(reportJobRepository.findById(JOB_ID)).thenReturn(Optional.of(job));
+        when(reportJobRepository.checkpoint(eq(JOB_ID), anyInt())).thenReturn(1);
+
+        worker.run(JOB_ID, j -> progress.add(j.getChunksDone()));
+
+        verify(reportJobRepository, never()).checkpoint(JOB_ID, 0);
+        verify(reportJobRepository, never()).checkpoint(JOB_ID, 1);
+        verify(reportJobRepository).checkpoint(JOB_ID, 2);
+        verify(reportJobRepository).checkpoint(JOB_ID, 3);
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO report_job_total"), any(MapSqlParameterSource.class));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO report_job_result"), any(MapSqlParameterSource.class));
+        verify(jdbcTemplate).update(startsWith("DELETE FROM report_job_total"), any(MapSqlParameterSource.class));
+        assertThat(progress).containsExactly(2, 3, 4, 4);
+        assertThat(job.getStatus()).isEqualTo(ReportJobStatus.DONE);
+        assertThat(job.getResultRows()).isZero();
+        // an empty result still is a gzip stream with the header row
+        assertThat(job.getResultBytes()).isPositive();
+        assertThat(job.getExpiresAt()).isEqualTo(job.getFinishedAt().plusHours(24));
+    }
+
+    @Test
+    void run_whenChunkAlreadyAdded_thenSkipsIt() {
+        ReportJob job = job(3);
+        when(reportJobRepository.findById(JOB_ID)).thenReturn(Optional.of(job));
+        when(reportJobRepository.checkpoint(JOB_ID, 3)).thenReturn(0);
+
+        worker.run(JOB_ID, j -> { });
+
+        verify(jdbcTemplate, never()).update(startsWith("INSERT INTO report_job_total"), any(MapSqlParameterSource.class));
+        assertThat(job.getStatus()).isEqualTo(ReportJobStatus.DONE);
+    }
+
+    @Test
+    void run_whenReportRequestsInProgress_thenGivesWayBeforeEachChunk() {
+        ReportJob job = job(3);
+        when(reportJobRepository.findById(JOB_ID)).thenReturn(Optional.of(job));
+        when(reportJobRepository.checkpoint(JOB_ID, 3)).thenReturn(1);
+        when(reportMetrics.getActiveRequests()).thenReturn(1, 1, 0);
+
+        worker.run(JOB_ID, j -> { });
+
+        // twice busy, then free for the chunk, then free for the result
+        verify(reportMetrics, times(4)).getActiveRequests();
+        assertThat(job.getStatus()).isEqualTo(ReportJobStatus.DONE);
+    }
+
+    @Test
+    void run_whenStatementFails_thenJobFailsWithTheError() {
+        ReportJob job = job(0);
+        when(reportJobRepository.findById(JOB_ID)).thenReturn(Optional.of(job));
+        when(reportJobRepository.checkpoint(JOB_ID, 0)).thenReturn(1);
+        when(jdbcTemplate.update(startsWith("INSERT INTO report_job_total"), any(MapSqlParameterSource.class)))
+                .thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+
+        worker.run(JOB_ID, j -> progress.add(j.getChunksDone()));
+
+        assertThat(job.getStatus()).isEqualTo(ReportJobStatus.FAILED);
+        assertThat(job.getError()).contains("statement timeout");
+        assertThat(job.getExpiresAt()).isNotNull();
+        assertThat(progress).containsExactly(0, 0);
+        verify(reportJobRepository, never()).checkpoint(JOB_ID, 1);
+    }
+
+    @Test
+    void run_whenJobFinished_thenNothing() {
+        ReportJob job = job(4);
+        job.setStatus(ReportJobStatus.DONE);
+        when(reportJobRepository.findById(JOB_ID)).thenReturn(Optional.of(job));
+
+        worker.run(JOB_ID, j -> progress.add(j.getChunksDone()));
+
+        verifyNoInteractions(jdbcTemplate);
+        assertThat(progress).isEmpty();
+    }
+
+    private static ReportJob job(int chunksDone) {
+        return ReportJob.builder()
+                .id(JOB_ID)
+                .username("admin")
+                .startDate(LocalDateTime.of(2025, 1, 1, 0, 0))
+                .endDate(LocalDateTime.of(2025, 5, 1, 0, 0))
+                .windowMode(ReportWindowMode.CONTAINED)
+                .grouping(ReportGrouping.EMPLOYEE_PROJECT)
+                .format(DataFormat.CSV)
+                .status(ReportJobStatus.RUNNING)
+                .chunksTotal(4)
+                .chunksDone(chunksDone)
+                .createdAt(LocalDateTime.of(2025, 6, 1, 12, 0))
+                .build();
+    }
+}
@@ -1,21 +1,43 @@
 package org.example.xphrtestingassignment.service.impl;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.columnar.ColumnarReportEngine;
+import org.example.xphrtestingassignment.columnar.ColumnarTimeRecords;
+import org.example.xphrtestingassignment.constant.ReportDimension;
+import org.example.xphrtestingassignment.constant.ReportTotals;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.datasource.ReplicaRouter;
+import org.example.xphrtestingassignment.dto.ReportCursor;
 import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
+import org.example.xphrtestingassignment.exception.ReportTooLargeException;
+import org.example.xphrtestingassignment.metrics.ReportMetrics;
 import org.example.xphrtestingassignment.repository.TimeRecordRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,12 +46,37 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class ReportServiceImplTest {
 
-    @InjectMocks
     private ReportServiceImpl reportService;
 
     @Mock
     private TimeRecordRepository timeRecordRepository;
 
+    @Spy
+    private ReportBulkhead reportBulkhead = new ReportBulkhead(2, 10, 10, Duration.ofSeconds(1), Duration.ofSeconds(1),
+            2, new SimpleMeterRegistry());
+
+    @Spy
+    private ReportMetrics reportMetrics = new ReportMetrics(new SimpleMeterRegistry());
+
+    // no engine bean unless a test stubs one
+    @Mock
+    private ObjectProvider<ColumnarReportEngine> columnarReportEngine;
+
+    // no parallel executor bean unless a test stubs one
+    @Mock
+    private ObjectProvider<ParallelReportExecutor> parallelReportExecutor;
+
+    // no archive unless a test stubs one
+    @Mock
+    private ObjectProvider<TimeRecordArchive> timeRecordArchive;
+
+    // no replicas: every query runs on the primary
+    private final ReplicaRouter replicaRouter = new ReplicaRouter(List.of(), Duration.ofSeconds(30),
+            Duration.ofHours(1), Duration.ofSeconds(5), Clock.systemDefaultZone(), new SimpleMeterRegistry());
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
     private LocalDateTime start;
     private LocalDateTime end;
     private Pageable pageable;
@@ -39,28 +86,29 @@ class ReportServiceImplTest {
         start = LocalDateTime.now().minusDays(30);
         end   = LocalDateTime.now();
         pageable = PageRequest.of(0, 10);
+        reportService = new ReportServiceImpl(timeRecordRepository, reportBulkhead, reportMetrics, columnarReportEngine,
+                parallelReportExecutor, timeRecordArchive, replicaRouter, jdbcTemplate, ReportWindowMode.CONTAINED, 2);
     }
 
     @Test
     void getReportData_whenValidParams_thenDelegateAndReturnPage() {
-        Page<ReportDTO> expected = new PageImpl<>(
-                List.of(new ReportDTO("Tom", "Project A", BigDecimal.valueOf(12.5)))
-        );
+        List<ReportDTO> expected = List.of(new ReportDTO("Tom", "Project A", BigDecimal.valueOf(12.5)));
         when(timeRecordRepository.findAllBetweenStartDateAndEndDate(start, end, pageable))
                 .thenReturn(expected);
 
         Page<ReportDTO> result = reportService.getReportData(start, end, pageable);
 
-        assertThat(result).isSameAs(expected);
+        // a first page short of the page size tells the total: no count
+        assertThat(result.getContent()).isEqualTo(expected);
+        assertThat(result.getTotalElements()).isEqualTo(1L);
         verify(timeRecordRepository).findAllBetweenStartDateAndEndDate(start, end, pageable);
         verifyNoMoreInteractions(timeRecordRepository);
     }
 
     @Test
     void getReportData_whenRepositoryReturnsEmpty_thenReturnEmptyPage() {
-        Page<ReportDTO> empty = Page.empty(pageable);
         when(timeRecordRepository.findAllBetweenStartDateAndEndDate(start, end, pageable))
-                .thenReturn(empty);
+                .thenReturn(List.of());
 
         Page<ReportDTO> result = reportService.getReportData(start, end, pageable);
 
@@ -70,36 +118,229 @@ class ReportServiceImplTest {
         verifyNoMoreInteractions(timeRecordRepository);
     }
 
+    @Test
+    void countReportDataForSpecificEmployee_whenWindowReachesTheArchive_thenAddsTheArchivedTotalsInTheQuery() {
+        TimeRecordArchive archive = mock(TimeRecordArchive.class);
+        LocalDateTime archivedBefore = start.plusDays(10);
+        when(timeRecordArchive.getIfAvailable()).thenReturn(archive);
+        when(archive.reaches(ReportWindowMode.CONTAINED, start, end)).thenReturn(true);
+        when(archive.totals(ReportWindowMode.CONTAINED, 101L, start, end, start, end, false))
+                .thenReturn(new TimeRecordArchive.ChunkTotals(archivedBefore, archivedBefore, List.of(
+                        new TimeRecordArchive.Total(null, 101L, 1L, 5_400_000_000L),
+                        new TimeRecordArchive.Total(null, 101L, 2L, 1L))));
+        when(jdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class), eq(Long.class))).thenReturn(2L);
+
+        assertThat(reportService.countReportDataForSpecificEmployee(101L, start, end)).isEqualTo(2L);
+
+        verify(jdbcTemplate).queryForObject(argThat((String sql) -> sql.contains("unnest(")
+                        && sql.contains("employee_id = :employeeId")),
+                argThat((SqlParameterSource parameters) -> parameters.getValue("chunkStart").equals(archivedBefore)
+                        && parameters.getValue("archiveEmployees").equals("{101,101}")
+                        && parameters.getValue("archiveProjects").equals("{1,2}")
+                        && parameters.getValue("archiveSeconds").equals("{5400.000000,0.000001}")),
+                eq(Long.class));
+        verify(reportBulkhead).call(any());
+        verifyNoInteractions(timeRecordRepository, columnarReportEngine, parallelReportExecutor);
+    }
+
+    @Test
+    void getReportData_whenPageFull_thenCountsTheReport() {
+        Pageable first = PageRequest.of(0, 1);
+        when(timeRecordRepository.findAllBetweenStartDateAndEndDate(start, end, first))
+                .thenReturn(List.of(new ReportDTO("Tom", "Project A", BigDecimal.valueOf(12.5))));
+        when(timeRecordRepository.countBetweenStartDateAndEndDate(start, end)).thenReturn(3L);
+
+        Page<ReportDTO> result = reportService.getReportData(start, end, first);
+
+        assertThat(result.getTotalElements()).isEqualTo(3L);
+        assertThat(result.getTotalPages()).isEqualTo(3);
+    }
+
     @Test
     void getReportDataForSpecificEmployee_whenValidParams_thenDelegateAndReturnPage() {
-        String username = "jerry";
-        Page<ReportDTO> expected = new PageImpl<>(
-                List.of(new ReportDTO("Jerry", "Project B", BigDecimal.valueOf(8.0)))
-        );
-        when(timeRecordRepository.findAllByEmployeeAndDateRange(username, start, end, pageable))
+        long employeeId = 102L;
+        List<ReportDTO> expected = List.of(new ReportDTO("Jerry", "Project B", BigDecimal.valueOf(8.0)));
+        when(timeRecordRepository.findAllByEmployeeAndDateRange(employeeId, start, end, pageable))
                 .thenReturn(expected);
 
         Page<ReportDTO> result =
-                reportService.getReportDataForSpecificEmployee(username, start, end, pageable);
+                reportService.getReportDataForSpecificEmployee(employeeId, start, end, pageable);
 
-        assertThat(result).isSameAs(expected);
-        verify(timeRecordRepository).findAllByEmployeeAndDateRange(username, start, end, pageable);
+        assertThat(result.getContent()).isEqualTo(expected);
+        assertThat(result.getTotalElements()).isEqualTo(1L);
+        verify(timeRecordRepository).findAllByEmployeeAndDateRange(employeeId, start, end, pageable);
         verifyNoMoreInteractions(timeRecordRepository);
     }
 
     @Test
     void getReportDataForSpecificEmployee_whenRepositoryReturnsEmpty_thenReturnEmptyPage() {
-        String username = "tom";
-        Page<ReportDTO> empty = Page.empty(pageable);
-        when(timeRecordRepository.findAllByEmployeeAndDateRange(username, start, end, pageable))
-                .thenReturn(empty);
+        long employeeId = 101L;
+        when(timeRecordRepository.findAllByEmployeeAndDateRange(employeeId, start, end, pageable))
+                .thenReturn(List.of());
 
         Page<ReportDTO> result =
-                reportService.getReportDataForSpecificEmployee(username, start, end, pageable);
+                reportService.getReportDataForSpecificEmployee(employeeId, start, end, pageable);
 
         assertThat(result.getTotalElements()).isZero();
         assertNotNull(result);
-        verify(timeRecordRepository).findAllByEmployeeAndDateRange(username, start, end, pageable);
+        verify(timeRecordRepository).findAllByEmployeeAndDateRange(employeeId, start, end, pageable);
+        verifyNoMoreInteractions(timeRecordRepository);
+    }
+
+    @Test
+    void getReportDataAfter_whenMoreRowsThanSize_thenReturnSliceWithNext() {
+        List<ReportDTO> rows = List.of(
+                new ReportDTO("jerry", "Project B", BigDecimal.valueOf(9.5)),
+                new ReportDTO("tom", "Project A", BigDecimal.valueOf(17.9)));
+        when(timeRecordRepository.findSliceBetweenStartDateAndEndDate(start, end, null, null, 2))
+                .thenReturn(rows);
+
+        Slice<ReportDTO> result = reportService.getReportDataAfter(start, end, null, 1);
+
+        assertThat(result.hasNext()).isTrue();
+        assertThat(result.getContent()).isEqualTo(rows.subList(0, 1));
+        verify(timeRecordRepository).findSliceBetweenStartDateAndEndDate(start, end, null, null, 2);
+        verifyNoMoreInteractions(timeRecordRepository);
+    }
+
+    @Test
+    void getReportDataForSpecificEmployeeAfter_whenCursorGiven_thenSeekPastCursor() {
+        ReportCursor after = new ReportCursor("tom", "Project A");
+        List<ReportDTO> rows = List.of(new ReportDTO("tom", "Project C", BigDecimal.valueOf(3.0)));
+        when(timeRecordRepository.findSliceByEmployeeAndDateRange(101L, start, end, "tom", "Project A", 11))
+                .thenReturn(rows);
+
+        Slice<ReportDTO> result = reportService.getReportDataForSpecificEmployeeAfter(101L, start, end, after, 10);
+
+        assertThat(result.hasNext()).isFalse();
+        assertThat(result.getContent()).isEqualTo(rows);
+        verify(timeRecordRepository).findSliceByEmployeeAndDateRange(101L, start, end, "tom", "Project A", 11);
+        verifyNoMoreInteractions(timeRecordRepository);
+    }
+
+    @Test
+    void countReportData_whenCalled_thenDelegateToCountQuery() {
+        when(timeRecordRepository.countBetweenStartDateAndEndDate(start, end)).thenReturn(42L);
+
+        assertThat(reportService.countReportData(start, end)).isEqualTo(42L);
+        verify(timeRecordRepository).countBetweenStartDateAndEndDate(start, end);
         verifyNoMoreInteractions(timeRecordRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    void countReportData_whenColumnarEngineLoaded_thenAnswerWithoutRepository() {
+        ColumnarReportEngine engine = mock(ColumnarReportEngine.class);
+        ColumnarTimeRecords records = mock(ColumnarTimeRecords.class);
+        when(columnarReportEngine.getIfAvailable()).thenReturn(engine);
+        when(engine.snapshot()).thenReturn(records);
+        when(records.count(ReportWindowMode.CONTAINED, null, start, end)).thenReturn(7L);
+
+        assertThat(reportService.countReportData(start, end)).isEqualTo(7L);
+        verifyNoInteractions(timeRecordRepository);
+    }
+
+    @Test
+    void countReportDataForSpecificEmployee_whenNameSharedInColumnarEngine_thenDelegateToRepository() {
+        ColumnarReportEngine engine = mock(ColumnarReportEngine.class);
+        ColumnarTimeRecords records = mock(ColumnarTimeRecords.class);
+        when(columnarReportEngine.getIfAvailable()).thenReturn(engine);
+        when(engine.snapshot()).thenReturn(records);
+        when(records.isolates(101L)).thenReturn(false);
+        when(timeRecordRepository.countByEmployeeAndDateRange(101L, start, end)).thenReturn(3L);
+
+        assertThat(reportService.countReportDataForSpecificEmployee(101L, start, end)).isEqualTo(3L);
+        verify(records, never()).count(any(), any(), any(), any());
+    }
+
+    @Test
+    void getReportData_whenColumnarEngineNotLoaded_thenDelegateToRepository() {
+        ColumnarReportEngine engine = mock(ColumnarReportEngine.class);
+        when(columnarReportEngine.getIfAvailable()).thenReturn(engine);
+        List<ReportDTO> expected = List.of();
+        when(timeRecordRepository.findAllBetweenStartDateAndEndDate(start, end, pageable)).thenReturn(expected);
+
+        assertThat(reportService.getReportData(start, end, pageable).getContent()).isEqualTo(expected);
+    }
+
+    @Test
+    void getReportData_whenOverlapMode_thenDelegateToOverlapQuery() {
+        reportService = new ReportServiceImpl(timeRecordRepository, reportBulkhead, reportMetrics, columnarReportEngine,
+                parallelReportExecutor, timeRecordArchive, replicaRouter, jdbcTemplate, ReportWindowMode.OVERLAP, 2);
+        List<ReportDTO> expected = List.of();
+        when(timeRecordRepository.findAllOverlappingStartDateAndEndDate(start, end, pageable)).thenReturn(expected);
+
+        assertThat(reportService.getReportData(start, end, pageable).getContent()).isEqualTo(expected);
+        verify(timeRecordRepository).findAllOverlappingStartDateAndEndDate(start, end, pageable);
+        verifyNoMoreInteractions(timeRecordRepository);
+    }
+
+    @Test
+    void getReportDataForSpecificEmployeeAfter_whenOverlapMode_thenDelegateToOverlapQuery() {
+        reportService = new ReportServiceImpl(timeRecordRepository, reportBulkhead, reportMetrics, columnarReportEngine,
+                parallelReportExecutor, timeRecordArchive, replicaRouter, jdbcTemplate, ReportWindowMode.OVERLAP, 2);
+        when(timeRecordRepository.findSliceByEmployeeOverlappingDateRange(101L, start, end, null, null, 11))
+                .thenReturn(List.of());
+
+        Slice<ReportDTO> result = reportService.getReportDataForSpecificEmployeeAfter(101L, start, end, null, 10);
+
+        assertThat(result.hasContent()).isFalse();
+        verify(timeRecordRepository).findSliceByEmployeeOverlappingDateRange(101L, start, end, null, null, 11);
+        verifyNoMoreInteractions(timeRecordRepository);
+    }
+
+    @Test
+    void getReportData_whenWindowSplit_thenPageOfTheMergedReportWithoutRepository() {
+        ParallelReportExecutor executor = mock(ParallelReportExecutor.class);
+        when(parallelReportExecutor.getIfAvailable()).thenReturn(executor);
+        MergedReport merged = new MergedReport(Map.of(MergedReport.key(0, 0), new BigDecimal("7200")),
+                List.of("Tom"), List.of("Project A"));
+        when(executor.report(ReportWindowMode.CONTAINED, null, start, end)).thenReturn(Optional.of(merged));
+
+        Page<ReportDTO> result = reportService.getReportData(start, end, pageable);
+
+        assertThat(result.getTotalElements()).isEqualTo(1L);
+        assertThat(result.getContent().get(0).employeeName()).isEqualTo("Tom");
+        assertThat(reportService.countReportData(start, end)).isEqualTo(1L);
+        verifyNoInteractions(timeRecordRepository);
+    }
+
+    @Test
+    void countReportDataForSpecificEmployee_whenWindowNotSplit_thenDelegateToCountQuery() {
+        ParallelReportExecutor executor = mock(ParallelReportExecutor.class);
+        when(parallelReportExecutor.getIfAvailable()).thenReturn(executor);
+        when(executor.report(ReportWindowMode.CONTAINED, 101L, start, end)).thenReturn(Optional.empty());
+        when(timeRecordRepository.countByEmployeeAndDateRange(101L, start, end)).thenReturn(3L);
+
+        assertThat(reportService.countReportDataForSpecificEmployee(101L, start, end)).isEqualTo(3L);
+    }
+
+    @Test
+    void getReport_whenWithinMaxRows_thenRowsOfOneQueryWithoutRepository() {
+        ReportDefinition definition = ReportDefinition.of(start, end, 101L,
+                List.of(ReportDimension.PROJECT), null, ReportTotals.ROLLUP);
+        List<ReportRowDTO> rows = List.of(
+                new ReportRowDTO(null, null, 1L, "Project A", null, BigDecimal.TEN, Set.of(ReportDimension.PROJECT)),
+                new ReportRowDTO(null, null, null, null, null, BigDecimal.TEN, Set.of()));
+        when(jdbcTemplate.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class))).thenReturn(rows);
+
+        assertThat(reportService.getReport(definition)).isEqualTo(rows);
+        verify(jdbcTemplate).query(eq(ReportDefinitionSql.sql(definition, ReportWindowMode.CONTAINED)),
+                argThat((SqlParameterSource parameters) -> parameters.getValue("limit").equals(3)
+                        && parameters.getValue("employeeId").equals(101L)),
+                any(RowMapper.class));
+        verify(reportBulkhead).call(any());
+        verifyNoInteractions(timeRecordRepository, columnarReportEngine, parallelReportExecutor);
+    }
+
+    @Test
+    void getReport_whenMoreThanMaxRows_thenReportTooLarge() {
+        ReportDefinition definition = ReportDefinition.of(start, end, null,
+                List.of(ReportDimension.EMPLOYEE), null, ReportTotals.NONE);
+        ReportRowDTO row = new ReportRowDTO(1L, "tom", null, null, null, BigDecimal.ONE,
+                Set.of(ReportDimension.EMPLOYEE));
+        when(jdbcTemplate.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(row, row, row));
+
+        assertThrows(ReportTooLargeException.class, () -> reportService.getReport(definition));
+    }
+}
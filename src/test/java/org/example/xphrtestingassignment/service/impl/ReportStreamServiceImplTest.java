@@ -0,0 +1,264 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.xphrtestingassignment.constant.ReportDimension;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.example.xphrtestingassignment.exception.ReportCapacityExceededException;
+import org.example.xphrtestingassignment.service.ReportService;
+import org.example.xphrtestingassignment.service.ReportStreamService;
+import org.example.xphrtestingassignment.service.ReportStreamService.ReportStreamSink;
+import org.example.xphrtestingassignment.service.ReportVersionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReportStreamServiceImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 8, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 9, 1, 0, 0);
+
+    @Mock
+    private ReportService reportService;
+
+    @Mock
+    private ReportVersionService reportVersionService;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+    private ReportStreamServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = service(Duration.ofSeconds(30));
+        when(reportService.getReport(definition(null))).thenReturn(List.of(
+                row(101, "tom", 1, "Project A", "8"), row(102, "jerry", 1, "Project A", "4"),
+                row(102, "jerry", 2, "Project B", "2")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void subscribe_whenSameWindowTwice_thenOneReportAndASnapshotEach() throws Exception {
+        RecordingSink first = new RecordingSink();
+        RecordingSink second = new RecordingSink();
+
+        service.subscribe(null, START, END, first);
+        service.subscribe(null, START, END, second);
+
+        for (RecordingSink sink : List.of(first, second)) {
+            Event snapshot = sink.next();
+            assertThat(snapshot.event()).isEqualTo(ReportStreamService.SNAPSHOT);
+            JsonNode cells = objectMapper.readTree(snapshot.json()).get("cells");
+            assertThat(cells).hasSize(3);
+            // in report order, by employee and project name
+            assertThat(cells.get(0).get("employeeName").asText()).isEqualTo("jerry");
+            assertThat(cells.get(2).get("employeeName").asText()).isEqualTo("tom");
+        }
+        verify(reportService, times(1)).getReport(any());
+    }
+
+    @Test
+    void refresh_whenEmployeeChanged_thenOnlyTheirReportAndTheirChangedCells() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        service.subscribe(null, START, END, sink);
+        sink.next();
+        when(reportService.getReport(definition(102L))).thenReturn(List.of(
+                row(102, "jerry", 1, "Project A", "4"), row(102, "jerry", 3, "Project C", "1.5")));
+
+        service.onTimeRecordsChanged(new TimeRecordsChangedEvent(
+                START.plusDays(3), START.plusDays(4), Set.of(102L), Set.of(3L)));
+        service.refresh();
+
+        Event delta = sink.next();
+        assertThat(delta.event()).isEqualTo(ReportStreamService.DELTA);
+        assertThat(delta.sequence()).isEqualTo(1);
+        JsonNode cells = objectMapper.readTree(delta.json()).get("cells");
+        assertThat(cells).hasSize(2);
+        assertThat(cells.get(0).get("projectName").asText()).isEqualTo("Project B");
+        assertThat(cells.get(0).get("totalHours").decimalValue()).isEqualByComparingTo("0");
+        assertThat(cells.get(1).get("projectName").asText()).isEqualTo("Project C");
+        verify(reportService).getReport(definition(102L));
+        verify(reportService, times(2)).getReport(any());
+    }
+
+    @Test
+    void refresh_whenChangeOutsideTheWindowOrNothingChanged_thenNoQueryOrNoDelta() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        service.subscribe(null, START, END, sink);
+        sink.next();
+
+        service.onTimeRecordsChanged(new TimeRecordsChangedEvent(
+                END.plusDays(1), END.plusDays(2), Set.of(101L), Set.of()));
+        service.refresh();
+        verify(reportService, times(1)).getReport(any());
+
+        // a change that names no employees refreshes the whole window, which still adds up the same
+        service.onTimeRecordsChanged(new TimeRecordsChangedEvent(START, END, Set.of(), Set.of()));
+        service.refresh();
+        verify(reportService, times(2)).getReport(definition(null));
+        assertThat(sink.poll()).isNull();
+    }
+
+    @Test
+    void offer_whenSubscriberFallsBehind_thenSnapshotInsteadOfTheMissedDeltas() throws Exception {
+        RecordingSink slow = new RecordingSink();
+        RecordingSink fast = new RecordingSink();
+        slow.block();
+        service.subscribe(null, START, END, slow);
+        service.subscribe(null, START, END, fast);
+        fast.next();
+        assertThat(slow.awaitBlocked()).isTrue();
+
+        // max-pending is 2: the third delta makes the slow subscriber start over
+        for (int hours = 1; hours <= 3; hours++) {
+            when(reportService.getReport(definition(101L)))
+                    .thenReturn(List.of(row(101, "tom", 1, "Project A", Integer.toString(8 + hours))));
+            service.onTimeRecordsChanged(new TimeRecordsChangedEvent(START, END, Set.of(101L), Set.of()));
+            service.refresh();
+            assertThat(fast.next().sequence()).isEqualTo(hours);
+        }
+        slow.release();
+
+        assertThat(slow.next().event()).isEqualTo(ReportStreamService.SNAPSHOT);
+        Event resync = slow.next();
+        assertThat(resync.event()).isEqualTo(ReportStreamService.SNAPSHOT);
+        assertThat(resync.sequence()).isEqualTo(3);
+        assertThat(resync.json()).contains("\"totalHours\":11");
+        assertThat(slow.poll()).isNull();
+    }
+
+    @Test
+    void refresh_whenSendBlockedTooLong_thenSubscriberDropped() throws Exception {
+        service.shutdown();
+        service = service(Duration.ZERO);
+        RecordingSink stuck = new RecordingSink();
+        stuck.block();
+        service.subscribe(null, START, END, stuck);
+        assertThat(stuck.awaitBlocked()).isTrue();
+
+        service.refresh();
+
+        assertThat(stuck.closed).isTrue();
+        stuck.release();
+        // the feed went with its last subscriber: the next one computes the report again
+        service.subscribe(null, START, END, new RecordingSink());
+        verify(reportService, times(2)).getReport(definition(null));
+    }
+
+    @Test
+    void subscribe_whenMaxSubscribers_thenCapacityExceededUntilOneLeaves() {
+        Runnable unsubscribe = null;
+        for (int i = 0; i < 3; i++) {
+            unsubscribe = service.subscribe(null, START, END, new RecordingSink());
+        }
+
+        assertThatThrownBy(() -> service.subscribe(null, START, END, new RecordingSink()))
+                .isInstanceOf(ReportCapacityExceededException.class);
+        unsubscribe.run();
+        unsubscribe.run();
+        service.subscribe(null, START, END, new RecordingSink());
+    }
+
+    private ReportStreamServiceImpl service(Duration slowConsumerTimeout) {
+        return new ReportStreamServiceImpl(reportService, reportVersionService, objectMapper, 3, 16, 2, 2,
+                Duration.ofSeconds(1), Duration.ofSeconds(10), Duration.ofSeconds(30), slowConsumerTimeout, new SimpleMeterRegistry());
+    }
+
+    private static ReportDefinition definition(Long employeeId) {
+        return new ReportDefinition(START, END, employeeId, List.of(ReportDimension.EMPLOYEE, ReportDimension.PROJECT),
+                null, List.of());
+    }
+
+    private static ReportRowDTO row(long employeeId, String employee, long projectId, String project, String hours) {
+        return new ReportRowDTO(employeeId, employee, projectId, project, null, new BigDecimal(hours),
+                Set.of(ReportDimension.EMPLOYEE, ReportDimension.PROJECT));
+    }
+
+    private record Event(String event, long sequence, String json) {
+    }
+
+    private static final class RecordingSink implements ReportStreamSink {
+
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        private final List<CountDownLatch> gate = new ArrayList<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private volatile boolean closed;
+
+        void block() {
+            gate.add(new CountDownLatch(1));
+        }
+
+        void release() {
+            gate.forEach(CountDownLatch::countDown);
+        }
+
+        boolean awaitBlocked() throws InterruptedException {
+            return blocked.await(5, TimeUnit.SECONDS);
+        }
+
+        Event next() throws InterruptedException {
+            Event event = events.poll(5, TimeUnit.SECONDS);
+            assertThat(event).as("event").isNotNull();
+            return event;
+        }
+
+        Event poll() throws InterruptedException {
+            return events.poll(200, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void send(String event, long sequence, String json) throws IOException {
+            events.add(new Event(event, sequence, json));
+            if (!gate.isEmpty()) {
+                blocked.countDown();
+                try {
+                    gate.get(0).await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
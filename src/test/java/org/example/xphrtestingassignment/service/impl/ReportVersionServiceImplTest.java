@@ -0,0 +1,99 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportVersionServiceImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 15, 6, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 2, 15, 6, 0);
+    private static final LocalDate JANUARY = LocalDate.of(2025, 1, 1);
+    private static final LocalDate FEBRUARY = LocalDate.of(2025, 2, 1);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ReportVersionServiceImpl versionService;
+
+    // the rows of time_record_version, month and version
+    private final List<Object[]> versions = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        versionService = new ReportVersionServiceImpl(jdbcTemplate, eventPublisher);
+        when(jdbcTemplate.query(contains("time_record_version"), any(RowMapper.class), eq(START), eq(END)))
+                .thenAnswer(invocation -> {
+                    RowMapper<?> mapper = invocation.getArgument(1);
+                    List<Object> rows = new ArrayList<>();
+                    for (Object[] version : versions) {
+                        rows.add(mapper.mapRow(resultSet((LocalDate) version[0], (Long) version[1]), rows.size()));
+                    }
+                    return rows;
+                });
+    }
+
+    @Test
+    void getVersion_thenChangesWithAnyMonthOfTheWindow() {
+        versions.add(new Object[]{JANUARY, 100L});
+        versions.add(new Object[]{FEBRUARY, 200L});
+        long first = versionService.getVersion(START, END);
+
+        assertThat(versionService.getVersion(START, END)).isEqualTo(first);
+        versions.set(1, new Object[]{FEBRUARY, 300L});
+        long februaryChanged = versionService.getVersion(START, END);
+        versions.set(0, new Object[]{JANUARY, 300L});
+        long januaryChanged = versionService.getVersion(START, END);
+        // the versions swapped between the months
+        versions.set(0, new Object[]{JANUARY, 200L});
+        versions.set(1, new Object[]{FEBRUARY, 100L});
+
+        assertThat(List.of(first, februaryChanged, januaryChanged, versionService.getVersion(START, END)))
+                .doesNotHaveDuplicates();
+    }
+
+    @Test
+    void getVersion_whenMonthUnseenOrChanged_thenChangeEventForTheMonth() {
+        versions.add(new Object[]{JANUARY, 100L});
+        versions.add(new Object[]{FEBRUARY, 200L});
+        versionService.getVersion(START, END);
+        versionService.getVersion(START, END);
+        versions.set(1, new Object[]{FEBRUARY, 300L});
+        versionService.getVersion(START, END);
+
+        ArgumentCaptor<TimeRecordsChangedEvent> events = ArgumentCaptor.forClass(TimeRecordsChangedEvent.class);
+        verify(eventPublisher, times(3)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).extracting(TimeRecordsChangedEvent::from).containsExactly(
+                JANUARY.atStartOfDay(), FEBRUARY.atStartOfDay(), FEBRUARY.atStartOfDay());
+        assertThat(events.getAllValues().get(2).to()).isEqualTo(LocalDateTime.of(2025, 3, 1, 0, 0));
+    }
+
+    private static ResultSet resultSet(LocalDate month, long version) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject(1, LocalDate.class)).thenReturn(month);
+        when(rs.getLong(2)).thenReturn(version);
+        return rs;
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.dto.IngestionResultDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The COPY, deduplication and id reservation of the ingestion against PostgreSQL. Each batch commits like in
+ * production, so the records, employees and projects of the test are deleted afterwards.
+ */
+@SpringBootTest
+class TimeRecordIngestionServiceImplPostgresTest {
+
+    private static final String CSV = """
+            employee_id,project_id,time_from,time_to
+            990021,990021,2031-05-04T08:00,2031-05-04T16:00
+            990021,990021,2031-05-05T08:00,2031-05-05T16:00
+            990022,990021,2031-05-04T09:00,2031-05-04T17:00
+            990022,990021,2031-05-04T09:00,2031-05-04T17:00
+            990022,990021,2031-05-06T09:00,2031-05-06T12:00
+            990021,990021,2031-05-06T07:00,2031-05-06T09:00
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<TimeRecordArchive> timeRecordArchive;
+
+    private TimeRecordIngestionServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TimeRecordIngestionServiceImpl(jdbcTemplate, transactionTemplate, eventPublisher,
+                objectMapper, timeRecordArchive, 2, 10);
+        jdbcTemplate.update("INSERT INTO employee (id, name) VALUES (990021, 'ingest_a'), (990022, 'ingest_b')");
+        jdbcTemplate.update("INSERT INTO project (id, name) VALUES (990021, 'Ingest Project')");
+        // already loaded: the second row of the file
+        jdbcTemplate.update("INSERT INTO time_record (id, employee_id, project_id, time_from, time_to) " +
+                "VALUES (990201, 990021, 990021, '2031-05-05 08:00', '2031-05-05 16:00')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM time_record WHERE employee_id IN (990021, 990022)");
+        jdbcTemplate.update("DELETE FROM employee WHERE id IN (990021, 990022)");
+        jdbcTemplate.update("DELETE FROM project WHERE id = 990021");
+        jdbcTemplate.update("DELETE FROM time_record_version WHERE month = '2031-05-01'");
+    }
+
+    @Test
+    void ingest_whenBatchesHoldDuplicates_thenOneIdPerInsertedRow() throws Exception {
+        long before = lastId();
+
+        IngestionResultDTO result = service.ingest(stream(CSV), DataFormat.CSV);
+
+        assertThat(result.inserted()).isEqualTo(4);
+        assertThat(result.duplicates()).isEqualTo(2);
+        assertThat(result.batches()).extracting(IngestionResultDTO.Batch::inserted).containsExactly(1, 1, 2);
+        // one nextval and then the inserted rows per batch, instead of one nextval (50 ids) per row
+        assertThat(lastId() - before).isEqualTo(3 * 50 + 4);
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM time_record " +
+                "WHERE employee_id IN (990021, 990022) AND id <> 990201 ORDER BY id", Long.class);
+        assertThat(ids).hasSize(4).allMatch(id -> id > before);
+        // the last batch numbered its rows in time order within its block
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM time_record " +
+                "WHERE time_from >= '2031-05-06' AND employee_id IN (990021, 990022) ORDER BY time_from", Long.class))
+                .containsExactly(lastId() - 1, lastId());
+    }
+
+    @Test
+    void ingest_whenEveryRowLoadedBefore_thenNoIdsTaken() throws Exception {
+        service.ingest(stream(CSV), DataFormat.CSV);
+        long before = lastId();
+
+        IngestionResultDTO result = service.ingest(stream(CSV), DataFormat.CSV);
+
+        assertThat(result.inserted()).isZero();
+        assertThat(result.duplicates()).isEqualTo(6);
+        assertThat(lastId()).isEqualTo(before);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM time_record WHERE employee_id IN (990021, 990022)",
+                Long.class)).isEqualTo(5);
+    }
+
+    private long lastId() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM time_record_id_seq", Long.class);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.xphrtestingassignment.archive.TimeRecordArchive;
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.dto.IngestionResultDTO;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TimeRecordIngestionServiceImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    // no archive unless a test stubs one
+    @Mock
+    private ObjectProvider<TimeRecordArchive> timeRecordArchive;
+
+    private TimeRecordIngestionServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        service = new TimeRecordIngestionServiceImpl(jdbcTemplate, transactionTemplate, eventPublisher,
+                objectMapper, timeRecordArchive, 2, 1);
+        when(jdbcTemplate.queryForList("SELECT id FROM employee", Long.class)).thenReturn(List.of(101L, 102L));
+        when(jdbcTemplate.queryForList("SELECT id FROM project", Long.class)).thenReturn(List.of(1L, 2L));
+    }
+
+    @Test
+    void ingest_whenCsvHasInvalidRows_thenRejectsThemAndLoadsTheRestInBatches() throws Exception {
+        String csv = """
+                employee_id,project_id,time_from,time_to
+                101,1,2025-09-01T08:00,2025-09-01T17:00
+                999,1,2025-09-01T08:00,2025-09-01T17:00
+                102,2,2025-09-02T08:00,2025-09-02T07:00
+                102,2,2025-09-03T08:00,2025-09-03T17:00
+                101,2,2025-10-01T08:00,2025-10-01T12:00
+                """;
+        when(transactionTemplate.execute(any())).thenReturn(1, 0);
+
+        IngestionResultDTO result = service.ingest(stream(csv), DataFormat.CSV);
+
+        assertThat(result.received()).isEqualTo(5);
+        assertThat(result.inserted()).isEqualTo(1);
+        assertThat(result.duplicates()).isEqualTo(2);
+        assertThat(result.rejected()).isEqualTo(2);
+        assertThat(result.batches()).extracting(IngestionResultDTO.Batch::received).containsExactly(2, 1);
+        // capped at max-rejected-rows
+        assertThat(result.rejectedRows()).containsExactly(
+                new IngestionResultDTO.RejectedRow(3, "unknown employee 999"));
+
+        ArgumentCaptor<TimeRecordsChangedEvent> event = ArgumentCaptor.forClass(TimeRecordsChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue()).isEqualTo(new TimeRecordsChangedEvent(
+                LocalDateTime.of(2025, 9, 1, 8, 0), LocalDateTime.of(2025, 9, 3, 17, 0),
+                Set.of(101L, 102L), Set.of(1L, 2L)));
+    }
+
+    @Test
+    void ingest_whenNdjsonHasMalformedLine_thenRejectsItWithItsLineNumber() throws Exception {
+        String ndjson = """
+                {"employeeId":101,"projectId":1,"timeFrom":"2025-09-01T08:00:00","timeTo":"2025-09-01T17:00:00"}
+                {"employeeId":101,"projectId":1,"timeFrom":"not a date","timeTo":"2025-09-01T17:00:00"}
+                """;
+        when(transactionTemplate.execute(any())).thenReturn(1);
+
+        IngestionResultDTO result = service.ingest(stream(ndjson), DataFormat.NDJSON);
+
+        assertThat(result.inserted()).isEqualTo(1);
+        assertThat(result.rejected()).isEqualTo(1);
+        assertThat(result.rejectedRows()).singleElement()
+                .extracting(IngestionResultDTO.RejectedRow::line).isEqualTo(2L);
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    void ingest_whenRowStartsInAnArchivedMonth_thenRejectsIt() throws Exception {
+        TimeRecordArchive archive = mock(TimeRecordArchive.class);
+        when(archive.archivedBefore()).thenReturn(LocalDateTime.of(2025, 9, 1, 0, 0));
+        when(timeRecordArchive.getIfAvailable()).thenReturn(archive);
+        String csv = """
+                employee_id,project_id,time_from,time_to
+                101,1,2025-08-31T22:00,2025-09-01T02:00
+                101,1,2025-09-01T08:00,2025-09-01T17:00
+                """;
+        when(transactionTemplate.execute(any())).thenReturn(1);
+
+        IngestionResultDTO result = service.ingest(stream(csv), DataFormat.CSV);
+
+        assertThat(result.inserted()).isEqualTo(1);
+        assertThat(result.rejectedRows()).containsExactly(new IngestionResultDTO.RejectedRow(2,
+                "timeFrom is in an archived month, before 2025-09-01T00:00"));
+    }
+
+    @Test
+    void ingest_whenCsvHeaderIsMissing_thenThrowsIllegalArgumentException() {
+        assertThatThrownBy(() -> service.ingest(stream("101,1,2025-09-01T08:00,2025-09-01T17:00\n"), DataFormat.CSV))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(transactionTemplate, eventPublisher);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.example.xphrtestingassignment.event.TimeRecordsChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TimeRecordPartitionServiceImplTest {
+
+    @InjectMocks
+    private TimeRecordPartitionServiceImpl partitionService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(partitionService, "premakeMonths", 2);
+        ReflectionTestUtils.setField(partitionService, "archiveSchema", "archive");
+    }
+
+    @Test
+    void ensurePartitions_whenRecordsParkedInDefault_thenCreatesTheirMonthsAndMonthsAhead() {
+        YearMonth current = YearMonth.now();
+        YearMonth parked = current.minusYears(1);
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(jdbcTemplate.queryForList(contains("time_record_default"), eq(LocalDate.class)))
+                .thenReturn(List.of(parked.atDay(1)));
+        when(jdbcTemplate.queryForObject(contains("time_record_ensure_partition"), eq(Boolean.class), any()))
+                .thenAnswer(inv -> !inv.getArgument(2).equals(current.atDay(1)));
+
+        List<YearMonth> created = partitionService.ensurePartitions();
+
+        assertThat(created).containsExactly(parked, current.minusMonths(1), current.plusMonths(1), current.plusMonths(2));
+    }
+
+    @Test
+    void detachExpiredPartitions_whenNoRetention_thenKeepsEverything() {
+        ReflectionTestUtils.setField(partitionService, "retentionMonths", 0);
+
+        assertThat(partitionService.detachExpiredPartitions()).isEmpty();
+        verifyNoInteractions(jdbcTemplate, transactionTemplate);
+    }
+
+    @Test
+    void detachExpiredPartitions_whenOlderThanRetention_thenDetachesAndArchives() {
+        ReflectionTestUtils.setField(partitionService, "retentionMonths", 12);
+        YearMonth expired = YearMonth.now().minusMonths(13);
+        YearMonth kept = YearMonth.now().minusMonths(12);
+        String expiredName = String.format("time_record_y%04dm%02d", expired.getYear(), expired.getMonthValue());
+        String keptName = String.format("time_record_y%04dm%02d", kept.getYear(), kept.getMonthValue());
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                .thenReturn(List.of("time_record_default", expiredName, keptName));
+        doAnswer(inv -> {
+            inv.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        List<YearMonth> detached = partitionService.detachExpiredPartitions();
+
+        assertThat(detached).containsExactly(expired);
+        verify(jdbcTemplate).execute("ALTER TABLE time_record DETACH PARTITION " + expiredName);
+        verify(jdbcTemplate).update(contains("time_record_rollup"), eq(expired.atDay(1)), eq(kept.atDay(1)));
+        verify(jdbcTemplate).update(contains("time_record_version"), eq(expired.atDay(1).atStartOfDay()),
+                eq(kept.atDay(1).atStartOfDay()));
+        verify(jdbcTemplate).execute("ALTER TABLE " + expiredName + " SET SCHEMA archive");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE time_record DETACH PARTITION " + keptName);
+        verify(eventPublisher).publishEvent(any(TimeRecordsChangedEvent.class));
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.xphrtestingassignment.service.impl;
+
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.repository.TimeRecordRepository;
+import org.example.xphrtestingassignment.service.TimeRecordRollupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The report read from time_record_rollup and the partial days at the edges of the window, against PostgreSQL: the
+ * rollup triggers, reconciliation and rebuild all run for real. Every report must equal the plain aggregate of the
+ * raw records. The records are written in the test transaction, in a month of their own, and rolled back.
+ */
+@SpringBootTest
+@Transactional
+class TimeRecordRollupServiceImplTest {
+
+    private static final long TOM = 990011;
+    private static final long JERRY = 990012;
+
+    // contained mode: the records with time_from >= start and time_to < end
+    private static final String RAW_REPORT_SQL = "SELECT e.name, p.name, " +
+            " SUM(EXTRACT(EPOCH FROM (t.time_to - t.time_from))) / 3600 " +
+            "FROM time_record t JOIN employee e ON t.employee_id = e.id JOIN project p ON t.project_id = p.id " +
+            "WHERE t.time_from >= ? AND t.time_to < ? AND (CAST(? AS BIGINT) IS NULL OR t.employee_id = ?) " +
+            "GROUP BY e.name, p.name ORDER BY e.name, p.name";
+
+    @Autowired
+    private TimeRecordRepository timeRecordRepository;
+
+    @Autowired
+    private TimeRecordRollupService timeRecordRollupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO employee (id, name) VALUES (?, 'rollup_tom'), (?, 'rollup_jerry')",
+                TOM, JERRY);
+        jdbcTemplate.update("INSERT INTO project (id, name) VALUES (990011, 'Rollup A'), (990012, 'Rollup B')");
+        jdbcTemplate.update("INSERT INTO time_record (id, employee_id, project_id, time_from, time_to) VALUES " +
+                "(990101, 990011, 990011, '2031-03-09 08:00', '2031-03-09 16:00'), " +
+                "(990102, 990011, 990011, '2031-03-09 13:00', '2031-03-09 18:00'), " +
+                "(990103, 990011, 990012, '2031-03-09 22:00', '2031-03-10 06:00'), " +
+                "(990104, 990011, 990011, '2031-03-10 09:00', '2031-03-10 17:00'), " +
+                "(990105, 990012, 990011, '2031-03-10 09:30', '2031-03-10 12:45'), " +
+                "(990106, 990012, 990012, '2031-03-10 23:00', '2031-03-11 03:00'), " +
+                "(990107, 990011, 990012, '2031-03-11 08:00', '2031-03-11 16:30:15.5'), " +
+                "(990108, 990012, 990011, '2031-03-12 07:00', '2031-03-12 10:00'), " +
+                "(990109, 990012, 990011, '2031-03-12 09:00', '2031-03-12 11:00'), " +
+                "(990110, 990011, 990011, '2031-03-11 20:00', '2031-03-12 09:00')");
+    }
+
+    @Test
+    void report_whenWindowHasPartialDays_thenEqualsRawAggregate() {
+        // partial first and last day, whole days only, a same-day window, less than a day across midnight, a month
+        assertReportMatchesRaw(at(9, 12, 30), at(12, 10, 15));
+        assertReportMatchesRaw(at(10, 0, 0), at(12, 0, 0));
+        assertReportMatchesRaw(at(10, 9, 0), at(10, 17, 0));
+        assertReportMatchesRaw(at(10, 9, 0), at(10, 17, 1));
+        assertReportMatchesRaw(at(10, 12, 0), at(11, 6, 0));
+        assertReportMatchesRaw(LocalDateTime.of(2031, 3, 1, 0, 0), LocalDateTime.of(2031, 4, 1, 0, 0));
+    }
+
+    @Test
+    void report_whenRecordsInsertedMovedAndDeleted_thenRollupFollows() {
+        jdbcTemplate.update("INSERT INTO time_record (id, employee_id, project_id, time_from, time_to) VALUES " +
+                "(990111, 990012, 990012, '2031-03-11 10:00', '2031-03-11 12:00')");
+        assertEveryWindowMatchesRaw();
+
+        // to another day and across midnight: the record leaves its bucket for another one
+        jdbcTemplate.update("UPDATE time_record SET time_from = '2031-03-12 22:00', time_to = '2031-03-13 02:00' " +
+                "WHERE id = 990107");
+        assertEveryWindowMatchesRaw();
+
+        jdbcTemplate.update("DELETE FROM time_record WHERE id IN (990105, 990110)");
+        assertEveryWindowMatchesRaw();
+    }
+
+    @Test
+    void reconcile_whenRollupDrifted_thenRepaired() {
+        injectDrift();
+        assertThat(report(at(9, 0, 0), at(13, 0, 0), null)).isNotEqualTo(raw(at(9, 0, 0), at(13, 0, 0), null));
+
+        int corrected = timeRecordRollupService.reconcile(LocalDate.of(2031, 3, 1), LocalDate.of(2031, 4, 1));
+
+        assertThat(corrected).isEqualTo(3);
+        assertEveryWindowMatchesRaw();
+    }
+
+    @Test
+    void rebuild_whenRollupDrifted_thenRepaired() {
+        injectDrift();
+
+        timeRecordRollupService.rebuild();
+
+        assertEveryWindowMatchesRaw();
+    }
+
+    private void injectDrift() {
+        // a wrong total, a lost bucket and a bucket without records
+        jdbcTemplate.update("UPDATE time_record_rollup SET total_seconds = total_seconds + 3600 " +
+                "WHERE bucket_from = '2031-03-10' AND bucket_to = '2031-03-10' AND employee_id = ?", TOM);
+        jdbcTemplate.update("DELETE FROM time_record_rollup " +
+                "WHERE bucket_from = '2031-03-10' AND bucket_to = '2031-03-11' AND employee_id = ?", JERRY);
+        jdbcTemplate.update("INSERT INTO time_record_rollup " +
+                "(bucket_from, bucket_to, employee_id, project_id, total_seconds, record_count) " +
+                "VALUES ('2031-03-11', '2031-03-11', ?, 990011, 7200, 1)", JERRY);
+    }
+
+    private void assertEveryWindowMatchesRaw() {
+        assertReportMatchesRaw(at(9, 12, 30), at(12, 10, 15));
+        assertReportMatchesRaw(at(10, 0, 0), at(12, 0, 0));
+        assertReportMatchesRaw(at(10, 9, 0), at(10, 17, 1));
+        assertReportMatchesRaw(at(10, 12, 0), at(13, 6, 0));
+        assertReportMatchesRaw(LocalDateTime.of(2031, 3, 1, 0, 0), LocalDateTime.of(2031, 4, 1, 0, 0));
+    }
+
+    private void assertReportMatchesRaw(LocalDateTime start, LocalDateTime end) {
+        List<ReportDTO> raw = raw(start, end, null);
+        assertThat(raw).as("records in %s - %s", start, end).isNotEmpty();
+        assertThat(report(start, end, null)).as("report of %s - %s", start, end).isEqualTo(raw);
+        assertThat(report(start, end, TOM)).as("report of tom in %s - %s", start, end).isEqualTo(raw(start, end, TOM));
+        assertThat(report(start, end, JERRY)).as("report of jerry in %s - %s", start, end)
+                .isEqualTo(raw(start, end, JERRY));
+    }
+
+    private List<ReportDTO> report(LocalDateTime start, LocalDateTime end, Long employeeId) {
+        return employeeId == null
+                ? timeRecordRepository.findAllBetweenStartDateAndEndDate(start, end, Pageable.unpaged())
+                : timeRecordRepository.findAllByEmployeeAndDateRange(employeeId, start, end, Pageable.unpaged());
+    }
+
+    private List<ReportDTO> raw(LocalDateTime start, LocalDateTime end, Long employeeId) {
+        return jdbcTemplate.query(RAW_REPORT_SQL,
+                (rs, rowNum) -> new ReportDTO(rs.getString(1), rs.getString(2), rs.getBigDecimal(3)),
+                start, end, employeeId, employeeId);
+    }
+
+    private static LocalDateTime at(int day, int hour, int minute) {
+        return LocalDateTime.of(2031, 3, day, hour, minute);
+    }
+}
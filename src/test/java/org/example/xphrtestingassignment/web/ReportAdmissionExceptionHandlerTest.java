@@ -0,0 +1,48 @@
+package org.example.xphrtestingassignment.web;
+
+import org.example.xphrtestingassignment.exception.ReportCapacityExceededException;
+import org.example.xphrtestingassignment.exception.TooManyReportRequestsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportAdmissionExceptionHandlerTest {
+
+    private final ReportAdmissionExceptionHandler handler = new ReportAdmissionExceptionHandler();
+
+    @Test
+    void capacityExceeded_whenRetryAfterKnown_thenServiceUnavailableWithWholeSecondsRoundedUp() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        handler.capacityExceeded(new ReportCapacityExceededException("busy", Duration.ofMillis(1500)), response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(response.getErrorMessage()).isEqualTo("busy");
+    }
+
+    @Test
+    void capacityExceeded_whenNoEstimate_thenNoRetryAfter() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        handler.capacityExceeded(new ReportCapacityExceededException("queue full"), response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isNull();
+    }
+
+    @Test
+    void tooManyRequests_thenTooManyRequestsWithRetryAfter() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        handler.tooManyRequests(new TooManyReportRequestsException("slow down", Duration.ofSeconds(2)), response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+    }
+}
@@ -0,0 +1,227 @@
+package org.example.xphrtestingassignment.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.xphrtestingassignment.constant.ReportDimension;
+import org.example.xphrtestingassignment.constant.ReportEncoding;
+import org.example.xphrtestingassignment.constant.ReportTotals;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.constant.TimeBucket;
+import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.dto.ReportDefinition;
+import org.example.xphrtestingassignment.dto.ReportRowDTO;
+import org.example.xphrtestingassignment.security.EmployeeUserDetails;
+import org.example.xphrtestingassignment.service.ReportService;
+import org.example.xphrtestingassignment.service.ReportVersionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportApiControllerTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 2, 1, 0, 0);
+
+    @Mock
+    private ReportService reportService;
+
+    @Mock
+    private ReportVersionService reportVersionService;
+
+    // as configured by Spring Boot
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+    private ReportApiController controller;
+
+    private final UserDetails admin = User.withUsername("admin").password("x").roles(UserRoles.ADMIN.name()).build();
+    private final UserDetails tom = new EmployeeUserDetails(
+            User.withUsername("tom").password("x").roles(UserRoles.EMPLOYEE.name()).build(), 101L);
+
+    @BeforeEach
+    void setUp() {
+        controller = new ReportApiController(reportService, reportVersionService, objectMapper,
+                ReportWindowMode.CONTAINED);
+    }
+
+    @Test
+    void getReportData_thenPageWithPagingMetadataAndStrongETag() throws IOException {
+        when(reportVersionService.getVersion(START, END)).thenReturn(7L);
+        when(reportService.getReportData(START, END, PageRequest.of(1, 2))).thenReturn(new PageImpl<>(
+                List.of(new ReportDTO("tom", "Project A", new BigDecimal("8.0000000000000000"))),
+                PageRequest.of(1, 2), 3));
+
+        MockHttpServletResponse response = get(admin, ReportEncoding.FULL, null, null, 1);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).matches("\"[A-Za-z0-9_-]{22}\"");
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache, private");
+        JsonNode body = objectMapper.readTree(response.getContentAsByteArray());
+        assertThat(body.get("startDate").asText()).isEqualTo("2025-01-01T00:00:00");
+        assertThat(body.get("page").asInt()).isEqualTo(1);
+        assertThat(body.get("totalElements").asLong()).isEqualTo(3);
+        assertThat(body.get("totalPages").asInt()).isEqualTo(2);
+        assertThat(body.get("content").get(0).get("employeeName").asText()).isEqualTo("tom");
+        assertThat(body.get("content").get(0).get("totalHours").decimalValue())
+                .isEqualByComparingTo(new BigDecimal("8"));
+    }
+
+    @Test
+    void getReportData_whenETagMatches_thenNotModifiedWithoutReport() throws IOException {
+        when(reportVersionService.getVersion(START, END)).thenReturn(7L);
+        when(reportService.getReportData(eq(START), eq(END), any())).thenReturn(new PageImpl<>(List.of()));
+        String etag = get(admin, ReportEncoding.FULL, null, null, 0).getHeader(HttpHeaders.ETAG);
+        clearInvocations(reportService);
+
+        MockHttpServletResponse response = get(admin, ReportEncoding.FULL, null, etag, 0);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        verifyNoInteractions(reportService);
+    }
+
+    @Test
+    void getReportData_whenVersionOrRequestDiffers_thenAnotherETag() throws IOException {
+        when(reportVersionService.getVersion(START, END)).thenReturn(7L, 8L, 8L, 8L);
+        when(reportService.getReportData(eq(START), eq(END), any())).thenReturn(new PageImpl<>(List.of()));
+        when(reportService.getReportDataForSpecificEmployee(eq(101L), eq(START), eq(END), any()))
+                .thenReturn(new PageImpl<>(List.of()));
+
+        String before = get(admin, ReportEncoding.FULL, null, null, 0).getHeader(HttpHeaders.ETAG);
+        MockHttpServletResponse changed = get(admin, ReportEncoding.FULL, null, before, 0);
+        String compact = get(admin, ReportEncoding.COMPACT, null, null, 0).getHeader(HttpHeaders.ETAG);
+        String employee = get(tom, ReportEncoding.FULL, null, null, 0).getHeader(HttpHeaders.ETAG);
+
+        assertThat(changed.getStatus()).isEqualTo(200);
+        assertThat(List.of(before, changed.getHeader(HttpHeaders.ETAG), compact, employee)).doesNotHaveDuplicates();
+        verify(reportService).getReportDataForSpecificEmployee(eq(101L), eq(START), eq(END), any());
+    }
+
+    @Test
+    void getReportData_whenCompactAndGzipAccepted_thenNamesOnceAndCompressed() throws IOException {
+        when(reportVersionService.getVersion(START, END)).thenReturn(7L);
+        when(reportService.getReportData(eq(START), eq(END), any())).thenReturn(new PageImpl<>(List.of(
+                new ReportDTO("jerry", "Project A", new BigDecimal("2.5000000000000000")),
+                new ReportDTO("jerry", "Project B", new BigDecimal("100.00000000000000")),
+                new ReportDTO("tom", "Project A", new BigDecimal("0.00027777777777777778")))));
+
+        MockHttpServletResponse response = get(admin, ReportEncoding.COMPACT, "gzip, deflate", null, 0);
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).endsWith("-gzip\"");
+        assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        String body = new String(new GZIPInputStream(
+                new ByteArrayInputStream(response.getContentAsByteArray())).readAllBytes(), StandardCharsets.UTF_8);
+        assertThat(body).contains("\"employees\":[\"jerry\",\"tom\"]")
+                .contains("\"projects\":[\"Project A\",\"Project B\"]")
+                .contains("\"rows\":[[0,0,2.5],[0,1,100],[1,0,0.00027777777777777778]]")
+                .doesNotContain("content");
+    }
+
+    @Test
+    void getGroupedReport_whenEmployee_thenOwnRowsWithoutNullsAndETag() throws IOException {
+        when(reportVersionService.getVersion(START, END)).thenReturn(7L);
+        ReportDefinition definition = ReportDefinition.of(START, END, 101L,
+                List.of(ReportDimension.PERIOD, ReportDimension.PROJECT), TimeBucket.WEEK, ReportTotals.ROLLUP);
+        when(reportService.getReport(definition)).thenReturn(List.of(
+                new ReportRowDTO(null, null, 1L, "Project A", LocalDate.of(2025, 1, 6), new BigDecimal("8"),
+                        Set.of(ReportDimension.PERIOD, ReportDimension.PROJECT)),
+                new ReportRowDTO(null, null, null, null, null, new BigDecimal("8"), Set.of())));
+
+        MockHttpServletResponse response = getGrouped(tom, List.of(ReportDimension.PERIOD, ReportDimension.PROJECT),
+                TimeBucket.WEEK, ReportTotals.ROLLUP, null);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).matches("\"[A-Za-z0-9_-]{22}\"");
+        JsonNode body = objectMapper.readTree(response.getContentAsByteArray());
+        assertThat(body.get("timeBucket").asText()).isEqualTo("WEEK");
+        assertThat(body.get("groupingSets")).hasSize(3);
+        JsonNode row = body.get("rows").get(0);
+        assertThat(row.get("period").asText()).isEqualTo("2025-01-06");
+        assertThat(row.get("projectName").asText()).isEqualTo("Project A");
+        assertThat(row.has("employeeId")).isFalse();
+        assertThat(body.get("rows").get(1).get("groupedBy")).isEmpty();
+    }
+
+    @Test
+    void getGroupedReport_whenETagMatches_thenNotModifiedWithoutReport() throws IOException {
+        when(reportVersionService.getVersion(START, END)).thenReturn(7L);
+        when(reportService.getReport(any())).thenReturn(List.of());
+        String etag = getGrouped(admin, List.of(ReportDimension.EMPLOYEE), null, ReportTotals.NONE, null)
+                .getHeader(HttpHeaders.ETAG);
+        String cube = getGrouped(admin, List.of(ReportDimension.EMPLOYEE), null, ReportTotals.CUBE, null)
+                .getHeader(HttpHeaders.ETAG);
+        clearInvocations(reportService);
+
+        MockHttpServletResponse response = getGrouped(admin, List.of(ReportDimension.EMPLOYEE), null,
+                ReportTotals.NONE, etag);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(cube).isNotEqualTo(etag);
+        verifyNoInteractions(reportService);
+    }
+
+    @Test
+    void getGroupedReport_whenBucketWithoutPeriod_thenBadRequest() {
+        assertThatThrownBy(() -> getGrouped(admin, List.of(ReportDimension.EMPLOYEE), TimeBucket.DAY,
+                ReportTotals.NONE, null))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(400));
+        verifyNoInteractions(reportService, reportVersionService);
+    }
+
+    private MockHttpServletResponse getGrouped(UserDetails user, List<ReportDimension> dimensions, TimeBucket bucket,
+                                               ReportTotals totals, String ifNoneMatch) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reports/grouped");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.getGroupedReport(START, END, dimensions, bucket, totals, null, user,
+                new ServletWebRequest(request, response), response);
+        return response;
+    }
+
+    private MockHttpServletResponse get(UserDetails user, ReportEncoding encoding, String acceptEncoding,
+                                        String ifNoneMatch, int page) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reports");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.getReportData(START, END, page, 2, encoding, acceptEncoding, user,
+                new ServletWebRequest(request, response), response);
+        return response;
+    }
+}
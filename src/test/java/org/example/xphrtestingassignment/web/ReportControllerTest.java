@@ -1,7 +1,9 @@
 package org.example.xphrtestingassignment.web;
 
 import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.dto.ReportCursor;
 import org.example.xphrtestingassignment.dto.ReportDTO;
+import org.example.xphrtestingassignment.security.EmployeeUserDetails;
 import org.example.xphrtestingassignment.service.ReportService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,17 +14,22 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.ui.ExtendedModelMap;
 import org.springframework.ui.Model;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -72,24 +79,24 @@ class ReportControllerTest {
         LocalDateTime start = LocalDateTime.now().minusMonths(1);
         LocalDateTime end = LocalDateTime.now();
 
-        UserDetails employee = User.withUsername("tom")
+        UserDetails employee = new EmployeeUserDetails(User.withUsername("tom")
                 .password("x")
                 .roles(UserRoles.EMPLOYEE.name())
-                .build();
+                .build(), 101L);
 
         Page<ReportDTO> expected = new PageImpl<>(
                 List.of(new ReportDTO("tom", "Project A", BigDecimal.valueOf(12.6)))
         );
         ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
 
-        when(reportService.getReportDataForSpecificEmployee(eq("tom"), eq(start), eq(end), any(Pageable.class)))
+        when(reportService.getReportDataForSpecificEmployee(eq(101L), eq(start), eq(end), any(Pageable.class)))
                 .thenReturn(expected);
 
         String view = controller.getReportData(start, end, pageIdx, size, employee, model);
 
         assertThat(view).isEqualTo("work_hours_report");
 
-        verify(reportService).getReportDataForSpecificEmployee(eq("tom"), eq(start), eq(end), pageableCaptor.capture());
+        verify(reportService).getReportDataForSpecificEmployee(eq(101L), eq(start), eq(end), pageableCaptor.capture());
         verifyNoMoreInteractions(reportService);
 
         Pageable usedPageable = pageableCaptor.getValue();
@@ -139,4 +146,83 @@ class ReportControllerTest {
         assertThat(model.getAttribute("currentPage")).isEqualTo(pageIdx);
         assertThat(model.getAttribute("pageSize")).isEqualTo(size);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getReportDataByCursor_whenAdminWithTotal_thenReturnsSliceNextCursorAndTotal() {
+        UserDetails admin = User.withUsername("admin")
+                .password("x")
+                .roles(UserRoles.ADMIN.name())
+                .build();
+        ReportDTO last = new ReportDTO("jerry", "Project B", BigDecimal.valueOf(9.5));
+        SliceImpl<ReportDTO> expected = new SliceImpl<>(List.of(last), PageRequest.of(0, 1), true);
+        when(reportService.getReportDataAfter(any(), any(), isNull(), eq(1))).thenReturn(expected);
+        when(reportService.countReportData(any(), any())).thenReturn(5L);
+
+        String view = controller.getReportDataByCursor(null, null, null, 1, true, admin, model);
+
+        assertThat(view).isEqualTo("work_hours_report");
+        assertThat(model.getAttribute("reportData")).isSameAs(expected);
+        assertThat(model.getAttribute("keyset")).isEqualTo(true);
+        assertThat(model.getAttribute("nextCursor")).isEqualTo(ReportCursor.of(last).encode());
+        assertThat(model.getAttribute("totalElements")).isEqualTo(5L);
+    }
+
+    @Test
+    void getReportDataByCursor_whenEmployeeWithCursor_thenSeeksWithoutCounting() {
+        UserDetails employee = new EmployeeUserDetails(User.withUsername("tom")
+                .password("x")
+                .roles(UserRoles.EMPLOYEE.name())
+                .build(), 101L);
+        ReportCursor after = new ReportCursor("tom", "Project A");
+        SliceImpl<ReportDTO> expected = new SliceImpl<>(List.of(), PageRequest.of(0, 10), false);
+        when(reportService.getReportDataForSpecificEmployeeAfter(eq(101L), any(), any(), eq(after), eq(10)))
+                .thenReturn(expected);
+
+        controller.getReportDataByCursor(null, null, after.encode(), 10, false, employee, model);
+
+        verify(reportService).getReportDataForSpecificEmployeeAfter(eq(101L), any(), any(), eq(after), eq(10));
+        verifyNoMoreInteractions(reportService);
+        assertThat(model.getAttribute("nextCursor")).isNull();
+        assertThat(model.getAttribute("totalElements")).isNull();
+    }
+
+    @Test
+    void getReportDataByCursor_whenCursorMalformed_thenBadRequest() {
+        UserDetails admin = User.withUsername("admin")
+                .password("x")
+                .roles(UserRoles.ADMIN.name())
+                .build();
+
+        assertThatThrownBy(() -> controller.getReportDataByCursor(null, null, "%%%", 10, false, admin, model))
+                .isInstanceOf(ResponseStatusException.class);
+        verifyNoInteractions(reportService);
+    }
+
+    @Test
+    void getReportDataByCursor_whenSizeOutOfRange_thenBadRequest() {
+        UserDetails admin = User.withUsername("admin")
+                .password("x")
+                .roles(UserRoles.ADMIN.name())
+                .build();
+
+        for (int size : new int[]{0, -1, ReportController.MAX_SLICE_SIZE + 1}) {
+            assertThatThrownBy(() -> controller.getReportDataByCursor(null, null, null, size, false, admin, model))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+        verifyNoInteractions(reportService);
+    }
+
+    @Test
+    void getReportData_whenEmployeeWithoutLinkedEmployee_thenForbidden() {
+        UserDetails employee = new EmployeeUserDetails(User.withUsername("guest")
+                .password("x")
+                .roles(UserRoles.EMPLOYEE.name())
+                .build(), null);
+
+        assertThatThrownBy(() -> controller.getReportData(null, null, 0, 10, employee, model))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("403");
+        verifyNoInteractions(reportService);
+    }
+}
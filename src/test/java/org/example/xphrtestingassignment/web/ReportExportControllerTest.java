@@ -0,0 +1,85 @@
+package org.example.xphrtestingassignment.web;
+
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.security.EmployeeUserDetails;
+import org.example.xphrtestingassignment.service.ReportExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportExportControllerTest {
+
+    @Mock
+    private ReportExportService reportExportService;
+
+    @InjectMocks
+    private ReportExportController controller;
+
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void exportReport_whenAdmin_thenExportsAllEmployeesAsCsv() throws Exception {
+        UserDetails admin = User.withUsername("admin")
+                .password("x")
+                .roles(UserRoles.ADMIN.name())
+                .build();
+        LocalDateTime start = LocalDateTime.of(2025, 7, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2025, 10, 1, 0, 0);
+
+        controller.exportReport(start, end, "csv", false, admin, response);
+
+        verify(reportExportService).exportReport(isNull(), eq(start), eq(end), eq(DataFormat.CSV), any());
+        verifyNoMoreInteractions(reportExportService);
+        assertThat(response.getContentType()).startsWith("text/csv");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).contains("work-hours-report.csv");
+    }
+
+    @Test
+    void exportReport_whenEmployeeRequestsRawRows_thenExportsOnlyTheirRecords() throws Exception {
+        UserDetails employee = new EmployeeUserDetails(User.withUsername("tom")
+                .password("x")
+                .roles(UserRoles.EMPLOYEE.name())
+                .build(), 101L);
+
+        controller.exportReport(null, null, "NDJSON", true, employee, response);
+
+        verify(reportExportService).exportTimeRecords(eq(101L), any(), any(), eq(DataFormat.NDJSON), any());
+        verifyNoMoreInteractions(reportExportService);
+        assertThat(response.getContentType()).startsWith("application/x-ndjson");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).contains("time-records.ndjson");
+    }
+
+    @Test
+    void exportReport_whenFormatUnknown_thenBadRequest() {
+        UserDetails admin = User.withUsername("admin")
+                .password("x")
+                .roles(UserRoles.ADMIN.name())
+                .build();
+
+        assertThatThrownBy(() -> controller.exportReport(null, null, "xml", false, admin, response))
+                .isInstanceOf(ResponseStatusException.class);
+        verifyNoInteractions(reportExportService);
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.xphrtestingassignment.web;
+
+import org.example.xphrtestingassignment.constant.DataFormat;
+import org.example.xphrtestingassignment.constant.ReportGrouping;
+import org.example.xphrtestingassignment.constant.ReportJobStatus;
+import org.example.xphrtestingassignment.constant.ReportWindowMode;
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.dto.ReportJobRequest;
+import org.example.xphrtestingassignment.entity.ReportJob;
+import org.example.xphrtestingassignment.security.EmployeeUserDetails;
+import org.example.xphrtestingassignment.service.ReportJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportJobControllerTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Mock
+    private ReportJobService reportJobService;
+
+    private ReportJobController controller;
+
+    private final UserDetails admin = User.withUsername("admin").password("x").roles(UserRoles.ADMIN.name()).build();
+    private final UserDetails tom = new EmployeeUserDetails(
+            User.withUsername("tom").password("x").roles(UserRoles.EMPLOYEE.name()).build(), 101L);
+
+    @BeforeEach
+    void setUp() {
+        controller = new ReportJobController(reportJobService, Duration.ofMinutes(30));
+    }
+
+    @Test
+    void submit_whenAdmin_thenQueuesAllEmployeesWithDefaults() {
+        ReportJob job = job("admin", ReportJobStatus.QUEUED);
+        when(reportJobService.submit("admin", null, START, END, ReportGrouping.EMPLOYEE_PROJECT, DataFormat.CSV))
+                .thenReturn(job);
+
+        var response = controller.submit(new ReportJobRequest(START, END, null, null, null), admin);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(response.getHeaders().getLocation()).hasToString("/api/report-jobs/" + job.getId());
+        assertThat(response.getBody().status()).isEqualTo(ReportJobStatus.QUEUED);
+    }
+
+    @Test
+    void submit_whenEmployee_thenRestrictedToThemselves() {
+        when(reportJobService.submit(eq("tom"), eq(101L), eq(START), eq(END), eq(ReportGrouping.PROJECT),
+                eq(DataFormat.NDJSON))).thenReturn(job("tom", ReportJobStatus.QUEUED));
+
+        controller.submit(new ReportJobRequest(START, END, null, ReportGrouping.PROJECT, DataFormat.NDJSON), tom);
+
+        assertThatThrownBy(() -> controller.submit(new ReportJobRequest(START, END, 102L, null, null), tom))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+        verify(reportJobService).submit(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getJob_whenSubmittedBySomeoneElse_thenNotFound() {
+        ReportJob job = job("jerry", ReportJobStatus.RUNNING);
+        when(reportJobService.findJob(job.getId())).thenReturn(Optional.of(job));
+
+        assertThatThrownBy(() -> controller.getJob(job.getId(), tom))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        assertThat(controller.getJob(job.getId(), admin).status()).isEqualTo(ReportJobStatus.RUNNING);
+    }
+
+    @Test
+    void getResult_whenNotDone_thenConflict() {
+        ReportJob job = job("tom", ReportJobStatus.RUNNING);
+        when(reportJobService.findJob(job.getId())).thenReturn(Optional.of(job));
+
+        assertThatThrownBy(() -> controller.getResult(job.getId(), null, tom, new MockHttpServletResponse()))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    @Test
+    void getResult_whenClientAcceptsGzip_thenStoredStreamAsItIs() throws Exception {
+        ReportJob job = job("tom", ReportJobStatus.DONE);
+        job.setResultBytes(1234L);
+        when(reportJobService.findJob(job.getId())).thenReturn(Optional.of(job));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.getResult(job.getId(), "gzip, deflate, br", tom, response);
+
+        verify(reportJobService).writeResult(eq(job.getId()), any(), eq(true));
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getContentLengthLong()).isEqualTo(1234L);
+        assertThat(response.getContentType()).startsWith("text/csv");
+    }
+
+    @Test
+    void getResult_whenClientDoesNotAcceptGzip_thenDecompressed() throws Exception {
+        ReportJob job = job("tom", ReportJobStatus.DONE);
+        when(reportJobService.findJob(job.getId())).thenReturn(Optional.of(job));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.getResult(job.getId(), null, tom, response);
+
+        verify(reportJobService).writeResult(eq(job.getId()), any(), eq(false));
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    private static ReportJob job(String username, ReportJobStatus status) {
+        return ReportJob.builder()
+                .id(UUID.randomUUID())
+                .username(username)
+                .startDate(START)
+                .endDate(END)
+                .windowMode(ReportWindowMode.CONTAINED)
+                .grouping(ReportGrouping.EMPLOYEE_PROJECT)
+                .format(DataFormat.CSV)
+                .status(status)
+                .chunksTotal(24)
+                .createdAt(LocalDateTime.of(2025, 6, 1, 12, 0))
+                .build();
+    }
+}
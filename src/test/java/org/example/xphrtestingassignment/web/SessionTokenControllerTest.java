@@ -0,0 +1,46 @@
+package org.example.xphrtestingassignment.web;
+
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.dto.SessionTokenDTO;
+import org.example.xphrtestingassignment.security.EmployeeUserDetails;
+import org.example.xphrtestingassignment.security.SessionTokenCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionTokenControllerTest {
+
+    private final SessionTokenCodec codec = SessionTokenCodec.of("", Duration.ofHours(1));
+
+    private final SessionTokenController controller = new SessionTokenController(codec);
+
+    private final EmployeeUserDetails tom = new EmployeeUserDetails(
+            User.withUsername("tom").password("x").roles(UserRoles.EMPLOYEE.name()).build(), 101L);
+
+    @Test
+    void issue_whenAuthenticatedWithCredentials_thenBearerTokenOfTheEmployee() {
+        SessionTokenDTO issued = controller.issue(
+                UsernamePasswordAuthenticationToken.authenticated(tom, null, tom.getAuthorities()));
+
+        assertThat(issued.tokenType()).isEqualTo("Bearer");
+        assertThat(codec.decode(issued.token()).employeeId()).isEqualTo(101L);
+        assertThat(codec.decode(issued.token()).expiresAt()).isEqualTo(issued.expiresAt());
+    }
+
+    @Test
+    void issue_whenAuthenticatedWithAToken_thenForbidden() {
+        var authentication = UsernamePasswordAuthenticationToken.authenticated(tom, null, tom.getAuthorities());
+        authentication.setDetails(codec.issue(tom));
+
+        assertThatThrownBy(() -> controller.issue(authentication))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.xphrtestingassignment.web;
+
+import org.example.xphrtestingassignment.constant.UserRoles;
+import org.example.xphrtestingassignment.dto.TimeRecordCursor;
+import org.example.xphrtestingassignment.dto.TimeRecordDTO;
+import org.example.xphrtestingassignment.dto.TimeRecordPageDTO;
+import org.example.xphrtestingassignment.security.EmployeeUserDetails;
+import org.example.xphrtestingassignment.service.TimeRecordService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TimeRecordControllerTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 8, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 9, 1, 0, 0);
+
+    @Mock
+    private TimeRecordService timeRecordService;
+
+    private TimeRecordController controller;
+
+    private final UserDetails admin = User.withUsername("admin").password("x").roles(UserRoles.ADMIN.name()).build();
+    private final UserDetails tom = new EmployeeUserDetails(
+            User.withUsername("tom").password("x").roles(UserRoles.EMPLOYEE.name()).build(), 101L);
+
+    @BeforeEach
+    void setUp() {
+        controller = new TimeRecordController(timeRecordService);
+    }
+
+    @Test
+    void getTimeRecords_whenMoreRecords_thenPageWithCursorOfTheLastRecord() {
+        TimeRecordDTO first = record(7L, START.plusDays(7).withHour(8));
+        TimeRecordDTO second = record(3L, START.plusDays(8).withHour(8));
+        TimeRecordCursor after = new TimeRecordCursor(START.plusDays(6).withHour(8), 12L);
+        when(timeRecordService.getTimeRecordsAfter(null, "tom", "Project A", START, END, after, 2))
+                .thenReturn(new SliceImpl<>(List.of(first, second), PageRequest.of(0, 2), true));
+
+        TimeRecordPageDTO page = controller.getTimeRecords("tom", "Project A", START, END, after.encode(), 2, admin);
+
+        assertThat(page.content()).containsExactly(first, second);
+        assertThat(TimeRecordCursor.decode(page.next())).isEqualTo(TimeRecordCursor.of(second));
+    }
+
+    @Test
+    void getTimeRecords_whenEmployee_thenOwnRecordsOnly() {
+        when(timeRecordService.getTimeRecordsAfter(eq(101L), eq("jerry"), eq("Project A"), eq(START), eq(END),
+                isNull(), eq(50)))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        TimeRecordPageDTO page = controller.getTimeRecords("jerry", "Project A", START, END, null, 50, tom);
+
+        assertThat(page.employeeName()).isEqualTo("jerry");
+        assertThat(page.content()).isEmpty();
+        assertThat(page.next()).isNull();
+    }
+
+    @Test
+    void getTimeRecords_whenInvalidRequest_thenBadRequest() {
+        assertThatThrownBy(() -> controller.getTimeRecords(" ", "Project A", START, END, null, 50, admin))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> controller.getTimeRecords("tom", "Project A", START, END, "not-a-cursor", 50, admin))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> controller.getTimeRecords("tom", "Project A", START, END, null,
+                TimeRecordController.MAX_PAGE_SIZE + 1, admin))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        verifyNoInteractions(timeRecordService);
+    }
+
+    private static TimeRecordDTO record(long id, LocalDateTime from) {
+        return new TimeRecordDTO(id, 101L, "tom", 1L, "Project A", from, from.plusHours(8));
+    }
+}